@@ -0,0 +1,168 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.utils;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.index.select.SelectedItemsAll;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.data.v2.ip.Permissions;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.jobs.Report.PluginState;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
+import org.roda.core.data.v2.log.LogEntryParameter;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Serialization and deserialization of the main RODA model objects through
+ * {@link JsonUtils}. The <code>newMapper</code> benchmarks create an
+ * <code>ObjectMapper</code> per call, as JsonUtils used to do, and serve as a
+ * baseline.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Measurement(iterations = 5, time = 1, timeUnit = TimeUnit.SECONDS)
+@Fork(1)
+public class JsonUtilsBenchmark {
+
+  private AIP aip;
+  private Job job;
+  private Report report;
+  private LogEntry logEntry;
+
+  private String aipJson;
+  private byte[] aipJsonBytes;
+  private String jobJson;
+  private String reportJson;
+  private String logEntryJson;
+
+  @Setup
+  public void setup() {
+    aip = new AIP("aip-id", "parent-id", "type", AIPState.ACTIVE, new Permissions(), "admin");
+    List<DescriptiveMetadata> descriptiveMetadata = new ArrayList<>();
+    descriptiveMetadata.add(new DescriptiveMetadata("ead.xml", aip.getId(), "ead", "2002"));
+    aip.setDescriptiveMetadata(descriptiveMetadata);
+    List<Representation> representations = new ArrayList<>();
+    for (int i = 0; i < 3; i++) {
+      representations.add(new Representation("rep-" + i, aip.getId(), i == 0, "MIXED"));
+    }
+    aip.setRepresentations(representations);
+
+    Map<String, String> pluginParameters = new HashMap<>();
+    pluginParameters.put("parameter.clear_indexes", "true");
+    job = new Job().setId("job-id").setName("job name").setUsername("admin").setStartDate(new Date())
+      .setPlugin("org.roda.core.plugins.plugins.base.reindex.ReindexAIPPlugin").setPluginParameters(pluginParameters)
+      .setSourceObjects(new SelectedItemsAll<>(AIP.class.getName()));
+
+    report = new Report().setId("report-id").setSourceObjectId(aip.getId()).setSourceObjectClass(AIP.class.getName())
+      .setTitle("report title");
+    report.setJobId(job.getId());
+    for (int i = 0; i < 5; i++) {
+      report.addReport(new Report().setId("report-" + i).setPluginState(PluginState.SUCCESS)
+        .setPluginDetails("details of step " + i));
+    }
+
+    logEntry = new LogEntry("log-id", "127.0.0.1", new Date(), "admin", "BrowserService", "retrieveAIP",
+      Arrays.asList(new LogEntryParameter("aipId", aip.getId())), aip.getId(), 10, LOG_ENTRY_STATE.SUCCESS);
+
+    aipJson = JsonUtils.getJsonFromObject(aip);
+    aipJsonBytes = aipJson.getBytes(StandardCharsets.UTF_8);
+    jobJson = JsonUtils.getJsonFromObject(job);
+    reportJson = JsonUtils.getJsonFromObject(report);
+    logEntryJson = JsonUtils.getJsonFromObject(logEntry);
+  }
+
+  @Benchmark
+  public String writeAIP() {
+    return JsonUtils.getJsonFromObject(aip);
+  }
+
+  @Benchmark
+  public AIP readAIP() throws GenericException {
+    return JsonUtils.getObjectFromJson(aipJson, AIP.class);
+  }
+
+  @Benchmark
+  public AIP readAIPFromStream() throws GenericException {
+    return JsonUtils.getObjectFromJson(new ByteArrayInputStream(aipJsonBytes), AIP.class);
+  }
+
+  @Benchmark
+  public AIP readAIPNewMapper() throws IOException {
+    return new ObjectMapper(new JsonFactory()).readValue(aipJson, AIP.class);
+  }
+
+  @Benchmark
+  public String writeJob() {
+    return JsonUtils.getJsonFromObject(job);
+  }
+
+  @Benchmark
+  public Job readJob() throws GenericException {
+    return JsonUtils.getObjectFromJson(jobJson, Job.class);
+  }
+
+  @Benchmark
+  public String writeReport() {
+    return JsonUtils.getJsonFromObject(report);
+  }
+
+  @Benchmark
+  public Report readReport() throws GenericException {
+    return JsonUtils.getObjectFromJson(reportJson, Report.class);
+  }
+
+  @Benchmark
+  public Report readReportNewMapper() throws IOException {
+    return new ObjectMapper(new JsonFactory()).readValue(reportJson, Report.class);
+  }
+
+  @Benchmark
+  public String writeLogEntry() {
+    return JsonUtils.getJsonFromObject(logEntry);
+  }
+
+  @Benchmark
+  public LogEntry readLogEntry() throws GenericException {
+    return JsonUtils.getObjectFromJson(logEntryJson, LogEntry.class);
+  }
+
+  @Benchmark
+  public String writeLogEntryNewMapper() throws IOException {
+    return new ObjectMapper(new JsonFactory()).writeValueAsString(logEntry);
+  }
+}
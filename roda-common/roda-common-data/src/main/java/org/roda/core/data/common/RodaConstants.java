@@ -156,6 +156,7 @@ public final class RodaConstants {
   public static final String API_QUERY_VALUE_LANG_EN_US = "en_US";
   public static final String API_QUERY_KEY_START = "start";
   public static final String API_QUERY_KEY_LIMIT = "limit";
+  public static final String API_QUERY_KEY_FIELDS = "fields";
   public static final String API_QUERY_IS_ORIGINAL = "isOriginal";
   public static final String API_QUERY_KEY_RETURN_CLASS = "returnClass";
   public static final String API_QUERY_KEY_ONLY_ACTIVE = "onlyActive";
@@ -633,6 +634,7 @@ public final class RodaConstants {
   public static final String PLUGIN_PARAMS_BOOLEAN_VALUE = "parameter.boolean_value";
   public static final String PLUGIN_PARAMS_CLEAR_INDEXES = "parameter.clear_indexes";
   public static final String PLUGIN_PARAMS_OPTIMIZE_INDEXES = "parameter.optimize_indexes";
+  public static final String PLUGIN_PARAMS_SHADOW_INDEXES = "parameter.shadow_indexes";
   public static final String PLUGIN_PARAMS_OBJECT_CLASS = "parameter.object_class";
   public static final String PLUGIN_PARAMS_CLASS_CANONICAL_NAME = "parameter.class_canonical_name";
   public static final String PLUGIN_PARAMS_SIP_TO_AIP_CLASS = "parameter.sip_to_aip_class";
@@ -9,6 +9,7 @@ package org.roda.core.data.utils;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.StandardOpenOption;
@@ -17,9 +18,9 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.commons.io.IOUtils;
-import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
 import org.roda.core.data.v2.ip.metadata.DescriptiveMetadataMixIn;
@@ -27,42 +28,111 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.JavaType;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
 import com.fasterxml.jackson.databind.node.ObjectNode;
-import com.fasterxml.jackson.databind.type.TypeFactory;
 
 public final class JsonUtils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(JsonUtils.class);
 
+  /**
+   * Mappers are thread safe once configured, and so are the readers and
+   * writers they create, so they are shared instead of being created on every
+   * call (which throws away Jackson's serializer caches)
+   */
+  private static final ObjectMapper MAPPER = new ObjectMapper(new JsonFactory());
+  private static final ObjectMapper MAPPER_WITH_MIXINS = new ObjectMapper(new JsonFactory())
+    .addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
+
+  private static final Map<JavaType, ObjectReader> READERS = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, ObjectWriter> WRITERS = new ConcurrentHashMap<>();
+  private static final Map<Class<?>, ObjectWriter> WRITERS_WITH_MIXINS = new ConcurrentHashMap<>();
+
   /** Private empty constructor */
   private JsonUtils() {
 
   }
 
+  /**
+   * @return a shared reader for the given type
+   */
+  public static ObjectReader getReader(Class<?> objectClass) {
+    return getReader(MAPPER.getTypeFactory().constructType(objectClass));
+  }
+
+  /**
+   * @return a shared reader for a list of the given type
+   */
+  public static ObjectReader getListReader(Class<?> objectClass) {
+    return getReader(MAPPER.getTypeFactory().constructCollectionType(ArrayList.class, objectClass));
+  }
+
+  private static ObjectReader getReader(JavaType type) {
+    return READERS.computeIfAbsent(type, MAPPER::readerFor);
+  }
+
+  /**
+   * @return a shared writer for the object type, using the same mixins as
+   *         {@link #getJsonFromObject(Object)}
+   */
+  public static ObjectWriter getWriter(Object object) {
+    if (object == null) {
+      return MAPPER.writer();
+    } else if (useMixins(object)) {
+      return WRITERS_WITH_MIXINS.computeIfAbsent(object.getClass(), MAPPER_WITH_MIXINS::writerFor);
+    } else {
+      return WRITERS.computeIfAbsent(object.getClass(), MAPPER::writerFor);
+    }
+  }
+
+  private static boolean useMixins(Object object) {
+    if (object instanceof DescriptiveMetadata) {
+      return false;
+    } else if (object instanceof List<?>) {
+      List<?> objectList = (List<?>) object;
+      return !objectList.isEmpty() && !(objectList.get(0) instanceof DescriptiveMetadata);
+    } else {
+      return true;
+    }
+  }
+
   public static <T> T readObjectFromFile(Path jsonFile, Class<T> objectClass) throws GenericException {
-    InputStream stream;
     try {
-      stream = Files.newInputStream(jsonFile);
-      T obj = getObjectFromJson(stream, objectClass);
-      IOUtils.closeQuietly(stream);
-      return obj;
+      return getObjectFromJson(Files.newInputStream(jsonFile), objectClass);
     } catch (IOException e) {
       throw new GenericException(e);
     }
   }
 
   public static void writeObjectToFile(Object object, Path file) throws GenericException {
-    try {
-      String json = getJsonFromObject(object);
-      Files.write(file, json.getBytes(), StandardOpenOption.CREATE);
+    try (OutputStream outputStream = Files.newOutputStream(file, StandardOpenOption.CREATE)) {
+      writeObjectToStream(object, outputStream);
     } catch (IOException e) {
       throw new GenericException("Error writing object, as json, to file", e);
     }
   }
 
+  /**
+   * Writes the object, as json, to the stream. The stream is not closed.
+   */
+  public static void writeObjectToStream(Object object, OutputStream outputStream) throws GenericException {
+    try {
+      JsonGenerator generator = MAPPER.getFactory().createGenerator(outputStream);
+      // closing the generator flushes it, but must leave the stream open
+      generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      getWriter(object).writeValue(generator, object);
+      generator.close();
+    } catch (IOException e) {
+      throw new GenericException("Error writing object, as json, to stream", e);
+    }
+  }
+
   public static void appendObjectToFile(Object object, Path file) throws GenericException {
     try {
       String json = getJsonFromObject(object) + "\n";
@@ -75,8 +145,7 @@ public final class JsonUtils {
   public static Map<String, String> getMapFromJson(String json) {
     Map<String, String> ret = new HashMap<String, String>();
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      ret = mapper.readValue(json, new TypeReference<Map<String, String>>() {});
+      ret = MAPPER.readValue(json, new TypeReference<Map<String, String>>() {});
     } catch (IOException e) {
       LOGGER.error("Error transforming json string to Map<String,String>", e);
     }
@@ -86,62 +155,34 @@ public final class JsonUtils {
   public static String getJsonFromObject(Object object) {
     String ret = null;
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      mapper = addMixinsToMapper(mapper, object);
-      ret = mapper.writeValueAsString(object);
+      ret = getWriter(object).writeValueAsString(object);
     } catch (IOException e) {
       LOGGER.error("Error transforming object '{}' to json string", object, e);
     }
     return ret;
   }
 
-  private static ObjectMapper addMixinsToMapper(ObjectMapper mapper, Object object) {
-    if (!(object instanceof DescriptiveMetadata)) {
-      if ((object instanceof List<?>)) {
-        List<?> objectList = (List<?>) object;
-        if (!objectList.isEmpty() && !(objectList.get(0) instanceof DescriptiveMetadata)) {
-          mapper.addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
-        }
-      } else {
-        mapper.addMixIn(DescriptiveMetadata.class, DescriptiveMetadataMixIn.class);
-      }
-    }
-
-    return mapper;
-  }
-
   public static <T> T getObjectFromJson(Path json, Class<T> objectClass) throws GenericException {
-    T ret;
-    InputStream stream = null;
-    try {
-      stream = Files.newInputStream(json);
-      String jsonString = IOUtils.toString(stream, RodaConstants.DEFAULT_ENCODING);
-      ret = getObjectFromJson(jsonString, objectClass);
+    try (InputStream stream = Files.newInputStream(json)) {
+      return getReader(objectClass).readValue(stream);
     } catch (IOException e) {
       throw new GenericException("Error while parsing json file", e);
-    } finally {
-      IOUtils.closeQuietly(stream);
     }
-    return ret;
   }
 
   public static <T> T getObjectFromJson(InputStream json, Class<T> objectClass) throws GenericException {
-    T ret;
     try {
-      String jsonString = IOUtils.toString(json, RodaConstants.DEFAULT_ENCODING);
-      ret = getObjectFromJson(jsonString, objectClass);
+      return getReader(objectClass).readValue(json);
     } catch (IOException e) {
       throw new GenericException(e);
     } finally {
       IOUtils.closeQuietly(json);
     }
-    return ret;
   }
 
   public static <T> T getObjectFromJson(String json, Class<T> objectClass) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readValue(json, objectClass);
+      return getReader(objectClass).readValue(json);
     } catch (IOException e) {
       throw new GenericException("Error while parsing JSON", e);
     }
@@ -149,18 +190,25 @@ public final class JsonUtils {
 
   public static <T> List<T> getListFromJson(String json, Class<T> objectClass) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      TypeFactory t = TypeFactory.defaultInstance();
-      return mapper.readValue(json, t.constructCollectionType(ArrayList.class, objectClass));
+      return getListReader(objectClass).readValue(json);
     } catch (IOException e) {
       throw new GenericException("Error while parsing JSON", e);
     }
   }
 
+  public static <T> List<T> getListFromJson(InputStream json, Class<T> objectClass) throws GenericException {
+    try {
+      return getListReader(objectClass).readValue(json);
+    } catch (IOException e) {
+      throw new GenericException("Error while parsing JSON", e);
+    } finally {
+      IOUtils.closeQuietly(json);
+    }
+  }
+
   public static JsonNode parseJson(String json) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readTree(json);
+      return MAPPER.readTree(json);
     } catch (IOException e) {
       throw new GenericException("Error while parsing JSON", e);
     }
@@ -168,8 +216,7 @@ public final class JsonUtils {
 
   public static JsonNode parseJson(InputStream json) throws GenericException {
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      return mapper.readTree(json);
+      return MAPPER.readTree(json);
     } catch (IOException e) {
       throw new GenericException("Error while parsing JSON", e);
     } finally {
@@ -180,8 +227,7 @@ public final class JsonUtils {
   public static String getJsonFromNode(JsonNode node) {
     String ret = null;
     try {
-      ObjectMapper mapper = new ObjectMapper(new JsonFactory());
-      ret = mapper.writeValueAsString(node);
+      ret = MAPPER.writeValueAsString(node);
     } catch (IOException e) {
       LOGGER.error("Error transforming object '{}' to json string", node, e);
     }
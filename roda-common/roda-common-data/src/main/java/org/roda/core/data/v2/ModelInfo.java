@@ -14,6 +14,7 @@ public class ModelInfo implements Serializable {
   private static final long serialVersionUID = 100887226360606485L;
 
   private Map<String, Integer> installedClassesVersions;
+  private Map<String, Integer> installedIndexVersions;
 
   public ModelInfo() {
     super();
@@ -28,4 +29,13 @@ public class ModelInfo implements Serializable {
     return this;
   }
 
+  public Map<String, Integer> getInstalledIndexVersions() {
+    return installedIndexVersions;
+  }
+
+  public ModelInfo setInstalledIndexVersions(Map<String, Integer> installedIndexVersions) {
+    this.installedIndexVersions = installedIndexVersions;
+    return this;
+  }
+
 }
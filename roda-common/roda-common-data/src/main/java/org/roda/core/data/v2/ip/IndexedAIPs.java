@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.v2.ip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.roda.core.data.v2.common.RODAObjectList;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * List of {@link IndexedAIP} as they are stored in the index.
+ */
+@XmlRootElement(name = "indexedAIPs")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IndexedAIPs implements RODAObjectList<IndexedAIP> {
+  private List<IndexedAIP> aips;
+
+  public IndexedAIPs() {
+    super();
+    aips = new ArrayList<IndexedAIP>();
+  }
+
+  public IndexedAIPs(List<IndexedAIP> aips) {
+    super();
+    this.aips = aips;
+  }
+
+  @JsonProperty(value = "indexedAIPs")
+  @XmlElement(name = "indexedAIP")
+  public List<IndexedAIP> getObjects() {
+    return aips;
+  }
+
+  public void setObjects(List<IndexedAIP> aips) {
+    this.aips = aips;
+  }
+
+  @Override
+  public void addObject(IndexedAIP indexedAIP) {
+    this.aips.add(indexedAIP);
+  }
+
+}
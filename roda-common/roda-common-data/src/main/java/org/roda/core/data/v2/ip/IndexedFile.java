@@ -31,7 +31,7 @@ public class IndexedFile implements IsIndexed {
 
   private FileFormat fileFormat;
   private String originalName;
-  private long size = 0;
+  private Long size = 0L;
   private boolean isDirectory = false;
   private String creatingApplicationName;
   private String creatingApplicationVersion;
@@ -47,7 +47,7 @@ public class IndexedFile implements IsIndexed {
   }
 
   public IndexedFile(String uuid, String parentUUID, String aipId, String representationId, String representationUUID,
-    List<String> path, List<String> ancestorsPath, String id, FileFormat fileFormat, String originalName, long size,
+    List<String> path, List<String> ancestorsPath, String id, FileFormat fileFormat, String originalName, Long size,
     boolean isDirectory, String creatingApplicationName, String creatingApplicationVersion,
     String dateCreatedByApplication, List<String> hash, String storagePath, List<String> ancestors,
     Map<String, List<String>> otherProperties) {
@@ -147,11 +147,11 @@ public class IndexedFile implements IsIndexed {
     this.originalName = originalName;
   }
 
-  public long getSize() {
+  public Long getSize() {
     return size;
   }
 
-  public void setSize(long size) {
+  public void setSize(Long size) {
     this.size = size;
   }
 
@@ -246,7 +246,7 @@ public class IndexedFile implements IsIndexed {
     result = prime * result + ((ancestorsPath == null) ? 0 : ancestorsPath.hashCode());
     result = prime * result + ((representationId == null) ? 0 : representationId.hashCode());
     result = prime * result + ((representationUUID == null) ? 0 : representationUUID.hashCode());
-    result = prime * result + (int) (size ^ (size >>> 32));
+    result = prime * result + ((size == null) ? 0 : size.hashCode());
     result = prime * result + ((storagePath == null) ? 0 : storagePath.hashCode());
     result = prime * result + ((uuid == null) ? 0 : uuid.hashCode());
     return result;
@@ -332,7 +332,10 @@ public class IndexedFile implements IsIndexed {
         return false;
     } else if (!representationUUID.equals(other.representationUUID))
       return false;
-    if (size != other.size)
+    if (size == null) {
+      if (other.size != null)
+        return false;
+    } else if (!size.equals(other.size))
       return false;
     if (storagePath == null) {
       if (other.storagePath != null)
@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.v2.ip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.roda.core.data.v2.common.RODAObjectList;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * List of {@link IndexedFile} as they are stored in the index.
+ */
+@XmlRootElement(name = "indexedFiles")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IndexedFiles implements RODAObjectList<IndexedFile> {
+  private List<IndexedFile> files;
+
+  public IndexedFiles() {
+    super();
+    files = new ArrayList<IndexedFile>();
+  }
+
+  public IndexedFiles(List<IndexedFile> files) {
+    super();
+    this.files = files;
+  }
+
+  @JsonProperty(value = "indexedFiles")
+  @XmlElement(name = "indexedFile")
+  public List<IndexedFile> getObjects() {
+    return files;
+  }
+
+  public void setObjects(List<IndexedFile> files) {
+    this.files = files;
+  }
+
+  @Override
+  public void addObject(IndexedFile indexedFile) {
+    this.files.add(indexedFile);
+  }
+
+}
@@ -19,11 +19,11 @@ public class IndexedRepresentation extends Representation implements IsIndexed {
 
   private String uuid;
 
-  private long sizeInBytes;
-  private long numberOfDataFiles;
+  private Long sizeInBytes = 0L;
+  private Long numberOfDataFiles = 0L;
 
-  private long numberOfDocumentationFiles;
-  private long numberOfSchemaFiles;
+  private Long numberOfDocumentationFiles = 0L;
+  private Long numberOfSchemaFiles = 0L;
 
   private List<String> ancestors;
 
@@ -31,8 +31,8 @@ public class IndexedRepresentation extends Representation implements IsIndexed {
     super();
   }
 
-  public IndexedRepresentation(String uuid, String id, String aipId, boolean original, String type, long sizeInBytes,
-    long totalNumberOfFiles, long numberOfDocumentationFiles, long numberOfSchemaFiles, List<String> ancestors) {
+  public IndexedRepresentation(String uuid, String id, String aipId, boolean original, String type, Long sizeInBytes,
+    Long totalNumberOfFiles, Long numberOfDocumentationFiles, Long numberOfSchemaFiles, List<String> ancestors) {
     super(id, aipId, original, type);
     this.uuid = uuid;
     this.sizeInBytes = sizeInBytes;
@@ -51,35 +51,35 @@ public class IndexedRepresentation extends Representation implements IsIndexed {
     this.uuid = uuid;
   }
 
-  public long getSizeInBytes() {
+  public Long getSizeInBytes() {
     return sizeInBytes;
   }
 
-  public void setSizeInBytes(long sizeInBytes) {
+  public void setSizeInBytes(Long sizeInBytes) {
     this.sizeInBytes = sizeInBytes;
   }
 
-  public long getNumberOfDataFiles() {
+  public Long getNumberOfDataFiles() {
     return numberOfDataFiles;
   }
 
-  public void setNumberOfDataFiles(long numberOfDataFiles) {
+  public void setNumberOfDataFiles(Long numberOfDataFiles) {
     this.numberOfDataFiles = numberOfDataFiles;
   }
 
-  public long getNumberOfDocumentationFiles() {
+  public Long getNumberOfDocumentationFiles() {
     return numberOfDocumentationFiles;
   }
 
-  public void setNumberOfDocumentationFiles(long numberOfDocumentationFiles) {
+  public void setNumberOfDocumentationFiles(Long numberOfDocumentationFiles) {
     this.numberOfDocumentationFiles = numberOfDocumentationFiles;
   }
 
-  public long getNumberOfSchemaFiles() {
+  public Long getNumberOfSchemaFiles() {
     return numberOfSchemaFiles;
   }
 
-  public void setNumberOfSchemaFiles(long numberOfSchemaFiles) {
+  public void setNumberOfSchemaFiles(Long numberOfSchemaFiles) {
     this.numberOfSchemaFiles = numberOfSchemaFiles;
   }
 
@@ -95,10 +95,10 @@ public class IndexedRepresentation extends Representation implements IsIndexed {
   public int hashCode() {
     final int prime = 31;
     int result = super.hashCode();
-    result = prime * result + (int) (numberOfDocumentationFiles ^ (numberOfDocumentationFiles >>> 32));
-    result = prime * result + (int) (numberOfSchemaFiles ^ (numberOfSchemaFiles >>> 32));
-    result = prime * result + (int) (sizeInBytes ^ (sizeInBytes >>> 32));
-    result = prime * result + (int) (numberOfDataFiles ^ (numberOfDataFiles >>> 32));
+    result = prime * result + ((numberOfDocumentationFiles == null) ? 0 : numberOfDocumentationFiles.hashCode());
+    result = prime * result + ((numberOfSchemaFiles == null) ? 0 : numberOfSchemaFiles.hashCode());
+    result = prime * result + ((sizeInBytes == null) ? 0 : sizeInBytes.hashCode());
+    result = prime * result + ((numberOfDataFiles == null) ? 0 : numberOfDataFiles.hashCode());
     result = prime * result + ((uuid == null) ? 0 : uuid.hashCode());
     return result;
   }
@@ -112,13 +112,25 @@ public class IndexedRepresentation extends Representation implements IsIndexed {
     if (getClass() != obj.getClass())
       return false;
     IndexedRepresentation other = (IndexedRepresentation) obj;
-    if (numberOfDocumentationFiles != other.numberOfDocumentationFiles)
+    if (numberOfDocumentationFiles == null) {
+      if (other.numberOfDocumentationFiles != null)
+        return false;
+    } else if (!numberOfDocumentationFiles.equals(other.numberOfDocumentationFiles))
       return false;
-    if (numberOfSchemaFiles != other.numberOfSchemaFiles)
+    if (numberOfSchemaFiles == null) {
+      if (other.numberOfSchemaFiles != null)
+        return false;
+    } else if (!numberOfSchemaFiles.equals(other.numberOfSchemaFiles))
       return false;
-    if (sizeInBytes != other.sizeInBytes)
+    if (sizeInBytes == null) {
+      if (other.sizeInBytes != null)
+        return false;
+    } else if (!sizeInBytes.equals(other.sizeInBytes))
       return false;
-    if (numberOfDataFiles != other.numberOfDataFiles)
+    if (numberOfDataFiles == null) {
+      if (other.numberOfDataFiles != null)
+        return false;
+    } else if (!numberOfDataFiles.equals(other.numberOfDataFiles))
       return false;
     if (uuid == null) {
       if (other.uuid != null)
@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.data.v2.ip;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.bind.annotation.XmlElement;
+import javax.xml.bind.annotation.XmlRootElement;
+
+import org.roda.core.data.v2.common.RODAObjectList;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
+
+/**
+ * List of {@link IndexedRepresentation} as they are stored in the index.
+ */
+@XmlRootElement(name = "indexedRepresentations")
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class IndexedRepresentations implements RODAObjectList<IndexedRepresentation> {
+  private List<IndexedRepresentation> representations;
+
+  public IndexedRepresentations() {
+    super();
+    representations = new ArrayList<IndexedRepresentation>();
+  }
+
+  public IndexedRepresentations(List<IndexedRepresentation> representations) {
+    super();
+    this.representations = representations;
+  }
+
+  @JsonProperty(value = "indexedRepresentations")
+  @XmlElement(name = "indexedRepresentation")
+  public List<IndexedRepresentation> getObjects() {
+    return representations;
+  }
+
+  public void setObjects(List<IndexedRepresentation> representations) {
+    this.representations = representations;
+  }
+
+  @Override
+  public void addObject(IndexedRepresentation indexedRepresentation) {
+    this.representations.add(indexedRepresentation);
+  }
+
+}
@@ -22,6 +22,13 @@ public class JobStats implements Serializable {
   private int sourceObjectsProcessedWithFailure = 0;
   private int outcomeObjectsWithManualIntervention = 0;
 
+  // execution times (in milliseconds) of the blocks of source objects, set
+  // when the job ends
+  private long blocksExecuted = 0;
+  private long blockExecutionTimeMean = 0;
+  private long blockExecutionTimeMax = 0;
+  private long objectExecutionTimeMean = 0;
+
   public JobStats() {
 
   }
@@ -89,6 +96,46 @@ public class JobStats implements Serializable {
     return this;
   }
 
+  public long getBlocksExecuted() {
+    return blocksExecuted;
+  }
+
+  public JobStats setBlocksExecuted(long blocksExecuted) {
+    this.blocksExecuted = blocksExecuted;
+    return this;
+  }
+
+  public long getBlockExecutionTimeMean() {
+    return blockExecutionTimeMean;
+  }
+
+  public JobStats setBlockExecutionTimeMean(long blockExecutionTimeMean) {
+    this.blockExecutionTimeMean = blockExecutionTimeMean;
+    return this;
+  }
+
+  public long getBlockExecutionTimeMax() {
+    return blockExecutionTimeMax;
+  }
+
+  public JobStats setBlockExecutionTimeMax(long blockExecutionTimeMax) {
+    this.blockExecutionTimeMax = blockExecutionTimeMax;
+    return this;
+  }
+
+  /**
+   * @return the execution time of all blocks divided by the number of objects
+   *         in them (objects are not timed one by one)
+   */
+  public long getObjectExecutionTimeMean() {
+    return objectExecutionTimeMean;
+  }
+
+  public JobStats setObjectExecutionTimeMean(long objectExecutionTimeMean) {
+    this.objectExecutionTimeMean = objectExecutionTimeMean;
+    return this;
+  }
+
   public void incrementObjectsProcessed(PluginState state) {
     if (PluginState.SUCCESS.equals(state)) {
       incrementObjectsProcessedWithSuccess();
@@ -165,6 +212,10 @@ public class JobStats implements Serializable {
     result = prime * result + sourceObjectsProcessedWithFailure;
     result = prime * result + sourceObjectsProcessedWithSuccess;
     result = prime * result + sourceObjectsWaitingToBeProcessed;
+    result = prime * result + (int) (blocksExecuted ^ (blocksExecuted >>> 32));
+    result = prime * result + (int) (blockExecutionTimeMean ^ (blockExecutionTimeMean >>> 32));
+    result = prime * result + (int) (blockExecutionTimeMax ^ (blockExecutionTimeMax >>> 32));
+    result = prime * result + (int) (objectExecutionTimeMean ^ (objectExecutionTimeMean >>> 32));
     return result;
   }
 
@@ -201,6 +252,18 @@ public class JobStats implements Serializable {
     if (sourceObjectsWaitingToBeProcessed != other.sourceObjectsWaitingToBeProcessed) {
       return false;
     }
+    if (blocksExecuted != other.blocksExecuted) {
+      return false;
+    }
+    if (blockExecutionTimeMean != other.blockExecutionTimeMean) {
+      return false;
+    }
+    if (blockExecutionTimeMax != other.blockExecutionTimeMax) {
+      return false;
+    }
+    if (objectExecutionTimeMean != other.objectExecutionTimeMean) {
+      return false;
+    }
     return true;
   }
 
@@ -210,7 +273,9 @@ public class JobStats implements Serializable {
       + ", sourceObjectsBeingProcessed=" + sourceObjectsBeingProcessed + ", sourceObjectsWaitingToBeProcessed="
       + sourceObjectsWaitingToBeProcessed + ", sourceObjectsProcessedWithSuccess=" + sourceObjectsProcessedWithSuccess
       + ", sourceObjectsProcessedWithFailure=" + sourceObjectsProcessedWithFailure
-      + ", outcomeObjectsWithManualIntervention=" + outcomeObjectsWithManualIntervention + "]";
+      + ", outcomeObjectsWithManualIntervention=" + outcomeObjectsWithManualIntervention + ", blocksExecuted="
+      + blocksExecuted + ", blockExecutionTimeMean=" + blockExecutionTimeMean + ", blockExecutionTimeMax="
+      + blockExecutionTimeMax + ", objectExecutionTimeMean=" + objectExecutionTimeMean + "]";
   }
 
 }
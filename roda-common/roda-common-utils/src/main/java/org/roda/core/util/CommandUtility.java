@@ -14,6 +14,7 @@ import java.io.InputStreamReader;
 import java.util.Arrays;
 import java.util.List;
 
+import org.apache.commons.io.FilenameUtils;
 import org.apache.commons.io.IOUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -55,6 +56,7 @@ public class CommandUtility {
 
     int exitValue = 0;
     String output;
+    long start = System.nanoTime();
 
     try {
 
@@ -112,6 +114,10 @@ public class CommandUtility {
         LOGGER.debug("Error executing command {}", Arrays.toString(args), e);
       }
       throw new CommandException("Error executing command " + Arrays.toString(args) + " - " + e.getMessage(), e);
+    } finally {
+      if (args.length > 0) {
+        ToolProcessManager.recordInvocation(FilenameUtils.getName(args[0]), System.nanoTime() - start);
+      }
     }
   }
 
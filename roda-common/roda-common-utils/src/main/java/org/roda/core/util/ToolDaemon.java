@@ -0,0 +1,252 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * A long-lived tool server reachable through a TCP port (e.g.
+ * <code>sf -serve</code>, a FITS nailgun server or clamd).
+ *
+ * If a command is given, the daemon process is started on first use and
+ * restarted when it is found dead. Without a command the daemon is assumed to
+ * be managed externally and only the health check and the concurrency limit
+ * apply.
+ *
+ * Requests only check that the managed process is alive. The port is probed
+ * once the daemon is started and again after a request fails, in which case a
+ * daemon that stopped listening is restarted and the request is sent once
+ * more.
+ */
+public class ToolDaemon implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ToolDaemon.class);
+  private static final int CONNECT_TIMEOUT_MILLIS = 1000;
+  private static final long STARTUP_POLL_MILLIS = 200;
+
+  private final String name;
+  private final List<String> command;
+  private final String host;
+  private final int port;
+  private final long startupTimeoutMillis;
+  private final Semaphore permits;
+
+  private final AtomicLong requests = new AtomicLong(0);
+  private final AtomicLong restarts = new AtomicLong(0);
+  private volatile Process process = null;
+  private volatile boolean closed = false;
+  // false until the port is found open, and again after a failed request
+  private volatile boolean verified = false;
+
+  /**
+   * @param name
+   *          name used in logs and metrics
+   * @param command
+   *          the command line that starts the daemon, or an empty list if the
+   *          daemon is managed externally
+   * @param host
+   *          the host the daemon listens on
+   * @param port
+   *          the port the daemon listens on
+   * @param maxConcurrentRequests
+   *          maximum number of requests sent to the daemon at the same time
+   * @param startupTimeoutMillis
+   *          how long to wait for a started daemon to accept connections
+   */
+  public ToolDaemon(String name, List<String> command, String host, int port, int maxConcurrentRequests,
+    long startupTimeoutMillis) {
+    this.name = name;
+    this.command = command == null ? Collections.emptyList() : Collections.unmodifiableList(new ArrayList<>(command));
+    this.host = host;
+    this.port = port;
+    this.startupTimeoutMillis = startupTimeoutMillis;
+    this.permits = new Semaphore(Math.max(1, maxConcurrentRequests), true);
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public String getHost() {
+    return host;
+  }
+
+  public int getPort() {
+    return port;
+  }
+
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  public long getRestartCount() {
+    return restarts.get();
+  }
+
+  /**
+   * @return true if the daemon process (when managed) is alive and its port is
+   *         accepting connections
+   */
+  public synchronized boolean isHealthy() {
+    if (!command.isEmpty() && (process == null || !process.isAlive())) {
+      return false;
+    }
+    return isPortOpen();
+  }
+
+  /**
+   * Makes sure the daemon is up, (re)starting it if it is managed by us. The
+   * port is only probed if it was not found open yet or a request failed since.
+   */
+  public void ensureRunning() throws CommandException {
+    Process current = process;
+    if (!closed && verified && (command.isEmpty() || (current != null && current.isAlive()))) {
+      return;
+    }
+    start();
+  }
+
+  private synchronized void start() throws CommandException {
+    if (closed) {
+      throw new CommandException("Tool daemon " + name + " is closed");
+    }
+
+    if (isHealthy()) {
+      verified = true;
+      return;
+    }
+
+    if (command.isEmpty()) {
+      throw new CommandException("Tool daemon " + name + " is not reachable at " + host + ":" + port);
+    }
+
+    if (process != null) {
+      LOGGER.warn("{} daemon is not healthy, restarting it", name);
+      process.destroy();
+      restarts.incrementAndGet();
+    }
+
+    try {
+      LOGGER.info("Starting {} daemon: {}", name, command);
+      ProcessBuilder processBuilder = new ProcessBuilder(command);
+      processBuilder.redirectErrorStream(true);
+      processBuilder.redirectOutput(ProcessBuilder.Redirect.INHERIT);
+      process = processBuilder.start();
+    } catch (IOException e) {
+      throw new CommandException("Error starting " + name + " daemon " + command, e);
+    }
+
+    long deadline = System.currentTimeMillis() + startupTimeoutMillis;
+    while (!isPortOpen()) {
+      if (!process.isAlive()) {
+        throw new CommandException("The " + name + " daemon exited with code " + process.exitValue(),
+          process.exitValue(), null);
+      }
+      if (System.currentTimeMillis() > deadline) {
+        throw new CommandException("Timeout waiting for " + name + " daemon to listen on " + host + ":" + port);
+      }
+      try {
+        Thread.sleep(STARTUP_POLL_MILLIS);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new CommandException("Interrupted while starting " + name + " daemon", e);
+      }
+    }
+    verified = true;
+  }
+
+  /**
+   * Runs a request against the daemon, bounded by the concurrency limit. The
+   * daemon is (re)started if needed before running the request. If the request
+   * fails and the daemon is then found not to be listening, it is restarted and
+   * the request is sent once more.
+   */
+  public <T> T call(Callable<T> request) throws CommandException {
+    ensureRunning();
+    try {
+      return callOnce(request);
+    } catch (CommandException e) {
+      if (Thread.currentThread().isInterrupted() || isListeningAfterFailure()) {
+        // the daemon is fine, the request itself failed
+        throw e;
+      }
+      LOGGER.warn("Request to {} daemon failed and the daemon is not listening, retrying", name);
+      ensureRunning();
+      return callOnce(request);
+    }
+  }
+
+  /**
+   * Probes the daemon after a failed request, so that the next request
+   * restarts it if it is no longer listening.
+   */
+  private synchronized boolean isListeningAfterFailure() {
+    verified = !closed && isHealthy();
+    return closed || verified;
+  }
+
+  private <T> T callOnce(Callable<T> request) throws CommandException {
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommandException("Interrupted while waiting to call " + name + " daemon", e);
+    }
+
+    long start = System.nanoTime();
+    try {
+      requests.incrementAndGet();
+      return request.call();
+    } catch (CommandException e) {
+      throw e;
+    } catch (Exception e) {
+      throw new CommandException("Error calling " + name + " daemon: " + e.getMessage(), e);
+    } finally {
+      permits.release();
+      ToolProcessManager.recordInvocation(name, System.nanoTime() - start);
+    }
+  }
+
+  private boolean isPortOpen() {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(host, port), CONNECT_TIMEOUT_MILLIS);
+      return true;
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  @Override
+  public synchronized void close() {
+    closed = true;
+    if (process != null) {
+      LOGGER.info("Stopping {} daemon", name);
+      process.destroy();
+      try {
+        if (!process.waitFor(startupTimeoutMillis, TimeUnit.MILLISECONDS)) {
+          process.destroyForcibly();
+        }
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      process = null;
+    }
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.ObjLongConsumer;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the {@link ToolProcessPool} and {@link ToolDaemon} instances
+ * shared by all plugin instances, so that tool workers survive plugin cloning
+ * and are stopped once when RODA shuts down.
+ *
+ * Every tool invocation (through a pool, a daemon or
+ * {@link CommandUtility}) is reported, with its duration, to the invocation
+ * listener, if one is set.
+ */
+public final class ToolProcessManager {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ToolProcessManager.class);
+
+  private static final Map<String, ToolProcessPool> POOLS = new ConcurrentHashMap<>();
+  private static final Map<String, ToolDaemon> DAEMONS = new ConcurrentHashMap<>();
+
+  private static volatile ObjLongConsumer<String> invocationListener = null;
+
+  /** Private empty constructor */
+  private ToolProcessManager() {
+
+  }
+
+  public static ToolProcessPool getPool(String name, Supplier<ToolProcessPool> supplier) {
+    return POOLS.computeIfAbsent(name, k -> supplier.get());
+  }
+
+  public static ToolDaemon getDaemon(String name, Supplier<ToolDaemon> supplier) {
+    return DAEMONS.computeIfAbsent(name, k -> supplier.get());
+  }
+
+  public static Map<String, ToolProcessPool> getPools() {
+    return Collections.unmodifiableMap(POOLS);
+  }
+
+  public static Map<String, ToolDaemon> getDaemons() {
+    return Collections.unmodifiableMap(DAEMONS);
+  }
+
+  /**
+   * @param listener
+   *          receives the name of the invoked tool and the duration of the
+   *          invocation in nanoseconds, or null to stop reporting
+   */
+  public static void setInvocationListener(ObjLongConsumer<String> listener) {
+    invocationListener = listener;
+  }
+
+  public static void recordInvocation(String tool, long nanos) {
+    ObjLongConsumer<String> listener = invocationListener;
+    if (listener != null) {
+      try {
+        listener.accept(tool, nanos);
+      } catch (RuntimeException e) {
+        LOGGER.warn("Error recording invocation of {}", tool, e);
+      }
+    }
+  }
+
+  public static void shutdown() {
+    POOLS.forEach((name, pool) -> {
+      LOGGER.debug("Closing tool process pool {}", name);
+      pool.close();
+    });
+    POOLS.clear();
+
+    DAEMONS.forEach((name, daemon) -> {
+      LOGGER.debug("Closing tool daemon {}", name);
+      daemon.close();
+    });
+    DAEMONS.clear();
+  }
+}
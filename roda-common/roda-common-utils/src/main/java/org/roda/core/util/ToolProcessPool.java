@@ -0,0 +1,289 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.util;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.io.IOUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pool of long-lived tool processes that talk a line based request/response
+ * protocol over stdin/stdout (e.g. <code>exiftool -stay_open True -@ -</code>).
+ *
+ * Each request is written to an idle worker and its output is read until a line
+ * equal to the response terminator shows up. Dead workers are replaced
+ * transparently and the number of workers is bounded by the pool size, so
+ * callers block instead of spawning more processes. A worker that does not
+ * finish its response within the request timeout is killed.
+ */
+public class ToolProcessPool implements Closeable {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ToolProcessPool.class);
+  private static final long GRACEFUL_SHUTDOWN_SECONDS = 2;
+  private static final long DEFAULT_REQUEST_TIMEOUT_MILLIS = 600000;
+
+  // kills the workers whose requests time out
+  private static final ScheduledExecutorService WATCHDOG = createWatchdog();
+
+  private final String name;
+  private final List<String> command;
+  private final String responseTerminator;
+  private final List<String> shutdownRequest;
+  private final Semaphore permits;
+  private final long requestTimeoutMillis;
+  private final ConcurrentLinkedDeque<Worker> idleWorkers = new ConcurrentLinkedDeque<>();
+
+  private final AtomicLong requests = new AtomicLong(0);
+  private final AtomicLong restarts = new AtomicLong(0);
+  private volatile boolean closed = false;
+
+  /**
+   * @param name
+   *          name used in logs and metrics
+   * @param command
+   *          the command line that starts a worker
+   * @param responseTerminator
+   *          the line that marks the end of the output for one request
+   * @param shutdownRequest
+   *          lines sent to a worker to ask it to exit gracefully (may be empty)
+   * @param maxWorkers
+   *          maximum number of concurrent workers
+   */
+  public ToolProcessPool(String name, List<String> command, String responseTerminator, List<String> shutdownRequest,
+    int maxWorkers) {
+    this(name, command, responseTerminator, shutdownRequest, maxWorkers, DEFAULT_REQUEST_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @param requestTimeoutMillis
+   *          how long a worker may take to finish its response to a request
+   *          before being killed
+   */
+  public ToolProcessPool(String name, List<String> command, String responseTerminator, List<String> shutdownRequest,
+    int maxWorkers, long requestTimeoutMillis) {
+    this.name = name;
+    this.command = Collections.unmodifiableList(new ArrayList<>(command));
+    this.responseTerminator = responseTerminator;
+    this.shutdownRequest = shutdownRequest == null ? Collections.emptyList() : new ArrayList<>(shutdownRequest);
+    this.permits = new Semaphore(Math.max(1, maxWorkers), true);
+    this.requestTimeoutMillis = requestTimeoutMillis > 0 ? requestTimeoutMillis : DEFAULT_REQUEST_TIMEOUT_MILLIS;
+  }
+
+  private static ScheduledExecutorService createWatchdog() {
+    ScheduledThreadPoolExecutor watchdog = new ScheduledThreadPoolExecutor(1, r -> {
+      Thread thread = new Thread(r, "tool-process-pool-watchdog");
+      thread.setDaemon(true);
+      return thread;
+    });
+    watchdog.setRemoveOnCancelPolicy(true);
+    return watchdog;
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public long getRequestCount() {
+    return requests.get();
+  }
+
+  public long getRestartCount() {
+    return restarts.get();
+  }
+
+  public int getIdleWorkerCount() {
+    return idleWorkers.size();
+  }
+
+  /**
+   * Sends a request to a pooled worker and returns its output (without the
+   * response terminator line). A request that fails due to a broken worker is
+   * retried once on a fresh worker, but not one that timed out.
+   */
+  public String execute(List<String> requestLines) throws CommandException {
+    if (closed) {
+      throw new CommandException("Tool process pool " + name + " is closed");
+    }
+
+    try {
+      permits.acquire();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new CommandException("Interrupted while waiting for a " + name + " worker", e);
+    }
+
+    long start = System.nanoTime();
+    try {
+      requests.incrementAndGet();
+      IOException lastError = null;
+      for (int attempt = 0; attempt < 2; attempt++) {
+        Worker worker = borrowWorker();
+        boolean healthy = false;
+        try {
+          String output = worker.exchange(requestLines, responseTerminator, requestTimeoutMillis);
+          healthy = true;
+          return output;
+        } catch (InterruptedIOException e) {
+          LOGGER.warn("{} worker did not answer within {} ms, restarting it", name, requestTimeoutMillis);
+          throw new CommandException("Timeout executing request on " + name + " worker", e);
+        } catch (IOException e) {
+          LOGGER.warn("{} worker failed while processing a request, restarting it", name, e);
+          lastError = e;
+        } finally {
+          // a worker in an unknown state (e.g. on a runtime exception) is not
+          // given to another request
+          if (healthy) {
+            returnWorker(worker);
+          } else {
+            worker.destroy();
+            restarts.incrementAndGet();
+          }
+        }
+      }
+      throw new CommandException("Error executing request on " + name + " worker", lastError);
+    } finally {
+      permits.release();
+      ToolProcessManager.recordInvocation(name, System.nanoTime() - start);
+    }
+  }
+
+  private Worker borrowWorker() throws CommandException {
+    Worker worker;
+    while ((worker = idleWorkers.pollFirst()) != null) {
+      if (worker.isAlive()) {
+        return worker;
+      }
+      LOGGER.warn("{} worker found dead, discarding it", name);
+      worker.destroy();
+      restarts.incrementAndGet();
+    }
+
+    try {
+      LOGGER.debug("Starting new {} worker: {}", name, command);
+      return new Worker(command);
+    } catch (IOException e) {
+      throw new CommandException("Error starting " + name + " worker " + command, e);
+    }
+  }
+
+  private void returnWorker(Worker worker) {
+    if (closed) {
+      worker.shutdown(shutdownRequest);
+    } else {
+      idleWorkers.offerFirst(worker);
+    }
+  }
+
+  @Override
+  public void close() {
+    closed = true;
+    Worker worker;
+    while ((worker = idleWorkers.pollFirst()) != null) {
+      worker.shutdown(shutdownRequest);
+    }
+  }
+
+  private static class Worker {
+    private final Process process;
+    private final BufferedWriter stdin;
+    private final BufferedReader stdout;
+
+    Worker(List<String> command) throws IOException {
+      ProcessBuilder processBuilder = new ProcessBuilder(command);
+      // merging stderr avoids a blocked worker due to a full error pipe
+      processBuilder.redirectErrorStream(true);
+      process = processBuilder.start();
+      stdin = new BufferedWriter(new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8));
+      stdout = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+    }
+
+    boolean isAlive() {
+      return process.isAlive();
+    }
+
+    String exchange(List<String> requestLines, String responseTerminator, long timeoutMillis) throws IOException {
+      // killing the process unblocks the reads below
+      AtomicBoolean timedOut = new AtomicBoolean(false);
+      ScheduledFuture<?> deadline = WATCHDOG.schedule(() -> {
+        timedOut.set(true);
+        process.destroyForcibly();
+      }, timeoutMillis, TimeUnit.MILLISECONDS);
+
+      try {
+        for (String line : requestLines) {
+          stdin.write(line);
+          stdin.newLine();
+        }
+        stdin.flush();
+
+        StringBuilder output = new StringBuilder();
+        String line;
+        while ((line = stdout.readLine()) != null) {
+          if (line.trim().equals(responseTerminator)) {
+            return output.toString();
+          }
+          output.append(line).append(System.lineSeparator());
+        }
+      } catch (IOException e) {
+        if (!timedOut.get()) {
+          throw e;
+        }
+      } finally {
+        deadline.cancel(false);
+      }
+
+      if (timedOut.get()) {
+        throw new InterruptedIOException("Worker did not finish its response within " + timeoutMillis + " ms");
+      }
+      throw new IOException("Worker exited before finishing its response");
+    }
+
+    void shutdown(List<String> shutdownRequest) {
+      if (!shutdownRequest.isEmpty() && process.isAlive()) {
+        try {
+          for (String line : shutdownRequest) {
+            stdin.write(line);
+            stdin.newLine();
+          }
+          stdin.flush();
+          process.waitFor(GRACEFUL_SHUTDOWN_SECONDS, TimeUnit.SECONDS);
+        } catch (IOException e) {
+          LOGGER.debug("Error asking worker to exit", e);
+        } catch (InterruptedException e) {
+          Thread.currentThread().interrupt();
+        }
+      }
+      destroy();
+    }
+
+    void destroy() {
+      IOUtils.closeQuietly(stdin);
+      IOUtils.closeQuietly(stdout);
+      process.destroy();
+    }
+  }
+}
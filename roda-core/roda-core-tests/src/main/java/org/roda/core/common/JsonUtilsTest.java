@@ -7,6 +7,8 @@
  */
 package org.roda.core.common;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.util.Arrays;
 import java.util.List;
 
@@ -44,4 +46,24 @@ public class JsonUtilsTest {
       AssertJUnit.assertNotNull(report);
     }
   }
+
+  @Test
+  public void testStreamRoundTrip() throws GenericException {
+    Report report = new Report();
+    report.setId("report-id");
+
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    JsonUtils.writeObjectToStream(report, output);
+    Report report2 = JsonUtils.getObjectFromJson(new ByteArrayInputStream(output.toByteArray()), Report.class);
+
+    AssertJUnit.assertEquals(report.getId(), report2.getId());
+    AssertJUnit.assertEquals(JsonUtils.getJsonFromObject(report), new String(output.toByteArray()));
+  }
+
+  @Test
+  public void testSharedReadersAndWriters() {
+    Assert.assertSame(JsonUtils.getReader(Report.class), JsonUtils.getReader(Report.class));
+    Assert.assertSame(JsonUtils.getListReader(Report.class), JsonUtils.getListReader(Report.class));
+    Assert.assertSame(JsonUtils.getWriter(new Report()), JsonUtils.getWriter(new Report()));
+  }
 }
@@ -0,0 +1,63 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.metrics;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import com.codahale.metrics.MetricRegistry;
+
+@Test(groups = {"all", "travis"})
+public class MetricsEndpointTest {
+
+  @Test
+  public void testWriteText() {
+    MetricRegistry metrics = new MetricRegistry();
+    metrics.counter("AkkaWorkerActor.mailboxSize").inc(3);
+    metrics.timer("tools.siegfried").update(2, TimeUnit.MILLISECONDS);
+
+    StringWriter text = new StringWriter();
+    MetricsEndpoint.writeText(metrics, null, text);
+    Assert.assertTrue(text.toString().contains("AkkaWorkerActor.mailboxSize count=3"));
+    Assert.assertTrue(text.toString().contains("tools.siegfried count=1"));
+    Assert.assertTrue(text.toString().contains("max=2.000"));
+
+    StringWriter filtered = new StringWriter();
+    MetricsEndpoint.writeText(metrics, "tools", filtered);
+    Assert.assertFalse(filtered.toString().contains("mailboxSize"));
+    Assert.assertTrue(filtered.toString().contains("tools.siegfried"));
+  }
+
+  @Test
+  public void testEndpointServesMetrics() throws IOException {
+    MetricRegistry metrics = new MetricRegistry();
+    metrics.meter("PluginPool.hits").mark();
+
+    MetricsEndpoint endpoint = new MetricsEndpoint(metrics, 0);
+    try {
+      URL url = new URL("http://localhost:" + endpoint.getPort() + "/metrics");
+      HttpURLConnection connection = (HttpURLConnection) url.openConnection();
+      Assert.assertEquals(connection.getResponseCode(), 200);
+      try (InputStream in = connection.getInputStream()) {
+        Assert.assertTrue(IOUtils.toString(in, StandardCharsets.UTF_8).contains("PluginPool.hits count=1"));
+      }
+    } finally {
+      endpoint.stop();
+    }
+  }
+
+}
@@ -0,0 +1,124 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.notifications;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
+import org.roda.core.model.ModelService;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.sun.net.httpserver.HttpServer;
+
+@Test(groups = {"all", "travis"})
+public class NotificationOutboxTest {
+
+  private Path basePath;
+  private ModelService model;
+  private HttpServer endpoint;
+  private String endpointUrl;
+  // number of requests the endpoint fails before accepting them
+  private final AtomicInteger failuresLeft = new AtomicInteger(0);
+  private final List<String> received = new CopyOnWriteArrayList<>();
+
+  @BeforeMethod
+  public void setUp() throws IOException, RODAException {
+    basePath = TestsHelper.createBaseTempDir(NotificationOutboxTest.class, true);
+    StorageService storage = new FileStorageService(basePath.resolve("storage"));
+    storage.createContainer(ModelUtils.getNotificationContainerPath());
+    model = new ModelService(storage);
+
+    // local stand-in for an HTTP notification endpoint
+    endpoint = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+    endpoint.createContext("/", exchange -> {
+      try (InputStream body = exchange.getRequestBody()) {
+        received.add(IOUtils.toString(body, StandardCharsets.UTF_8));
+      }
+      int status = failuresLeft.getAndDecrement() > 0 ? 500 : 200;
+      exchange.sendResponseHeaders(status, -1);
+      exchange.close();
+    });
+    endpoint.start();
+    endpointUrl = "http://localhost:" + endpoint.getAddress().getPort() + "/";
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    endpoint.stop(0);
+    HTTPNotificationProcessor.closeHttpClient();
+    FSUtils.deletePath(basePath);
+  }
+
+  private Notification createNotification() throws RODAException {
+    Notification notification = new Notification();
+    notification.setSubject("subject");
+    notification.setFromUser("test");
+    notification.setRecipientUsers(Arrays.asList(endpointUrl));
+    return model.createNotification(notification, (m, n) -> n);
+  }
+
+  private NotificationOutbox createOutbox(int maxAttempts) {
+    return new NotificationOutbox(basePath.resolve("outbox"), model, maxAttempts, 0, 1, 5000);
+  }
+
+  @Test
+  public void testMessagesAreRetriedAfterRestart() throws RODAException {
+    Notification notification = createNotification();
+    failuresLeft.set(1);
+
+    NotificationOutbox outbox = createOutbox(3);
+    outbox.enqueue(OutboxMessage.http(notification.getId(), endpointUrl, "content"));
+    outbox.deliver();
+    Assert.assertEquals(received.size(), 1);
+    Assert.assertEquals(outbox.getPending(), 1);
+    Assert.assertEquals(model.retrieveNotification(notification.getId()).getState(), NOTIFICATION_STATE.CREATED);
+
+    // the message waiting for a retry is found by a new outbox
+    outbox = createOutbox(3);
+    Assert.assertEquals(outbox.getPending(), 1);
+    outbox.deliver();
+    Assert.assertEquals(received, Arrays.asList("content", "content"));
+    Assert.assertEquals(outbox.getPending(), 0);
+    Assert.assertEquals(model.retrieveNotification(notification.getId()).getState(), NOTIFICATION_STATE.COMPLETED);
+  }
+
+  @Test
+  public void testNotificationFailsAfterMaxAttempts() throws RODAException {
+    Notification notification = createNotification();
+    failuresLeft.set(Integer.MAX_VALUE);
+
+    NotificationOutbox outbox = createOutbox(2);
+    outbox.enqueue(OutboxMessage.http(notification.getId(), endpointUrl, "content"));
+    outbox.deliver();
+    outbox.deliver();
+    outbox.deliver();
+    Assert.assertEquals(received.size(), 2);
+    Assert.assertEquals(outbox.getPending(), 0);
+    Assert.assertEquals(model.retrieveNotification(notification.getId()).getState(), NOTIFICATION_STATE.FAILED);
+  }
+
+}
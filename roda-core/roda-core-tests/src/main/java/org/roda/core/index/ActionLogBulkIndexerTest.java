@@ -0,0 +1,147 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
+import org.roda.core.index.utils.ActionLogBulkIndexer;
+import org.roda.core.storage.ContentPayload;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class ActionLogBulkIndexerTest {
+
+  private static Path basePath;
+  private static IndexService index;
+
+  @BeforeClass
+  public static void setUp() throws IOException, GenericException {
+    basePath = TestsHelper.createBaseTempDir(ActionLogBulkIndexerTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    index = RodaCoreFactory.getIndexService();
+  }
+
+  @AfterClass
+  public static void tearDown() throws NotFoundException, GenericException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  @BeforeMethod
+  public void clearActionLog() throws GenericException {
+    index.clearIndex(RodaConstants.INDEX_ACTION_LOG);
+  }
+
+  private static String entry(String id) {
+    LogEntry entry = new LogEntry();
+    entry.setId(id);
+    entry.setDatetime(Date.from(Instant.parse("2016-01-05T10:00:00Z")));
+    entry.setActionComponent("Component");
+    entry.setActionMethod("Method");
+    entry.setUsername("username");
+    entry.setState(LOG_ENTRY_STATE.SUCCESS);
+    return JsonUtils.getJsonFromObject(entry);
+  }
+
+  private static ContentPayload logFile(String prefix, int entries) {
+    List<String> lines = new ArrayList<>();
+    for (int i = 0; i < entries; i++) {
+      lines.add(entry(prefix + i));
+    }
+    return new StringContentPayload(String.join("\n", lines));
+  }
+
+  private static long countIndexed(String id) throws GenericException, RequestNotValidException {
+    return index.count(LogEntry.class, new Filter(new SimpleFilterParameter(RodaConstants.INDEX_UUID, id)));
+  }
+
+  @Test
+  public void testEntriesAreIndexedInBatches() throws GenericException, RequestNotValidException {
+    Map<String, ContentPayload> logFiles = new LinkedHashMap<>();
+    // neither file size is a multiple of the batch size
+    logFiles.put("2016-01-05.log", logFile("a", 5));
+    logFiles.put("2016-01-06.log", logFile("b", 3));
+    logFiles.put("2016-01-07.log", logFile("c", 0));
+
+    Map<String, List<Long>> progress = new HashMap<>();
+    ActionLogBulkIndexer indexer = new ActionLogBulkIndexer(index.getSolrClient(), 2, 2,
+      (logFile, indexedEntries, failedEntries) -> progress.put(logFile, Arrays.asList(indexedEntries, failedEntries)));
+
+    Assert.assertEquals(indexer.index(logFiles), 8);
+    Assert.assertEquals(indexer.getFailedEntries(), 0);
+    Assert.assertEquals(indexer.getFailedFiles(), 0);
+
+    Assert.assertEquals(progress.size(), 3);
+    Assert.assertEquals(progress.get("2016-01-05.log"), Arrays.asList(5L, 0L));
+    Assert.assertEquals(progress.get("2016-01-06.log"), Arrays.asList(3L, 0L));
+    Assert.assertEquals(progress.get("2016-01-07.log"), Arrays.asList(0L, 0L));
+
+    // committed at the end, including the last partial batch of each file
+    Assert.assertEquals(index.count(LogEntry.class, Filter.ALL).longValue(), 8);
+    Assert.assertEquals(countIndexed("a4"), 1);
+    Assert.assertEquals(countIndexed("b2"), 1);
+  }
+
+  @Test
+  public void testMalformedLineIsSkipped() throws GenericException, RequestNotValidException {
+    String content = String.join("\n",
+      Arrays.asList(entry("entry0"), entry("entry1"), "{\"id\": \"broken", "", entry("entry2"), entry("entry3")));
+    Map<String, ContentPayload> logFiles = new HashMap<>();
+    logFiles.put("2016-01-05.log", new StringContentPayload(content));
+
+    Map<String, List<Long>> progress = new HashMap<>();
+    ActionLogBulkIndexer indexer = new ActionLogBulkIndexer(index.getSolrClient(), 1, 2,
+      (logFile, indexedEntries, failedEntries) -> progress.put(logFile, Arrays.asList(indexedEntries, failedEntries)));
+
+    // the blank line is neither indexed nor failed
+    Assert.assertEquals(indexer.index(logFiles), 4);
+    Assert.assertEquals(indexer.getFailedEntries(), 1);
+    Assert.assertEquals(indexer.getFailedFiles(), 0);
+    Assert.assertEquals(progress.get("2016-01-05.log"), Arrays.asList(4L, 1L));
+
+    // the entries after the malformed line are indexed too
+    Assert.assertEquals(index.count(LogEntry.class, Filter.ALL).longValue(), 4);
+    Assert.assertEquals(countIndexed("entry2"), 1);
+    Assert.assertEquals(countIndexed("entry3"), 1);
+  }
+
+}
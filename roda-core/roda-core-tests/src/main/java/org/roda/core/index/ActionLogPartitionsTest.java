@@ -0,0 +1,160 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import static org.testng.AssertJUnit.assertEquals;
+import static org.testng.AssertJUnit.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.IndexResult;
+import org.roda.core.data.v2.index.facet.FacetFieldResult;
+import org.roda.core.data.v2.index.facet.Facets;
+import org.roda.core.data.v2.index.facet.SimpleFacetParameter;
+import org.roda.core.data.v2.index.filter.DateRangeFilterParameter;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.sort.SortParameter;
+import org.roda.core.data.v2.index.sort.Sorter;
+import org.roda.core.data.v2.index.sublist.Sublist;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.log.LogEntry.LOG_ENTRY_STATE;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class ActionLogPartitionsTest {
+
+  private static Path basePath;
+  private static IndexService index;
+
+  @BeforeClass
+  public static void setUp() throws IOException, GenericException {
+    basePath = TestsHelper.createBaseTempDir(ActionLogPartitionsTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    index = RodaCoreFactory.getIndexService();
+
+    // 3 entries in January, 2 in February and 1 in March
+    addEntry("jan-1", "2016-01-05T10:00:00Z", "A");
+    addEntry("jan-2", "2016-01-15T10:00:00Z", "B");
+    addEntry("jan-3", "2016-01-31T23:59:59Z", "A");
+    addEntry("feb-1", "2016-02-10T10:00:00Z", "A");
+    addEntry("feb-2", "2016-02-20T10:00:00Z", "B");
+    addEntry("mar-1", "2016-03-01T00:00:00Z", "A");
+    index.commit(LogEntry.class);
+  }
+
+  @AfterClass
+  public static void tearDown() throws NotFoundException, GenericException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private static void addEntry(String id, String datetime, String component) {
+    LogEntry entry = new LogEntry();
+    entry.setId(id);
+    entry.setDatetime(Date.from(Instant.parse(datetime)));
+    entry.setActionComponent(component);
+    entry.setActionMethod("Method");
+    entry.setUsername("username");
+    entry.setState(LOG_ENTRY_STATE.SUCCESS);
+    index.reindex(entry);
+  }
+
+  private static List<String> getIds(IndexResult<LogEntry> result) {
+    return result.getResults().stream().map(LogEntry::getId).collect(Collectors.toList());
+  }
+
+  private static Sorter byDatetime(boolean descending) {
+    return new Sorter(new SortParameter(RodaConstants.LOG_DATETIME, descending));
+  }
+
+  @Test
+  public void testFindAcrossPartitions() throws GenericException, RequestNotValidException {
+    assertTrue(index.isActionLogPartitioned());
+    assertEquals(6L, index.count(LogEntry.class, Filter.ALL).longValue());
+
+    IndexResult<LogEntry> newest = index.find(LogEntry.class, Filter.ALL, byDatetime(true), new Sublist(1, 3));
+    assertEquals(6, newest.getTotalCount());
+    assertEquals(newest.getResults().size(), 3);
+    List<String> expected = new ArrayList<>();
+    expected.add("feb-2");
+    expected.add("feb-1");
+    expected.add("jan-3");
+    assertEquals(expected, getIds(newest));
+
+    IndexResult<LogEntry> oldest = index.find(LogEntry.class, Filter.ALL, byDatetime(false), new Sublist(2, 2));
+    expected.clear();
+    expected.add("jan-3");
+    expected.add("feb-1");
+    assertEquals(expected, getIds(oldest));
+
+    IndexResult<LogEntry> byId = index.find(LogEntry.class, Filter.ALL,
+      new Sorter(new SortParameter(RodaConstants.LOG_ID, false)), new Sublist(0, 10),
+      new Facets(new SimpleFacetParameter(RodaConstants.LOG_ACTION_COMPONENT)));
+    expected.clear();
+    expected.add("feb-1");
+    expected.add("feb-2");
+    expected.add("jan-1");
+    expected.add("jan-2");
+    expected.add("jan-3");
+    expected.add("mar-1");
+    assertEquals(expected, getIds(byId));
+
+    FacetFieldResult components = byId.getFacetResults().get(0);
+    assertEquals("A", components.getValues().get(0).getValue());
+    assertEquals(4, components.getValues().get(0).getCount());
+    assertEquals("B", components.getValues().get(1).getValue());
+    assertEquals(2, components.getValues().get(1).getCount());
+  }
+
+  @Test
+  public void testFindInDateRange() throws GenericException, RequestNotValidException {
+    Filter february = new Filter(new DateRangeFilterParameter(RodaConstants.LOG_DATETIME,
+      Date.from(Instant.parse("2016-02-01T00:00:00Z")), Date.from(Instant.parse("2016-02-29T23:59:59Z"))));
+    IndexResult<LogEntry> result = index.find(LogEntry.class, february, byDatetime(true), new Sublist(0, 10));
+    assertEquals(2, result.getTotalCount());
+    List<String> expected = new ArrayList<>();
+    expected.add("feb-2");
+    expected.add("feb-1");
+    assertEquals(expected, getIds(result));
+  }
+
+  @Test(dependsOnMethods = {"testFindAcrossPartitions", "testFindInDateRange"})
+  public void testDeleteUntil() throws GenericException, RequestNotValidException {
+    index.deleteActionLog(Date.from(Instant.parse("2016-02-15T00:00:00Z")));
+
+    IndexResult<LogEntry> result = index.find(LogEntry.class, Filter.ALL, byDatetime(true), new Sublist(0, 10));
+    List<String> expected = new ArrayList<>();
+    expected.add("mar-1");
+    expected.add("feb-2");
+    assertEquals(expected, getIds(result));
+  }
+
+}
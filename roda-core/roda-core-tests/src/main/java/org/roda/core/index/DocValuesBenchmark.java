@@ -0,0 +1,145 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.util.NamedList;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the facet latency of a file field with doc values (formatPronom)
+ * against the same values in a field without them (a dynamic string field),
+ * reports the size of the file index and the time it takes to migrate it
+ * online into a new index. Not part of the usual test groups, run it with
+ * <code>-Dtestng.groups=benchmark</code> (1M files by default, see
+ * <code>roda.benchmark.files</code>).
+ */
+@Test(groups = {"benchmark"})
+public class DocValuesBenchmark {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DocValuesBenchmark.class);
+
+  private static final int FILES = Integer.getInteger("roda.benchmark.files", 1000000);
+  private static final int QUERIES = Integer.getInteger("roda.benchmark.queries", 200);
+  private static final int PRONOMS = 500;
+  private static final int BATCH_SIZE = 10000;
+  private static final String NO_DOC_VALUES_FIELD = RodaConstants.FILE_PRONOM + "_s";
+
+  private static Path basePath;
+  private static SolrClient solr;
+
+  @BeforeClass
+  public static void setUp() throws IOException, SolrServerException {
+    basePath = TestsHelper.createBaseTempDir(DocValuesBenchmark.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    solr = RodaCoreFactory.getSolr();
+
+    List<SolrInputDocument> batch = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      SolrInputDocument doc = new SolrInputDocument();
+      String pronom = "fmt/" + (i * 31 % PRONOMS);
+      doc.addField(RodaConstants.INDEX_UUID, "file-" + i);
+      doc.addField(RodaConstants.FILE_AIP_ID, "aip-" + (i / 1000));
+      doc.addField(RodaConstants.FILE_PRONOM, pronom);
+      doc.addField(NO_DOC_VALUES_FIELD, pronom);
+      doc.addField(RodaConstants.FILE_SIZE, (long) i % 100000);
+      doc.addField(RodaConstants.STATE, AIPState.ACTIVE.toString());
+      batch.add(doc);
+      if (batch.size() == BATCH_SIZE) {
+        solr.add(RodaConstants.INDEX_FILE, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      solr.add(RodaConstants.INDEX_FILE, batch);
+    }
+    solr.commit(RodaConstants.INDEX_FILE);
+    solr.optimize(RodaConstants.INDEX_FILE);
+  }
+
+  @AfterClass
+  public static void tearDown() throws NotFoundException, GenericException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private static long facet(String field) throws SolrServerException, IOException {
+    long time = 0;
+    for (int i = 0; i < QUERIES; i++) {
+      SolrQuery query = new SolrQuery("*:*");
+      // a different filter each time, so that results are not cached
+      query.addFilterQuery(RodaConstants.FILE_SIZE + ":[" + (i * 97 % 50000) + " TO *]");
+      query.setRows(0);
+      query.setFacet(true);
+      query.addFacetField(field);
+      query.setFacetLimit(20);
+      time += solr.query(RodaConstants.INDEX_FILE, query).getQTime();
+    }
+    return time;
+  }
+
+  private static long getIndexSize() throws SolrServerException, IOException {
+    NamedList<Object> status = CoreAdminRequest.getStatus(RodaConstants.INDEX_FILE, solr)
+      .getCoreStatus(RodaConstants.INDEX_FILE);
+    return (Long) ((NamedList<?>) status.get("index")).get("sizeInBytes");
+  }
+
+  @Test
+  public void benchmarkFacetsAndMigration() throws SolrServerException, IOException, GenericException {
+    // warm up, the first facet on a field without doc values un-inverts it
+    facet(RodaConstants.FILE_PRONOM);
+    facet(NO_DOC_VALUES_FIELD);
+
+    long docValuesTime = facet(RodaConstants.FILE_PRONOM);
+    long noDocValuesTime = facet(NO_DOC_VALUES_FIELD);
+    LOGGER.info("{} facet queries on {} files: {} ms with doc values, {} ms without, index size {} bytes", QUERIES,
+      FILES, docValuesTime, noDocValuesTime, getIndexSize());
+
+    IndexService index = RodaCoreFactory.getIndexService();
+    long start = System.currentTimeMillis();
+    index.startShadowReindex(Arrays.asList(RodaConstants.INDEX_FILE));
+    long copied = index.copyIntoShadow(RodaConstants.INDEX_FILE);
+    index.finishShadowReindex(true);
+    LOGGER.info("Migrated {} files online in {} ms, index size {} bytes", copied,
+      System.currentTimeMillis() - start, getIndexSize());
+
+    Assert.assertEquals(copied, FILES);
+    Assert.assertEquals(solr.query(RodaConstants.INDEX_FILE, new SolrQuery("*:*").setRows(0)).getResults()
+      .getNumFound(), FILES);
+  }
+
+}
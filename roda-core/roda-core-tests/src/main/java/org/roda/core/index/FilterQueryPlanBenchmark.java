@@ -0,0 +1,173 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.LongRangeFilterParameter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
+import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.ip.AIPState;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.index.utils.SolrUtils.FilterQueryPlan;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Compares the Solr time of file queries with the whole filter in the query
+ * against the same queries planned into filter queries, on a synthetic index of
+ * files (10M by default, see the system properties below). Not part of the
+ * usual test groups, run it with <code>-Dtestng.groups=benchmark</code>.
+ *
+ * Queries repeat the structural constraints of the file listings (AIP,
+ * representation, state and formats) over a set of hot AIPs, but each one has a
+ * different size range so that the query result cache never answers them.
+ */
+@Test(groups = {"benchmark"})
+public class FilterQueryPlanBenchmark {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FilterQueryPlanBenchmark.class);
+
+  private static final int FILES = Integer.getInteger("roda.benchmark.files", 10000000);
+  private static final int FILES_PER_AIP = Integer.getInteger("roda.benchmark.filesPerAip", 1000);
+  private static final int QUERIES = Integer.getInteger("roda.benchmark.queries", 2000);
+  private static final int HOT_AIPS = Integer.getInteger("roda.benchmark.hotAips", 100);
+  private static final int BATCH_SIZE = 10000;
+  private static final List<String> MIMETYPES = Arrays.asList("image/tiff", "image/jpeg", "application/pdf",
+    "text/xml", "audio/wav");
+
+  private static Path basePath;
+  private static SolrClient solr;
+
+  @BeforeClass
+  public static void setUp() throws IOException, SolrServerException {
+    basePath = TestsHelper.createBaseTempDir(FilterQueryPlanBenchmark.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    solr = RodaCoreFactory.getSolr();
+
+    long start = System.currentTimeMillis();
+    List<SolrInputDocument> batch = new ArrayList<>();
+    for (int i = 0; i < FILES; i++) {
+      batch.add(createFile(i));
+      if (batch.size() == BATCH_SIZE) {
+        solr.add(RodaConstants.INDEX_FILE, batch);
+        batch.clear();
+      }
+    }
+    if (!batch.isEmpty()) {
+      solr.add(RodaConstants.INDEX_FILE, batch);
+    }
+    solr.commit(RodaConstants.INDEX_FILE);
+    solr.optimize(RodaConstants.INDEX_FILE);
+    LOGGER.info("Indexed {} synthetic files in {} ms", FILES, System.currentTimeMillis() - start);
+  }
+
+  @AfterClass
+  public static void tearDown() throws NotFoundException, GenericException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private static SolrInputDocument createFile(int i) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.INDEX_UUID, "file-" + i);
+    doc.addField(RodaConstants.FILE_FILE_ID, "file-" + i);
+    doc.addField(RodaConstants.FILE_AIP_ID, "aip-" + (i / FILES_PER_AIP));
+    doc.addField(RodaConstants.FILE_REPRESENTATION_ID, "rep-" + (i % 3));
+    doc.addField(RodaConstants.FILE_FORMAT_MIMETYPE, MIMETYPES.get(i % MIMETYPES.size()));
+    doc.addField(RodaConstants.FILE_SIZE, (long) (i * 7919L) % 1000000);
+    doc.addField(RodaConstants.FILE_ISDIRECTORY, i % 10 == 0);
+    AIPState state = i % 100 == 0 ? AIPState.INGEST_PROCESSING : AIPState.ACTIVE;
+    doc.addField(RodaConstants.STATE, state.toString());
+    return doc;
+  }
+
+  private static List<Filter> createFilters(long seed) {
+    Random random = new Random(seed);
+    int aips = Math.max(1, Math.min(HOT_AIPS, FILES / FILES_PER_AIP));
+    List<Filter> filters = new ArrayList<>();
+    for (int i = 0; i < QUERIES; i++) {
+      long from = random.nextInt(900000);
+      filters.add(new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, "aip-" + random.nextInt(aips)),
+        new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_ID, "rep-" + random.nextInt(3)),
+        new SimpleFilterParameter(RodaConstants.STATE, AIPState.ACTIVE.toString()),
+        new OneOfManyFilterParameter(RodaConstants.FILE_FORMAT_MIMETYPE, MIMETYPES.subList(0, 1 + random.nextInt(3))),
+        new LongRangeFilterParameter(RodaConstants.FILE_SIZE, from, from + random.nextInt(100000))));
+    }
+    return filters;
+  }
+
+  private static long run(List<Filter> filters, boolean planned)
+    throws RequestNotValidException, SolrServerException, IOException {
+    long time = 0;
+    long found = 0;
+    for (Filter filter : filters) {
+      SolrQuery query = new SolrQuery();
+      query.setParam("q.op", "AND");
+      if (planned) {
+        FilterQueryPlan plan = SolrUtils.planFilter(filter);
+        query.setQuery(plan.getQuery());
+        for (String filterQuery : plan.getFilterQueries()) {
+          query.addFilterQuery(filterQuery);
+        }
+      } else {
+        query.setQuery(SolrUtils.parseFilter(filter));
+      }
+      query.setFields(RodaConstants.INDEX_UUID);
+      query.setRows(20);
+      QueryResponse response = solr.query(RodaConstants.INDEX_FILE, query);
+      time += response.getQTime();
+      found += response.getResults().getNumFound();
+    }
+    LOGGER.debug("Found {} files", found);
+    return time;
+  }
+
+  @Test
+  public void benchmarkFilterQueries() throws RequestNotValidException, SolrServerException, IOException {
+    // warm up both, with other size ranges
+    run(createFilters(1), false);
+    run(createFilters(1), true);
+
+    List<Filter> filters = createFilters(2);
+    long queryTime = run(filters, false);
+    long plannedTime = run(filters, true);
+
+    LOGGER.info("{} queries on {} files: {} ms with the filter in the query, {} ms with filter queries", QUERIES,
+      FILES, queryTime, plannedTime);
+  }
+
+}
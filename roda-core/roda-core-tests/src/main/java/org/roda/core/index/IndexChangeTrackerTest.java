@@ -0,0 +1,151 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.util.Arrays;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.jobs.IndexedReport;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Job.JOB_STATE;
+import org.roda.core.data.v2.jobs.Report;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class IndexChangeTrackerTest {
+
+  @Test
+  public void testVersionChangesWithModelEvents() throws GenericException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    long aipVersion = tracker.getVersion(IndexedAIP.class, null);
+    long fileVersion = tracker.getVersion(IndexedFile.class, null);
+
+    tracker.descriptiveMetadataDeleted("aip", null, "ead.xml");
+    Assert.assertNotEquals(tracker.getVersion(IndexedAIP.class, null), aipVersion);
+    Assert.assertEquals(tracker.getVersion(IndexedFile.class, null), fileVersion);
+
+    tracker.aipDeleted("aip", true);
+    Assert.assertNotEquals(tracker.getVersion(IndexedFile.class, null), fileVersion);
+  }
+
+  @Test
+  public void testJobReportsAreScopedByJob() throws GenericException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    Job job1 = new Job().setId("job1");
+    Job job2 = new Job().setId("job2");
+    long job1Version = tracker.getVersion(IndexedReport.class, job1.getId());
+    long job2Version = tracker.getVersion(IndexedReport.class, job2.getId());
+    long reportsVersion = tracker.getVersion(IndexedReport.class, null);
+
+    tracker.jobReportCreatedOrUpdated(new Report(), job1);
+    Assert.assertNotEquals(tracker.getVersion(IndexedReport.class, job1.getId()), job1Version);
+    Assert.assertEquals(tracker.getVersion(IndexedReport.class, job2.getId()), job2Version);
+    Assert.assertNotEquals(tracker.getVersion(IndexedReport.class, null), reportsVersion);
+
+    // the job of a deleted report is not known
+    tracker.jobReportDeleted("report");
+    Assert.assertNotEquals(tracker.getVersion(IndexedReport.class, job2.getId()), job2Version);
+  }
+
+  @Test
+  public void testWaitForChange() throws GenericException, InterruptedException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    long version = tracker.getVersion(Job.class, null);
+
+    // nothing changes, waits until the timeout
+    Assert.assertEquals(tracker.waitForChange(Job.class, null, version, 50, 0), version);
+
+    Thread changer = new Thread(() -> {
+      try {
+        Thread.sleep(100);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+      tracker.jobCreatedOrUpdated(new Job().setId("job"), false);
+    });
+    changer.start();
+
+    long start = System.currentTimeMillis();
+    long changedVersion = tracker.waitForChange(Job.class, null, version, 10000, 0);
+    Assert.assertNotEquals(changedVersion, version);
+    Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+    changer.join();
+  }
+
+  @Test
+  public void testJobScopesAreForgottenWhenJobsEnd() throws GenericException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    Job job = new Job().setId("job");
+    long initialVersion = tracker.getVersion(IndexedReport.class, job.getId());
+
+    tracker.jobReportCreatedOrUpdated(new Report(), job);
+    Assert.assertNotEquals(tracker.getVersion(IndexedReport.class, job.getId()), initialVersion);
+
+    long jobsVersion = tracker.getVersion(Job.class, null);
+    job.setState(JOB_STATE.COMPLETED);
+    tracker.jobCreatedOrUpdated(job, true);
+    Assert.assertEquals(tracker.getVersion(IndexedReport.class, job.getId()), initialVersion);
+    Assert.assertEquals(tracker.getVersion(Job.class, job.getId()), initialVersion);
+    Assert.assertNotEquals(tracker.getVersion(Job.class, null), jobsVersion);
+  }
+
+  @Test
+  public void testIndexChangesReachEveryScope() throws GenericException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    Job job = new Job().setId("job");
+    tracker.jobReportCreatedOrUpdated(new Report(), job);
+    long jobVersion = tracker.getVersion(IndexedReport.class, job.getId());
+    long aipVersion = tracker.getVersion(IndexedAIP.class, null);
+
+    tracker.indexesChanged(Arrays.asList(RodaConstants.INDEX_JOB_REPORT, RodaConstants.INDEX_TRANSFERRED_RESOURCE));
+    Assert.assertNotEquals(tracker.getVersion(IndexedReport.class, job.getId()), jobVersion);
+    Assert.assertEquals(tracker.getVersion(IndexedAIP.class, null), aipVersion);
+  }
+
+  @Test
+  public void testChangeIsReportedOnceVisible() throws GenericException, InterruptedException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    long version = tracker.getVersion(IndexedAIP.class, null);
+    tracker.aipDeleted("aip", true);
+    long changedVersion = tracker.getVersion(IndexedAIP.class, null);
+
+    // changed, but not visible yet by the timeout
+    Assert.assertEquals(tracker.waitForChange(IndexedAIP.class, null, version, 10, 60000), version);
+
+    // the wait returns as soon as the change is visible
+    long start = System.currentTimeMillis();
+    Assert.assertEquals(tracker.waitForChange(IndexedAIP.class, null, version, 10000, 200), changedVersion);
+    Assert.assertTrue(System.currentTimeMillis() - start < 10000);
+  }
+
+  @Test
+  public void testUnknownVersionIsTakenAsTheCurrentOne() throws GenericException, InterruptedException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    tracker.aipDeleted("aip", true);
+    long version = tracker.getVersion(IndexedAIP.class, null);
+
+    // e.g. handed out before a restart, or the old negative versions
+    Assert.assertEquals(tracker.waitForChange(IndexedAIP.class, null, version - 1000000, 10, 0), version);
+    Assert.assertEquals(tracker.waitForChange(IndexedAIP.class, null, -version, 10, 0), version);
+    Assert.assertEquals(tracker.waitForChange(IndexedAIP.class, null, version + 1, 10, 0), version);
+  }
+
+  @Test
+  public void testUntrackedIndexesAlwaysChange() throws GenericException, InterruptedException {
+    IndexChangeTracker tracker = new IndexChangeTracker();
+    Assert.assertFalse(tracker.isTracked(TransferredResource.class));
+    long version = tracker.getVersion(TransferredResource.class, null);
+    Assert.assertNotEquals(tracker.waitForChange(TransferredResource.class, null, version, 10, 0), version);
+  }
+
+}
@@ -54,12 +54,15 @@ import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.IndexRunnable;
 import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
+import org.roda.core.data.v2.index.sort.SortParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.data.v2.index.sublist.Sublist;
 import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Permissions.PermissionType;
@@ -302,6 +305,38 @@ public class IndexServiceTest {
     model.deleteAIP(aipId);
   }
 
+  @Test
+  public void testAIPMetadataUpdate() throws RODAException {
+    // generate AIP ID
+    final String aipId = UUID.randomUUID().toString();
+
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    index.commitAIPs();
+
+    Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId));
+    long fileCount = index.count(IndexedFile.class, filesFilter);
+    assertTrue(fileCount > 0);
+
+    // change only the AIP metadata
+    final String username = "reader";
+    AIP aip = model.retrieveAIP(aipId);
+    aip.getPermissions().setUserPermissions(username, new HashSet<>(Arrays.asList(PermissionType.READ)));
+    model.updateAIP(aip, aipCreator);
+    index.commitAIPs();
+
+    final IndexedAIP indexedAIP = index.retrieve(IndexedAIP.class, aipId);
+    assertTrue(indexedAIP.getPermissions().getUsernames().contains(username));
+
+    // files are kept and get the new permissions
+    assertEquals(fileCount, index.count(IndexedFile.class, filesFilter).longValue());
+    Filter readableFilesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId),
+      new SimpleFilterParameter(RodaConstants.INDEX_PERMISSION_USERS_PREFIX + PermissionType.READ, username));
+    assertEquals(fileCount, index.count(IndexedFile.class, readableFilesFilter).longValue());
+
+    model.deleteAIP(aipId);
+  }
+
   @Test
   public void testListCollections() throws RODAException {
     // set up
@@ -759,6 +794,131 @@ public class IndexServiceTest {
 
   }
 
+  @Test
+  public void testFindReturningOnlySomeFields() throws RODAException {
+    final String aipId = UUID.randomUUID().toString();
+    model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+    index.commitAIPs();
+
+    // AIPs
+    Filter aipFilter = new Filter(new SimpleFilterParameter(RodaConstants.INDEX_UUID, aipId));
+    IndexResult<IndexedAIP> aips = index.find(IndexedAIP.class, aipFilter, null, new Sublist(0, 10), null, null, true,
+      Arrays.asList(RodaConstants.AIP_TITLE));
+    assertEquals(1, aips.getResults().size());
+    IndexedAIP aip = aips.getResults().get(0);
+    assertEquals(aipId, aip.getId());
+    assertEquals("My example", aip.getTitle());
+    Assert.assertNull(aip.getState());
+    Assert.assertNull(aip.getLevel());
+    Assert.assertNull(aip.getIngestJobId());
+    Assert.assertNull(aip.getNumberOfSubmissionFiles());
+    Assert.assertNull(aip.getHasRepresentations());
+    Assert.assertNull(aip.getPermissions());
+
+    // without a projection the defaults are kept
+    aip = index.find(IndexedAIP.class, aipFilter, null, new Sublist(0, 10), null, null, true, new ArrayList<>())
+      .getResults().get(0);
+    assertEquals(AIPState.ACTIVE, aip.getState());
+    assertEquals("fonds", aip.getLevel());
+
+    // representations
+    Filter representationsFilter = new Filter(new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aipId));
+    Map<String, IndexedRepresentation> representations = new HashMap<>();
+    index.find(IndexedRepresentation.class, representationsFilter, null, new Sublist(0, 10)).getResults()
+      .forEach(rep -> representations.put(rep.getUUID(), rep));
+    IndexResult<IndexedRepresentation> projectedRepresentations = index.find(IndexedRepresentation.class,
+      representationsFilter, null, new Sublist(0, 10), null, null, true,
+      Arrays.asList(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES));
+    assertEquals(representations.size(), projectedRepresentations.getResults().size());
+    for (IndexedRepresentation rep : projectedRepresentations.getResults()) {
+      IndexedRepresentation fullRep = representations.get(rep.getUUID());
+      assertNotNull(fullRep);
+      assertEquals(fullRep.getId(), rep.getId());
+      assertEquals(fullRep.isOriginal(), rep.isOriginal());
+      assertEquals(fullRep.getNumberOfDataFiles(), rep.getNumberOfDataFiles());
+      Assert.assertNull(rep.getSizeInBytes());
+      Assert.assertNull(rep.getType());
+      Assert.assertNull(rep.getAncestors());
+    }
+
+    // files
+    Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId));
+    Map<String, IndexedFile> files = new HashMap<>();
+    index.find(IndexedFile.class, filesFilter, null, new Sublist(0, 100)).getResults()
+      .forEach(file -> files.put(file.getUUID(), file));
+    IndexResult<IndexedFile> projectedFiles = index.find(IndexedFile.class, filesFilter, null, new Sublist(0, 100),
+      null, null, true, Arrays.asList(RodaConstants.FILE_SIZE));
+    assertEquals(files.size(), projectedFiles.getResults().size());
+    for (IndexedFile file : projectedFiles.getResults()) {
+      IndexedFile fullFile = files.get(file.getUUID());
+      assertNotNull(fullFile);
+      assertEquals(fullFile.getPath(), file.getPath());
+      assertEquals(fullFile.isDirectory(), file.isDirectory());
+      assertEquals(fullFile.getSize(), file.getSize());
+      Assert.assertNull(file.getOriginalName());
+      Assert.assertNull(file.getFileFormat());
+      Assert.assertNull(file.getStoragePath());
+    }
+
+    try {
+      index.find(IndexedAIP.class, null, null, new Sublist(0, 10), null, null, true, Arrays.asList("title:*"));
+      Assert.fail("An invalid field name should not have been accepted");
+    } catch (RequestNotValidException e) {
+      // expected
+    }
+    try {
+      index.find(IndexedRisk.class, null, null, new Sublist(0, 10), null, null, true,
+        Arrays.asList(RodaConstants.RISK_NAME));
+      Assert.fail("Returning only some fields of a risk should not be supported");
+    } catch (RequestNotValidException e) {
+      // expected
+    }
+  }
+
+  @Test
+  public void testPagingThroughOnlySomeFields() throws RODAException {
+    List<String> aipIds = new ArrayList<>();
+    for (int i = 0; i < 5; i++) {
+      String aipId = UUID.randomUUID().toString();
+      model.createAIP(aipId, corporaService,
+        DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_ID), aipCreator);
+      aipIds.add(aipId);
+    }
+    index.commitAIPs();
+
+    Filter aipsFilter = new Filter(new OneOfManyFilterParameter(RodaConstants.INDEX_UUID, aipIds));
+    Sorter sorter = new Sorter(new SortParameter(RodaConstants.INDEX_UUID, false));
+    List<String> fields = Arrays.asList(RodaConstants.AIP_TITLE);
+    List<String> pagedIds = new ArrayList<>();
+    IndexResult<IndexedAIP> page;
+    int offset = 0;
+    do {
+      page = index.find(IndexedAIP.class, aipsFilter, sorter, new Sublist(offset, 2), null, null, true, fields);
+      assertEquals(aipIds.size(), page.getTotalCount());
+      assertEquals(offset, page.getOffset());
+      page.getResults().forEach(aip -> pagedIds.add(aip.getId()));
+      offset += page.getLimit();
+    } while (page.getTotalCount() > page.getOffset() + page.getLimit());
+
+    aipIds.sort(null);
+    assertEquals(aipIds, pagedIds);
+
+    // the files of all AIPs, one at a time
+    Filter filesFilter = new Filter(new OneOfManyFilterParameter(RodaConstants.FILE_AIP_ID, aipIds),
+      new SimpleFilterParameter(RodaConstants.FILE_ISDIRECTORY, "false"));
+    long fileCount = index.count(IndexedFile.class, filesFilter);
+    Set<String> pagedFileUUIDs = new HashSet<>();
+    for (int i = 0; i < fileCount; i++) {
+      IndexResult<IndexedFile> filePage = index.find(IndexedFile.class, filesFilter, sorter, new Sublist(i, 1), null,
+        null, true, Arrays.asList(RodaConstants.FILE_SIZE));
+      assertEquals(1, filePage.getResults().size());
+      assertNotNull(filePage.getResults().get(0).getSize());
+      pagedFileUUIDs.add(filePage.getResults().get(0).getUUID());
+    }
+    assertEquals(fileCount, pagedFileUUIDs.size());
+  }
+
   @Test
   public void testIteration() throws RODAException, SolrServerException, IOException {
 
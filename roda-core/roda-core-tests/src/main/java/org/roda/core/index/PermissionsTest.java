@@ -13,6 +13,7 @@ import java.net.URL;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.text.ParseException;
+import java.util.Collections;
 import java.util.UUID;
 
 import org.roda.core.CorporaConstants;
@@ -21,9 +22,11 @@ import org.roda.core.TestsHelper;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.index.IndexResult;
 import org.roda.core.data.v2.index.sublist.Sublist;
+import org.roda.core.data.v2.ip.AIP;
 import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.Permissions.PermissionType;
 import org.roda.core.data.v2.ip.metadata.IndexedPreservationEvent;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.model.ModelService;
@@ -292,4 +295,36 @@ public class PermissionsTest {
     model.deleteAIP(aipId);
   }
 
+  @Test
+  public void testPermissionsChangedRightAfterIndexing() throws RODAException, ParseException {
+    // Generate AIP Id
+    final String aipId = UUID.randomUUID().toString();
+
+    // Create AIP and change its permissions before its files are committed
+    AIP aip = model.createAIP(aipId, corporaService,
+      DefaultStoragePath.parse(CorporaConstants.SOURCE_AIP_CONTAINER, CorporaConstants.SOURCE_AIP_PERMISSIONS),
+      aipCreator);
+    aip.getPermissions().setGroupPermissions("othergroup", Collections.singleton(PermissionType.READ));
+    model.updateAIPPermissions(aip, aipCreator);
+
+    index.commitAIPs();
+
+    User user = new User("guest", "User with access", "", true);
+    user.addGroup("othergroup");
+    boolean justActive = false;
+    IndexResult<IndexedRepresentation> representations = index.find(IndexedRepresentation.class, null, null,
+      new Sublist(0, 10), null, user, justActive);
+    assertEquals(2, representations.getTotalCount());
+
+    IndexResult<IndexedFile> files = index.find(IndexedFile.class, null, null, new Sublist(0, 10), null, user,
+      justActive);
+    assertEquals(4, files.getTotalCount());
+
+    IndexResult<IndexedPreservationEvent> events = index.find(IndexedPreservationEvent.class, null, null,
+      new Sublist(0, 10), null, user, justActive);
+    assertEquals(2, events.getTotalCount());
+
+    model.deleteAIP(aipId);
+  }
+
 }
@@ -0,0 +1,105 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.index.utils.SolrShadowCores;
+import org.roda.core.storage.fs.FSUtils;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class SolrShadowCoresTest {
+
+  private static final String CORE = "ShadowTest";
+
+  private static Path basePath;
+  private static SolrClient solr;
+
+  @BeforeClass
+  public static void setUp() throws IOException, GenericException {
+    basePath = TestsHelper.createBaseTempDir(SolrShadowCoresTest.class, true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = false;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = false;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+    solr = RodaCoreFactory.getSolr();
+  }
+
+  @AfterClass
+  public static void tearDown() throws NotFoundException, GenericException {
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private static SolrInputDocument member(String id) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.INDEX_UUID, id);
+    doc.addField("name", id);
+    doc.addField("isActive", true);
+    doc.addField("isUser", true);
+    return doc;
+  }
+
+  @Test
+  public void testSwapKeepsTheNewLiveIndexWithDataInsideTheInstanceDir()
+    throws IOException, SolrServerException, GenericException, AlreadyExistsException {
+    // a core laid out like in standalone Solr, with its data directory inside
+    // its instance directory
+    String membersInstanceDir = (String) CoreAdminRequest.getStatus(RodaConstants.INDEX_MEMBERS, solr)
+      .getCoreStatus(RodaConstants.INDEX_MEMBERS).get("instanceDir");
+    Path instanceDir = basePath.resolve(CORE);
+    FSUtils.copy(Paths.get(membersInstanceDir).resolve("conf"), instanceDir.resolve("conf"), false);
+    CoreAdminRequest.Create create = new CoreAdminRequest.Create();
+    create.setCoreName(CORE);
+    create.setInstanceDir(instanceDir.toString());
+    create.setDataDir(instanceDir.resolve("data").toString());
+    create.process(solr);
+
+    solr.add(CORE, member("member1"));
+    solr.add(CORE, member("member2"));
+    solr.commit(CORE);
+
+    String shadow = SolrShadowCores.createShadowCore(solr, CORE);
+    SolrShadowCores.copyDocuments(solr, CORE, shadow, 10);
+    solr.add(shadow, member("member3"));
+    solr.commit(shadow);
+
+    SolrShadowCores.swap(solr, CORE, shadow);
+    SolrShadowCores.dropCore(solr, shadow);
+
+    Assert.assertEquals(solr.query(CORE, new SolrQuery("*:*")).getResults().getNumFound(), 3);
+    solr.add(CORE, member("member4"));
+    solr.commit(CORE);
+    Assert.assertEquals(solr.query(CORE, new SolrQuery("*:*")).getResults().getNumFound(), 4);
+    Assert.assertTrue(Files.isDirectory(instanceDir.resolve("conf")));
+  }
+
+}
@@ -38,12 +38,15 @@ import org.roda.core.data.v2.index.filter.EmptyKeyFilterParameter;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.LikeFilterParameter;
 import org.roda.core.data.v2.index.filter.LongRangeFilterParameter;
+import org.roda.core.data.v2.index.filter.NotSimpleFilterParameter;
 import org.roda.core.data.v2.index.filter.OneOfManyFilterParameter;
+import org.roda.core.data.v2.index.filter.OrFiltersParameters;
 import org.roda.core.data.v2.index.filter.RegexFilterParameter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.index.sort.SortParameter;
 import org.roda.core.data.v2.index.sort.Sorter;
 import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.index.utils.SolrUtils.FilterQueryPlan;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
@@ -255,6 +258,45 @@ public class SolrUtilsTest {
 
   }
 
+  @Test
+  public void testPlanFilter() throws RequestNotValidException {
+    String aipId = "aip", representationId = "rep";
+
+    // 1) no filter matches all, without filter queries
+    FilterQueryPlan plan = SolrUtils.planFilter(null);
+    assertEquals("*:*", plan.getQuery());
+    assertThat(plan.getFilterQueries(), Matchers.hasSize(0));
+
+    // 2) structural parameters become one filter query each
+    Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId),
+      new NotSimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_ID, representationId),
+      new EmptyKeyFilterParameter(RodaConstants.FILE_FORMAT_MIMETYPE));
+    plan = SolrUtils.planFilter(filter);
+    assertEquals("*:*", plan.getQuery());
+    assertThat(plan.getFilterQueries(),
+      Matchers.contains(String.format("(%s: \"%s\")", RodaConstants.FILE_AIP_ID, aipId),
+        String.format("(*:* -%s: \"%s\")", RodaConstants.FILE_REPRESENTATION_ID, representationId),
+        String.format("(*:* NOT %s:*)", RodaConstants.FILE_FORMAT_MIMETYPE)));
+
+    // 3) basic searches (also inside groups) score, ranges are not cached
+    filter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_AIP_ID, aipId),
+      new BasicSearchFilterParameter(RodaConstants.AIP_SEARCH, "fonds"),
+      new OrFiltersParameters(Arrays.asList(new BasicSearchFilterParameter(RodaConstants.AIP_SEARCH, "series"),
+        new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_ID, representationId))),
+      new LongRangeFilterParameter(RodaConstants.FILE_SIZE, 1L, 5L));
+    plan = SolrUtils.planFilter(filter);
+    assertEquals(String.format("(%s: (fonds)) AND ((%s: (series)) OR (%s: \"%s\"))", RodaConstants.AIP_SEARCH,
+      RodaConstants.AIP_SEARCH, RodaConstants.FILE_REPRESENTATION_ID, representationId), plan.getQuery());
+    assertThat(plan.getFilterQueries(),
+      Matchers.contains(String.format("(%s: \"%s\")", RodaConstants.FILE_AIP_ID, aipId),
+        String.format("{!cache=false cost=50}(%s:[1 TO 5])", RodaConstants.FILE_SIZE)));
+
+    // 4) empty parameters are left out
+    plan = SolrUtils.planFilter(new Filter(new DateRangeFilterParameter()));
+    assertEquals("*:*", plan.getQuery());
+    assertThat(plan.getFilterQueries(), Matchers.hasSize(0));
+  }
+
   @Test
   public void testParseSorter() {
     Sorter sorter = null;
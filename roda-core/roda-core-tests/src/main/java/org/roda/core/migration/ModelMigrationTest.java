@@ -0,0 +1,101 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.risks.Risk;
+import org.roda.core.migration.model.RiskToVersion2;
+import org.roda.core.model.utils.ModelUtils;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+
+@Test(groups = {"all", "travis"})
+public class ModelMigrationTest {
+
+  private static final String OLD_RISK = "{\"id\":\"%s\",\"posMitigationNotes\":\"notes\"}";
+
+  private Path basePath;
+  private StorageService storage;
+
+  @BeforeMethod
+  public void setUp() throws IOException, RODAException {
+    basePath = TestsHelper.createBaseTempDir(ModelMigrationTest.class, true);
+    storage = new FileStorageService(basePath.resolve("storage"));
+    storage.createContainer(ModelUtils.getRiskContainerPath());
+    for (int i = 1; i <= 3; i++) {
+      String id = "risk-" + i;
+      storage.createBinary(ModelUtils.getRiskStoragePath(id), new StringContentPayload(String.format(OLD_RISK, id)),
+        false);
+    }
+  }
+
+  @AfterMethod
+  public void tearDown() throws RODAException {
+    FSUtils.deletePath(basePath);
+  }
+
+  private JsonNode readRisk(String id) throws IOException, RODAException {
+    return JsonUtils.parseJson(storage.getBinary(ModelUtils.getRiskStoragePath(id)).getContent().createInputStream());
+  }
+
+  private ModelMigration createMigration(Path checkpointFile) throws RODAException {
+    return new ModelMigration(Risk.class.getName(), ModelUtils.getRiskContainerPath(),
+      Arrays.asList(new RiskToVersion2(), new RiskToVersion2()), checkpointFile, 2);
+  }
+
+  @Test
+  public void testMigrationResumesFromCheckpoint() throws IOException, RODAException {
+    // a previous run was interrupted after migrating the first risk
+    Path checkpointFile = basePath.resolve("migrations").resolve(Risk.class.getName() + "-2.checkpoint");
+    Files.createDirectories(checkpointFile.getParent());
+    Files.write(checkpointFile, "risk-1.json\n".getBytes(StandardCharsets.UTF_8));
+
+    Assert.assertEquals(createMigration(checkpointFile).run(storage), 0L);
+
+    Assert.assertTrue(readRisk("risk-1").has("posMitigationNotes"));
+    for (String id : Arrays.asList("risk-2", "risk-3")) {
+      JsonNode risk = readRisk(id);
+      Assert.assertFalse(risk.has("posMitigationNotes"));
+      Assert.assertEquals(risk.get("postMitigationNotes").asText(), "notes");
+    }
+    Assert.assertFalse(Files.exists(checkpointFile));
+  }
+
+  @Test
+  public void testObjectsAreMigratedWhenReadOnline() throws IOException, RODAException {
+    ModelMigration migration = createMigration(null);
+    migration.startOnline();
+    try {
+      Risk risk = ModelMigration.getObjectFromJson(
+        storage.getBinary(ModelUtils.getRiskStoragePath("risk-1")).getContent().createInputStream(), Risk.class);
+      Assert.assertEquals(risk.getPostMitigationNotes(), "notes");
+    } finally {
+      migration.stopOnline();
+    }
+
+    // reading does not change the stored object
+    Assert.assertTrue(readRisk("risk-1").has("posMitigationNotes"));
+  }
+
+}
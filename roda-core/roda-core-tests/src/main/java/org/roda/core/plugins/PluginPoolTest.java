@@ -0,0 +1,54 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.plugins.plugins.base.RemoveAIPPlugin;
+import org.roda.core.plugins.plugins.ingest.characterization.PremisSkeletonPlugin;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class PluginPoolTest {
+
+  @Test
+  public void testResetInstancesAreReused() throws InvalidParameterException {
+    PluginPool pool = new PluginPool(PremisSkeletonPlugin.class.getName(), new PremisSkeletonPlugin<AIP>(), 1);
+
+    Plugin<?> first = pool.borrow();
+    Map<String, String> parameters = new HashMap<>();
+    parameters.put(RodaConstants.PLUGIN_PARAMS_JOB_ID, "job");
+    first.setParameterValues(parameters);
+    Plugin<?> second = pool.borrow();
+    Assert.assertNotSame(first, second);
+
+    Assert.assertTrue(pool.release(first));
+    // only one idle instance is kept
+    Assert.assertFalse(pool.release(second));
+
+    Plugin<?> reused = pool.borrow();
+    Assert.assertSame(reused, first);
+    Assert.assertTrue(reused.getParameterValues().isEmpty());
+    Assert.assertNotSame(pool.borrow(), first);
+  }
+
+  @Test
+  public void testInstancesNotSupportingResetAreDiscarded() {
+    PluginPool pool = new PluginPool(RemoveAIPPlugin.class.getName(), new RemoveAIPPlugin(), 1);
+
+    Plugin<?> plugin = pool.borrow();
+    Assert.assertFalse(pool.release(plugin));
+    Assert.assertNotSame(pool.borrow(), plugin);
+  }
+
+}
@@ -0,0 +1,108 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate;
+
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.nio.file.Path;
+import java.util.UUID;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.select.SelectedItemsNone;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Job.JOB_STATE;
+import org.roda.core.data.v2.jobs.PluginType;
+import org.roda.core.plugins.orchestrate.akka.distributed.AkkaDistributedPluginWorker;
+import org.roda.core.plugins.plugins.DummyPlugin;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.testng.Assert;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+
+/**
+ * Executes jobs with the distributed orchestrator, with the master node and a
+ * worker node running in two actor systems on localhost.
+ */
+@Test(groups = {"all", "travis"})
+public class DistributedJobsTest {
+  private static final Logger LOGGER = LoggerFactory.getLogger(DistributedJobsTest.class);
+
+  private static final String HOSTNAME = "127.0.0.1";
+
+  private static Path basePath;
+  private static AkkaDistributedPluginOrchestrator master;
+  private static AkkaDistributedPluginWorker worker;
+
+  @BeforeClass
+  public void setUp() throws Exception {
+    basePath = TestsHelper.createBaseTempDir(getClass(), true);
+
+    boolean deploySolr = true;
+    boolean deployLdap = true;
+    boolean deployFolderMonitor = false;
+    boolean deployOrchestrator = false;
+    boolean deployPluginManager = true;
+    boolean deployDefaultResources = false;
+    RodaCoreFactory.instantiateTest(deploySolr, deployLdap, deployFolderMonitor, deployOrchestrator,
+      deployPluginManager, deployDefaultResources);
+
+    String masterPort = getFreePort();
+    master = new AkkaDistributedPluginOrchestrator(HOSTNAME, masterPort);
+    RodaCoreFactory.setPluginOrchestrator(master);
+    worker = new AkkaDistributedPluginWorker(HOSTNAME, masterPort, HOSTNAME, getFreePort());
+
+    LOGGER.info("Running distributed Jobs tests under storage {}", basePath);
+  }
+
+  @AfterClass
+  public void tearDown() throws Exception {
+    worker.shutdown();
+    master.shutdown();
+    RodaCoreFactory.shutdown();
+    FSUtils.deletePath(basePath);
+  }
+
+  private static String getFreePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return Integer.toString(socket.getLocalPort());
+    }
+  }
+
+  @Test
+  public void testJobExecutedByWorkerNode()
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    TestsHelper.executeJob(DummyPlugin.class, PluginType.MISC, SelectedItemsNone.create(), JOB_STATE.COMPLETED);
+  }
+
+  @Test
+  public void testJobCreatedByWorkerNodeIsExecutedSynchronously()
+    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
+    Job job = new Job();
+    job.setId(UUID.randomUUID().toString());
+    job.setName(DummyPlugin.class.getName());
+    job.setPlugin(DummyPlugin.class.getName());
+    job.setPluginType(PluginType.MISC);
+    job.setSourceObjects(SelectedItemsNone.create());
+    job.setUsername("admin");
+    RodaCoreFactory.getModelService().createJob(job);
+
+    // returns only when the master node has executed the job
+    worker.executeJob(job, false);
+
+    Job jobUpdated = RodaCoreFactory.getModelService().retrieveJob(job.getId());
+    Assert.assertEquals(jobUpdated.getState(), JOB_STATE.COMPLETED);
+  }
+}
@@ -36,6 +36,7 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.storage.fedora.FedoraStorageService;
 import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.utils.StorageRecursiveListingUtils;
 import org.testng.Assert;
 import org.testng.annotations.AfterMethod;
 import org.testng.annotations.Test;
@@ -417,6 +418,52 @@ public abstract class AbstractStorageServiceTest<T extends StorageService> {
     getStorage().deleteContainer(containerStoragePath);
   }
 
+  @Test
+  public void testRecursiveListingAndCount() throws RODAException, IOException {
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    getStorage().createContainer(containerStoragePath);
+    final StoragePath directoryStoragePath = StorageTestUtils
+      .generateRandomResourceStoragePathUnder(containerStoragePath);
+    getStorage().createDirectory(directoryStoragePath);
+    StorageTestUtils.populate(getStorage(), directoryStoragePath);
+
+    // 3 directories, 9 sub-directories and 27 binaries
+    List<String> expected = new ArrayList<>();
+    try (CloseableIterable<Resource> resources = getStorage().listResourcesUnderDirectory(directoryStoragePath, true)) {
+      resources.forEach(resource -> expected.add(resource.getStoragePath().toString()));
+    }
+    assertEquals(39, expected.size());
+
+    List<String> listed = new ArrayList<>();
+    List<String> parents = new ArrayList<>();
+    try (CloseableIterable<Resource> resources = StorageRecursiveListingUtils.listAllUnderDirectory(getStorage(),
+      directoryStoragePath)) {
+      for (Resource resource : resources) {
+        StoragePath storagePath = resource.getStoragePath();
+        // depth first: parents are listed right before their children
+        while (!parents.isEmpty() && !storagePath.toString().startsWith(parents.get(parents.size() - 1) + "/")) {
+          parents.remove(parents.size() - 1);
+        }
+        assertEquals(directoryStoragePath.asList().size() + parents.size() + 1, storagePath.asList().size());
+        if (resource.isDirectory()) {
+          parents.add(storagePath.toString());
+        }
+        listed.add(storagePath.toString());
+      }
+    }
+    assertThat(listed, Matchers.containsInAnyOrder(expected.toArray()));
+
+    assertEquals(Long.valueOf(39), getStorage().countResourcesUnderDirectory(directoryStoragePath, true));
+    assertEquals(Long.valueOf(39),
+      StorageRecursiveListingUtils.countAllUnderDirectory(getStorage(), directoryStoragePath));
+    assertEquals(Long.valueOf(40), getStorage().countResourcesUnderContainer(containerStoragePath, true));
+    assertEquals(Long.valueOf(40),
+      StorageRecursiveListingUtils.countAllUnderContainer(getStorage(), containerStoragePath));
+
+    // cleanup
+    getStorage().deleteContainer(containerStoragePath);
+  }
+
   @Test(enabled = false)
   protected void testBinaryContent(Binary binary, ContentPayload providedPayload) throws IOException, GenericException {
     // check if content is the same
@@ -178,4 +178,19 @@ public class FedoraStorageServiceTest extends AbstractTestNGSpringContextTests {
     delegate.testBinaryVersions();
   }
 
+  @Test
+  public void testRecursiveListingAndCount() throws RODAException, IOException {
+    delegate.testRecursiveListingAndCount();
+  }
+
+  @Test
+  public void testCopyFromOtherStorageInTransaction() throws RODAException, IOException {
+    delegate.testCopyFromOtherStorageInTransaction();
+  }
+
+  @Test
+  public void testTransactionRollback() throws RODAException {
+    delegate.testTransactionRollback();
+  }
+
 }
@@ -13,6 +13,7 @@ import static org.testng.AssertJUnit.assertNotNull;
 
 import java.io.IOException;
 import java.net.ServerSocket;
+import java.nio.file.Path;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.Map;
@@ -21,9 +22,11 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.HttpClient;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.impl.client.HttpClientBuilder;
+import org.roda.core.TestsHelper;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.v2.ip.StoragePath;
@@ -34,6 +37,8 @@ import org.roda.core.storage.Container;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.RandomMockContentPayload;
 import org.roda.core.storage.StorageTestUtils;
+import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileStorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.testng.Assert;
@@ -310,4 +315,44 @@ public class FedoraStorageServiceTestDelegate extends AbstractStorageServiceTest
     super.testBinaryVersions();
   }
 
+  @Test
+  public void testCopyFromOtherStorageInTransaction() throws RODAException, IOException {
+    Path basePath = TestsHelper.createBaseTempDir(FedoraStorageServiceTest.class, false);
+    try {
+      FileStorageService otherStorage = new FileStorageService(basePath);
+      StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+      otherStorage.createContainer(containerStoragePath);
+      StorageTestUtils.populate(otherStorage, containerStoragePath);
+
+      // not there yet (and the cache must not keep it that way)
+      assertFalse(storage.hasDirectory(containerStoragePath));
+      storage.copy(otherStorage, containerStoragePath, containerStoragePath);
+      assertEquals(Container.class, storage.getEntity(containerStoragePath));
+      StorageTestUtils.testEntityEqualRecursively(otherStorage, containerStoragePath, storage, containerStoragePath);
+    } finally {
+      FSUtils.deletePathQuietly(basePath);
+    }
+  }
+
+  @Test
+  public void testTransactionRollback() throws RODAException {
+    final StoragePath containerStoragePath = StorageTestUtils.generateRandomContainerStoragePath();
+    try {
+      storage.inTransaction(transaction -> {
+        transaction.createContainer(containerStoragePath);
+        throw new GenericException("Forcing rollback");
+      });
+      Assert.fail("Transaction work should have failed");
+    } catch (GenericException e) {
+      // expected
+    }
+
+    try {
+      storage.getContainer(containerStoragePath);
+      Assert.fail("Container should not exist after the rollback");
+    } catch (NotFoundException e) {
+      // expected
+    }
+  }
+
 }
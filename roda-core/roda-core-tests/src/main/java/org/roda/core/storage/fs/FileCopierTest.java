@@ -0,0 +1,155 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Random;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.storage.fs.FileCopier.Strategy;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class FileCopierTest {
+
+  private Path basePath;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(FileCopierTest.class, false);
+  }
+
+  @AfterMethod
+  public void tearDown() throws NotFoundException, GenericException {
+    FileCopier.configure(Collections.emptyList(), 0, 0);
+    FSUtils.deletePath(basePath);
+  }
+
+  private Path createFile(String name, int size) throws IOException {
+    byte[] content = new byte[size];
+    new Random(size).nextBytes(content);
+    Path file = basePath.resolve(name);
+    Files.createDirectories(file.getParent());
+    Files.write(file, content);
+    return file;
+  }
+
+  private static void assertCopied(Path source, Path target) throws IOException {
+    Assert.assertEquals(Files.readAllBytes(target), Files.readAllBytes(source));
+  }
+
+  @Test
+  public void testLargeFileIsCopiedInChunks() throws IOException {
+    FileCopier.configure(Arrays.asList(Strategy.COPY), 3, 1000);
+    // not a multiple of the chunk size, so the last chunk is shorter
+    Path source = createFile("source", 10500);
+    Path target = basePath.resolve("target");
+
+    Assert.assertEquals(FileCopier.copyFile(source, target, false), Strategy.COPY);
+    assertCopied(source, target);
+    Assert.assertFalse(Files.isSameFile(source, target));
+
+    try {
+      FileCopier.copyFile(source, target, false);
+      Assert.fail("The existing target should not have been replaced");
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+
+    Path otherSource = createFile("other", 4000);
+    FileCopier.copyFile(otherSource, target, true);
+    assertCopied(otherSource, target);
+  }
+
+  @Test
+  public void testStrategiesAreTriedInOrder() throws IOException {
+    Path source = createFile("source", 100);
+
+    // reflinks are not supported everywhere, hard links in the same folder are
+    FileCopier.configure(Arrays.asList(Strategy.REFLINK, Strategy.HARDLINK, Strategy.COPY), 1, 1000);
+    Path linked = basePath.resolve("linked");
+    Strategy used = FileCopier.copyFile(source, linked, false);
+    Assert.assertTrue(used == Strategy.REFLINK || used == Strategy.HARDLINK, "Used " + used);
+    Assert.assertEquals(Files.isSameFile(source, linked), used == Strategy.HARDLINK);
+    assertCopied(source, linked);
+
+    FileCopier.configure(Arrays.asList(Strategy.REFLINK, Strategy.COPY), 1, 1000);
+    Path copied = basePath.resolve("copied");
+    used = FileCopier.copyFile(source, copied, false);
+    Assert.assertTrue(used == Strategy.REFLINK || used == Strategy.COPY, "Used " + used);
+    Assert.assertFalse(Files.isSameFile(source, copied));
+    assertCopied(source, copied);
+
+    // links whatever the configured strategies
+    FileCopier.configure(Arrays.asList(Strategy.COPY), 1, 1000);
+    Path hardlinked = basePath.resolve("hardlinked");
+    Assert.assertEquals(FileCopier.linkFile(source, hardlinked, false), Strategy.HARDLINK);
+    Assert.assertTrue(Files.isSameFile(source, hardlinked));
+  }
+
+  @Test
+  public void testCopyTree() throws IOException {
+    Path source = basePath.resolve("source");
+    Path file1 = createFile("source/file1", 100);
+    Path file2 = createFile("source/dir/file2", 5000);
+    Files.createDirectories(source.resolve("empty"));
+
+    for (Strategy strategy : Strategy.values()) {
+      FileCopier.configure(Arrays.asList(strategy), 2, 1000);
+      Path target = basePath.resolve("target-" + strategy);
+      FileCopier.copyTree(source, target, false);
+      assertCopied(file1, target.resolve("file1"));
+      assertCopied(file2, target.resolve("dir").resolve("file2"));
+      Assert.assertTrue(Files.isDirectory(target.resolve("empty")));
+
+      try {
+        FileCopier.copyTree(source, target, false);
+        Assert.fail("The existing target files should not have been replaced");
+      } catch (FileAlreadyExistsException e) {
+        // expected
+      }
+      FileCopier.copyTree(source, target, true);
+      assertCopied(file2, target.resolve("dir").resolve("file2"));
+    }
+  }
+
+  @Test
+  public void testMoveByCopying() throws IOException {
+    FileCopier.configure(Arrays.asList(Strategy.COPY), 1, 1000);
+    Path source = createFile("source", 3000);
+    byte[] content = Files.readAllBytes(source);
+    Path target = basePath.resolve("dir").resolve("target");
+    Files.createDirectories(target.getParent());
+
+    FSUtils.copyAndDelete(source, target, false);
+    Assert.assertFalse(Files.exists(source));
+    Assert.assertEquals(Files.readAllBytes(target), content);
+
+    // the source is kept if it could not be copied
+    Path otherSource = createFile("other", 10);
+    try {
+      FSUtils.copyAndDelete(otherSource, target, false);
+      Assert.fail("The existing target should not have been replaced");
+    } catch (FileAlreadyExistsException e) {
+      // expected
+    }
+    Assert.assertTrue(Files.exists(otherSource));
+    Assert.assertEquals(Files.readAllBytes(target), content);
+  }
+
+}
@@ -0,0 +1,77 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.roda.core.TestsHelper;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class TrashReaperTest {
+
+  private Path basePath;
+
+  @BeforeMethod
+  public void setUp() throws IOException {
+    basePath = TestsHelper.createBaseTempDir(TrashReaperTest.class, false);
+    // purges only when asked, without limits
+    TrashReaper.configure(3600, 3600, 2, 0);
+  }
+
+  @AfterMethod
+  public void tearDown() throws NotFoundException, GenericException {
+    FSUtils.deletePath(basePath);
+  }
+
+  private static void createTree(Path path, int files) throws IOException {
+    for (int i = 0; i < files; i++) {
+      Path file = path.resolve("dir" + (i % 3)).resolve("file" + i);
+      Files.createDirectories(file.getParent());
+      Files.write(file, new byte[] {(byte) i});
+    }
+  }
+
+  @Test
+  public void testPurgeIncludingPreviousBatches() throws IOException {
+    Path trashPath = basePath.resolve("trash");
+    Path purgePath = basePath.resolve("trash" + TrashReaper.PURGE_SUFFIX);
+    createTree(trashPath, 20);
+    // batch left by a previous run
+    createTree(purgePath.resolve("00000000000000000001"), 10);
+
+    TrashReaper reaper = new TrashReaper(trashPath, new ReentrantReadWriteLock());
+    try {
+      reaper.start();
+      // the trash was sealed on startup
+      Assert.assertTrue(Files.isDirectory(trashPath));
+      Assert.assertEquals(trashPath.toFile().list().length, 0);
+      Assert.assertEquals(reaper.getBacklogBatches(), 2);
+
+      // what is trashed meanwhile is purged in the next run
+      createTree(trashPath, 5);
+      reaper.reap();
+
+      Assert.assertEquals(trashPath.toFile().list().length, 0);
+      Assert.assertEquals(purgePath.toFile().list().length, 0);
+      Assert.assertEquals(reaper.getBacklogBatches(), 0);
+      Assert.assertEquals(reaper.getBacklogFiles(), 0);
+    } finally {
+      reaper.stop();
+    }
+  }
+
+}
@@ -35,6 +35,8 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
@@ -64,8 +66,11 @@ import org.roda.core.common.Messages;
 import org.roda.core.common.RodaUtils;
 import org.roda.core.common.UserUtility;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.metrics.MetricsEndpoint;
+import org.roda.core.common.metrics.MetricsUtils;
 import org.roda.core.common.monitor.TransferUpdateStatus;
 import org.roda.core.common.monitor.TransferredResourcesScanner;
+import org.roda.core.common.notifications.NotificationOutbox;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.NodeType;
 import org.roda.core.data.common.RodaConstants.PreservationAgentType;
@@ -98,6 +103,8 @@ import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.index.IndexService;
+import org.roda.core.index.utils.SolrShadowCores;
+import org.roda.core.index.utils.SolrTimePartitions;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.migration.MigrationManager;
 import org.roda.core.model.ModelService;
@@ -112,7 +119,11 @@ import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.fedora.FedoraStorageService;
 import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileCopier;
 import org.roda.core.storage.fs.FileStorageService;
+import org.roda.core.storage.fs.TrashReaper;
+import org.roda.core.storage.utils.StorageRecursiveListingUtils;
+import org.roda.core.util.ToolProcessManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -121,6 +132,7 @@ import com.codahale.metrics.MetricRegistry;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 import ch.qos.logback.classic.LoggerContext;
 import ch.qos.logback.classic.joran.JoranConfigurator;
@@ -168,6 +180,8 @@ public class RodaCoreFactory {
   // Metrics related objects
   private static MetricRegistry metricsRegistry;
   private static JmxReporter jmxMetricsReporter;
+  private static MetricsEndpoint metricsEndpoint = null;
+  private static final int DEFAULT_METRICS_ENDPOINT_PORT = 9100;
 
   // Orchestrator related objects
   private static PluginManager pluginManager;
@@ -176,12 +190,18 @@ public class RodaCoreFactory {
   private static AkkaDistributedPluginOrchestrator akkaDistributedPluginOrchestrator;
   private static AkkaDistributedPluginWorker akkaDistributedPluginWorker;
   private static boolean FEATURE_DISTRIBUTED_AKKA = false;
+  private static final String ORCHESTRATOR_TYPE_AKKA_DISTRIBUTED = "AKKA_DISTRIBUTED";
 
   private static LdapUtility ldapUtility;
   private static Path rodaApacheDSDataDirectory = null;
 
   // TransferredResources related objects
   private static TransferredResourcesScanner transferredResourcesScanner;
+  private static NotificationOutbox notificationOutbox = null;
+
+  // Threads loading model objects listed by the REST API
+  private static ExecutorService modelRetrievalExecutor = null;
+  private static final int DEFAULT_MODEL_RETRIEVAL_THREADS = 8;
 
   // Configuration related objects
   private static CompositeConfiguration rodaConfiguration = null;
@@ -302,8 +322,18 @@ public class RodaCoreFactory {
         instantiateNodeSpecificObjects(nodeType);
         LOGGER.debug("Finished instantiating node specific objects");
 
-        // verify if is necessary to perform a model/index migration
+        // verify if is necessary to perform a model/index migration (index
+        // and model migrations that can be done online are started in the
+        // background)
         MigrationManager migrationManager = new MigrationManager(dataPath);
+        if (NodeType.MASTER == nodeType) {
+          migrationManager.setupIndexMigrations();
+          migrationManager.startOnlineIndexMigrations(index, getSolr(), tempIndexConfigsPath);
+          if (getRodaConfiguration().getBoolean("core.migration.model.online", true)) {
+            migrationManager.setupModelMigrations();
+            migrationManager.startOnlineModelMigrations(getStorageService());
+          }
+        }
         if (NodeType.MASTER == nodeType
           && migrationManager.isNecessaryToPerformMigration(getSolr(), tempIndexConfigsPath)) {
           // migrationManager.setupModelMigrations();
@@ -371,6 +401,19 @@ public class RodaCoreFactory {
       jmxMetricsReporter = JmxReporter.forRegistry(metricsRegistry).inDomain("RODA").build();
       jmxMetricsReporter.start();
     }
+
+    // time the invocations of external tools
+    ToolProcessManager
+      .setInvocationListener((tool, nanos) -> MetricsUtils.update(MetricRegistry.name("tools", tool), nanos));
+
+    if (getRodaConfiguration().getBoolean("core.metrics.endpoint.enabled", false)) {
+      try {
+        metricsEndpoint = new MetricsEndpoint(metricsRegistry,
+          getRodaConfigurationAsInt(DEFAULT_METRICS_ENDPOINT_PORT, "core", "metrics", "endpoint", "port"));
+      } catch (IOException e) {
+        LOGGER.error("Unable to start the metrics endpoint", e);
+      }
+    }
   }
 
   private static Path determineRodaHomePath() {
@@ -586,6 +629,8 @@ public class RodaCoreFactory {
   }
 
   private static StorageService instantiateStorage() throws GenericException {
+    StorageRecursiveListingUtils.configure(getRodaConfigurationAsInt(8, "core", "storage", "listing", "threads"),
+      getRodaConfigurationAsInt(16, "core", "storage", "listing", "read_ahead"));
     StorageType storageType = StorageType.valueOf(
       getRodaConfiguration().getString(RodaConstants.CORE_STORAGE_TYPE, RodaConstants.DEFAULT_STORAGE_TYPE.toString()));
     if (storageType == RodaConstants.StorageType.FEDORA4) {
@@ -593,6 +638,12 @@ public class RodaCoreFactory {
         "http://localhost:8983/solr/");
       String username = getRodaConfiguration().getString(RodaConstants.CORE_STORAGE_FEDORA4_USERNAME, "");
       String password = getRodaConfiguration().getString(RodaConstants.CORE_STORAGE_FEDORA4_PASSWORD, "");
+      FedoraStorageService.configure(getRodaConfigurationAsInt(20, "core", "storage", "fedora4", "max_connections"),
+        getRodaConfigurationAsInt(300, "core", "storage", "fedora4", "timeout"),
+        getRodaConfigurationAsInt(30, "core", "storage", "fedora4", "keep_alive"),
+        getRodaConfigurationAsInt(10000, "core", "storage", "fedora4", "cache", "size"),
+        getRodaConfigurationAsInt(30, "core", "storage", "fedora4", "cache", "ttl"),
+        getRodaConfiguration().getBoolean("core.storage.fedora4.transactions", true));
 
       if (StringUtils.isNotBlank(username) && StringUtils.isNotBlank(password)) {
         LOGGER.debug("Going to instantiate Fedora with url '{}' username '{}' & password '{}'", url, username,
@@ -605,6 +656,12 @@ public class RodaCoreFactory {
     } else if (storageType == RodaConstants.StorageType.FILESYSTEM) {
       LOGGER.debug("Going to instantiate Filesystem on '{}'", storagePath);
       String trashDirName = getRodaConfiguration().getString("core.storage.filesystem.trash", "trash");
+      configureFileCopier();
+      TrashReaper.configure(
+        getRodaConfigurationAsInt(60, "core", "storage", "filesystem", "trash", "purge", "startup_delay"),
+        getRodaConfigurationAsInt(3600, "core", "storage", "filesystem", "trash", "purge", "interval"),
+        getRodaConfigurationAsInt(2, "core", "storage", "filesystem", "trash", "purge", "threads"),
+        getRodaConfigurationAsInt(500, "core", "storage", "filesystem", "trash", "purge", "files_per_second"));
       return new FileStorageService(storagePath, trashDirName);
     } else {
       LOGGER.error("Unknown storage service '{}'", storageType.name());
@@ -612,6 +669,21 @@ public class RodaCoreFactory {
     }
   }
 
+  private static void configureFileCopier() {
+    List<FileCopier.Strategy> strategies = new ArrayList<>();
+    for (String strategy : getRodaConfigurationAsList("core", "storage", "filesystem", "copy", "strategies")) {
+      try {
+        strategies.add(FileCopier.Strategy.valueOf(strategy.trim().toUpperCase(Locale.ENGLISH)));
+      } catch (IllegalArgumentException e) {
+        LOGGER.warn("Ignoring unknown file copy strategy '{}'", strategy);
+      }
+    }
+    int threads = getRodaConfigurationAsInt(4, "core", "storage", "filesystem", "copy", "threads");
+    long chunkSize = getRodaConfigurationAsInt(64, "core", "storage", "filesystem", "copy", "chunk_size_mb") * 1024L
+      * 1024L;
+    FileCopier.configure(strategies, threads, chunkSize);
+  }
+
   /**
    * <p>
    * Warnings like
@@ -628,6 +700,7 @@ public class RodaCoreFactory {
    * 
    */
   private static void instantiateSolrAndIndexService() throws URISyntaxException {
+    SolrTimePartitions.configure(getRodaConfiguration().getBoolean("core.actionlogs.partitioned", true));
     if (nodeType == NodeType.MASTER) {
       tempIndexConfigsPath = Optional.empty();
       Path solrHome = configPath.resolve(RodaConstants.CORE_INDEX_FOLDER);
@@ -651,6 +724,19 @@ public class RodaCoreFactory {
 
       // instantiate index related object
       index = new IndexService(solr, model);
+    } else if (nodeType == NodeType.WORKER) {
+      // workers share the index of the master node, so it must be reachable
+      // over HTTP
+      SolrType solrType = SolrType.valueOf(
+        getRodaConfiguration().getString(RodaConstants.CORE_SOLR_TYPE, RodaConstants.DEFAULT_SOLR_TYPE.toString()));
+      if (solrType == SolrType.EMBEDDED) {
+        LOGGER.error("Worker nodes need a Solr shared with the master node (i.e. {} must be HTTP or HTTP_CLOUD)",
+          RodaConstants.CORE_SOLR_TYPE);
+        instantiatedWithoutErrors = false;
+      } else {
+        solr = instantiateSolr(null);
+        index = new IndexService(solr, model);
+      }
     } else if (nodeType == NodeType.TEST && TEST_DEPLOY_SOLR) {
       try {
         Path tempConfig = Files.createTempDirectory(getWorkingDirectory(), RodaConstants.CORE_INDEX_FOLDER);
@@ -693,31 +779,36 @@ public class RodaCoreFactory {
 
   private static void setSolrSystemProperties() {
     System.setProperty("solr.data.dir", indexDataPath.toString());
-    System.setProperty("solr.data.dir.aip", indexDataPath.resolve(RodaConstants.CORE_AIP_FOLDER).toString());
+    System.setProperty("solr.data.dir.aip", getSolrDataDir(RodaConstants.CORE_AIP_FOLDER).toString());
     System.setProperty("solr.data.dir.representations",
-      indexDataPath.resolve(RodaConstants.CORE_REPRESENTATION_FOLDER).toString());
-    System.setProperty("solr.data.dir.file", indexDataPath.resolve(RodaConstants.CORE_FILE_FOLDER).toString());
+      getSolrDataDir(RodaConstants.CORE_REPRESENTATION_FOLDER).toString());
+    System.setProperty("solr.data.dir.file", getSolrDataDir(RodaConstants.CORE_FILE_FOLDER).toString());
     System.setProperty("solr.data.dir.preservationevent",
-      indexDataPath.resolve(RodaConstants.CORE_PRESERVATIONEVENT_FOLDER).toString());
+      getSolrDataDir(RodaConstants.CORE_PRESERVATIONEVENT_FOLDER).toString());
     System.setProperty("solr.data.dir.preservationagent",
-      indexDataPath.resolve(RodaConstants.CORE_PRESERVATIONAGENT_FOLDER).toString());
-    System.setProperty("solr.data.dir.actionlog",
-      indexDataPath.resolve(RodaConstants.CORE_ACTIONLOG_FOLDER).toString());
-    System.setProperty("solr.data.dir.members", indexDataPath.resolve(RodaConstants.CORE_MEMBERS_FOLDER).toString());
+      getSolrDataDir(RodaConstants.CORE_PRESERVATIONAGENT_FOLDER).toString());
+    System.setProperty("solr.data.dir.actionlog", getSolrDataDir(RodaConstants.CORE_ACTIONLOG_FOLDER).toString());
+    System.setProperty("solr.data.dir.members", getSolrDataDir(RodaConstants.CORE_MEMBERS_FOLDER).toString());
     System.setProperty("solr.data.dir.transferredresource",
-      indexDataPath.resolve(RodaConstants.CORE_TRANSFERREDRESOURCE_FOLDER).toString());
-    System.setProperty("solr.data.dir.job", indexDataPath.resolve(RodaConstants.CORE_JOB_FOLDER).toString());
-    System.setProperty("solr.data.dir.jobreport",
-      indexDataPath.resolve(RodaConstants.CORE_JOBREPORT_FOLDER).toString());
-    System.setProperty("solr.data.dir.risk", indexDataPath.resolve(RodaConstants.CORE_RISK_FOLDER).toString());
-    System.setProperty("solr.data.dir.agent", indexDataPath.resolve(RodaConstants.CORE_AGENT_FOLDER).toString());
-    System.setProperty("solr.data.dir.format", indexDataPath.resolve(RodaConstants.CORE_FORMAT_FOLDER).toString());
-    System.setProperty("solr.data.dir.notification",
-      indexDataPath.resolve(RodaConstants.CORE_NOTIFICATION_FOLDER).toString());
+      getSolrDataDir(RodaConstants.CORE_TRANSFERREDRESOURCE_FOLDER).toString());
+    System.setProperty("solr.data.dir.job", getSolrDataDir(RodaConstants.CORE_JOB_FOLDER).toString());
+    System.setProperty("solr.data.dir.jobreport", getSolrDataDir(RodaConstants.CORE_JOBREPORT_FOLDER).toString());
+    System.setProperty("solr.data.dir.risk", getSolrDataDir(RodaConstants.CORE_RISK_FOLDER).toString());
+    System.setProperty("solr.data.dir.agent", getSolrDataDir(RodaConstants.CORE_AGENT_FOLDER).toString());
+    System.setProperty("solr.data.dir.format", getSolrDataDir(RodaConstants.CORE_FORMAT_FOLDER).toString());
+    System.setProperty("solr.data.dir.notification", getSolrDataDir(RodaConstants.CORE_NOTIFICATION_FOLDER).toString());
     System.setProperty("solr.data.dir.riskincidence",
-      indexDataPath.resolve(RodaConstants.CORE_RISKINCIDENCE_FOLDER).toString());
-    System.setProperty("solr.data.dir.dip", indexDataPath.resolve(RodaConstants.CORE_DIP_FOLDER).toString());
-    System.setProperty("solr.data.dir.dipfile", indexDataPath.resolve(RodaConstants.CORE_DIP_FILE_FOLDER).toString());
+      getSolrDataDir(RodaConstants.CORE_RISKINCIDENCE_FOLDER).toString());
+    System.setProperty("solr.data.dir.dip", getSolrDataDir(RodaConstants.CORE_DIP_FOLDER).toString());
+    System.setProperty("solr.data.dir.dipfile", getSolrDataDir(RodaConstants.CORE_DIP_FILE_FOLDER).toString());
+  }
+
+  /**
+   * Data directory of a core, which changes when a shadow reindex swaps the
+   * core with a rebuilt one
+   */
+  private static Path getSolrDataDir(String folder) {
+    return SolrShadowCores.resolveDataDir(indexDataPath, folder);
   }
 
   private static void instantiateNodeSpecificObjects(NodeType nodeType) {
@@ -734,11 +825,14 @@ public class RodaCoreFactory {
   }
 
   private static void instantiateMasterNodeSpecificObjects() {
+    FEATURE_DISTRIBUTED_AKKA = ORCHESTRATOR_TYPE_AKKA_DISTRIBUTED
+      .equals(getRodaConfiguration().getString("core.orchestrator.type"));
     if (FEATURE_DISTRIBUTED_AKKA) {
       akkaDistributedPluginOrchestrator = new AkkaDistributedPluginOrchestrator(
         getSystemProperty(RodaConstants.CORE_NODE_HOSTNAME, RodaConstants.DEFAULT_NODE_HOSTNAME),
         getSystemProperty(RodaConstants.CORE_NODE_PORT, RodaConstants.DEFAULT_NODE_PORT));
-      akkaDistributedPluginOrchestrator.cleanUnfinishedJobs();
+      pluginOrchestrator = akkaDistributedPluginOrchestrator;
+      pluginOrchestrator.cleanUnfinishedJobs();
     } else {
       // pluginOrchestrator = new EmbeddedActionOrchestrator();
       pluginOrchestrator = new AkkaEmbeddedPluginOrchestrator();
@@ -748,6 +842,8 @@ public class RodaCoreFactory {
     startApacheDS();
 
     instantiateTransferredResourcesScanner();
+
+    instantiateNotificationOutbox();
   }
 
   private static void instantiateWorkerNodeSpecificObjects() {
@@ -756,6 +852,7 @@ public class RodaCoreFactory {
       getSystemProperty(RodaConstants.CORE_CLUSTER_PORT, RodaConstants.DEFAULT_NODE_PORT),
       getSystemProperty(RodaConstants.CORE_NODE_HOSTNAME, RodaConstants.DEFAULT_NODE_HOSTNAME),
       getSystemProperty(RodaConstants.CORE_NODE_PORT, "0"));
+    pluginOrchestrator = akkaDistributedPluginWorker;
   }
 
   private static void instantiateTestNodeSpecificObjects() {
@@ -790,6 +887,22 @@ public class RodaCoreFactory {
 
   public static void shutdown() throws IOException {
     if (instantiated) {
+      if (storage instanceof FileStorageService && ((FileStorageService) storage).getTrashReaper() != null) {
+        ((FileStorageService) storage).getTrashReaper().stop();
+      }
+
+
+      if (notificationOutbox != null) {
+        notificationOutbox.stop();
+        notificationOutbox = null;
+      }
+
+      synchronized (RodaCoreFactory.class) {
+        if (modelRetrievalExecutor != null) {
+          modelRetrievalExecutor.shutdownNow();
+          modelRetrievalExecutor = null;
+        }
+      }
 
       if (nodeType == NodeType.MASTER) {
         solr.close();
@@ -797,6 +910,10 @@ public class RodaCoreFactory {
         pluginManager.shutdown();
         pluginOrchestrator.shutdown();
       } else if (nodeType == NodeType.WORKER) {
+        pluginOrchestrator.shutdown();
+        if (solr != null) {
+          solr.close();
+        }
         pluginManager.shutdown();
       } else if (nodeType == NodeType.TEST) {
         if (TEST_DEPLOY_SOLR) {
@@ -812,11 +929,24 @@ public class RodaCoreFactory {
         FSUtils.deletePathQuietly(workingDirectoryPath);
       }
 
-      // stop jmx metrics reporter
+      // stop long-lived tool processes used by plugins
+      ToolProcessManager.shutdown();
+
+      // stop metrics endpoint & jmx metrics reporter
+      ToolProcessManager.setInvocationListener(null);
+      if (metricsEndpoint != null) {
+        metricsEndpoint.stop();
+        metricsEndpoint = null;
+      }
       if (getSystemProperty("com.sun.management.jmxremote", null) != null) {
         jmxMetricsReporter.stop();
       }
 
+      // close connections to the storage
+      if (storage instanceof FedoraStorageService) {
+        ((FedoraStorageService) storage).shutdown();
+      }
+
       // delete resources that are no longer needed
       toDeleteDuringShutdown.forEach(e -> FSUtils.deletePathQuietly(e));
 
@@ -950,6 +1080,44 @@ public class RodaCoreFactory {
     }
   }
 
+  private static void instantiateNotificationOutbox() {
+    if (getRodaConfiguration().getBoolean("core.notification.outbox.enabled", true)) {
+      try {
+        notificationOutbox = new NotificationOutbox(dataPath.resolve("notification-outbox"), model,
+          getRodaConfigurationAsInt(10, "core", "notification", "outbox", "max_attempts"),
+          getRodaConfigurationAsInt(30, "core", "notification", "outbox", "retry_delay"),
+          getRodaConfigurationAsInt(10, "core", "notification", "outbox", "interval"),
+          getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_TIMEOUT, 10000));
+        notificationOutbox.start();
+      } catch (IOException e) {
+        LOGGER.error("Error starting notification outbox, notifications will be sent right away", e);
+        notificationOutbox = null;
+      }
+    }
+  }
+
+  /**
+   * @return the outbox delivering notifications in the background, or null if
+   *         notifications should be sent right away
+   */
+  public static NotificationOutbox getNotificationOutbox() {
+    return notificationOutbox;
+  }
+
+  /**
+   * @return the pool, shared by all requests, used to load the model objects
+   *         listed by the REST API (see ui.api.list.retrieval_threads)
+   */
+  public static synchronized ExecutorService getModelRetrievalExecutor() {
+    if (modelRetrievalExecutor == null) {
+      int threads = getRodaConfigurationAsInt(DEFAULT_MODEL_RETRIEVAL_THREADS, "ui", "api", "list",
+        "retrieval_threads");
+      modelRetrievalExecutor = Executors.newFixedThreadPool(threads > 0 ? threads : DEFAULT_MODEL_RETRIEVAL_THREADS,
+        new ThreadFactoryBuilder().setNameFormat("api-list-retrieval-%d").setDaemon(true).build());
+    }
+    return modelRetrievalExecutor;
+  }
+
   public static boolean getTransferredResourcesScannerUpdateStatus(Optional<String> folderRelativePath) {
     return TransferUpdateStatus.getInstance().isUpdatingStatus(folderRelativePath);
   }
@@ -987,6 +1155,10 @@ public class RodaCoreFactory {
     return pluginOrchestrator;
   }
 
+  public static void setPluginOrchestrator(PluginOrchestrator pluginOrchestrator) {
+    RodaCoreFactory.pluginOrchestrator = pluginOrchestrator;
+  }
+
   public static AkkaDistributedPluginOrchestrator getAkkaDistributedPluginOrchestrator() {
     return akkaDistributedPluginOrchestrator;
   }
@@ -1168,6 +1340,9 @@ public class RodaCoreFactory {
     rodaPropertiesCache.clear();
     RODA_SCHEMAS_CACHE.invalidateAll();
     I18N_CACHE.invalidateAll();
+    if (pluginManager != null) {
+      pluginManager.configurationChanged();
+    }
     LOGGER.info("Reloaded roda configurations after file change!");
   }
 
@@ -1449,7 +1624,7 @@ public class RodaCoreFactory {
     System.err.println("\tpremisskeleton");
     System.err.println("\treset admin");
     System.err.println("\tmigrate model");
-    System.err.println("\tmigrate index");
+    System.err.println("\tmigrate index COLLECTION...");
   }
 
   private static void printResetUsage() {
@@ -1460,6 +1635,8 @@ public class RodaCoreFactory {
   private static void printMigrateUsage() {
     System.err.println("Migrate command parameters:");
     System.err.println("\tmodel - performs model related migrations.");
+    System.err.println("\tindex COLLECTION... - copies the documents of the given index collections into new ones"
+      + " with the current schema (only if all their indexed fields are stored).");
   }
 
   private static void mainMasterTasks(final List<String> args) throws GenericException, RequestNotValidException {
@@ -1505,6 +1682,9 @@ public class RodaCoreFactory {
         if ("model".equals(migrateParam)) {
           migrationManager.setupModelMigrations();
           migrationManager.performModelMigrations();
+        } else if ("index".equals(migrateParam) && migrateParams.size() > 1) {
+          migrationManager.performIndexMigrations(getIndexService(), migrateParams.subList(1, migrateParams.size()),
+            tempIndexConfigsPath);
         } else {
           printMigrateUsage();
         }
@@ -16,36 +16,39 @@ import javax.mail.Message;
 import javax.mail.MessagingException;
 import javax.mail.PasswordAuthentication;
 import javax.mail.Session;
+import javax.mail.Transport;
 import javax.mail.internet.InternetAddress;
 import javax.mail.internet.MimeBodyPart;
 import javax.mail.internet.MimeMessage;
 import javax.mail.internet.MimeMultipart;
 
 import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 
-import com.sun.mail.smtp.SMTPTransport;
-
+/**
+ * Sends e-mails through the configured server. The mail session and its
+ * connection to the server are shared by all instances and kept open between
+ * messages (a new connection is opened if the server closed it meanwhile).
+ */
 public class ConfigurableEmailUtility {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ConfigurableEmailUtility.class);
 
   private static final List<String> DEFAULT_PROPERTIES = Arrays.asList("host", "port", "auth", "starttls.enable");
+
+  private static Session session = null;
+  private static Transport transport = null;
+
   private String protocol;
-  private String user;
-  private String password;
   private String from;
   private String fromActor;
   private String subject;
-  private javax.mail.Authenticator authenticator = null;
-  private Properties props = new Properties();
 
   public ConfigurableEmailUtility(String fromActor, String subject) {
     this.protocol = RodaCoreFactory.getRodaConfiguration().getString("core.email.protocol", "");
-    this.user = RodaCoreFactory.getRodaConfiguration().getString("core.email.user", "");
     this.from = RodaCoreFactory.getRodaConfiguration().getString("core.email.from", "");
-    this.password = RodaCoreFactory.getRodaConfiguration().getString("core.email.password", "");
     this.fromActor = fromActor;
     this.subject = subject;
-
-    createSessionParameters();
   }
 
   public void sendMail(String recipient, String message) throws MessagingException {
@@ -54,10 +57,7 @@ public class ConfigurableEmailUtility {
       throw new MessagingException();
     }
 
-    Session session = Session.getDefaultInstance(props, authenticator);
-    session.setDebug(false);
-
-    Message msg = new MimeMessage(session);
+    Message msg = new MimeMessage(getSession(protocol));
 
     InternetAddress addressFrom = new InternetAddress(from);
     msg.setFrom(addressFrom);
@@ -75,14 +75,52 @@ public class ConfigurableEmailUtility {
     msg.setContent(mimeMultipart);
 
     // sending the message
-    SMTPTransport transport = (SMTPTransport) session.getTransport(this.protocol);
-    transport.connect();
-    transport.sendMessage(msg, msg.getAllRecipients());
-    transport.close();
+    synchronized (ConfigurableEmailUtility.class) {
+      try {
+        getTransport(protocol).sendMessage(msg, msg.getAllRecipients());
+      } catch (MessagingException e) {
+        // the connection may be broken, so the next message opens a new one
+        closeTransport();
+        throw e;
+      }
+    }
   }
 
-  private void createSessionParameters() {
+  /**
+   * Closes the connection to the server, if open (the next message opens a new
+   * one).
+   */
+  public static synchronized void closeTransport() {
+    if (transport != null) {
+      try {
+        transport.close();
+      } catch (MessagingException e) {
+        LOGGER.debug("Error closing connection to the e-mail server", e);
+      }
+      transport = null;
+    }
+  }
+
+  private static synchronized Transport getTransport(String protocol) throws MessagingException {
+    if (transport == null) {
+      transport = getSession(protocol).getTransport(protocol);
+    }
+    if (!transport.isConnected()) {
+      transport.connect();
+    }
+    return transport;
+  }
+
+  private static synchronized Session getSession(String protocol) {
+    if (session == null) {
+      session = createSession(protocol);
+    }
+    return session;
+  }
+
+  private static Session createSession(String protocol) {
     boolean hasAuth = false;
+    Properties props = new Properties();
 
     String properties = RodaCoreFactory.getRodaConfigurationAsString("core", "email", "properties");
     List<String> propertyList = new ArrayList<>(DEFAULT_PROPERTIES);
@@ -93,14 +131,17 @@ public class ConfigurableEmailUtility {
     for (String property : propertyList) {
       String mailProperty = RodaCoreFactory.getRodaConfigurationAsString("core", "email", property);
       if (mailProperty != null) {
-        props.put("mail." + this.protocol + "." + property, mailProperty);
+        props.put("mail." + protocol + "." + property, mailProperty);
         if ("auth".equals(property) && "true".equals(mailProperty)) {
           hasAuth = true;
         }
       }
     }
 
+    javax.mail.Authenticator authenticator = null;
     if (hasAuth) {
+      final String user = RodaCoreFactory.getRodaConfiguration().getString("core.email.user", "");
+      final String password = RodaCoreFactory.getRodaConfiguration().getString("core.email.password", "");
       authenticator = new javax.mail.Authenticator() {
         @Override
         protected PasswordAuthentication getPasswordAuthentication() {
@@ -108,5 +149,9 @@ public class ConfigurableEmailUtility {
         }
       };
     }
+
+    Session newSession = Session.getInstance(props, authenticator);
+    newSession.setDebug(false);
+    return newSession;
   }
 }
@@ -4,11 +4,14 @@ import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
 
 import org.roda.core.data.exceptions.GenericException;
 
 import com.github.jknack.handlebars.Handlebars;
 import com.github.jknack.handlebars.Template;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 
 public class HandlebarsUtility {
   private static final Handlebars HANDLEBARS = new Handlebars();
@@ -16,6 +19,8 @@ public class HandlebarsUtility {
   private static final String HELPER_IF = "ifCond";
   private static final String CONDITION_AND = "&&";
   private static final String CONDITION_OR = "||";
+  // compiled templates are immutable, so they are shared by all callers
+  private static final Cache<String, Template> TEMPLATES = CacheBuilder.newBuilder().maximumSize(100).build();
 
   private HandlebarsUtility() {
     super();
@@ -58,10 +63,12 @@ public class HandlebarsUtility {
 
   public static String executeHandlebars(String template, Map<String, ?> scopes) throws GenericException {
     try {
-      Template templ = getHandlebars().compileInline(template);
+      Template templ = TEMPLATES.get(template, () -> getHandlebars().compileInline(template));
       return templ.apply(scopes);
     } catch (IOException e) {
       throw new GenericException(e);
+    } catch (ExecutionException e) {
+      throw new GenericException(e.getCause());
     }
   }
 
@@ -0,0 +1,191 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.xmlbeans.XmlException;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata.PreservationMetadataType;
+import org.roda.core.data.v2.validation.ValidationException;
+import org.roda.core.model.ModelService;
+import org.roda.core.plugins.plugins.ingest.characterization.PremisSkeletonPluginUtils;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.ContentPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Accumulates changes to PREMIS file objects (format, creating application)
+ * in memory so that each PREMIS binary is read, parsed and written only once,
+ * no matter how many updates it gets during a plugin run.
+ *
+ * Changes are persisted when {@link #commit(boolean)} is called, or earlier if
+ * the pending PREMIS files reach a maximum number or size, so that long runs
+ * do not keep every file of a representation in memory.
+ */
+public class PremisUpdateSession {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PremisUpdateSession.class);
+
+  private static final int DEFAULT_MAX_FILES = 1000;
+  private static final int DEFAULT_MAX_SIZE_MB = 64;
+
+  private final ModelService model;
+  private final boolean notify;
+  private final int maxFiles;
+  private final long maxBytes;
+  private final Map<String, PendingPremisFile> pending = new LinkedHashMap<>();
+  private long pendingBytes = 0;
+
+  public PremisUpdateSession(ModelService model) {
+    this(model, true);
+  }
+
+  /**
+   * @param notify
+   *          if the PREMIS files written before the commit, when the session
+   *          is full, send update notifications
+   */
+  public PremisUpdateSession(ModelService model, boolean notify) {
+    this.model = model;
+    this.notify = notify;
+    this.maxFiles = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_MAX_FILES, "core", "premis", "session",
+      "max_files");
+    this.maxBytes = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_MAX_SIZE_MB, "core", "premis", "session",
+      "max_size_mb") * 1024L * 1024L;
+  }
+
+  public void updateFormat(String aipId, String representationId, List<String> fileDirectoryPath, String fileId,
+    String format, String version, String pronom, String mime) {
+    try {
+      gov.loc.premis.v3.File premisFile = getPremisFile(aipId, representationId, fileDirectoryPath, fileId);
+      PremisV3Utils.updateFileFormat(premisFile, format, version, pronom, mime);
+    } catch (RODAException | XmlException | IOException e) {
+      LOGGER.error("PREMIS will not be updated due to an error", e);
+    }
+    flushIfFull();
+  }
+
+  public void updateCreatingApplication(String aipId, String representationId, List<String> fileDirectoryPath,
+    String fileId, String creatingApplicationName, String creatingApplicationVersion,
+    String dateCreatedByApplication) {
+    try {
+      gov.loc.premis.v3.File premisFile = getPremisFile(aipId, representationId, fileDirectoryPath, fileId);
+      PremisV3Utils.updateCreatingApplication(premisFile, creatingApplicationName, creatingApplicationVersion,
+        dateCreatedByApplication);
+    } catch (RODAException | XmlException | IOException e) {
+      LOGGER.error("PREMIS will not be updated due to an error", e);
+    }
+    flushIfFull();
+  }
+
+  /**
+   * @return the number of PREMIS files with pending changes
+   */
+  public int size() {
+    return pending.size();
+  }
+
+  /**
+   * Writes each changed PREMIS file once and, if asked to, sends one update
+   * notification per file. Pending changes are discarded afterwards, even the
+   * ones that could not be written (errors are logged).
+   */
+  public void commit(boolean notify) {
+    pendingBytes = 0;
+    Iterator<PendingPremisFile> it = pending.values().iterator();
+    while (it.hasNext()) {
+      PendingPremisFile file = it.next();
+      it.remove();
+      try {
+        ContentPayload payload = PremisV3Utils.fileToBinary(file.premisFile);
+        PreservationMetadata pm = model.updatePreservationMetadata(file.id, PreservationMetadataType.FILE,
+          file.aipId, file.representationId, file.fileDirectoryPath, file.fileId, payload, notify);
+        LOGGER.trace("Updated PREMIS {}", pm.getId());
+      } catch (RODAException e) {
+        LOGGER.error("PREMIS will not be updated due to an error", e);
+      }
+    }
+  }
+
+  private void flushIfFull() {
+    if (pending.size() >= maxFiles || pendingBytes >= maxBytes) {
+      LOGGER.debug("Writing {} pending PREMIS files ({} bytes) before the commit", pending.size(), pendingBytes);
+      commit(notify);
+    }
+  }
+
+  private gov.loc.premis.v3.File getPremisFile(String aipId, String representationId,
+    List<String> fileDirectoryPath, String fileId) throws RequestNotValidException, GenericException,
+    NotFoundException, AuthorizationDeniedException, ValidationException, XmlException, IOException {
+    String id = IdUtils.getPreservationId(PreservationMetadataType.FILE, aipId, representationId, fileDirectoryPath,
+      fileId);
+
+    PendingPremisFile file = pending.get(id);
+    if (file == null) {
+      Binary premisBin = retrieveOrCreatePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
+      file = new PendingPremisFile(id, aipId, representationId, fileDirectoryPath, fileId,
+        PremisV3Utils.binaryToFile(premisBin.getContent(), false));
+      pending.put(id, file);
+      if (premisBin.getSizeInBytes() != null) {
+        pendingBytes += premisBin.getSizeInBytes();
+      }
+    }
+    return file.premisFile;
+  }
+
+  private Binary retrieveOrCreatePreservationFile(String aipId, String representationId,
+    List<String> fileDirectoryPath, String fileId) throws RequestNotValidException, GenericException,
+    NotFoundException, AuthorizationDeniedException, ValidationException, XmlException, IOException {
+    try {
+      return model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
+    } catch (NotFoundException e) {
+      LOGGER.debug("PREMIS object skeleton does not exist yet. Creating PREMIS object!");
+      List<String> algorithms = RodaCoreFactory.getFixityAlgorithms();
+      if (fileId == null) {
+        PremisSkeletonPluginUtils.createPremisSkeletonOnRepresentation(model, aipId, representationId, algorithms);
+      } else {
+        File file = model.retrieveFile(aipId, representationId, fileDirectoryPath, fileId);
+        PremisSkeletonPluginUtils.createPremisSkeletonOnFile(model, file, algorithms);
+      }
+      LOGGER.debug("PREMIS object skeleton created");
+      return model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
+    }
+  }
+
+  private static class PendingPremisFile {
+    private final String id;
+    private final String aipId;
+    private final String representationId;
+    private final List<String> fileDirectoryPath;
+    private final String fileId;
+    private final gov.loc.premis.v3.File premisFile;
+
+    PendingPremisFile(String id, String aipId, String representationId, List<String> fileDirectoryPath,
+      String fileId, gov.loc.premis.v3.File premisFile) {
+      this.id = id;
+      this.aipId = aipId;
+      this.representationId = representationId;
+      this.fileDirectoryPath = fileDirectoryPath == null ? null : new ArrayList<>(fileDirectoryPath);
+      this.fileId = fileId;
+      this.premisFile = premisFile;
+    }
+  }
+}
@@ -37,7 +37,6 @@ import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
-import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.URNUtils;
 import org.roda.core.data.v2.ip.File;
@@ -52,7 +51,6 @@ import org.roda.core.index.IndexService;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.Plugin;
-import org.roda.core.plugins.plugins.ingest.characterization.PremisSkeletonPluginUtils;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.util.FileUtility;
@@ -829,67 +827,18 @@ public final class PremisV3Utils {
   public static void updateFormatPreservationMetadata(ModelService model, String aipId, String representationId,
     List<String> fileDirectoryPath, String fileId, String format, String version, String pronom, String mime,
     boolean notify) {
-    Binary premisBin;
-
-    try {
-      try {
-        premisBin = model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
-      } catch (NotFoundException e) {
-        LOGGER.debug("PREMIS object skeleton does not exist yet. Creating PREMIS object!");
-        List<String> algorithms = RodaCoreFactory.getFixityAlgorithms();
-        if (fileId == null) {
-          PremisSkeletonPluginUtils.createPremisSkeletonOnRepresentation(model, aipId, representationId, algorithms);
-        } else {
-          File file = model.retrieveFile(aipId, representationId, fileDirectoryPath, fileId);
-          PremisSkeletonPluginUtils.createPremisSkeletonOnFile(model, file, algorithms);
-        }
-        premisBin = model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
-        LOGGER.debug("PREMIS object skeleton created");
-      }
-
-      gov.loc.premis.v3.File premisFile = binaryToFile(premisBin.getContent(), false);
-      PremisV3Utils.updateFileFormat(premisFile, format, version, pronom, mime);
-
-      PreservationMetadataType type = PreservationMetadataType.FILE;
-      String id = IdUtils.getPreservationId(type, aipId, representationId, fileDirectoryPath, fileId);
-
-      ContentPayload premisFilePayload = fileToBinary(premisFile);
-      model.updatePreservationMetadata(id, type, aipId, representationId, fileDirectoryPath, fileId, premisFilePayload,
-        notify);
-    } catch (RODAException | XmlException | IOException e) {
-      LOGGER.error("PREMIS will not be updated due to an error", e);
-    }
+    PremisUpdateSession session = new PremisUpdateSession(model);
+    session.updateFormat(aipId, representationId, fileDirectoryPath, fileId, format, version, pronom, mime);
+    session.commit(notify);
   }
 
   public static void updateCreatingApplicationPreservationMetadata(ModelService model, String aipId,
     String representationId, List<String> fileDirectoryPath, String fileId, String creatingApplicationName,
     String creatingApplicationVersion, String dateCreatedByApplication, boolean notify) {
-    Binary premisBin;
-
-    try {
-      try {
-        premisBin = model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
-      } catch (NotFoundException e) {
-        LOGGER.debug("PREMIS object skeleton does not exist yet. Creating PREMIS object!");
-        List<String> algorithms = RodaCoreFactory.getFixityAlgorithms();
-        PremisSkeletonPluginUtils.createPremisSkeletonOnRepresentation(model, aipId, representationId, algorithms);
-        premisBin = model.retrievePreservationFile(aipId, representationId, fileDirectoryPath, fileId);
-        LOGGER.debug("PREMIS object skeleton created");
-      }
-
-      gov.loc.premis.v3.File premisFile = binaryToFile(premisBin.getContent(), false);
-      PremisV3Utils.updateCreatingApplication(premisFile, creatingApplicationName, creatingApplicationVersion,
-        dateCreatedByApplication);
-
-      PreservationMetadataType type = PreservationMetadataType.FILE;
-      String id = IdUtils.getPreservationId(type, aipId, representationId, fileDirectoryPath, fileId);
-
-      ContentPayload premisFilePayload = fileToBinary(premisFile);
-      model.updatePreservationMetadata(id, type, aipId, representationId, fileDirectoryPath, fileId, premisFilePayload,
-        notify);
-    } catch (RODAException | XmlException | IOException e) {
-      LOGGER.error("PREMIS will not be updated due to an error", e);
-    }
+    PremisUpdateSession session = new PremisUpdateSession(model);
+    session.updateCreatingApplication(aipId, representationId, fileDirectoryPath, fileId, creatingApplicationName,
+      creatingApplicationVersion, dateCreatedByApplication);
+    session.commit(notify);
   }
 
 }
@@ -0,0 +1,147 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.metrics;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintWriter;
+import java.io.StringWriter;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.commons.lang3.StringUtils;
+import org.roda.core.data.common.RodaConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Histogram;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metered;
+import com.codahale.metrics.MetricFilter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Snapshot;
+import com.codahale.metrics.Timer;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * Serves all metrics as plain text, one metric per line, on the loopback
+ * interface only (e.g. <code>curl http://localhost:port/metrics</code>). A
+ * <code>filter</code> query parameter keeps only the metrics whose name
+ * contains it.
+ *
+ * Timer durations are in milliseconds and rates in events per second.
+ */
+public class MetricsEndpoint {
+  private static final Logger LOGGER = LoggerFactory.getLogger(MetricsEndpoint.class);
+
+  private static final String PATH = "/metrics";
+  private static final String FILTER_PARAMETER = "filter=";
+  private static final double NANOS_PER_MILLI = TimeUnit.MILLISECONDS.toNanos(1);
+
+  private final MetricRegistry metrics;
+  private final HttpServer server;
+
+  /**
+   * @param port
+   *          the port to listen on, or 0 for any free port
+   */
+  public MetricsEndpoint(MetricRegistry metrics, int port) throws IOException {
+    this.metrics = metrics;
+    this.server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+    server.createContext(PATH, this::handle);
+    server.start();
+    LOGGER.info("Serving metrics on http://localhost:{}{}", getPort(), PATH);
+  }
+
+  public int getPort() {
+    return server.getAddress().getPort();
+  }
+
+  public void stop() {
+    server.stop(0);
+  }
+
+  private void handle(HttpExchange exchange) throws IOException {
+    try {
+      String query = exchange.getRequestURI().getQuery();
+      String filter = query != null && query.startsWith(FILTER_PARAMETER)
+        ? query.substring(FILTER_PARAMETER.length()) : null;
+
+      StringWriter text = new StringWriter();
+      writeText(metrics, filter, text);
+      byte[] body = text.toString().getBytes(StandardCharsets.UTF_8);
+
+      exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=" + RodaConstants.DEFAULT_ENCODING);
+      exchange.sendResponseHeaders(200, body.length);
+      try (OutputStream out = exchange.getResponseBody()) {
+        out.write(body);
+      }
+    } finally {
+      exchange.close();
+    }
+  }
+
+  public static void writeText(MetricRegistry metrics, String filter, Writer writer) {
+    MetricFilter metricFilter = StringUtils.isBlank(filter) ? MetricFilter.ALL
+      : (name, metric) -> name.contains(filter);
+    PrintWriter out = new PrintWriter(writer);
+
+    for (Entry<String, Gauge> entry : metrics.getGauges(metricFilter).entrySet()) {
+      Object value;
+      try {
+        value = entry.getValue().getValue();
+      } catch (RuntimeException e) {
+        value = "error: " + e.getMessage();
+      }
+      out.printf(Locale.ROOT, "%s value=%s%n", entry.getKey(), value);
+    }
+
+    for (Entry<String, Counter> entry : metrics.getCounters(metricFilter).entrySet()) {
+      out.printf(Locale.ROOT, "%s count=%d%n", entry.getKey(), entry.getValue().getCount());
+    }
+
+    for (Entry<String, Histogram> entry : metrics.getHistograms(metricFilter).entrySet()) {
+      Histogram histogram = entry.getValue();
+      out.printf(Locale.ROOT, "%s count=%d %s%n", entry.getKey(), histogram.getCount(),
+        formatSnapshot(histogram.getSnapshot(), 1));
+    }
+
+    for (Entry<String, Meter> entry : metrics.getMeters(metricFilter).entrySet()) {
+      out.printf(Locale.ROOT, "%s %s%n", entry.getKey(), formatRates(entry.getValue()));
+    }
+
+    for (Entry<String, Timer> entry : metrics.getTimers(metricFilter).entrySet()) {
+      Timer timer = entry.getValue();
+      out.printf(Locale.ROOT, "%s %s %s%n", entry.getKey(), formatRates(timer),
+        formatSnapshot(timer.getSnapshot(), NANOS_PER_MILLI));
+    }
+
+    out.flush();
+  }
+
+  private static String formatRates(Metered metered) {
+    return String.format(Locale.ROOT, "count=%d mean_rate=%.3f m1_rate=%.3f m5_rate=%.3f m15_rate=%.3f",
+      metered.getCount(), metered.getMeanRate(), metered.getOneMinuteRate(), metered.getFiveMinuteRate(),
+      metered.getFifteenMinuteRate());
+  }
+
+  private static String formatSnapshot(Snapshot snapshot, double divisor) {
+    return String.format(Locale.ROOT, "min=%.3f mean=%.3f p50=%.3f p95=%.3f p99=%.3f max=%.3f",
+      snapshot.getMin() / divisor, snapshot.getMean() / divisor, snapshot.getMedian() / divisor,
+      snapshot.get95thPercentile() / divisor, snapshot.get99thPercentile() / divisor, snapshot.getMax() / divisor);
+  }
+
+}
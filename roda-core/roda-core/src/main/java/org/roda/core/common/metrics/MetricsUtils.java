@@ -0,0 +1,58 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.metrics;
+
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.RodaCoreFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
+public final class MetricsUtils {
+
+  /** Private empty constructor */
+  private MetricsUtils() {
+
+  }
+
+  /**
+   * @return the registered timer with the given name or, when there are no
+   *         metrics (e.g. RODA is not instantiated), a timer that is not kept
+   *         anywhere
+   */
+  public static Timer timer(String name) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    return metrics != null ? metrics.timer(name) : new Timer();
+  }
+
+  /**
+   * Starts timing an operation, to be used in a try-with-resources block.
+   */
+  public static Timer.Context time(Class<?> klass, String... names) {
+    return timer(MetricRegistry.name(klass, names)).time();
+  }
+
+  public static void update(String name, long nanos) {
+    timer(name).update(nanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * Records the execution time of a block of objects, as a whole in the block
+   * timer and divided by its number of objects in the average object timer.
+   * Objects are not timed one by one, so the latter holds one average per
+   * block, not the time of each object.
+   */
+  public static void updateBlock(Timer blockTimer, Timer averageObjectTimer, int objectsCount, long nanos) {
+    blockTimer.update(nanos, TimeUnit.NANOSECONDS);
+    if (objectsCount > 0) {
+      averageObjectTimer.update(nanos / objectsCount, TimeUnit.NANOSECONDS);
+    }
+  }
+
+}
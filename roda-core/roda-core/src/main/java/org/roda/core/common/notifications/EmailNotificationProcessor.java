@@ -90,10 +90,16 @@ public class EmailNotificationProcessor implements NotificationProcessor {
       scope.remove(RECIPIENT);
       ConfigurableEmailUtility emailUtility = new ConfigurableEmailUtility(processedNotification.getFromUser(),
         processedNotification.getSubject());
+      NotificationOutbox outbox = RodaCoreFactory.getNotificationOutbox();
       for (String recipient : recipients) {
         String modifiedBody = getUpdatedMessageBody(model, notification, recipient, template, scope);
         String host = RodaCoreFactory.getRodaConfigurationAsString("core", "email", "host");
-        if (StringUtils.isNotBlank(host)) {
+        if (StringUtils.isNotBlank(host) && outbox != null) {
+          // the outbox updates the notification state once the email is sent
+          outbox.enqueue(OutboxMessage.email(processedNotification.getId(), processedNotification.getFromUser(),
+            processedNotification.getSubject(), recipient, modifiedBody));
+          LOGGER.debug("Email queued");
+        } else if (StringUtils.isNotBlank(host)) {
           LOGGER.debug("Sending email ...");
           emailUtility.sendMail(recipient, modifiedBody);
           LOGGER.debug("Email sent");
@@ -12,18 +12,22 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.http.HttpEntity;
-import org.apache.http.HttpResponse;
 import org.apache.http.HttpStatus;
-import org.apache.http.client.HttpClient;
 import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpPost;
 import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
 import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.notifications.Notification;
@@ -38,6 +42,12 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
 
   public static String JOB_KEY = "job";
 
+  private static final int MAX_CONNECTIONS = 10;
+  private static final long IDLE_CONNECTION_SECONDS = 60;
+
+  // shared by all posts, keeping connections to the endpoints open
+  private static CloseableHttpClient httpClient = null;
+
   private String endpoint;
   private Map<String, Object> scope;
 
@@ -53,7 +63,16 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
       Job job = (Job) scope.get(JOB_KEY);
       String content = createNotificationContent(job);
       notification.setBody(content);
-      if (endpoint != null) {
+      NotificationOutbox outbox = RodaCoreFactory.getNotificationOutbox();
+      if (endpoint != null && outbox != null) {
+        try {
+          outbox.enqueue(OutboxMessage.http(notification.getId(), endpoint, content));
+          LOGGER.debug("Notification queued to be sent via HTTP");
+        } catch (GenericException e) {
+          LOGGER.error("Could not queue notification", e);
+          notification.setState(NOTIFICATION_STATE.FAILED);
+        }
+      } else if (endpoint != null) {
         LOGGER.debug("Sending notification via HTTP ...");
         int timeout = RodaCoreFactory.getRodaConfiguration().getInt(RodaConstants.NOTIFICATION_HTTP_TIMEOUT, 10000);
         boolean success = post(endpoint, content, timeout);
@@ -78,24 +97,26 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
     return JsonUtils.getJsonFromObject(job);
   }
 
-  private boolean post(String endpoint, String content, int timeout) {
+  static boolean post(String endpoint, String content, int timeout) {
     boolean success = true;
     RequestConfig requestConfig = RequestConfig.custom().setSocketTimeout(timeout).setConnectTimeout(timeout)
       .setConnectionRequestTimeout(timeout).build();
 
-    HttpClient httpclient = HttpClients.createDefault();
     HttpPost httppost = new HttpPost(endpoint);
     httppost.setConfig(requestConfig);
     try {
       httppost.setEntity(new StringEntity(content));
 
-      HttpResponse response = httpclient.execute(httppost);
-      if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
-        success = false;
-      } else {
-        HttpEntity entity = response.getEntity();
-        String responseTxt = processEntity(entity);
-        LOGGER.debug("HTTP response: {}", responseTxt);
+      try (CloseableHttpResponse response = getHttpClient().execute(httppost)) {
+        if (response.getStatusLine().getStatusCode() != HttpStatus.SC_OK) {
+          success = false;
+          // so that the connection goes back to the pool
+          EntityUtils.consumeQuietly(response.getEntity());
+        } else {
+          HttpEntity entity = response.getEntity();
+          String responseTxt = processEntity(entity);
+          LOGGER.debug("HTTP response: {}", responseTxt);
+        }
       }
     } catch (IOException e) {
       LOGGER.debug("HTTP POST error: {}", e.getMessage());
@@ -105,9 +126,33 @@ public class HTTPNotificationProcessor implements NotificationProcessor {
 
   }
 
+  private static synchronized CloseableHttpClient getHttpClient() {
+    if (httpClient == null) {
+      PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+      connectionManager.setMaxTotal(MAX_CONNECTIONS);
+      connectionManager.setDefaultMaxPerRoute(MAX_CONNECTIONS);
+      // idle connections may have been closed by the endpoint meanwhile
+      connectionManager.setValidateAfterInactivity(2000);
+      httpClient = HttpClients.custom().setConnectionManager(connectionManager)
+        .evictIdleConnections(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS).build();
+    }
+    return httpClient;
+  }
+
+  /**
+   * Closes the connections kept open to the endpoints (a later post opens new
+   * ones).
+   */
+  public static synchronized void closeHttpClient() {
+    if (httpClient != null) {
+      IOUtils.closeQuietly(httpClient);
+      httpClient = null;
+    }
+  }
+
   // FIXME 20160905 hsilva: is this method really needed? and, is this the best
   // way to implement it (30 lines)?
-  private String processEntity(HttpEntity entity) {
+  private static String processEntity(HttpEntity entity) {
     String responseTxt = null;
     if (entity != null) {
       InputStream is = null;
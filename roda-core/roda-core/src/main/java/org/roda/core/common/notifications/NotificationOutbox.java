@@ -0,0 +1,318 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.notifications;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.mail.MessagingException;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.common.ConfigurableEmailUtility;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
+import org.roda.core.model.ModelService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Delivers the messages of notifications (e-mails and HTTP posts) in the
+ * background, so that a slow or unavailable server does not hold up whoever
+ * created the notification (e.g. a finishing job).
+ *
+ * <p>
+ * Each message is stored as a JSON file in the outbox folder when enqueued and
+ * deleted once delivered, so messages not yet delivered survive a restart.
+ * Messages are delivered one at a time, oldest first, reusing the connections
+ * to the e-mail server and to HTTP endpoints. A message that could not be
+ * delivered is retried later, with a delay that doubles on each attempt, until
+ * the maximum number of attempts. Once a message is delivered (or failed for
+ * good) the state of its notification is updated.
+ * </p>
+ *
+ * <p>
+ * Metrics: messages waiting in the outbox, and the rate of delivered, retried
+ * and failed messages.
+ * </p>
+ */
+public class NotificationOutbox {
+  private static final Logger LOGGER = LoggerFactory.getLogger(NotificationOutbox.class);
+
+  private static final String MESSAGE_EXTENSION = ".json";
+  private static final String TEMP_EXTENSION = ".tmp";
+  private static final long MAX_RETRY_DELAY_SECONDS = 3600;
+  // notifications are stored right after their messages are enqueued, so not
+  // finding one for longer than this means it was deleted meanwhile
+  private static final long NOTIFICATION_WAIT_MILLIS = TimeUnit.HOURS.toMillis(1);
+
+  private final Path outboxPath;
+  private final ModelService model;
+  private final int maxAttempts;
+  private final long retryDelay;
+  private final long interval;
+  private final int httpTimeout;
+  private final AtomicInteger pending = new AtomicInteger(0);
+  private ScheduledExecutorService scheduler = null;
+
+  /**
+   * @param maxAttempts
+   *          attempts to deliver a message before giving up
+   * @param retryDelay
+   *          seconds before the first retry of a message
+   * @param interval
+   *          seconds between looks for messages to retry
+   * @param httpTimeout
+   *          milliseconds to wait for an HTTP endpoint
+   */
+  public NotificationOutbox(Path outboxPath, ModelService model, int maxAttempts, long retryDelay, long interval,
+    int httpTimeout) {
+    this.outboxPath = outboxPath;
+    this.model = model;
+    this.maxAttempts = maxAttempts > 0 ? maxAttempts : 1;
+    this.retryDelay = retryDelay >= 0 ? retryDelay : 0;
+    this.interval = interval > 0 ? interval : 1;
+    this.httpTimeout = httpTimeout;
+    try {
+      pending.set(listMessages().size());
+    } catch (IOException e) {
+      LOGGER.warn("Could not count messages in notification outbox {}", outboxPath, e);
+    }
+  }
+
+  /**
+   * Starts delivering the messages in the outbox, including the ones left by a
+   * previous run.
+   */
+  public synchronized void start() throws IOException {
+    if (scheduler != null) {
+      return;
+    }
+
+    Files.createDirectories(outboxPath);
+    registerMetrics();
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("notification-outbox-%d").setDaemon(true).build());
+    scheduler.scheduleWithFixedDelay(this::deliver, 0, interval, TimeUnit.SECONDS);
+    LOGGER.info("Notification outbox {} started, with {} messages to deliver", outboxPath, pending.get());
+  }
+
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+    ConfigurableEmailUtility.closeTransport();
+    HTTPNotificationProcessor.closeHttpClient();
+  }
+
+  /**
+   * @return the number of messages waiting in the outbox
+   */
+  public int getPending() {
+    return pending.get();
+  }
+
+  /**
+   * Stores a message in the outbox, to be delivered as soon as possible.
+   */
+  public void enqueue(OutboxMessage message) throws GenericException {
+    message.setId(UUID.randomUUID().toString());
+    message.setEnqueuedOn(System.currentTimeMillis());
+    message.setNextAttempt(message.getEnqueuedOn());
+    message.setAttempts(0);
+    message.setOutcome(null);
+
+    // zero padded timestamps, so that listing the outbox sorts oldest first
+    Path file = outboxPath.resolve(String.format("%020d-%s%s", message.getEnqueuedOn(), message.getId(),
+      MESSAGE_EXTENSION));
+    try {
+      Files.createDirectories(outboxPath);
+      save(file, message);
+    } catch (IOException e) {
+      throw new GenericException("Could not store notification message in the outbox", e);
+    }
+    pending.incrementAndGet();
+
+    synchronized (this) {
+      if (scheduler != null) {
+        try {
+          scheduler.execute(this::deliver);
+        } catch (RejectedExecutionException e) {
+          // being stopped, it will be delivered after the next start
+        }
+      }
+    }
+  }
+
+  /**
+   * Delivers the messages whose (next) attempt is due, oldest first.
+   */
+  public void deliver() {
+    try {
+      for (Path file : listMessages()) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        deliver(file);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error delivering notifications of outbox {}", outboxPath, e);
+    } catch (RuntimeException e) {
+      // an exception would cancel the next executions
+      LOGGER.error("Unexpected error delivering notifications", e);
+    }
+  }
+
+  private void deliver(Path file) throws IOException {
+    OutboxMessage message;
+    try {
+      message = JsonUtils.getObjectFromJson(file, OutboxMessage.class);
+    } catch (GenericException e) {
+      LOGGER.error("Could not read notification message {}, discarding it", file, e);
+      remove(file);
+      return;
+    }
+
+    long now = System.currentTimeMillis();
+    if (message.getNextAttempt() > now) {
+      return;
+    }
+
+    if (message.getOutcome() == null) {
+      message.setAttempts(message.getAttempts() + 1);
+      if (send(message)) {
+        message.setOutcome(NOTIFICATION_STATE.COMPLETED);
+        mark("delivered");
+      } else if (message.getAttempts() >= maxAttempts) {
+        LOGGER.error("Giving up delivering {}", message);
+        message.setOutcome(NOTIFICATION_STATE.FAILED);
+        mark("failed");
+      } else {
+        long delay = Math.min(retryDelay * (1L << Math.min(message.getAttempts() - 1, 20)), MAX_RETRY_DELAY_SECONDS);
+        message.setNextAttempt(now + TimeUnit.SECONDS.toMillis(delay));
+        save(file, message);
+        mark("retried");
+        return;
+      }
+    }
+
+    if (updateNotification(message)) {
+      remove(file);
+    } else {
+      // keep the outcome, so that it is not delivered again
+      save(file, message);
+    }
+  }
+
+  private boolean send(OutboxMessage message) {
+    try {
+      if (OutboxMessage.Type.EMAIL == message.getType()) {
+        new ConfigurableEmailUtility(message.getFromUser(), message.getSubject()).sendMail(message.getAddress(),
+          message.getBody());
+        return true;
+      } else {
+        return HTTPNotificationProcessor.post(message.getAddress(), message.getBody(), httpTimeout);
+      }
+    } catch (MessagingException | RuntimeException e) {
+      LOGGER.warn("Could not deliver {}: {}", message, e.getMessage());
+      return false;
+    }
+  }
+
+  /**
+   * @return true if the notification was updated (or there is no longer a
+   *         notification to update)
+   */
+  private boolean updateNotification(OutboxMessage message) {
+    try {
+      Notification notification = model.retrieveNotification(message.getNotificationId());
+      // a failed message of a notification fails it
+      if (notification.getState() != NOTIFICATION_STATE.FAILED && notification.getState() != message.getOutcome()) {
+        notification.setState(message.getOutcome());
+        model.updateNotification(notification);
+      }
+      return true;
+    } catch (NotFoundException e) {
+      if (System.currentTimeMillis() - message.getEnqueuedOn() > NOTIFICATION_WAIT_MILLIS) {
+        LOGGER.warn("Notification {} no longer exists, not updating its state", message.getNotificationId());
+        return true;
+      }
+      return false;
+    } catch (GenericException | AuthorizationDeniedException e) {
+      LOGGER.warn("Could not update state of notification {}", message.getNotificationId(), e);
+      return false;
+    }
+  }
+
+  private List<Path> listMessages() throws IOException {
+    List<Path> messages = new ArrayList<>();
+    if (Files.isDirectory(outboxPath)) {
+      try (DirectoryStream<Path> stream = Files.newDirectoryStream(outboxPath, "*" + MESSAGE_EXTENSION)) {
+        for (Path message : stream) {
+          messages.add(message);
+        }
+      }
+    }
+    Collections.sort(messages);
+    return messages;
+  }
+
+  /**
+   * Writes the message to a temporary file first, so that a crash never leaves
+   * a partially written message.
+   */
+  private static void save(Path file, OutboxMessage message) throws IOException {
+    Path temp = file.resolveSibling(file.getFileName() + TEMP_EXTENSION);
+    Files.write(temp, JsonUtils.getJsonFromObject(message).getBytes(StandardCharsets.UTF_8));
+    Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+  }
+
+  private void remove(Path file) throws IOException {
+    if (Files.deleteIfExists(file)) {
+      pending.decrementAndGet();
+    }
+  }
+
+  private static void mark(String name) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      metrics.meter(MetricRegistry.name(NotificationOutbox.class, name)).mark();
+    }
+  }
+
+  private void registerMetrics() {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      String pendingName = MetricRegistry.name(NotificationOutbox.class, "pending");
+      metrics.remove(pendingName);
+      metrics.register(pendingName, (Gauge<Integer>) pending::get);
+    }
+  }
+}
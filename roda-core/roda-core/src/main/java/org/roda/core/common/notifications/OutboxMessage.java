@@ -0,0 +1,157 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.common.notifications;
+
+import java.io.Serializable;
+
+import org.roda.core.data.v2.notifications.Notification.NOTIFICATION_STATE;
+
+/**
+ * A message of a notification (an e-mail to one recipient or an HTTP post to
+ * an endpoint) waiting in the {@link NotificationOutbox} to be delivered.
+ */
+public class OutboxMessage implements Serializable {
+  private static final long serialVersionUID = 2964480146735458871L;
+
+  public enum Type {
+    EMAIL, HTTP
+  }
+
+  private String id = null;
+  private String notificationId = null;
+  private Type type = null;
+  // e-mail address of the recipient or URL of the endpoint
+  private String address = null;
+  private String fromUser = null;
+  private String subject = null;
+  private String body = null;
+  private long enqueuedOn = 0;
+  private int attempts = 0;
+  private long nextAttempt = 0;
+  // set once delivered (or failed for good) until the notification is updated
+  private NOTIFICATION_STATE outcome = null;
+
+  public OutboxMessage() {
+    super();
+  }
+
+  public static OutboxMessage email(String notificationId, String fromUser, String subject, String recipient,
+    String body) {
+    OutboxMessage message = new OutboxMessage();
+    message.setNotificationId(notificationId);
+    message.setType(Type.EMAIL);
+    message.setFromUser(fromUser);
+    message.setSubject(subject);
+    message.setAddress(recipient);
+    message.setBody(body);
+    return message;
+  }
+
+  public static OutboxMessage http(String notificationId, String endpoint, String body) {
+    OutboxMessage message = new OutboxMessage();
+    message.setNotificationId(notificationId);
+    message.setType(Type.HTTP);
+    message.setAddress(endpoint);
+    message.setBody(body);
+    return message;
+  }
+
+  public String getId() {
+    return id;
+  }
+
+  public void setId(String id) {
+    this.id = id;
+  }
+
+  public String getNotificationId() {
+    return notificationId;
+  }
+
+  public void setNotificationId(String notificationId) {
+    this.notificationId = notificationId;
+  }
+
+  public Type getType() {
+    return type;
+  }
+
+  public void setType(Type type) {
+    this.type = type;
+  }
+
+  public String getAddress() {
+    return address;
+  }
+
+  public void setAddress(String address) {
+    this.address = address;
+  }
+
+  public String getFromUser() {
+    return fromUser;
+  }
+
+  public void setFromUser(String fromUser) {
+    this.fromUser = fromUser;
+  }
+
+  public String getSubject() {
+    return subject;
+  }
+
+  public void setSubject(String subject) {
+    this.subject = subject;
+  }
+
+  public String getBody() {
+    return body;
+  }
+
+  public void setBody(String body) {
+    this.body = body;
+  }
+
+  public long getEnqueuedOn() {
+    return enqueuedOn;
+  }
+
+  public void setEnqueuedOn(long enqueuedOn) {
+    this.enqueuedOn = enqueuedOn;
+  }
+
+  public int getAttempts() {
+    return attempts;
+  }
+
+  public void setAttempts(int attempts) {
+    this.attempts = attempts;
+  }
+
+  public long getNextAttempt() {
+    return nextAttempt;
+  }
+
+  public void setNextAttempt(long nextAttempt) {
+    this.nextAttempt = nextAttempt;
+  }
+
+  public NOTIFICATION_STATE getOutcome() {
+    return outcome;
+  }
+
+  public void setOutcome(NOTIFICATION_STATE outcome) {
+    this.outcome = outcome;
+  }
+
+  @Override
+  public String toString() {
+    return "OutboxMessage [id=" + id + ", notificationId=" + notificationId + ", type=" + type + ", address="
+      + address + ", attempts=" + attempts + ", outcome=" + outcome + "]";
+  }
+}
@@ -0,0 +1,483 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.roda.core.common.ReturnWithExceptions;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.v2.formats.Format;
+import org.roda.core.data.v2.ip.AIP;
+import org.roda.core.data.v2.ip.DIP;
+import org.roda.core.data.v2.ip.DIPFile;
+import org.roda.core.data.v2.ip.File;
+import org.roda.core.data.v2.ip.Representation;
+import org.roda.core.data.v2.ip.metadata.DescriptiveMetadata;
+import org.roda.core.data.v2.ip.metadata.OtherMetadata;
+import org.roda.core.data.v2.ip.metadata.PreservationMetadata;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.data.v2.jobs.Report;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.data.v2.notifications.Notification;
+import org.roda.core.data.v2.risks.Risk;
+import org.roda.core.data.v2.risks.RiskIncidence;
+import org.roda.core.data.v2.user.Group;
+import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.SolrUtils;
+import org.roda.core.model.ModelObserver;
+
+/**
+ * Keeps a version number for each index, incremented whenever the model
+ * notifies a change that affects it, so that clients showing a list can ask
+ * whether it changed (or wait until it does) instead of querying the index
+ * over and over again.
+ *
+ * Changes to jobs and job reports are also tracked per job (the scope), so that
+ * the reports of a job are not refreshed because another job made progress.
+ * The scopes of a job are forgotten when the job ends.
+ *
+ * Changes made directly to the index (e.g. reindexing or clearing an index)
+ * are reported by the index service, with {@link #indexesChanged(Collection)}.
+ *
+ * Versions only live in memory and start from the current time, which makes
+ * them larger than any version handed out before a restart. Indexes that are
+ * not (completely) fed by model events, like the transferred resources one,
+ * are not tracked and waiting on them always times out as a change.
+ */
+public class IndexChangeTracker implements ModelObserver {
+
+  private static final String SCOPE_SEPARATOR = "/";
+
+  private static final Set<String> TRACKED_INDEXES = new HashSet<>(Arrays.asList(RodaConstants.INDEX_AIP,
+    RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE, RodaConstants.INDEX_ACTION_LOG,
+    RodaConstants.INDEX_MEMBERS, RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_PRESERVATION_AGENTS,
+    RodaConstants.INDEX_JOB, RodaConstants.INDEX_JOB_REPORT, RodaConstants.INDEX_RISK,
+    RodaConstants.INDEX_RISK_INCIDENCE, RodaConstants.INDEX_FORMAT, RodaConstants.INDEX_NOTIFICATION,
+    RodaConstants.INDEX_DIP, RodaConstants.INDEX_DIP_FILE));
+
+  private final long initialVersion;
+  private final AtomicLong sequence;
+  private final Map<String, Change> versions = new ConcurrentHashMap<>();
+  private final Object monitor = new Object();
+
+  public IndexChangeTracker() {
+    initialVersion = System.currentTimeMillis();
+    sequence = new AtomicLong(initialVersion);
+  }
+
+  public <T extends Serializable> boolean isTracked(Class<T> indexClass) throws GenericException {
+    return TRACKED_INDEXES.contains(getIndexName(indexClass));
+  }
+
+  /**
+   * @param scope
+   *          the job identifier for jobs and job reports, null for the whole
+   *          index
+   */
+  public <T extends Serializable> long getVersion(Class<T> indexClass, String scope) throws GenericException {
+    return getVersion(getIndexName(indexClass), scope);
+  }
+
+  /**
+   * Waits, no longer than the timeout, until the version of the index (or
+   * scope) is no longer the known version and the change is visible.
+   *
+   * A version that was not handed out by this tracker (e.g. from before a
+   * restart) is taken as the current version.
+   *
+   * @param visibilityDelay
+   *          milliseconds after a change until it is reported, so that it is
+   *          already visible to searches (see the index soft commit interval)
+   *          and bursts of changes are reported at once
+   * @return the new version, or the known version if nothing changed meanwhile
+   *         or the change is not visible yet by the timeout (it is reported by
+   *         a later wait, once it is)
+   */
+  public <T extends Serializable> long waitForChange(Class<T> indexClass, String scope, long knownVersion,
+    long timeoutMillis, long visibilityDelay) throws GenericException, InterruptedException {
+    String indexName = getIndexName(indexClass);
+
+    if (!TRACKED_INDEXES.contains(indexName)) {
+      Thread.sleep(timeoutMillis);
+      return knownVersion + 1;
+    }
+
+    long deadline = System.currentTimeMillis() + timeoutMillis;
+    synchronized (monitor) {
+      long version = isHandedOut(knownVersion) ? knownVersion : getVersion(indexName, scope);
+      while (true) {
+        Change change = getChange(indexName, scope);
+        long now = System.currentTimeMillis();
+        boolean changed = change.version != version;
+        if (changed && now >= change.time + visibilityDelay) {
+          return change.version;
+        } else if (now >= deadline) {
+          return version;
+        }
+        monitor.wait((changed ? Math.min(deadline, change.time + visibilityDelay) : deadline) - now);
+      }
+    }
+  }
+
+  private boolean isHandedOut(long version) {
+    return version >= initialVersion && version <= sequence.get();
+  }
+
+  private long getVersion(String indexName, String scope) {
+    return getChange(indexName, scope).version;
+  }
+
+  private Change getChange(String indexName, String scope) {
+    Change change = versions.get(getKey(indexName, scope));
+    return change != null ? change : new Change(initialVersion, 0);
+  }
+
+  /**
+   * Reports changes made to the indexes without going through the model, in
+   * every scope of the indexes.
+   */
+  public void indexesChanged(Collection<String> indexNames) {
+    for (String indexName : indexNames) {
+      if (TRACKED_INDEXES.contains(indexName)) {
+        changedInAllScopes(indexName);
+      }
+    }
+  }
+
+  private static <T extends Serializable> String getIndexName(Class<T> indexClass) throws GenericException {
+    return SolrUtils.getIndexName(indexClass).get(0);
+  }
+
+  private static String getKey(String indexName, String scope) {
+    return scope == null ? indexName : indexName + SCOPE_SEPARATOR + scope;
+  }
+
+  private Change nextChange() {
+    return new Change(sequence.incrementAndGet(), System.currentTimeMillis());
+  }
+
+  private void changed(String... indexNames) {
+    Change change = nextChange();
+    for (String indexName : indexNames) {
+      versions.put(indexName, change);
+    }
+    notifyWaiting();
+  }
+
+  private void changedInScope(String indexName, String scope) {
+    Change change = nextChange();
+    versions.put(indexName, change);
+    if (scope != null) {
+      versions.put(getKey(indexName, scope), change);
+    }
+    notifyWaiting();
+  }
+
+  /**
+   * For changes whose scope is not known, every scope of the index changes.
+   */
+  private void changedInAllScopes(String indexName) {
+    Change change = nextChange();
+    String scopePrefix = indexName + SCOPE_SEPARATOR;
+    versions.replaceAll((key, value) -> key.startsWith(scopePrefix) ? change : value);
+    versions.put(indexName, change);
+    notifyWaiting();
+  }
+
+  /**
+   * The scope stops being tracked, which is a change for anyone waiting on it
+   * (as its version goes back to the initial version).
+   */
+  private void changedAndForgotten(String indexName, String scope) {
+    versions.put(indexName, nextChange());
+    versions.remove(getKey(indexName, scope));
+    notifyWaiting();
+  }
+
+  private void notifyWaiting() {
+    synchronized (monitor) {
+      monitor.notifyAll();
+    }
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> aipCreated(AIP aip) {
+    changed(RodaConstants.INDEX_AIP);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void aipUpdated(AIP aip) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void aipContentUpdated(AIP aip) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void aipStateUpdated(AIP aip) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void aipMoved(AIP aip, String oldParentId, String newParentId) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void aipDeleted(String aipId, boolean deleteIncidences) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE,
+      RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_RISK_INCIDENCE);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> descriptiveMetadataCreated(DescriptiveMetadata descriptiveMetadataBinary) {
+    changed(RodaConstants.INDEX_AIP);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void descriptiveMetadataUpdated(DescriptiveMetadata descriptiveMetadataBinary) {
+    changed(RodaConstants.INDEX_AIP);
+  }
+
+  @Override
+  public void descriptiveMetadataDeleted(String aipId, String representationId, String descriptiveMetadataBinaryId) {
+    changed(RodaConstants.INDEX_AIP);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> representationCreated(Representation representation) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void representationUpdated(Representation representation) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void representationDeleted(String aipId, String representationId, boolean deleteIncidences) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE,
+      RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_RISK_INCIDENCE);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> fileCreated(File file) {
+    changed(RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void fileUpdated(File file) {
+    changed(RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void fileDeleted(String aipId, String representationId, List<String> fileDirectoryPath, String fileId,
+    boolean deleteIncidences) {
+    changed(RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE, RodaConstants.INDEX_RISK_INCIDENCE);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> logEntryCreated(LogEntry entry) {
+    changed(RodaConstants.INDEX_ACTION_LOG);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void userCreated(User user) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public void userUpdated(User user) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public void userDeleted(String userID) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public void groupCreated(Group group) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public void groupUpdated(Group group) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public void groupDeleted(String groupID) {
+    changed(RodaConstants.INDEX_MEMBERS);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> preservationMetadataCreated(PreservationMetadata preservationMetadataBinary) {
+    changed(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_PRESERVATION_AGENTS);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void preservationMetadataUpdated(PreservationMetadata preservationMetadataBinary) {
+    changed(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_PRESERVATION_AGENTS);
+  }
+
+  @Override
+  public void preservationMetadataDeleted(PreservationMetadata preservationMetadataBinary) {
+    changed(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.INDEX_PRESERVATION_AGENTS);
+  }
+
+  @Override
+  public void otherMetadataCreated(OtherMetadata otherMetadataBinary) {
+    changed(RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> jobCreatedOrUpdated(Job job, boolean reindexJobReports) {
+    if (job.isInFinalState()) {
+      changedAndForgotten(RodaConstants.INDEX_JOB, job.getId());
+      changedAndForgotten(RodaConstants.INDEX_JOB_REPORT, job.getId());
+    } else {
+      changedInScope(RodaConstants.INDEX_JOB, job.getId());
+      if (reindexJobReports) {
+        changedInScope(RodaConstants.INDEX_JOB_REPORT, job.getId());
+      }
+    }
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void jobDeleted(String jobId) {
+    changedAndForgotten(RodaConstants.INDEX_JOB, jobId);
+    changedAndForgotten(RodaConstants.INDEX_JOB_REPORT, jobId);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> jobReportCreatedOrUpdated(Report jobReport, Job job) {
+    changedInScope(RodaConstants.INDEX_JOB_REPORT, job != null ? job.getId() : jobReport.getJobId());
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void jobReportDeleted(String jobReportId) {
+    changedInAllScopes(RodaConstants.INDEX_JOB_REPORT);
+  }
+
+  @Override
+  public void aipPermissionsUpdated(AIP aip) {
+    changed(RodaConstants.INDEX_AIP, RodaConstants.INDEX_REPRESENTATION, RodaConstants.INDEX_FILE);
+  }
+
+  @Override
+  public void transferredResourceDeleted(String transferredResourceID) {
+    // transferred resources are not tracked
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> riskCreatedOrUpdated(Risk risk, boolean commit) {
+    changed(RodaConstants.INDEX_RISK);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void riskDeleted(String riskId, boolean commit) {
+    changed(RodaConstants.INDEX_RISK);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> riskIncidenceCreatedOrUpdated(RiskIncidence riskIncidence, boolean commit) {
+    changed(RodaConstants.INDEX_RISK_INCIDENCE, RodaConstants.INDEX_RISK);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void riskIncidenceDeleted(String riskIncidenceId, boolean commit) {
+    changed(RodaConstants.INDEX_RISK_INCIDENCE, RodaConstants.INDEX_RISK);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> formatCreatedOrUpdated(Format format, boolean commit) {
+    changed(RodaConstants.INDEX_FORMAT);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void formatDeleted(String formatId, boolean commit) {
+    changed(RodaConstants.INDEX_FORMAT);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> notificationCreatedOrUpdated(Notification notification) {
+    changed(RodaConstants.INDEX_NOTIFICATION);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void notificationDeleted(String notificationId) {
+    changed(RodaConstants.INDEX_NOTIFICATION);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> dipCreated(DIP dip, boolean commit) {
+    changed(RodaConstants.INDEX_DIP);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void dipUpdated(DIP dip, boolean commit) {
+    changed(RodaConstants.INDEX_DIP);
+  }
+
+  @Override
+  public void dipDeleted(String dipId, boolean commit) {
+    changed(RodaConstants.INDEX_DIP, RodaConstants.INDEX_DIP_FILE);
+  }
+
+  @Override
+  public ReturnWithExceptions<Void> dipFileCreated(DIPFile file) {
+    changed(RodaConstants.INDEX_DIP_FILE);
+    return new ReturnWithExceptions<>();
+  }
+
+  @Override
+  public void dipFileUpdated(DIPFile file) {
+    changed(RodaConstants.INDEX_DIP_FILE);
+  }
+
+  @Override
+  public void dipFileDeleted(String dipId, List<String> path, String fileId) {
+    changed(RodaConstants.INDEX_DIP_FILE);
+  }
+
+  private static final class Change {
+    private final long version;
+    private final long time;
+
+    private Change(long version, long time) {
+      this.version = version;
+      this.time = time;
+    }
+  }
+
+}
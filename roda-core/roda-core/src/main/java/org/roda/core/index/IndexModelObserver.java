@@ -10,8 +10,13 @@ package org.roda.core.index;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.charset.Charset;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Objects;
 
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.xpath.XPathExpressionException;
@@ -19,6 +24,7 @@ import javax.xml.xpath.XPathExpressionException;
 import org.apache.commons.io.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrException;
 import org.apache.solr.common.SolrInputDocument;
 import org.roda.core.RodaCoreFactory;
@@ -35,12 +41,10 @@ import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.utils.JsonUtils;
 import org.roda.core.data.v2.common.OptionalWithCause;
 import org.roda.core.data.v2.formats.Format;
-import org.roda.core.data.v2.index.IndexRunnable;
 import org.roda.core.data.v2.index.IsIndexed;
 import org.roda.core.data.v2.index.filter.Filter;
 import org.roda.core.data.v2.index.filter.SimpleFilterParameter;
 import org.roda.core.data.v2.ip.AIP;
-import org.roda.core.data.v2.ip.AIPState;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.File;
@@ -48,7 +52,6 @@ import org.roda.core.data.v2.ip.IndexedAIP;
 import org.roda.core.data.v2.ip.IndexedDIP;
 import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
-import org.roda.core.data.v2.ip.Permissions;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
@@ -69,6 +72,7 @@ import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.Group;
 import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.IndexPropagator;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelObserver;
 import org.roda.core.model.ModelService;
@@ -365,188 +369,212 @@ public class IndexModelObserver implements ModelObserver {
     return fulltext;
   }
 
+  /**
+   * Only sends to the index what changed in the AIP metadata when compared with
+   * what is indexed: the AIP document, new and removed representations and,
+   * as partial updates, the information representations, files and
+   * preservation events inherit from the AIP. Falls back to re-indexing the
+   * whole AIP if it is not indexed yet or if the differential update fails.
+   */
   @Override
   public void aipUpdated(AIP aip) {
-    // TODO Is this the best way to update?
-    aipDeleted(aip.getId(), false);
-    aipCreated(aip);
-  }
-
-  @Override
-  public void aipStateUpdated(AIP aip) {
     try {
-      // change AIP
-      SolrInputDocument aipDoc = SolrUtils.aipStateUpdateToSolrDocument(aip);
-      index.add(RodaConstants.INDEX_AIP, aipDoc);
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot do a partial update", e);
+      IndexedAIP indexedAIP = SolrUtils.retrieve(index, IndexedAIP.class, aip.getId());
+      if (aipDifferentialUpdate(aip, indexedAIP)) {
+        return;
+      }
+    } catch (NotFoundException e) {
+      LOGGER.debug("AIP {} is not indexed yet, indexing it fully", aip.getId());
+    } catch (GenericException e) {
+      LOGGER.warn("Could not retrieve indexed AIP {}, indexing it fully", aip.getId(), e);
     }
 
-    // change Representations and Files
-    representationsStateUpdated(aip);
-    // change Preservation events
-    preservationEventsStateUpdated(aip);
-
+    aipContentUpdated(aip);
   }
 
-  private void representationsStateUpdated(final AIP aip) {
-    for (Representation representation : aip.getRepresentations()) {
-      representationStateUpdated(aip, representation);
-    }
+  @Override
+  public void aipContentUpdated(AIP aip) {
+    aipDeleted(aip.getId(), false);
+    aipCreated(aip);
   }
 
-  private void representationStateUpdated(final AIP aip, final Representation representation) {
-    CloseableIterable<OptionalWithCause<File>> allFiles = null;
+  private boolean aipDifferentialUpdate(final AIP aip, final IndexedAIP indexedAIP) {
     try {
-      SolrInputDocument repDoc = SolrUtils.representationStateUpdateToSolrDocument(representation, aip.getState());
-      index.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
-      final boolean recursive = true;
-      allFiles = model.listFilesUnder(representation.getAipId(), representation.getId(), recursive);
-      for (OptionalWithCause<File> file : allFiles) {
-        if (file.isPresent()) {
-          boolean recursiveIndexFile = false;
-          fileStateUpdated(aip, file.get(), recursiveIndexFile);
-        } else {
-          LOGGER.error("Cannot do a partial update on File", file.getCause());
-        }
+      List<String> ancestors = SolrUtils.getAncestors(aip.getParentId(), model);
+      boolean stateOrPermissionsChanged = aip.getState() != indexedAIP.getState()
+        || !aip.getPermissions().equals(indexedAIP.getPermissions());
+      boolean inheritedFieldsChanged = stateOrPermissionsChanged
+        || !sameValues(ancestors, indexedAIP.getAncestors())
+        || !sameValues(aip.getIngestSIPIds(), indexedAIP.getIngestSIPIds())
+        || !Objects.equals(aip.getIngestJobId(), indexedAIP.getIngestJobId());
+
+      // the AIP document is always rebuilt, as it is just one document
+      ReturnWithExceptions<Void> aipExceptions = indexAIP(aip, ancestors);
+      if (!aipExceptions.getExceptions().isEmpty()) {
+        return false;
       }
 
-    } catch (SolrServerException | AuthorizationDeniedException | IOException | NotFoundException | GenericException
-      | RequestNotValidException e) {
-      LOGGER.error("Cannot do a partial update", e);
-    } finally {
-      IOUtils.closeQuietly(allFiles);
-    }
-  }
-
-  private void fileStateUpdated(AIP aip, File file, boolean recursive) {
-    SolrInputDocument fileDoc = SolrUtils.fileStateUpdateToSolrDocument(file, aip.getState());
-    try {
-      index.add(RodaConstants.INDEX_FILE, fileDoc);
+      // representations of the AIP are retrieved with realtime gets, as the
+      // ones indexed moments ago (e.g. when the AIP was created) may not be
+      // visible to searches yet
+      List<String> representationUUIDs = new ArrayList<>();
+      for (Representation representation : aip.getRepresentations()) {
+        representationUUIDs.add(IdUtils.getRepresentationId(aip.getId(), representation.getId()));
+      }
+      Map<String, IndexedRepresentation> indexedRepresentations = new HashMap<>();
+      for (IndexedRepresentation representation : SolrUtils.retrieve(index, IndexedRepresentation.class,
+        representationUUIDs)) {
+        indexedRepresentations.put(representation.getId(), representation);
+      }
 
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot index file: {}", file, e);
-    }
+      // the ones no longer in the AIP can only be found by searching
+      List<IndexedRepresentation> removedRepresentations = new ArrayList<>();
+      Filter representationsFilter = new Filter(
+        new SimpleFilterParameter(RodaConstants.REPRESENTATION_AIP_ID, aip.getId()));
+      SolrUtils.execute(index, IndexedRepresentation.class, representationsFilter, representation -> {
+        if (!representationUUIDs.contains(representation.getUUID())) {
+          removedRepresentations.add(representation);
+        }
+      });
 
-    if (recursive && file.isDirectory()) {
-      try {
-        CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(file, true);
-        for (OptionalWithCause<File> subfile : allFiles) {
-          if (subfile.isPresent()) {
-            fileStateUpdated(aip, subfile.get(), false);
-          } else {
-            LOGGER.error("Cannot index file sub-resources", subfile.getCause());
+      for (Representation representation : aip.getRepresentations()) {
+        IndexedRepresentation indexedRepresentation = indexedRepresentations.get(representation.getId());
+        if (indexedRepresentation == null) {
+          indexRepresentation(aip, representation, ancestors);
+          indexPreservationsEvents(aip.getId(), representation.getId());
+        } else if (inheritedFieldsChanged || representation.isOriginal() != indexedRepresentation.isOriginal()
+          || !Objects.equals(representation.getType(), indexedRepresentation.getType())) {
+          SolrInputDocument representationDoc = SolrUtils.representationUpdateToSolrDocument(aip, representation,
+            ancestors);
+          index.add(RodaConstants.INDEX_REPRESENTATION, representationDoc);
+          if (inheritedFieldsChanged) {
+            Filter filesFilter = new Filter(new SimpleFilterParameter(RodaConstants.FILE_REPRESENTATION_UUID,
+              IdUtils.getRepresentationId(representation)));
+            new IndexPropagator(index).propagate(RodaConstants.INDEX_FILE, filesFilter, Collections.emptyList(),
+              doc -> SolrUtils.aipInheritedFieldsUpdateToSolrDocument(getUUID(doc), RodaConstants.FILE_ANCESTORS, aip,
+                ancestors));
           }
         }
-        IOUtils.closeQuietly(allFiles);
+      }
 
-      } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
-        LOGGER.error("Cannot index file sub-resources: {}", file, e);
+      for (IndexedRepresentation removedRepresentation : removedRepresentations) {
+        String representationUUID = removedRepresentation.getUUID();
+        deleteDocumentFromIndex(IndexedRepresentation.class, representationUUID);
+        deleteDocumentsFromIndex(IndexedFile.class, RodaConstants.FILE_REPRESENTATION_UUID, representationUUID);
+        deleteDocumentsFromIndex(IndexedPreservationEvent.class, RodaConstants.PRESERVATION_EVENT_REPRESENTATION_UUID,
+          representationUUID);
+      }
+
+      if (stateOrPermissionsChanged) {
+        Filter eventsFilter = new Filter(
+          new SimpleFilterParameter(RodaConstants.PRESERVATION_EVENT_AIP_ID, aip.getId()));
+        new IndexPropagator(index).propagate(RodaConstants.INDEX_PRESERVATION_EVENTS, eventsFilter,
+          Collections.emptyList(), doc -> SolrUtils.preservationEventPermissionsUpdateToSolrDocument(getUUID(doc),
+            aip.getId(), aip.getPermissions(), aip.getState()));
       }
+
+      return true;
+    } catch (SolrServerException | SolrException | IOException | RequestNotValidException | GenericException
+      | NotFoundException | AuthorizationDeniedException e) {
+      LOGGER.warn("Could not do a differential update of AIP {}, indexing it fully", aip.getId(), e);
+      return false;
     }
   }
 
-  private void preservationEventsStateUpdated(final AIP aip) {
+  private static boolean sameValues(List<String> values, List<String> otherValues) {
+    List<String> nonNullValues = values == null ? Collections.emptyList() : values;
+    List<String> nonNullOtherValues = otherValues == null ? Collections.emptyList() : otherValues;
+    return nonNullValues.equals(nonNullOtherValues);
+  }
 
-    CloseableIterable<OptionalWithCause<PreservationMetadata>> preservationMetadata = null;
+  @Override
+  public void aipStateUpdated(AIP aip) {
     try {
-      boolean includeRepresentations = true;
-      preservationMetadata = model.listPreservationMetadata(aip.getId(), includeRepresentations);
-      for (OptionalWithCause<PreservationMetadata> opm : preservationMetadata) {
-        if (opm.isPresent()) {
-          PreservationMetadata pm = opm.get();
-          if (pm.getType().equals(PreservationMetadataType.EVENT)) {
-            try {
-              preservationEventStateUpdated(pm, aip.getState());
-            } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
-              | AuthorizationDeniedException e) {
-              LOGGER.error("Cannot index premis event", e);
-            }
-          }
-        } else {
-          LOGGER.error("Cannot index premis event", opm.getCause());
-        }
-      }
-    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-      LOGGER.error("Cannot index preservation events", e);
-    } finally {
-      IOUtils.closeQuietly(preservationMetadata);
+      // change AIP
+      SolrInputDocument aipDoc = SolrUtils.aipStateUpdateToSolrDocument(aip);
+      index.add(RodaConstants.INDEX_AIP, aipDoc);
+    } catch (SolrServerException | IOException e) {
+      LOGGER.error("Cannot do a partial update", e);
     }
 
+    // change Representations, Files and Preservation events
+    propagateToAIPDocuments(RodaConstants.INDEX_REPRESENTATION, RodaConstants.REPRESENTATION_AIP_ID, aip.getId(),
+      doc -> SolrUtils.stateUpdateToSolrDocument(getUUID(doc), aip.getState()));
+    propagateToAIPDocuments(RodaConstants.INDEX_FILE, RodaConstants.FILE_AIP_ID, aip.getId(),
+      doc -> SolrUtils.stateUpdateToSolrDocument(getUUID(doc), aip.getState()));
+    propagateToAIPDocuments(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.PRESERVATION_EVENT_AIP_ID,
+      aip.getId(), doc -> SolrUtils.preservationEventStateUpdateToSolrDocument(getUUID(doc), aip.getId(),
+        aip.getState()));
   }
 
-  private void preservationEventStateUpdated(PreservationMetadata pm, AIPState state) throws RequestNotValidException,
-    GenericException, NotFoundException, AuthorizationDeniedException, SolrServerException, IOException {
-    SolrInputDocument premisEventDocument = SolrUtils.preservationEventStateUpdateToSolrDocument(pm.getId(),
-      pm.getAipId(), state);
+  /**
+   * Sends an atomic update to all documents of an index whose field has the
+   * given value, finding them in the index itself (not in the storage).
+   */
+  private void propagateToAIPDocuments(String indexName, String fieldName, String fieldValue,
+    IndexPropagator.DocumentUpdate update) {
+    propagateToAIPDocuments(indexName, fieldName, fieldValue, Collections.emptyList(), update);
+  }
 
-    index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
+  private void propagateToAIPDocuments(String indexName, String fieldName, String fieldValue, List<String> fields,
+    IndexPropagator.DocumentUpdate update) {
+    try {
+      Filter filter = new Filter(new SimpleFilterParameter(fieldName, fieldValue));
+      new IndexPropagator(index).propagate(indexName, filter, fields, update);
+    } catch (GenericException | RequestNotValidException e) {
+      LOGGER.error("Cannot do a partial update", e);
+    }
+  }
+
+  private static String getUUID(SolrDocument doc) {
+    return (String) doc.getFirstValue(RodaConstants.INDEX_UUID);
+  }
+
+  /**
+   * @return the ancestors of a document under a moved AIP, i.e. its ancestors
+   *         up to the moved AIP followed by the new ancestors of the moved AIP
+   */
+  private static List<String> getMovedAncestors(SolrDocument doc, String movedAIPId, List<String> movedAIPAncestors) {
+    List<String> oldAncestors = SolrUtils.objectToListString(doc.get(RodaConstants.AIP_ANCESTORS));
+    List<String> ancestors = new ArrayList<>(oldAncestors.subList(0, oldAncestors.indexOf(movedAIPId) + 1));
+    ancestors.addAll(movedAIPAncestors);
+    return ancestors;
   }
 
   @Override
   public void aipMoved(AIP aip, String oldParentId, String newParentId) {
-
     try {
       LOGGER.debug("Reindexing moved aip {}", aip.getId());
       List<String> topAncestors = SolrUtils.getAncestors(newParentId, model);
       SolrInputDocument aipDoc = SolrUtils.updateAIPParentId(aip.getId(), newParentId, topAncestors);
       index.add(RodaConstants.INDEX_AIP, aipDoc);
-      updateRepresentationAndFileAncestors(aip, topAncestors);
-
-      LOGGER.debug("Finding descendants of moved aip {}", aip.getId());
-      Filter filter = new Filter(new SimpleFilterParameter(RodaConstants.AIP_ANCESTORS, aip.getId()));
-      SolrUtils.execute(index, IndexedAIP.class, filter, new IndexRunnable<IndexedAIP>() {
-
-        @Override
-        public void run(IndexedAIP item)
-          throws RequestNotValidException, GenericException, AuthorizationDeniedException {
-          SolrInputDocument descendantDoc;
-          try {
-            LOGGER.debug("Reindexing aip {} descendant {}", aip.getId(), item.getId());
-            // 20161109 hsilva: lets test if descendant exists, otherwise there
-            // is not point in trying to updated it in the index
-            AIP aip = model.retrieveAIP(item.getId());
-            List<String> ancestors = SolrUtils.getAncestors(item.getParentID(), model);
-            descendantDoc = SolrUtils.updateAIPAncestors(item.getId(), ancestors);
-            index.add(RodaConstants.INDEX_AIP, descendantDoc);
-
-            // update representation and file ancestors information
-            if (item.getHasRepresentations()) {
-              updateRepresentationAndFileAncestors(aip, ancestors);
-            }
-
-          } catch (SolrServerException | IOException | NotFoundException e) {
-            LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
-          }
-        }
-      });
 
+      // representations and files of the moved AIP
+      propagateToAIPDocuments(RodaConstants.INDEX_REPRESENTATION, RodaConstants.REPRESENTATION_AIP_ID, aip.getId(),
+        doc -> SolrUtils.ancestorsUpdateToSolrDocument(getUUID(doc), RodaConstants.REPRESENTATION_ANCESTORS,
+          topAncestors));
+      propagateToAIPDocuments(RodaConstants.INDEX_FILE, RodaConstants.FILE_AIP_ID, aip.getId(),
+        doc -> SolrUtils.ancestorsUpdateToSolrDocument(getUUID(doc), RodaConstants.FILE_ANCESTORS, topAncestors));
+
+      // descendant AIPs and their representations and files, all of them have
+      // the moved AIP as ancestor
+      LOGGER.debug("Reindexing descendants of moved aip {}", aip.getId());
+      List<String> ancestorsField = Arrays.asList(RodaConstants.AIP_ANCESTORS);
+      propagateToAIPDocuments(RodaConstants.INDEX_AIP, RodaConstants.AIP_ANCESTORS, aip.getId(), ancestorsField,
+        doc -> SolrUtils.ancestorsUpdateToSolrDocument(getUUID(doc), RodaConstants.AIP_ANCESTORS,
+          getMovedAncestors(doc, aip.getId(), topAncestors)));
+      propagateToAIPDocuments(RodaConstants.INDEX_REPRESENTATION, RodaConstants.REPRESENTATION_ANCESTORS, aip.getId(),
+        ancestorsField, doc -> SolrUtils.ancestorsUpdateToSolrDocument(getUUID(doc),
+          RodaConstants.REPRESENTATION_ANCESTORS, getMovedAncestors(doc, aip.getId(), topAncestors)));
+      propagateToAIPDocuments(RodaConstants.INDEX_FILE, RodaConstants.FILE_ANCESTORS, aip.getId(), ancestorsField,
+        doc -> SolrUtils.ancestorsUpdateToSolrDocument(getUUID(doc), RodaConstants.FILE_ANCESTORS,
+          getMovedAncestors(doc, aip.getId(), topAncestors)));
     } catch (RequestNotValidException | GenericException | AuthorizationDeniedException | SolrServerException
-      | IOException | NotFoundException e) {
+      | IOException e) {
       LOGGER.error("Error indexing moved AIP {} from {} to {}", aip.getId(), oldParentId, newParentId, e);
     }
   }
 
-  private void updateRepresentationAndFileAncestors(AIP aip, List<String> ancestors) throws RequestNotValidException,
-    GenericException, AuthorizationDeniedException, SolrServerException, IOException, NotFoundException {
-    for (Representation representation : aip.getRepresentations()) {
-      SolrInputDocument descendantRepresentationDoc = SolrUtils
-        .updateRepresentationAncestors(IdUtils.getRepresentationId(representation), ancestors);
-      index.add(RodaConstants.INDEX_REPRESENTATION, descendantRepresentationDoc);
-
-      CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(), representation.getId(),
-        true);
-
-      for (OptionalWithCause<File> oFile : allFiles) {
-        if (oFile.isPresent()) {
-          File file = oFile.get();
-          SolrInputDocument descendantFileDoc = SolrUtils.updateFileAncestors(IdUtils.getFileId(file), ancestors);
-          index.add(RodaConstants.INDEX_FILE, descendantFileDoc);
-        }
-      }
-    }
-  }
-
   @Override
   public void aipDeleted(String aipId, boolean deleteIncidences) {
     deleteDocumentFromIndex(IndexedAIP.class, aipId);
@@ -908,107 +936,14 @@ public class IndexModelObserver implements ModelObserver {
       LOGGER.error("Cannot do a partial update", e);
     }
 
-    // change Representations and Files
-    representationsPermissionsUpdated(aip);
-    // change Preservation events
-    preservationEventsPermissionsUpdated(aip);
-
-  }
-
-  private void representationsPermissionsUpdated(final AIP aip) {
-    for (Representation representation : aip.getRepresentations()) {
-      representationPermissionsUpdated(aip, representation);
-    }
-  }
-
-  private void representationPermissionsUpdated(final AIP aip, final Representation representation) {
-    CloseableIterable<OptionalWithCause<File>> allFiles = null;
-    try {
-      SolrInputDocument repDoc = SolrUtils.representationPermissionsUpdateToSolrDocument(representation,
-        aip.getPermissions());
-      index.add(RodaConstants.INDEX_REPRESENTATION, repDoc);
-      final boolean recursive = true;
-      allFiles = model.listFilesUnder(representation.getAipId(), representation.getId(), recursive);
-      for (OptionalWithCause<File> file : allFiles) {
-        if (file.isPresent()) {
-          boolean recursiveIndexFile = false;
-          filePermissionsUpdated(aip, file.get(), recursiveIndexFile);
-        } else {
-          LOGGER.error("Cannot do a partial update on file", file.getCause());
-        }
-      }
-
-    } catch (SolrServerException | AuthorizationDeniedException | IOException | NotFoundException | GenericException
-      | RequestNotValidException e) {
-      LOGGER.error("Cannot do a partial update", e);
-    } finally {
-      IOUtils.closeQuietly(allFiles);
-    }
-  }
-
-  private void filePermissionsUpdated(AIP aip, File file, boolean recursive) {
-    SolrInputDocument fileDoc = SolrUtils.filePermissionsUpdateToSolrDocument(file, aip.getPermissions());
-    try {
-      index.add(RodaConstants.INDEX_FILE, fileDoc);
-
-    } catch (SolrServerException | IOException e) {
-      LOGGER.error("Cannot index file: {}", file, e);
-    }
-
-    if (recursive && file.isDirectory()) {
-      try {
-        CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(file, true);
-        for (OptionalWithCause<File> subfile : allFiles) {
-          if (subfile.isPresent()) {
-            filePermissionsUpdated(aip, subfile.get(), false);
-          } else {
-            LOGGER.error("Cannot index file sub-resources file", subfile.getCause());
-          }
-        }
-        IOUtils.closeQuietly(allFiles);
-
-      } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
-        LOGGER.error("Cannot index file sub-resources: {}", file, e);
-      }
-    }
-  }
-
-  private void preservationEventsPermissionsUpdated(final AIP aip) {
-
-    CloseableIterable<OptionalWithCause<PreservationMetadata>> preservationMetadata = null;
-    try {
-      boolean includeRepresentations = true;
-      preservationMetadata = model.listPreservationMetadata(aip.getId(), includeRepresentations);
-      for (OptionalWithCause<PreservationMetadata> opm : preservationMetadata) {
-        if (opm.isPresent()) {
-          PreservationMetadata pm = opm.get();
-          if (PreservationMetadataType.EVENT.equals(pm.getType())) {
-            try {
-              preservationEventPermissionsUpdated(pm, aip.getPermissions(), aip.getState());
-            } catch (SolrServerException | IOException | RequestNotValidException | GenericException | NotFoundException
-              | AuthorizationDeniedException e) {
-              LOGGER.error("Cannot index premis event", e);
-            }
-          }
-        } else {
-          LOGGER.error("Cannot index premis event", opm.getCause());
-        }
-      }
-    } catch (RequestNotValidException | NotFoundException | GenericException | AuthorizationDeniedException e) {
-      LOGGER.error("Cannot index preservation events", e);
-    } finally {
-      IOUtils.closeQuietly(preservationMetadata);
-    }
-
-  }
-
-  private void preservationEventPermissionsUpdated(PreservationMetadata pm, Permissions permissions, AIPState state)
-    throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
-    SolrServerException, IOException {
-    SolrInputDocument premisEventDocument = SolrUtils.preservationEventPermissionsUpdateToSolrDocument(pm.getId(),
-      pm.getAipId(), permissions, state);
-
-    index.add(RodaConstants.INDEX_PRESERVATION_EVENTS, premisEventDocument);
+    // change Representations, Files and Preservation events
+    propagateToAIPDocuments(RodaConstants.INDEX_REPRESENTATION, RodaConstants.REPRESENTATION_AIP_ID, aip.getId(),
+      doc -> SolrUtils.permissionsUpdateToSolrDocument(getUUID(doc), aip.getPermissions()));
+    propagateToAIPDocuments(RodaConstants.INDEX_FILE, RodaConstants.FILE_AIP_ID, aip.getId(),
+      doc -> SolrUtils.permissionsUpdateToSolrDocument(getUUID(doc), aip.getPermissions()));
+    propagateToAIPDocuments(RodaConstants.INDEX_PRESERVATION_EVENTS, RodaConstants.PRESERVATION_EVENT_AIP_ID,
+      aip.getId(), doc -> SolrUtils.preservationEventPermissionsUpdateToSolrDocument(getUUID(doc), aip.getId(),
+        aip.getPermissions(), aip.getState()));
   }
 
   public ReturnWithExceptions<Void> riskCreatedOrUpdated(Risk risk, boolean commit) {
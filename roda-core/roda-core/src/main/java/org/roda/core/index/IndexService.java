@@ -7,17 +7,23 @@
  */
 package org.roda.core.index;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.io.Serializable;
 import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.solr.client.solrj.SolrClient;
@@ -68,33 +74,70 @@ import org.roda.core.data.v2.risks.IndexedRisk;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
 import org.roda.core.data.v2.user.User;
+import org.roda.core.index.utils.ActionLogBulkIndexer;
 import org.roda.core.index.utils.IterableIndexResult;
+import org.roda.core.index.utils.MeteredSolrClient;
+import org.roda.core.index.utils.PartitionRoutingSolrClient;
+import org.roda.core.index.utils.ShadowRoutingSolrClient;
+import org.roda.core.index.utils.SolrShadowCores;
+import org.roda.core.index.utils.SolrTimePartitions;
 import org.roda.core.index.utils.SolrUtils;
 import org.roda.core.model.ModelService;
 import org.roda.core.model.utils.ModelUtils;
-import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.storage.Binary;
+import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+
 public class IndexService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(IndexService.class);
 
+  private static final int SHADOW_COPY_BATCH_SIZE = 1000;
+
+  private final SolrClient baseSolrClient;
   private final SolrClient solrClient;
+  private final SolrTimePartitions actionLogPartitions;
   private final ModelService model;
   private final IndexModelObserver observer;
 
+  // live index name -> shadow index name, while a shadow reindex is running
+  private final Map<String, String> shadowIndexes = new ConcurrentHashMap<>();
+  private final Set<String> shadowReindexedIds = ConcurrentHashMap.newKeySet();
+  private final Set<String> shadowFailedIds = ConcurrentHashMap.newKeySet();
+  private final IndexModelObserver shadowObserver;
+  private final ShadowRoutingSolrClient shadowMirror;
+  private final IndexChangeTracker changeTracker;
+
   public IndexService(SolrClient index, ModelService model) {
     super();
-    this.solrClient = index;
+    this.baseSolrClient = index;
+    this.actionLogPartitions = SolrTimePartitions.open(index, RodaConstants.INDEX_ACTION_LOG,
+      RodaConstants.LOG_DATETIME);
+    SolrClient partitionedIndex = new PartitionRoutingSolrClient(index, actionLogPartitions);
+    this.shadowMirror = new ShadowRoutingSolrClient(partitionedIndex, shadowIndexes, true);
+    this.solrClient = new MeteredSolrClient(shadowMirror);
     this.model = model;
 
     observer = new IndexModelObserver(this.getSolrClient(), this.model);
     model.addModelObserver(observer);
+
+    // after the index observer, so that changes are already sent to the index
+    // when they are reported
+    changeTracker = new IndexChangeTracker();
+    model.addModelObserver(changeTracker);
+
+    shadowObserver = new IndexModelObserver(new ShadowRoutingSolrClient(partitionedIndex, shadowIndexes, false),
+      this.model);
+  }
+
+  public IndexChangeTracker getChangeTracker() {
+    return changeTracker;
   }
 
   public IndexedAIP getParent(IndexedAIP aip) throws NotFoundException, GenericException {
@@ -145,6 +188,13 @@ public class IndexService {
     return SolrUtils.find(getSolrClient(), returnClass, filter, sorter, sublist, facets, user, justActive);
   }
 
+  public <T extends IsIndexed> IndexResult<T> find(Class<T> returnClass, Filter filter, Sorter sorter, Sublist sublist,
+    Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    return SolrUtils.find(getSolrClient(), returnClass, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
+  }
+
   public <T extends IsIndexed> IterableIndexResult<T> findAll(final Class<T> returnClass, final Filter filter) {
     return findAll(returnClass, filter, new Sorter(new SortParameter(RodaConstants.INDEX_UUID, true)), true);
   }
@@ -327,80 +377,68 @@ public class IndexService {
   public void reindexActionLogs()
     throws GenericException, NotFoundException, AuthorizationDeniedException, RequestNotValidException {
     CloseableIterable<Resource> actionLogs = null;
+    Map<String, ContentPayload> logFiles = new LinkedHashMap<>();
 
     try {
-      boolean recursive = false;
+      // daily logs are kept in monthly folders
+      boolean recursive = true;
       actionLogs = model.getStorage()
         .listResourcesUnderContainer(DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG), recursive);
 
       for (Resource resource : actionLogs) {
         if (resource instanceof Binary) {
-          Binary b = (Binary) resource;
-          BufferedReader br = new BufferedReader(new InputStreamReader(b.getContent().createInputStream()));
-          reindexActionLog(br);
+          logFiles.put(resource.getStoragePath().toString(), ((Binary) resource).getContent());
         }
       }
-    } catch (IOException e) {
-      throw new GenericException("Error retrieving/processing logs from storage", e);
     } finally {
       IOUtils.closeQuietly(actionLogs);
     }
-  }
 
-  public void reindexActionLog(BufferedReader br) throws GenericException {
-    String line;
-    try {
-      while ((line = br.readLine()) != null) {
-        LogEntry entry = JsonUtils.getObjectFromJson(line, LogEntry.class);
-        if (entry != null) {
-          reindexActionLog(entry);
-        }
-      }
-      br.close();
-    } catch (IOException e) {
-      throw new GenericException("Error reading log", e);
-    }
+    reindexActionLogs(logFiles, null);
   }
 
-  public SimpleJobPluginInfo reindexActionLog(BufferedReader br, SimpleJobPluginInfo jobPluginInfo)
+  /**
+   * Indexes the entries of the given log files in bulk, several files at a
+   * time, committing only once all of them are indexed.
+   *
+   * @param logFiles
+   *          log file name -> content
+   * @param listener
+   *          notified as each file is indexed, may be null
+   * @return the number of indexed entries
+   */
+  public long reindexActionLogs(Map<String, ContentPayload> logFiles, ActionLogBulkIndexer.ProgressListener listener)
     throws GenericException {
-    String line;
-    try {
-      while ((line = br.readLine()) != null) {
-        jobPluginInfo.incrementObjectsCount();
-
-        try {
-          LogEntry entry = JsonUtils.getObjectFromJson(line, LogEntry.class);
-          if (entry != null) {
-            reindexActionLog(entry);
-            jobPluginInfo.incrementObjectsProcessedWithSuccess();
-          }
-
-        } catch (GenericException e) {
-          jobPluginInfo.incrementObjectsProcessedWithFailure();
-        }
-      }
-      br.close();
-    } catch (IOException e) {
-      throw new GenericException("Error reading log", e);
-    }
-
-    return jobPluginInfo;
-  }
-
-  private ReturnWithExceptions<Void> reindexActionLog(LogEntry entry) {
-    return observer.logEntryCreated(entry);
+    return new ActionLogBulkIndexer(getSolrClient(), listener).index(logFiles);
   }
 
   public void deleteAllActionLog() throws GenericException {
     clearIndex(RodaConstants.INDEX_ACTION_LOG);
   }
 
-  public void deleteActionLog(Date until) throws SolrServerException, IOException {
+  /**
+   * Removes the action log entries until the given date from the index. When
+   * the action log is partitioned by month, the partitions before that date
+   * are dropped as a whole.
+   */
+  public void deleteActionLog(Date until) throws GenericException {
+    if (isActionLogPartitioned()) {
+      actionLogPartitions.deleteUntil(until);
+      return;
+    }
+
     String dateString = DateUtil.getThreadLocalDateFormat().format(until);
     String query = RodaConstants.LOG_DATETIME + ":[* TO " + dateString + "]";
-    getSolrClient().deleteByQuery(RodaConstants.INDEX_ACTION_LOG, query);
-    getSolrClient().commit(RodaConstants.INDEX_ACTION_LOG);
+    try {
+      getSolrClient().deleteByQuery(RodaConstants.INDEX_ACTION_LOG, query);
+      getSolrClient().commit(RodaConstants.INDEX_ACTION_LOG);
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Error deleting action log until " + dateString, e);
+    }
+  }
+
+  public boolean isActionLogPartitioned() {
+    return actionLogPartitions.isPartitioned(RodaConstants.INDEX_ACTION_LOG);
   }
 
   public <T extends IsRODAObject> void reindexAll(StorageService storage, Class<T> objectClass)
@@ -418,10 +456,7 @@ public class IndexService {
         for (Resource resource : listResourcesUnderDirectory) {
           if (!resource.isDirectory()) {
             Binary binary = (Binary) resource;
-            InputStream inputStream = binary.getContent().createInputStream();
-            String jsonString = IOUtils.toString(inputStream, RodaConstants.DEFAULT_ENCODING);
-            T object = JsonUtils.getObjectFromJson(jsonString, objectClass);
-            IOUtils.closeQuietly(inputStream);
+            T object = JsonUtils.getObjectFromJson(binary.getContent().createInputStream(), objectClass);
             reindex(object);
           }
         }
@@ -434,30 +469,34 @@ public class IndexService {
   }
 
   public <T extends Serializable> ReturnWithExceptions<Void> reindex(T object) {
+    return reindex(observer, object);
+  }
+
+  private <T extends Serializable> ReturnWithExceptions<Void> reindex(IndexModelObserver indexObserver, T object) {
     Class<T> objectClass = (Class<T>) object.getClass();
 
     if (AIP.class.equals(objectClass) || IndexedAIP.class.equals(objectClass)) {
-      return reindexAIP(AIP.class.cast(object));
+      return indexObserver.aipCreated(AIP.class.cast(object));
     } else if (Format.class.equals(objectClass)) {
-      return reindexFormat(Format.class.cast(object));
+      return indexObserver.formatCreatedOrUpdated(Format.class.cast(object), false);
     } else if (Notification.class.equals(objectClass)) {
-      return reindexNotification(Notification.class.cast(object));
+      return indexObserver.notificationCreatedOrUpdated(Notification.class.cast(object));
     } else if (Risk.class.equals(objectClass) || IndexedRisk.class.equals(objectClass)) {
-      return reindexRisk(Risk.class.cast(object));
+      return indexObserver.riskCreatedOrUpdated(Risk.class.cast(object), false);
     } else if (RiskIncidence.class.equals(objectClass)) {
-      return reindexRiskIncidence(RiskIncidence.class.cast(object));
+      return indexObserver.riskIncidenceCreatedOrUpdated(RiskIncidence.class.cast(object), false);
     } else if (LogEntry.class.equals(objectClass)) {
-      return reindexActionLog(LogEntry.class.cast(object));
+      return indexObserver.logEntryCreated(LogEntry.class.cast(object));
     } else if (Job.class.equals(objectClass)) {
-      return reindexJob(Job.class.cast(object));
+      return indexObserver.jobCreatedOrUpdated(Job.class.cast(object), true);
     } else if (Representation.class.equals(objectClass) || IndexedRepresentation.class.equals(objectClass)) {
-      return reindexRepresentation(Representation.class.cast(object));
+      return indexObserver.representationCreated(Representation.class.cast(object));
     } else if (File.class.equals(objectClass) || IndexedFile.class.equals(objectClass)) {
-      return reindexFile(File.class.cast(object));
+      return indexObserver.fileCreated(File.class.cast(object));
     } else if (DIP.class.equals(objectClass) || IndexedDIP.class.equals(objectClass)) {
-      return reindexDIP(DIP.class.cast(object));
+      return indexObserver.dipCreated(DIP.class.cast(object), false);
     } else if (DIPFile.class.equals(objectClass)) {
-      return reindexDIPFile(DIPFile.class.cast(object));
+      return indexObserver.dipFileCreated(DIPFile.class.cast(object));
     } else {
       LOGGER.error("Error trying to reindex an unconfigured object class: {}", objectClass.getName());
       ReturnWithExceptions<Void> exceptions = new ReturnWithExceptions<Void>();
@@ -469,8 +508,15 @@ public class IndexService {
 
   public void clearIndex(String indexName) throws GenericException {
     try {
+      if (actionLogPartitions.isPartitioned(indexName)) {
+        actionLogPartitions.dropAll();
+      }
       getSolrClient().deleteByQuery(indexName, "*:*");
       getSolrClient().commit(indexName);
+      if (actionLogPartitions.isPartitioned(indexName)) {
+        actionLogPartitions.coreCleared();
+      }
+      changeTracker.indexesChanged(Collections.singletonList(indexName));
     } catch (SolrServerException | IOException e) {
       LOGGER.error("Error cleaning up index {}", indexName, e);
       throw new GenericException("Error cleaning up index " + indexName, e);
@@ -489,6 +535,7 @@ public class IndexService {
       getSolrClient().deleteByQuery(indexName,
         RodaConstants.PRESERVATION_EVENT_OBJECT_CLASS + ":" + PreservationMetadataEventClass.REPOSITORY.toString());
       getSolrClient().commit(indexName);
+      changeTracker.indexesChanged(Collections.singletonList(indexName));
     } catch (SolrServerException | IOException e) {
       LOGGER.error("Error cleaning up index {}", indexName, e);
       throw new GenericException("Error cleaning up index " + indexName, e);
@@ -509,9 +556,188 @@ public class IndexService {
     }
   }
 
+  /**
+   * Starts rebuilding the given indexes into shadow indexes, which are only
+   * swapped with the live ones by {@link #finishShadowReindex(boolean)}.
+   * Meanwhile, the live indexes keep being searched and every update to them
+   * is mirrored into the shadows.
+   *
+   * If a shadow reindex of the same indexes was started and not finished
+   * (e.g. the job was stopped), it is resumed instead.
+   *
+   * @return true if a previous shadow reindex is being resumed
+   */
+  public synchronized boolean startShadowReindex(List<String> indexNames) throws GenericException {
+    return startShadowReindex(indexNames, null);
+  }
+
+  /**
+   * Same as {@link #startShadowReindex(List)}, but the shadow indexes are
+   * created with the configurations found under the given folder (one folder
+   * per index, as in the Solr home), if not null.
+   */
+  public synchronized boolean startShadowReindex(List<String> indexNames, Path indexConfigsFolder)
+    throws GenericException {
+    if (!shadowIndexes.isEmpty()) {
+      if (shadowIndexes.keySet().equals(new HashSet<>(indexNames))) {
+        LOGGER.info("Resuming shadow reindex of {} ({} objects already reindexed)", indexNames,
+          shadowReindexedIds.size());
+        return true;
+      }
+      throw new GenericException("A shadow reindex is already running for indexes " + shadowIndexes.keySet());
+    }
+
+    if (!SolrShadowCores.isSupported(baseSolrClient)) {
+      throw new GenericException("Shadow reindex is not supported by the configured Solr");
+    }
+
+    shadowReindexedIds.clear();
+    shadowFailedIds.clear();
+    try {
+      for (String indexName : indexNames) {
+        SolrShadowCores.dropLeftoverShadowCores(baseSolrClient, indexName);
+        Path confFolder = indexConfigsFolder != null ? indexConfigsFolder.resolve(indexName).resolve("conf") : null;
+        shadowIndexes.put(indexName, SolrShadowCores.createShadowCore(baseSolrClient, indexName, confFolder));
+      }
+    } catch (GenericException e) {
+      abortShadowReindex();
+      throw e;
+    }
+    return false;
+  }
+
+  public boolean isShadowReindexRunning() {
+    return !shadowIndexes.isEmpty();
+  }
+
+  /**
+   * @return true if the object with the given id was already reindexed into
+   *         the shadow indexes, by this or a previous (resumed) run
+   */
+  public boolean isReindexedIntoShadow(String id) {
+    return shadowReindexedIds.contains(id);
+  }
+
+  /**
+   * Same as {@link #reindex(Serializable)}, but writing only into the shadow
+   * indexes of a running shadow reindex.
+   */
+  public <T extends IsRODAObject> ReturnWithExceptions<Void> reindexIntoShadow(T object) {
+    ReturnWithExceptions<Void> exceptions = reindex(shadowObserver, object);
+    if (exceptions.getExceptions().isEmpty()) {
+      shadowReindexedIds.add(object.getId());
+      shadowFailedIds.remove(object.getId());
+      incrementShadowReindexCounter("processedWithSuccess");
+    } else {
+      shadowFailedIds.add(object.getId());
+      incrementShadowReindexCounter("processedWithFailure");
+    }
+    return exceptions;
+  }
+
+  /**
+   * @return the ids of the objects that could not be reindexed into the shadow
+   *         indexes (and were not reindexed by a later, resumed, run), which
+   *         would be missing from the live indexes if the shadows were swapped
+   */
+  public Set<String> getShadowReindexFailures() {
+    return Collections.unmodifiableSet(new HashSet<>(shadowFailedIds));
+  }
+
+  /**
+   * Copies the documents of a live index into its shadow, see
+   * {@link SolrShadowCores#copyDocuments(SolrClient, String, String, int)}.
+   *
+   * @return the number of copied documents
+   */
+  public long copyIntoShadow(String indexName) throws GenericException {
+    String shadowIndex = shadowIndexes.get(indexName);
+    if (shadowIndex == null) {
+      throw new GenericException("There is no shadow reindex running for index " + indexName);
+    }
+    return SolrShadowCores.copyDocuments(baseSolrClient, indexName, shadowIndex, SHADOW_COPY_BATCH_SIZE);
+  }
+
+  /**
+   * Commits the shadow indexes and swaps each one with its live index. Should
+   * anything fail before swapping, the shadows are kept so that the shadow
+   * reindex can be resumed. Callers should check
+   * {@link #getShadowReindexFailures()} first, as failed objects are not in the
+   * shadows. Shadows that missed updates of the live indexes are dropped
+   * instead, as they cannot be resumed.
+   */
+  public synchronized void finishShadowReindex(boolean optimize) throws GenericException {
+    List<String> failedShadows = shadowIndexes.values().stream().filter(shadowMirror::isFailed)
+      .collect(Collectors.toList());
+    if (!failedShadows.isEmpty()) {
+      abortShadowReindex();
+      throw new GenericException("Updates could not be mirrored into shadow indexes " + failedShadows
+        + ", so they were dropped and the current indexes were kept");
+    }
+
+    try {
+      for (String shadowIndex : shadowIndexes.values()) {
+        baseSolrClient.commit(shadowIndex);
+        if (optimize) {
+          baseSolrClient.optimize(shadowIndex);
+        }
+      }
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Error committing shadow indexes", e);
+    }
+
+    for (Entry<String, String> entry : new ArrayList<>(shadowIndexes.entrySet())) {
+      SolrShadowCores.swap(baseSolrClient, entry.getKey(), entry.getValue());
+      shadowIndexes.remove(entry.getKey());
+      changeTracker.indexesChanged(Collections.singletonList(entry.getKey()));
+      try {
+        // after the swap, the shadow name refers to the previous live index
+        SolrShadowCores.dropCore(baseSolrClient, entry.getValue());
+      } catch (GenericException e) {
+        LOGGER.error("Could not drop previous index {}", entry.getKey(), e);
+      }
+      shadowMirror.forget(entry.getValue());
+    }
+
+    shadowReindexedIds.clear();
+    shadowFailedIds.clear();
+  }
+
+  /**
+   * Drops the shadow indexes of a running shadow reindex, leaving the live
+   * indexes untouched.
+   */
+  public synchronized void abortShadowReindex() {
+    for (Entry<String, String> entry : new ArrayList<>(shadowIndexes.entrySet())) {
+      shadowIndexes.remove(entry.getKey());
+      try {
+        SolrShadowCores.dropCore(baseSolrClient, entry.getValue());
+      } catch (GenericException e) {
+        LOGGER.error("Could not drop shadow index {}", entry.getValue(), e);
+      }
+      shadowMirror.forget(entry.getValue());
+    }
+    shadowReindexedIds.clear();
+    shadowFailedIds.clear();
+  }
+
+  private void incrementShadowReindexCounter(String name) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      metrics.counter(MetricRegistry.name(IndexService.class, "shadowReindex", name)).inc();
+    }
+  }
+
   @SafeVarargs
   public final void commit(Class<? extends IsIndexed>... classToCommit) throws GenericException {
     SolrUtils.commit(getSolrClient(), classToCommit);
+    // reindexing and other changes made directly to the index, without the
+    // model, are only reported to the change tracker when committed
+    List<String> indexNames = new ArrayList<>();
+    for (Class<? extends IsIndexed> indexClass : classToCommit) {
+      indexNames.add(SolrUtils.getIndexName(indexClass).get(0));
+    }
+    changeTracker.indexesChanged(indexNames);
   }
 
   public <T extends IsIndexed> List<String> suggest(Class<T> returnClass, String field, String query, User user,
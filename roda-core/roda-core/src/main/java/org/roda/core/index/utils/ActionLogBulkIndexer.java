@@ -0,0 +1,198 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.log.LogEntry;
+import org.roda.core.storage.ContentPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Rebuilds the action log index from log files (one JSON entry per line) in
+ * bulk. Files are indexed in parallel, each one read line by line, and their
+ * entries are sent to the index in large batches without committing, leaving a
+ * single commit to the end of the whole reindex.
+ */
+public class ActionLogBulkIndexer {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ActionLogBulkIndexer.class);
+
+  private static final int DEFAULT_THREADS = 4;
+  private static final int DEFAULT_BATCH_SIZE = 5000;
+
+  /**
+   * Called after each log file is indexed. Calls are never concurrent, but
+   * they are made from the threads indexing the files.
+   */
+  @FunctionalInterface
+  public interface ProgressListener {
+    void onFileIndexed(String logFile, long indexedEntries, long failedEntries);
+  }
+
+  private final SolrClient index;
+  private final int threads;
+  private final int batchSize;
+  private final ProgressListener listener;
+
+  private final AtomicLong indexedEntries = new AtomicLong(0);
+  private final AtomicLong failedEntries = new AtomicLong(0);
+  private final AtomicLong failedFiles = new AtomicLong(0);
+
+  public ActionLogBulkIndexer(SolrClient index, ProgressListener listener) {
+    this(index, RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_THREADS, "core", "actionlogs", "reindex", "threads"),
+      RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BATCH_SIZE, "core", "actionlogs", "reindex", "batch_size"),
+      listener);
+  }
+
+  public ActionLogBulkIndexer(SolrClient index, int threads, int batchSize, ProgressListener listener) {
+    this.index = index;
+    this.threads = threads > 0 ? threads : DEFAULT_THREADS;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.listener = listener;
+  }
+
+  /**
+   * Indexes the entries of the given log files and commits the action log
+   * index once all of them are indexed. Entries that cannot be parsed or
+   * indexed, and files that cannot be read, are logged and counted as failed
+   * without stopping the others.
+   *
+   * @param logFiles
+   *          log file name (as reported to the listener) -> content
+   * @return the number of indexed entries
+   */
+  public long index(Map<String, ContentPayload> logFiles) throws GenericException {
+    ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, Math.min(threads, logFiles.size())),
+      new ThreadFactoryBuilder().setNameFormat("action-log-indexer-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (Entry<String, ContentPayload> logFile : logFiles.entrySet()) {
+        futures.add(executor.submit(() -> indexFile(logFile.getKey(), logFile.getValue())));
+      }
+      for (Future<?> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while reindexing action logs", e);
+    } catch (ExecutionException e) {
+      throw new GenericException("Error reindexing action logs", e.getCause());
+    } finally {
+      executor.shutdownNow();
+    }
+
+    try {
+      index.commit(RodaConstants.INDEX_ACTION_LOG);
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Error committing reindexed action logs", e);
+    }
+
+    LOGGER.info("Reindexed {} action log entries from {} files ({} entries and {} files failed)",
+      indexedEntries.get(), logFiles.size(), failedEntries.get(), failedFiles.get());
+    return indexedEntries.get();
+  }
+
+  public long getIndexedEntries() {
+    return indexedEntries.get();
+  }
+
+  public long getFailedEntries() {
+    return failedEntries.get();
+  }
+
+  public long getFailedFiles() {
+    return failedFiles.get();
+  }
+
+  private void indexFile(String logFile, ContentPayload content) {
+    ObjectReader reader = JsonUtils.getReader(LogEntry.class);
+    List<SolrInputDocument> batch = new ArrayList<>();
+    long indexed = 0;
+    long failed = 0;
+
+    try (BufferedReader br = new BufferedReader(new InputStreamReader(content.createInputStream()))) {
+      String line;
+      while ((line = br.readLine()) != null) {
+        if (StringUtils.isBlank(line)) {
+          continue;
+        }
+
+        try {
+          LogEntry entry = reader.readValue(line);
+          batch.add(SolrUtils.logEntryToSolrDocument(entry));
+        } catch (IOException e) {
+          LOGGER.debug("Could not parse action log entry of {}: {}", logFile, line, e);
+          failed++;
+        }
+
+        if (batch.size() >= batchSize) {
+          if (send(logFile, batch)) {
+            indexed += batch.size();
+          } else {
+            failed += batch.size();
+          }
+          batch = new ArrayList<>();
+        }
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error reading action log {}, indexing only the entries read so far", logFile, e);
+      failedFiles.incrementAndGet();
+    }
+
+    if (!batch.isEmpty()) {
+      if (send(logFile, batch)) {
+        indexed += batch.size();
+      } else {
+        failed += batch.size();
+      }
+    }
+
+    indexedEntries.addAndGet(indexed);
+    failedEntries.addAndGet(failed);
+    LOGGER.debug("Reindexed {} entries of action log {} ({} failed)", indexed, logFile, failed);
+    if (listener != null) {
+      synchronized (listener) {
+        listener.onFileIndexed(logFile, indexed, failed);
+      }
+    }
+  }
+
+  private boolean send(String logFile, List<SolrInputDocument> batch) {
+    try {
+      index.add(RodaConstants.INDEX_ACTION_LOG, batch);
+      return true;
+    } catch (SolrServerException | SolrException | IOException e) {
+      LOGGER.error("Could not index {} entries of action log {}", batch.size(), logFile, e);
+      return false;
+    }
+  }
+}
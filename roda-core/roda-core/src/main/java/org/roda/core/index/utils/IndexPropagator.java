@@ -0,0 +1,149 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Propagates a change to all the index documents matched by a filter (e.g.
+ * all files of an AIP or all AIPs under a given ancestor) without going to the
+ * storage. Documents are found with cursor based queries, so that very large
+ * result sets are streamed, and changed with batches of atomic updates.
+ *
+ * Searches only see documents added before the last (soft) commit, so the
+ * index is soft committed before each propagation: otherwise documents indexed
+ * moments before (e.g. the files of an AIP being ingested) would keep their
+ * stale values.
+ */
+public class IndexPropagator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(IndexPropagator.class);
+
+  private static final int DEFAULT_BATCH_SIZE = 1000;
+
+  /**
+   * Called after each batch of updates is sent to the index.
+   */
+  @FunctionalInterface
+  public interface ProgressListener {
+    void onProgress(String indexName, long updatedDocuments);
+  }
+
+  /**
+   * Creates the atomic update of a matched document.
+   */
+  @FunctionalInterface
+  public interface DocumentUpdate {
+    /**
+     * @return the atomic update to send or null if the document does not need
+     *         to be updated
+     */
+    SolrInputDocument apply(SolrDocument document);
+  }
+
+  private final SolrClient index;
+  private final int batchSize;
+  private final ProgressListener listener;
+
+  public IndexPropagator(SolrClient index) {
+    this(index, RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_BATCH_SIZE, "core", "index", "propagation",
+      "batch_size"), (indexName, updatedDocuments) -> LOGGER.debug("Updated {} documents of {} so far",
+        updatedDocuments, indexName));
+  }
+
+  public IndexPropagator(SolrClient index, int batchSize, ProgressListener listener) {
+    this.index = index;
+    this.batchSize = batchSize > 0 ? batchSize : DEFAULT_BATCH_SIZE;
+    this.listener = listener;
+  }
+
+  /**
+   * Sends one atomic update to each document of the index that matches the
+   * filter.
+   *
+   * @param indexName
+   *          the index (collection) name
+   * @param filter
+   *          the documents to update
+   * @param fields
+   *          the fields the update needs, besides the document UUID
+   * @param update
+   *          creates the atomic update of each document
+   * @return the number of updated documents
+   */
+  public long propagate(String indexName, Filter filter, List<String> fields, DocumentUpdate update)
+    throws GenericException, RequestNotValidException {
+    SolrQuery query = new SolrQuery();
+    query.setParam("q.op", "AND");
+    SolrUtils.FilterQueryPlan plan = SolrUtils.planFilter(filter);
+    query.setQuery(plan.getQuery());
+    for (String filterQuery : plan.getFilterQueries()) {
+      query.addFilterQuery(filterQuery);
+    }
+    query.setFields(RodaConstants.INDEX_UUID);
+    for (String field : fields) {
+      query.addField(field);
+    }
+    query.setRows(batchSize);
+    // cursors need a sort on the unique key
+    query.setSort(RodaConstants.INDEX_UUID, SolrQuery.ORDER.asc);
+
+    long updated = 0;
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    boolean done = false;
+    try {
+      index.commit(indexName, true, true, true);
+      while (!done) {
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        QueryResponse response = index.query(indexName, query);
+
+        List<SolrInputDocument> batch = new ArrayList<>();
+        for (SolrDocument document : response.getResults()) {
+          SolrInputDocument documentUpdate = update.apply(document);
+          if (documentUpdate != null) {
+            batch.add(documentUpdate);
+          }
+        }
+
+        if (!batch.isEmpty()) {
+          index.add(indexName, batch);
+          updated += batch.size();
+          if (listener != null) {
+            listener.onProgress(indexName, updated);
+          }
+        }
+
+        String nextCursorMark = response.getNextCursorMark();
+        done = cursorMark.equals(nextCursorMark);
+        cursorMark = nextCursorMark;
+      }
+    } catch (SolrServerException | SolrException | IOException e) {
+      throw new GenericException("Could not propagate update to " + indexName + " after " + updated + " documents", e);
+    }
+
+    LOGGER.debug("Propagated update to {} documents of {}", updated, indexName);
+    return updated;
+  }
+}
@@ -0,0 +1,58 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.common.util.NamedList;
+import org.roda.core.common.metrics.MetricsUtils;
+
+import com.codahale.metrics.Timer;
+
+/**
+ * {@link SolrClient} that times every request, by collection and by kind of
+ * request: <code>update</code> or the request handler of the query (e.g.
+ * <code>select</code>).
+ */
+public class MeteredSolrClient extends SolrClient {
+  private static final long serialVersionUID = -4273624101562862417L;
+
+  private static final String UPDATE = "update";
+  private static final String NO_COLLECTION = "default";
+  private static final String NO_PATH = "request";
+
+  private final SolrClient delegate;
+
+  public MeteredSolrClient(SolrClient delegate) {
+    this.delegate = delegate;
+  }
+
+  @Override
+  public NamedList<Object> request(SolrRequest request, String collection) throws SolrServerException, IOException {
+    String kind;
+    if (request instanceof AbstractUpdateRequest) {
+      kind = UPDATE;
+    } else {
+      kind = request.getPath() == null ? NO_PATH : request.getPath().replace("/", "");
+    }
+
+    try (Timer.Context timer = MetricsUtils.time(MeteredSolrClient.class,
+      collection == null ? NO_COLLECTION : collection, kind)) {
+      return delegate.request(request, collection);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the delegate is closed by whoever created it
+  }
+}
@@ -0,0 +1,497 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.QueryRequest;
+import org.apache.solr.client.solrj.request.UpdateRequest;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrDocumentList;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CommonParams;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.params.FacetParams;
+import org.apache.solr.common.params.ModifiableSolrParams;
+import org.apache.solr.common.params.SolrParams;
+import org.apache.solr.common.util.NamedList;
+import org.apache.solr.common.util.SimpleOrderedMap;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.GenericException;
+
+/**
+ * {@link SolrClient} that spreads a core partitioned by time (see
+ * {@link SolrTimePartitions}) over its partitions, so that everyone else keeps
+ * using the core name.
+ *
+ * Added documents go to the partition of their date, and deletes, commits and
+ * optimizes go to all partitions. Searches only go to the partitions of the
+ * dates filtered by the filter queries (plain ranges on the partition date
+ * field, as the ones made for date range filters), and when more than one
+ * partition is searched their results are merged here: documents are sorted by
+ * the values of the sort fields and facet field counts are added, asking each
+ * partition for more values than needed as Solr does for distributed
+ * searches. Cursors are not supported across partitions.
+ */
+public class PartitionRoutingSolrClient extends SolrClient {
+  private static final long serialVersionUID = -2187946204569187713L;
+
+  private static final String SELECT_PATH = "/select";
+  private static final String GET_PATH = "/get";
+  private static final Pattern INSTANT_PATTERN = Pattern
+    .compile("(\\d{4}-\\d{2}-\\d{2}T\\d{2}:\\d{2}:\\d{2}(?:\\.\\d+)?Z)(.*)");
+  private static final Pattern ROUNDING_UP_PATTERN = Pattern
+    .compile("\\+1(YEAR|MONTH|DAY|HOUR|MINUTE|SECOND)(?:-1MILLISECOND)?");
+
+  private final SolrClient delegate;
+  private final SolrTimePartitions partitions;
+  private final Pattern rangePattern;
+
+  public PartitionRoutingSolrClient(SolrClient delegate, SolrTimePartitions partitions) {
+    this.delegate = delegate;
+    this.partitions = partitions;
+    this.rangePattern = Pattern.compile("(?:\\{![^}]*\\})?\\s*\\(*\\s*" + Pattern.quote(partitions.getDateField())
+      + ":[\\[{](\\S+) TO (\\S+)[\\]}]\\s*\\)*\\s*");
+  }
+
+  @Override
+  public NamedList<Object> request(SolrRequest request, String collection) throws SolrServerException, IOException {
+    if (collection == null || !partitions.isPartitioned(collection)) {
+      return delegate.request(request, collection);
+    }
+
+    if (request instanceof UpdateRequest) {
+      return update((UpdateRequest) request);
+    } else if (request instanceof QueryRequest && SELECT_PATH.equals(request.getPath())) {
+      try {
+        return search((QueryRequest) request);
+      } catch (SolrServerException | SolrException e) {
+        // a partition may have been dropped by another node meanwhile
+        try {
+          partitions.refresh();
+        } catch (GenericException e1) {
+          throw e;
+        }
+        return search((QueryRequest) request);
+      }
+    } else if (request instanceof QueryRequest && GET_PATH.equals(request.getPath())) {
+      return realTimeGet((QueryRequest) request);
+    } else {
+      // other handlers (e.g. schema) and updates that cannot be split
+      return delegate.request(request, collection);
+    }
+  }
+
+  private NamedList<Object> update(UpdateRequest request) throws SolrServerException, IOException {
+    NamedList<Object> ret = null;
+
+    if (request.getDocuments() != null && !request.getDocuments().isEmpty()) {
+      Map<String, List<SolrInputDocument>> docsByCore = new LinkedHashMap<>();
+      List<String> ids = new ArrayList<>();
+      for (SolrInputDocument doc : request.getDocuments()) {
+        String core = partitions.getCore(getDate(doc.getFieldValue(partitions.getDateField())));
+        docsByCore.computeIfAbsent(core, k -> new ArrayList<>()).add(doc);
+        if (!core.equals(partitions.getCoreName())) {
+          ids.add(String.valueOf(doc.getFieldValue(RodaConstants.INDEX_UUID)));
+        }
+      }
+
+      for (Entry<String, List<SolrInputDocument>> entry : docsByCore.entrySet()) {
+        UpdateRequest partitionRequest = new UpdateRequest();
+        partitionRequest.setParams(copyParams(request.getParams()));
+        partitionRequest.setCommitWithin(request.getCommitWithin());
+        partitionRequest.add(entry.getValue());
+        ret = delegate.request(partitionRequest, entry.getKey());
+      }
+
+      if (partitions.coreHasDocuments() && !ids.isEmpty()) {
+        // documents added before partitioning, now replaced by their partition
+        delegate.deleteById(partitions.getCoreName(), ids);
+      }
+    }
+
+    boolean hasDeletes = (request.getDeleteById() != null && !request.getDeleteById().isEmpty())
+      || (request.getDeleteQuery() != null && !request.getDeleteQuery().isEmpty());
+    if (hasDeletes || request.getAction() != null) {
+      UpdateRequest broadcastRequest = new UpdateRequest();
+      broadcastRequest.setParams(copyParams(request.getParams()));
+      broadcastRequest.setCommitWithin(request.getCommitWithin());
+      if (request.getDeleteById() != null && !request.getDeleteById().isEmpty()) {
+        broadcastRequest.deleteById(request.getDeleteById());
+      }
+      if (request.getDeleteQuery() != null) {
+        for (String query : request.getDeleteQuery()) {
+          broadcastRequest.deleteByQuery(query);
+        }
+      }
+      for (String core : partitions.getAllCores()) {
+        ret = delegate.request(broadcastRequest, core);
+      }
+    }
+
+    if (ret == null) {
+      ret = delegate.request(request, partitions.getCoreName());
+    }
+    return ret;
+  }
+
+  private static ModifiableSolrParams copyParams(SolrParams params) {
+    return params != null ? new ModifiableSolrParams(params) : new ModifiableSolrParams();
+  }
+
+  private static Date getDate(Object value) {
+    if (value instanceof Date) {
+      return (Date) value;
+    } else if (value != null) {
+      return SolrTimePartitions.parseDate(value.toString());
+    } else {
+      return null;
+    }
+  }
+
+  private NamedList<Object> realTimeGet(QueryRequest request) throws SolrServerException, IOException {
+    SolrDocumentList docs = new SolrDocumentList();
+    Object doc = null;
+    for (String core : partitions.getAllCores()) {
+      NamedList<Object> response = delegate.request(request, core);
+      if (response.get("response") instanceof SolrDocumentList) {
+        docs.addAll((SolrDocumentList) response.get("response"));
+      }
+      if (doc == null) {
+        doc = response.get("doc");
+      }
+    }
+    docs.setNumFound(docs.size());
+
+    NamedList<Object> ret = new NamedList<>();
+    if (request.getParams().get("ids") != null) {
+      ret.add("response", docs);
+    } else {
+      ret.add("doc", doc);
+    }
+    return ret;
+  }
+
+  private NamedList<Object> search(QueryRequest request) throws SolrServerException, IOException {
+    SolrParams params = request.getParams();
+    Date[] range = getDateRange(params.getParams(CommonParams.FQ));
+    List<String> cores = partitions.getCores(range[0], range[1]);
+    if (cores.size() == 1) {
+      return delegate.request(request, cores.get(0));
+    }
+    if (params.get(CursorMarkParams.CURSOR_MARK_PARAM) != null) {
+      throw new SolrServerException("Cursors are not supported across partitions of " + partitions.getCoreName());
+    }
+
+    int start = params.getInt(CommonParams.START, 0);
+    int rows = params.getInt(CommonParams.ROWS, 10);
+    List<String[]> sorts = parseSort(params.get(CommonParams.SORT));
+
+    ModifiableSolrParams partitionParams = new ModifiableSolrParams(params);
+    boolean facet = params.getBool(FacetParams.FACET, false);
+    String[] facetFields = params.getParams(FacetParams.FACET_FIELD);
+    if (facet && facetFields != null) {
+      for (String field : facetFields) {
+        int limit = params.getFieldInt(field, FacetParams.FACET_LIMIT, 100);
+        int minCount = params.getFieldInt(field, FacetParams.FACET_MINCOUNT, 0);
+        partitionParams.set("f." + field + "." + FacetParams.FACET_LIMIT, limit < 0 ? -1 : (int) (limit * 1.5) + 10);
+        partitionParams.set("f." + field + "." + FacetParams.FACET_MINCOUNT, Math.min(minCount, 1));
+      }
+    }
+
+    MergedResponse merged = new MergedResponse();
+    List<SolrDocument> docs;
+    if (!sorts.isEmpty() && sorts.get(0)[0].equals(partitions.getDateField()) && !partitions.coreHasDocuments()) {
+      docs = searchInDateOrder(request, cores, "asc".equalsIgnoreCase(sorts.get(0)[1]), start, rows, partitionParams,
+        merged);
+    } else {
+      partitionParams.set(CommonParams.START, 0);
+      partitionParams.set(CommonParams.ROWS, start + rows);
+      String fields = params.get(CommonParams.FL);
+      if (StringUtils.isNotBlank(fields)) {
+        // needed to merge the documents
+        for (String[] sort : sorts) {
+          fields += "," + sort[0];
+        }
+        partitionParams.set(CommonParams.FL, fields);
+      }
+
+      QueryRequest partitionRequest = new QueryRequest(partitionParams, request.getMethod());
+      List<SolrDocument> allDocs = new ArrayList<>();
+      for (String core : cores) {
+        allDocs.addAll(merged.add(delegate.request(partitionRequest, core)));
+      }
+      // stable, so documents that compare equal stay newest partition first
+      allDocs.sort(getComparator(sorts));
+      docs = allDocs.subList(Math.min(start, allDocs.size()), Math.min(start + rows, allDocs.size()));
+    }
+
+    SolrDocumentList results = new SolrDocumentList();
+    results.setNumFound(merged.numFound);
+    results.setStart(start);
+    results.addAll(docs);
+
+    NamedList<Object> header = new SimpleOrderedMap<>();
+    header.add("status", 0);
+    header.add("QTime", merged.qTime);
+    NamedList<Object> ret = new NamedList<>();
+    ret.add("responseHeader", header);
+    ret.add("response", results);
+    if (facet) {
+      ret.add("facet_counts", getFacetCounts(params, merged.facetQueryCounts, merged.facetFieldCounts));
+    }
+    return ret;
+  }
+
+  /**
+   * Partitions do not overlap in time, so when sorting by date each one holds a
+   * contiguous slice of the results: they are counted first (with the facets)
+   * and then only the ones holding the requested page are asked for it.
+   */
+  private List<SolrDocument> searchInDateOrder(QueryRequest request, List<String> cores, boolean ascending, int start,
+    int rows, ModifiableSolrParams partitionParams, MergedResponse merged) throws SolrServerException, IOException {
+    // the partitioned core is empty
+    List<String> partitionCores = new ArrayList<>(cores.subList(0, cores.size() - 1));
+    if (ascending) {
+      Collections.reverse(partitionCores);
+    }
+
+    partitionParams.set(CommonParams.START, 0);
+    partitionParams.set(CommonParams.ROWS, 0);
+    QueryRequest countRequest = new QueryRequest(partitionParams, request.getMethod());
+    List<Long> counts = new ArrayList<>();
+    for (String core : partitionCores) {
+      long before = merged.numFound;
+      merged.add(delegate.request(countRequest, core));
+      counts.add(merged.numFound - before);
+    }
+
+    List<SolrDocument> docs = new ArrayList<>();
+    long offset = 0;
+    for (int i = 0; i < partitionCores.size() && offset < start + rows; i++) {
+      long count = counts.get(i);
+      if (offset + count > start) {
+        ModifiableSolrParams pageParams = new ModifiableSolrParams(request.getParams());
+        pageParams.set(FacetParams.FACET, false);
+        pageParams.set(CommonParams.START, (int) Math.max(0, start - offset));
+        pageParams.set(CommonParams.ROWS, start + rows - (int) Math.max(offset, start));
+        NamedList<Object> response = delegate.request(new QueryRequest(pageParams, request.getMethod()),
+          partitionCores.get(i));
+        SolrDocumentList results = (SolrDocumentList) response.get("response");
+        if (results != null) {
+          docs.addAll(results);
+        }
+      }
+      offset += count;
+    }
+    return docs;
+  }
+
+  /**
+   * @return the dates (null for no limit) of the ranges on the date field
+   *         that all documents must match
+   */
+  private Date[] getDateRange(String[] filterQueries) {
+    Date[] range = new Date[2];
+    for (int i = 0; filterQueries != null && i < filterQueries.length; i++) {
+      Matcher matcher = rangePattern.matcher(filterQueries[i]);
+      if (matcher.matches()) {
+        Date from = parseRangeBound(matcher.group(1), false);
+        Date to = parseRangeBound(matcher.group(2), true);
+        if (from != null && (range[0] == null || from.after(range[0]))) {
+          range[0] = from;
+        }
+        if (to != null && (range[1] == null || to.before(range[1]))) {
+          range[1] = to;
+        }
+      }
+    }
+    return range;
+  }
+
+  /**
+   * @return the date of a range bound, rounding up the upper ones, or null if
+   *         it has no limit (or cannot be parsed)
+   */
+  private static Date parseRangeBound(String value, boolean upper) {
+    Matcher matcher = INSTANT_PATTERN.matcher(value);
+    if (!matcher.matches()) {
+      return null;
+    }
+
+    Date date = SolrTimePartitions.parseDate(matcher.group(1));
+    String math = matcher.group(2);
+    if (date == null || math.isEmpty()) {
+      return date;
+    }
+
+    Matcher rounding = ROUNDING_UP_PATTERN.matcher(math);
+    if (upper && rounding.matches()) {
+      ChronoUnit unit = ChronoUnit.valueOf(rounding.group(1) + "S");
+      return Date.from(ZonedDateTime.ofInstant(date.toInstant(), ZoneOffset.UTC).plus(1, unit).toInstant());
+    }
+    return null;
+  }
+
+  /**
+   * @return field and direction of each sort clause
+   */
+  private static List<String[]> parseSort(String sort) {
+    List<String[]> sorts = new ArrayList<>();
+    if (StringUtils.isNotBlank(sort)) {
+      for (String clause : sort.split(",")) {
+        String[] parts = clause.trim().split("\\s+");
+        if (parts.length == 2) {
+          sorts.add(parts);
+        }
+      }
+    }
+    return sorts;
+  }
+
+  private static Comparator<SolrDocument> getComparator(List<String[]> sorts) {
+    return (doc1, doc2) -> {
+      for (String[] sort : sorts) {
+        Object value1 = doc1.getFirstValue(sort[0]);
+        Object value2 = doc2.getFirstValue(sort[0]);
+        int comparison;
+        if (value1 == null || value2 == null) {
+          // missing values last, whatever the direction
+          comparison = value1 == null ? (value2 == null ? 0 : 1) : -1;
+        } else {
+          comparison = compareValues(value1, value2);
+          if ("desc".equalsIgnoreCase(sort[1])) {
+            comparison = -comparison;
+          }
+        }
+        if (comparison != 0) {
+          return comparison;
+        }
+      }
+      return 0;
+    };
+  }
+
+  @SuppressWarnings("unchecked")
+  private static int compareValues(Object value1, Object value2) {
+    if (value1 instanceof Comparable && value1.getClass().equals(value2.getClass())) {
+      return ((Comparable<Object>) value1).compareTo(value2);
+    }
+    return value1.toString().compareTo(value2.toString());
+  }
+
+  private static void addCounts(Map<String, Long> counts, NamedList<?> partitionCounts) {
+    for (int i = 0; partitionCounts != null && i < partitionCounts.size(); i++) {
+      long count = ((Number) partitionCounts.getVal(i)).longValue();
+      counts.merge(partitionCounts.getName(i), count, Long::sum);
+    }
+  }
+
+  private static NamedList<Object> getFacetCounts(SolrParams params, Map<String, Long> facetQueryCounts,
+    Map<String, Map<String, Long>> facetFieldCounts) {
+    NamedList<Object> queries = new SimpleOrderedMap<>();
+    for (Entry<String, Long> count : facetQueryCounts.entrySet()) {
+      queries.add(count.getKey(), (int) Math.min(Integer.MAX_VALUE, count.getValue()));
+    }
+
+    NamedList<Object> fields = new SimpleOrderedMap<>();
+    for (Entry<String, Map<String, Long>> field : facetFieldCounts.entrySet()) {
+      int limit = params.getFieldInt(field.getKey(), FacetParams.FACET_LIMIT, 100);
+      int minCount = params.getFieldInt(field.getKey(), FacetParams.FACET_MINCOUNT, 0);
+      String sort = params.getFieldParam(field.getKey(), FacetParams.FACET_SORT,
+        limit > 0 ? FacetParams.FACET_SORT_COUNT : FacetParams.FACET_SORT_INDEX);
+
+      List<Entry<String, Long>> values = new ArrayList<>(field.getValue().entrySet());
+      if (FacetParams.FACET_SORT_INDEX.equals(sort)) {
+        values.sort(Entry.<String, Long> comparingByKey());
+      } else {
+        values.sort(Entry.<String, Long> comparingByValue().reversed()
+          .thenComparing(Entry.<String, Long> comparingByKey()));
+      }
+
+      NamedList<Object> counts = new NamedList<>();
+      for (Entry<String, Long> value : values) {
+        if (limit >= 0 && counts.size() >= limit) {
+          break;
+        }
+        if (value.getValue() >= minCount) {
+          counts.add(value.getKey(), (int) Math.min(Integer.MAX_VALUE, value.getValue()));
+        }
+      }
+      fields.add(field.getKey(), counts);
+    }
+
+    NamedList<Object> ret = new SimpleOrderedMap<>();
+    ret.add("facet_queries", queries);
+    ret.add("facet_fields", fields);
+    ret.add("facet_ranges", new SimpleOrderedMap<>());
+    ret.add("facet_intervals", new SimpleOrderedMap<>());
+    ret.add("facet_heatmaps", new SimpleOrderedMap<>());
+    return ret;
+  }
+
+  /**
+   * Totals of the responses of several partitions.
+   */
+  private static final class MergedResponse {
+    private long numFound = 0;
+    private int qTime = 0;
+    private final Map<String, Map<String, Long>> facetFieldCounts = new LinkedHashMap<>();
+    private final Map<String, Long> facetQueryCounts = new LinkedHashMap<>();
+
+    /**
+     * @return the documents of the response
+     */
+    private List<SolrDocument> add(NamedList<Object> response) {
+      NamedList<?> header = (NamedList<?>) response.get("responseHeader");
+      if (header != null && header.get("QTime") instanceof Number) {
+        qTime += ((Number) header.get("QTime")).intValue();
+      }
+
+      NamedList<?> facetCounts = (NamedList<?>) response.get("facet_counts");
+      if (facetCounts != null) {
+        addCounts(facetQueryCounts, (NamedList<?>) facetCounts.get("facet_queries"));
+        NamedList<?> fieldCounts = (NamedList<?>) facetCounts.get("facet_fields");
+        for (int i = 0; fieldCounts != null && i < fieldCounts.size(); i++) {
+          addCounts(facetFieldCounts.computeIfAbsent(fieldCounts.getName(i), k -> new LinkedHashMap<>()),
+            (NamedList<?>) fieldCounts.getVal(i));
+        }
+      }
+
+      SolrDocumentList results = (SolrDocumentList) response.get("response");
+      if (results != null) {
+        numFound += results.getNumFound();
+        return results;
+      }
+      return Collections.emptyList();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the delegate is closed by whoever created it
+  }
+}
@@ -0,0 +1,106 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrRequest;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.request.AbstractUpdateRequest;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.util.NamedList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link SolrClient} that redirects updates sent to a collection that has a
+ * shadow (see {@link SolrShadowCores}) while a shadow reindex is running.
+ * Queries always go to the live collection.
+ *
+ * In mirror mode, updates go to both the live collection and its shadow, so
+ * that changes made while the shadow is being built are not lost when it gets
+ * swapped in. Otherwise, updates only go to the shadow. A shadow that fails to
+ * get an update is missing it, so it is marked as failed and no longer gets
+ * updates (it must not be swapped in).
+ */
+public class ShadowRoutingSolrClient extends SolrClient {
+  private static final long serialVersionUID = 3528915346025764871L;
+  private static final Logger LOGGER = LoggerFactory.getLogger(ShadowRoutingSolrClient.class);
+
+  private final SolrClient delegate;
+  private final Map<String, String> shadows;
+  private final boolean mirror;
+  private final Set<String> failedShadows = ConcurrentHashMap.newKeySet();
+
+  /**
+   * @param delegate
+   *          the client used to send all requests
+   * @param shadows
+   *          live collection name to shadow collection name map, which may
+   *          change over time
+   * @param mirror
+   *          true if updates should also be sent to the live collection
+   */
+  public ShadowRoutingSolrClient(SolrClient delegate, Map<String, String> shadows, boolean mirror) {
+    this.delegate = delegate;
+    this.shadows = shadows;
+    this.mirror = mirror;
+  }
+
+  public SolrClient getDelegate() {
+    return delegate;
+  }
+
+  /**
+   * @return true if an update could not be mirrored into the given shadow
+   */
+  public boolean isFailed(String shadow) {
+    return failedShadows.contains(shadow);
+  }
+
+  /**
+   * Forgets that the given shadow failed, once it was dropped.
+   */
+  public void forget(String shadow) {
+    failedShadows.remove(shadow);
+  }
+
+  @Override
+  public NamedList<Object> request(SolrRequest request, String collection) throws SolrServerException, IOException {
+    String shadow = collection == null ? null : shadows.get(collection);
+    if (shadow == null || !(request instanceof AbstractUpdateRequest)) {
+      return delegate.request(request, collection);
+    }
+
+    if (!mirror) {
+      return delegate.request(request, shadow);
+    }
+
+    NamedList<Object> ret = delegate.request(request, collection);
+    if (!failedShadows.contains(shadow)) {
+      try {
+        delegate.request(request, shadow);
+      } catch (SolrServerException | IOException | SolrException e) {
+        // e.g. the shadow was dropped, but the live update was done anyway
+        failedShadows.add(shadow);
+        LOGGER.error("Could not mirror update of {} into shadow {}, which will no longer be updated: {}", collection,
+          shadow, e.getMessage());
+      }
+    }
+    return ret;
+  }
+
+  @Override
+  public void close() throws IOException {
+    // the delegate is closed by whoever created it
+  }
+}
@@ -0,0 +1,399 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.impl.CloudSolrClient;
+import org.apache.solr.client.solrj.request.CoreAdminRequest;
+import org.apache.solr.client.solrj.request.schema.SchemaRequest;
+import org.apache.solr.client.solrj.response.CoreAdminResponse;
+import org.apache.solr.client.solrj.response.QueryResponse;
+import org.apache.solr.common.SolrDocument;
+import org.apache.solr.common.SolrException;
+import org.apache.solr.common.SolrInputDocument;
+import org.apache.solr.common.params.CoreAdminParams.CoreAdminAction;
+import org.apache.solr.common.params.CursorMarkParams;
+import org.apache.solr.common.util.NamedList;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.data.exceptions.AlreadyExistsException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.storage.fs.FSUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Core admin operations needed to rebuild an index aside (in a shadow core)
+ * and swap it with the live core once it is complete.
+ *
+ * Shadow cores are created with a copy of the live core configuration and
+ * their own data directory, which is why the live core instance directory
+ * must be reachable from this node (always the case for embedded Solr).
+ * SolrCloud collections cannot be swapped and are not supported.
+ */
+public final class SolrShadowCores {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrShadowCores.class);
+
+  private static final String SHADOW_SEPARATOR = "_shadow_";
+  private static final String DATA_DIR_POINTER_SUFFIX = ".current";
+  private static final String CONF_FOLDER = "conf";
+  private static final String VERSION_FIELD = "_version_";
+
+  /** Private empty constructor */
+  private SolrShadowCores() {
+
+  }
+
+  public static boolean isSupported(SolrClient solr) {
+    return !(solr instanceof CloudSolrClient);
+  }
+
+  /**
+   * Creates an empty core with the same configuration as the given live core.
+   *
+   * @return the name of the created shadow core
+   */
+  public static String createShadowCore(SolrClient solr, String coreName) throws GenericException {
+    return createShadowCore(solr, coreName, null);
+  }
+
+  /**
+   * Creates an empty core with the given configuration folder, or with the
+   * same configuration as the given live core if it is null (e.g. to build the
+   * index of a new schema version aside).
+   *
+   * @return the name of the created shadow core
+   */
+  public static String createShadowCore(SolrClient solr, String coreName, Path confFolder) throws GenericException {
+    if (!isSupported(solr)) {
+      throw new GenericException("Shadow cores are not supported with SolrCloud");
+    }
+
+    String suffix = Long.toString(System.currentTimeMillis());
+    String shadowName = coreName + SHADOW_SEPARATOR + suffix;
+    createSiblingCore(solr, coreName, shadowName, "." + suffix, confFolder);
+    return shadowName;
+  }
+
+  /**
+   * Creates a core next to the given one, with the given configuration folder
+   * (or a copy of the core configuration if null) and the data directory of
+   * the core plus the given suffix, which is reused if it already exists.
+   */
+  static void createSiblingCore(SolrClient solr, String coreName, String siblingName, String dataDirSuffix,
+    Path confFolder) throws GenericException {
+    NamedList<Object> status = getCoreStatus(solr, coreName);
+    Path instanceDir = Paths.get((String) status.get("instanceDir"));
+    Path dataDir = Paths.get((String) status.get("dataDir"));
+
+    if (!Files.isDirectory(instanceDir.resolve(CONF_FOLDER))) {
+      throw new GenericException(
+        "Configuration of core " + coreName + " is not reachable from this node: " + instanceDir);
+    }
+
+    Path siblingInstanceDir = instanceDir.resolveSibling(siblingName);
+    Path siblingDataDir = dataDir.resolveSibling(getDataDirBaseName(dataDir) + dataDirSuffix);
+
+    try {
+      FSUtils.copy(confFolder != null ? confFolder : instanceDir.resolve(CONF_FOLDER),
+        siblingInstanceDir.resolve(CONF_FOLDER), false);
+
+      CoreAdminRequest.Create create = new CoreAdminRequest.Create();
+      create.setCoreName(siblingName);
+      create.setInstanceDir(siblingInstanceDir.toString());
+      create.setDataDir(siblingDataDir.toString());
+      create.process(solr);
+    } catch (AlreadyExistsException | SolrServerException | IOException | SolrException e) {
+      FSUtils.deletePathQuietly(siblingInstanceDir);
+      throw new GenericException("Could not create core " + siblingName + " next to " + coreName, e);
+    }
+
+    LOGGER.info("Created core {} (data dir {})", siblingName, siblingDataDir);
+  }
+
+  /**
+   * @return true if the configuration of the given core can be copied from
+   *         this node, which is needed to create cores next to it
+   */
+  static boolean isConfigurationReachable(SolrClient solr, String coreName) throws GenericException {
+    Path instanceDir = Paths.get((String) getCoreStatus(solr, coreName).get("instanceDir"));
+    return Files.isDirectory(instanceDir.resolve(CONF_FOLDER));
+  }
+
+  /**
+   * @return the data directory of the given core
+   */
+  static Path getDataDir(SolrClient solr, String coreName) throws GenericException {
+    return Paths.get((String) getCoreStatus(solr, coreName).get("dataDir"));
+  }
+
+  /**
+   * @return the names of all the cores
+   */
+  static List<String> listCores(SolrClient solr) throws GenericException {
+    List<String> cores = new ArrayList<>();
+    try {
+      CoreAdminResponse response = CoreAdminRequest.getStatus(null, solr);
+      for (Entry<String, NamedList<Object>> core : response.getCoreStatus()) {
+        cores.add(core.getKey());
+      }
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not list cores", e);
+    }
+    return cores;
+  }
+
+  /**
+   * Atomically swaps the live core with its shadow, so that the live name
+   * serves the shadow index from now on. The data directory pointer is updated
+   * so that embedded Solr keeps using the new index after a restart.
+   */
+  public static void swap(SolrClient solr, String coreName, String shadowName) throws GenericException {
+    try {
+      Path shadowDataDir = Paths.get((String) getCoreStatus(solr, shadowName).get("dataDir"));
+
+      CoreAdminRequest swap = new CoreAdminRequest();
+      swap.setAction(CoreAdminAction.SWAP);
+      swap.setCoreName(coreName);
+      swap.setOtherCoreName(shadowName);
+      swap.process(solr);
+      LOGGER.info("Swapped core {} with shadow {}", coreName, shadowName);
+
+      updateDataDirPointer(shadowDataDir);
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not swap core " + coreName + " with shadow " + shadowName, e);
+    }
+  }
+
+  /**
+   * Copies all the documents of a live core into its shadow, rebuilding them
+   * from their stored fields (copy field destinations are left for the shadow
+   * to fill), so that they get indexed with the shadow configuration. Updates
+   * must be mirrored into the shadow meanwhile: a copied document never
+   * overwrites one that was mirrored first, and documents deleted from the live
+   * core during the copy are deleted from the shadow.
+   *
+   * This only works if every indexed field is either stored or the
+   * destination of a copy field, as the others would be lost.
+   *
+   * @return the number of copied documents
+   */
+  public static long copyDocuments(SolrClient solr, String coreName, String shadowName, int batchSize)
+    throws GenericException {
+    Set<String> excludedFields = getCopyFieldDestinations(solr, shadowName);
+    excludedFields.add(VERSION_FIELD);
+
+    SolrQuery query = new SolrQuery("*:*");
+    query.setRows(batchSize);
+    // cursors need a sort on the unique key
+    query.setSort(RodaConstants.INDEX_UUID, SolrQuery.ORDER.asc);
+
+    long copied = 0;
+    String cursorMark = CursorMarkParams.CURSOR_MARK_START;
+    try {
+      while (true) {
+        query.set(CursorMarkParams.CURSOR_MARK_PARAM, cursorMark);
+        QueryResponse response = solr.query(coreName, query);
+
+        List<SolrInputDocument> docs = new ArrayList<>();
+        for (SolrDocument doc : response.getResults()) {
+          docs.add(toInputDocument(doc, excludedFields));
+        }
+        if (!docs.isEmpty()) {
+          addIfAbsent(solr, coreName, shadowName, docs, excludedFields);
+          copied += docs.size();
+        }
+
+        String nextCursorMark = response.getNextCursorMark();
+        if (cursorMark.equals(nextCursorMark)) {
+          break;
+        }
+        cursorMark = nextCursorMark;
+      }
+    } catch (SolrServerException | IOException | SolrException e) {
+      throw new GenericException("Could not copy documents of core " + coreName + " into shadow " + shadowName, e);
+    }
+
+    LOGGER.info("Copied {} documents of core {} into shadow {}", copied, coreName, shadowName);
+    return copied;
+  }
+
+  private static SolrInputDocument toInputDocument(SolrDocument doc, Set<String> excludedFields) {
+    SolrInputDocument inputDoc = new SolrInputDocument();
+    for (String field : doc.getFieldNames()) {
+      if (!excludedFields.contains(field)) {
+        inputDoc.addField(field, doc.getFieldValue(field));
+      }
+    }
+    // optimistic concurrency, only added if the shadow does not have it yet
+    inputDoc.setField(VERSION_FIELD, -1L);
+    return inputDoc;
+  }
+
+  private static void addIfAbsent(SolrClient solr, String coreName, String shadowName, List<SolrInputDocument> docs,
+    Set<String> excludedFields) throws SolrServerException, IOException {
+    try {
+      solr.add(shadowName, docs);
+    } catch (SolrException e) {
+      if (e.code() != SolrException.ErrorCode.CONFLICT.code) {
+        throw e;
+      }
+
+      // some were mirrored meanwhile (maybe partially, by an atomic update),
+      // so those are copied again from their current live version
+      for (SolrInputDocument doc : docs) {
+        try {
+          solr.add(shadowName, doc);
+        } catch (SolrException e1) {
+          if (e1.code() != SolrException.ErrorCode.CONFLICT.code) {
+            throw e1;
+          }
+          String id = (String) doc.getFieldValue(RodaConstants.INDEX_UUID);
+          SolrDocument current = solr.getById(coreName, id);
+          if (current != null) {
+            SolrInputDocument currentDoc = toInputDocument(current, excludedFields);
+            currentDoc.removeField(VERSION_FIELD);
+            solr.add(shadowName, currentDoc);
+          } else {
+            solr.deleteById(shadowName, id);
+          }
+        }
+      }
+    }
+
+    // the ones deleted from the live core after being read
+    List<String> ids = new ArrayList<>();
+    for (SolrInputDocument doc : docs) {
+      ids.add((String) doc.getFieldValue(RodaConstants.INDEX_UUID));
+    }
+    for (SolrDocument doc : solr.getById(coreName, ids)) {
+      ids.remove(doc.getFieldValue(RodaConstants.INDEX_UUID));
+    }
+    if (!ids.isEmpty()) {
+      solr.deleteById(shadowName, ids);
+    }
+  }
+
+  private static Set<String> getCopyFieldDestinations(SolrClient solr, String coreName) throws GenericException {
+    Set<String> destinations = new HashSet<>();
+    try {
+      for (Map<String, Object> copyField : new SchemaRequest.CopyFields().process(solr, coreName).getCopyFields()) {
+        destinations.add((String) copyField.get("dest"));
+      }
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not get copy fields of core " + coreName, e);
+    }
+    return destinations;
+  }
+
+  /**
+   * Unloads a core, deleting its index and data directory. The instance
+   * directory is kept: after a swap, the core that is dropped is the previous
+   * live core, whose instance directory holds the configuration of the
+   * operator and may hold the data directory of the new live core (it does
+   * with the default data directory of standalone Solr, inside the instance
+   * directory).
+   */
+  public static void dropCore(SolrClient solr, String coreName) throws GenericException {
+    try {
+      CoreAdminRequest.Unload unload = new CoreAdminRequest.Unload(true);
+      unload.setCoreName(coreName);
+      unload.setDeleteDataDir(true);
+      unload.process(solr);
+      LOGGER.info("Dropped core {}", coreName);
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not drop core " + coreName, e);
+    }
+  }
+
+  /**
+   * Drops shadow cores of the given core left behind by a shadow reindex that
+   * did not finish (e.g. because RODA was restarted meanwhile).
+   */
+  public static void dropLeftoverShadowCores(SolrClient solr, String coreName) throws GenericException {
+    List<String> leftovers = new ArrayList<>();
+    for (String core : listCores(solr)) {
+      if (core.startsWith(coreName + SHADOW_SEPARATOR)) {
+        leftovers.add(core);
+      }
+    }
+
+    for (String leftover : leftovers) {
+      LOGGER.warn("Dropping leftover shadow core {}", leftover);
+      dropCore(solr, leftover);
+    }
+  }
+
+  /**
+   * Resolves the data directory of a core, following the pointer written by
+   * {@link #swap(SolrClient, String, String)} if there is one.
+   */
+  public static Path resolveDataDir(Path indexDataPath, String folder) {
+    Path pointer = indexDataPath.resolve(folder + DATA_DIR_POINTER_SUFFIX);
+    if (Files.isRegularFile(pointer)) {
+      try {
+        String current = new String(Files.readAllBytes(pointer), StandardCharsets.UTF_8).trim();
+        if (!current.isEmpty() && Files.isDirectory(indexDataPath.resolve(current))) {
+          return indexDataPath.resolve(current);
+        }
+      } catch (IOException e) {
+        LOGGER.warn("Could not read index data directory pointer {}", pointer, e);
+      }
+    }
+    return indexDataPath.resolve(folder);
+  }
+
+  private static void updateDataDirPointer(Path dataDir) {
+    Path parent = dataDir.getParent();
+    if (parent == null || !Files.isDirectory(parent)) {
+      // data directory is not local, Solr keeps it in the core properties
+      return;
+    }
+
+    Path pointer = parent.resolve(getDataDirBaseName(dataDir) + DATA_DIR_POINTER_SUFFIX);
+    try {
+      Path tempPointer = Files.createTempFile(parent, getDataDirBaseName(dataDir), DATA_DIR_POINTER_SUFFIX);
+      Files.write(tempPointer, dataDir.getFileName().toString().getBytes(StandardCharsets.UTF_8));
+      Files.move(tempPointer, pointer, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    } catch (IOException e) {
+      LOGGER.error("Could not update index data directory pointer {}", pointer, e);
+    }
+  }
+
+  static String getDataDirBaseName(Path dataDir) {
+    String name = dataDir.getFileName().toString();
+    int index = name.indexOf('.');
+    return index > 0 ? name.substring(0, index) : name;
+  }
+
+  private static NamedList<Object> getCoreStatus(SolrClient solr, String coreName) throws GenericException {
+    try {
+      NamedList<Object> status = CoreAdminRequest.getStatus(coreName, solr).getCoreStatus(coreName);
+      if (status == null || status.get("instanceDir") == null || status.get("dataDir") == null) {
+        throw new GenericException("Core " + coreName + " does not exist");
+      }
+      return status;
+    } catch (SolrServerException | IOException e) {
+      throw new GenericException("Could not get status of core " + coreName, e);
+    }
+  }
+}
@@ -0,0 +1,347 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.index.utils;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+
+import org.apache.solr.client.solrj.SolrClient;
+import org.apache.solr.client.solrj.SolrQuery;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.utils.DateUtil;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Monthly partitions of a core whose documents are only added and expire by
+ * date (e.g. the action log).
+ *
+ * Each partition is a core next to the partitioned one (see
+ * {@link SolrShadowCores}), named after it plus the month of the documents it
+ * holds (e.g. <code>ActionLog_201610</code>), and is created when the first
+ * document of that month is added. The partitioned core itself keeps the
+ * documents added before partitioning was enabled (or whose date is unknown),
+ * and is always searched. Expired documents are removed by dropping whole
+ * partitions, instead of deleting them by query and optimizing the core.
+ *
+ * As with shadow cores, the configuration of the partitioned core must be
+ * reachable from this node and SolrCloud is not supported: in those cases the
+ * core is not partitioned at all. With embedded Solr, whose cores live in a
+ * temporary folder, the partitions are created again on startup from the data
+ * directories they left behind.
+ */
+public class SolrTimePartitions {
+  private static final Logger LOGGER = LoggerFactory.getLogger(SolrTimePartitions.class);
+
+  private static final String PARTITION_SEPARATOR = "_";
+  private static final Pattern PARTITION_PATTERN = Pattern.compile("\\d{6}");
+  private static final DateTimeFormatter PARTITION_FORMAT = DateTimeFormatter.ofPattern("yyyyMM")
+    .withZone(ZoneOffset.UTC);
+  private static final long REFRESH_INTERVAL_MILLIS = 60000;
+
+  private static boolean enabled = true;
+
+  private final SolrClient solr;
+  private final String coreName;
+  private final String dateField;
+  private final boolean partitioned;
+  // partition (yyyyMM) -> core name, newest first
+  private final NavigableMap<String, String> partitions = new ConcurrentSkipListMap<>(Collections.reverseOrder());
+  private volatile long lastRefresh = 0;
+  private volatile boolean coreHasDocuments = false;
+
+  /**
+   * @param enabled
+   *          false to never partition cores
+   */
+  public static synchronized void configure(boolean enabled) {
+    SolrTimePartitions.enabled = enabled;
+  }
+
+  private SolrTimePartitions(SolrClient solr, String coreName, String dateField, boolean partitioned) {
+    this.solr = solr;
+    this.coreName = coreName;
+    this.dateField = dateField;
+    this.partitioned = partitioned;
+  }
+
+  /**
+   * Opens the partitions of the given core, partitioned by the given date
+   * field, restoring the ones whose core is not loaded (embedded Solr).
+   */
+  public static SolrTimePartitions open(SolrClient solr, String coreName, String dateField) {
+    boolean isEnabled;
+    synchronized (SolrTimePartitions.class) {
+      isEnabled = enabled;
+    }
+
+    if (isEnabled && SolrShadowCores.isSupported(solr)) {
+      SolrTimePartitions ret = new SolrTimePartitions(solr, coreName, dateField, true);
+      try {
+        if (SolrShadowCores.isConfigurationReachable(solr, coreName)) {
+          ret.restorePartitionCores();
+          ret.refresh();
+          ret.coreHasDocuments = ret.countCoreDocuments() > 0;
+          LOGGER.info("Core {} is partitioned by month of {} ({} partitions)", coreName, dateField,
+            ret.partitions.size());
+          return ret;
+        } else {
+          LOGGER.warn("Core {} will not be partitioned, its configuration is not reachable from this node", coreName);
+        }
+      } catch (GenericException e) {
+        LOGGER.warn("Core {} will not be partitioned, could not open its partitions", coreName, e);
+      }
+    }
+
+    return new SolrTimePartitions(solr, coreName, dateField, false);
+  }
+
+  public boolean isPartitioned(String collection) {
+    return partitioned && coreName.equals(collection);
+  }
+
+  public String getCoreName() {
+    return coreName;
+  }
+
+  public String getDateField() {
+    return dateField;
+  }
+
+  /**
+   * @return true if the partitioned core itself may have documents, which
+   *         must be replaced when added again into a partition
+   */
+  public boolean coreHasDocuments() {
+    return coreHasDocuments;
+  }
+
+  /**
+   * @return the core where a document with the given date goes, creating its
+   *         partition if needed, or the partitioned core if the date is null
+   *         or the partition could not be created
+   */
+  public String getCore(Date date) {
+    if (date == null) {
+      return coreName;
+    }
+
+    String partition = PARTITION_FORMAT.format(date.toInstant());
+    String core = partitions.get(partition);
+    if (core == null) {
+      core = createPartition(partition);
+    }
+    return core;
+  }
+
+  private synchronized String createPartition(String partition) {
+    String core = partitions.get(partition);
+    if (core != null) {
+      return core;
+    }
+
+    core = coreName + PARTITION_SEPARATOR + partition;
+    try {
+      // it may have been created by another node meanwhile
+      if (!SolrShadowCores.listCores(solr).contains(core)) {
+        SolrShadowCores.createSiblingCore(solr, coreName, core, PARTITION_SEPARATOR + partition, null);
+      }
+      partitions.put(partition, core);
+      return core;
+    } catch (GenericException e) {
+      LOGGER.error("Could not create partition {} of core {}, using the core itself", partition, coreName, e);
+      coreHasDocuments = true;
+      return coreName;
+    }
+  }
+
+  /**
+   * @return the cores with documents dated between the given dates (null for
+   *         no limit), newest first, and the partitioned core last
+   */
+  public List<String> getCores(Date from, Date to) {
+    refreshIfStale();
+    String fromPartition = from != null ? PARTITION_FORMAT.format(from.toInstant()) : null;
+    String toPartition = to != null ? PARTITION_FORMAT.format(to.toInstant()) : null;
+
+    List<String> cores = new ArrayList<>();
+    for (Entry<String, String> partition : partitions.entrySet()) {
+      if ((fromPartition == null || partition.getKey().compareTo(fromPartition) >= 0)
+        && (toPartition == null || partition.getKey().compareTo(toPartition) <= 0)) {
+        cores.add(partition.getValue());
+      }
+    }
+    cores.add(coreName);
+    return cores;
+  }
+
+  /**
+   * @return all the cores, newest first, and the partitioned core last
+   */
+  public List<String> getAllCores() {
+    return getCores(null, null);
+  }
+
+  /**
+   * Removes the documents dated until the given date, dropping the partitions
+   * of the months before it and deleting by query from the partition of its
+   * month and from the partitioned core.
+   *
+   * @return the number of dropped partitions
+   */
+  public synchronized int deleteUntil(Date until) throws GenericException {
+    refresh();
+    String untilPartition = PARTITION_FORMAT.format(until.toInstant());
+
+    int dropped = 0;
+    for (Entry<String, String> partition : partitions.tailMap(untilPartition, false).entrySet()) {
+      SolrShadowCores.dropCore(solr, partition.getValue());
+      partitions.remove(partition.getKey());
+      dropped++;
+    }
+
+    List<String> cores = new ArrayList<>();
+    if (partitions.containsKey(untilPartition)) {
+      cores.add(partitions.get(untilPartition));
+    }
+    cores.add(coreName);
+
+    String query = dateField + ":[* TO " + DateUtil.getThreadLocalDateFormat().format(until) + "]";
+    try {
+      for (String core : cores) {
+        solr.deleteByQuery(core, query);
+        solr.commit(core);
+      }
+    } catch (SolrServerException | IOException | SolrException e) {
+      throw new GenericException("Could not delete documents of " + coreName + " until " + until, e);
+    }
+    coreHasDocuments = countCoreDocuments() > 0;
+
+    LOGGER.info("Dropped {} partitions of core {} with documents until {}", dropped, coreName, until);
+    return dropped;
+  }
+
+  /**
+   * Drops all the partitions, leaving the partitioned core as it is.
+   */
+  public synchronized void dropAll() throws GenericException {
+    refresh();
+    for (Entry<String, String> partition : partitions.entrySet()) {
+      SolrShadowCores.dropCore(solr, partition.getValue());
+      partitions.remove(partition.getKey());
+    }
+  }
+
+  /**
+   * Marks the partitioned core as empty (e.g. after clearing it).
+   */
+  public void coreCleared() {
+    coreHasDocuments = false;
+  }
+
+  /**
+   * Reloads the list of partitions from Solr, which other nodes may have
+   * changed.
+   */
+  public void refresh() throws GenericException {
+    List<String> found = new ArrayList<>();
+    for (String core : SolrShadowCores.listCores(solr)) {
+      String partition = getPartition(core);
+      if (partition != null) {
+        partitions.put(partition, core);
+        found.add(partition);
+      }
+    }
+    partitions.keySet().retainAll(found);
+    lastRefresh = System.currentTimeMillis();
+  }
+
+  private void refreshIfStale() {
+    if (System.currentTimeMillis() - lastRefresh > REFRESH_INTERVAL_MILLIS) {
+      try {
+        refresh();
+      } catch (GenericException e) {
+        LOGGER.warn("Could not refresh partitions of core {}", coreName, e);
+      }
+    }
+  }
+
+  private String getPartition(String core) {
+    String prefix = coreName + PARTITION_SEPARATOR;
+    if (core.startsWith(prefix) && PARTITION_PATTERN.matcher(core.substring(prefix.length())).matches()) {
+      return core.substring(prefix.length());
+    }
+    return null;
+  }
+
+  /**
+   * Creates the cores of the partitions whose data directory exists next to
+   * the one of the partitioned core but are not loaded.
+   */
+  private void restorePartitionCores() throws GenericException {
+    Path dataDir = SolrShadowCores.getDataDir(solr, coreName);
+    Path parent = dataDir.getParent();
+    if (parent == null || !Files.isDirectory(parent)) {
+      // data directories are not local, Solr keeps the cores it created
+      return;
+    }
+
+    String prefix = SolrShadowCores.getDataDirBaseName(dataDir) + PARTITION_SEPARATOR;
+    List<String> cores = SolrShadowCores.listCores(solr);
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(parent, prefix + "*")) {
+      for (Path partitionDataDir : stream) {
+        String partition = partitionDataDir.getFileName().toString().substring(prefix.length());
+        String core = coreName + PARTITION_SEPARATOR + partition;
+        if (Files.isDirectory(partitionDataDir) && PARTITION_PATTERN.matcher(partition).matches()
+          && !cores.contains(core)) {
+          LOGGER.info("Restoring partition {} of core {}", partition, coreName);
+          SolrShadowCores.createSiblingCore(solr, coreName, core, PARTITION_SEPARATOR + partition, null);
+        }
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not list data directories of " + coreName + " partitions", e);
+    }
+  }
+
+  private long countCoreDocuments() {
+    try {
+      return solr.query(coreName, new SolrQuery("*:*").setRows(0)).getResults().getNumFound();
+    } catch (SolrServerException | IOException | SolrException e) {
+      LOGGER.warn("Could not count documents of core {}", coreName, e);
+      return 1;
+    }
+  }
+
+  /**
+   * @return the date of an ISO instant, as in Solr date fields and range
+   *         queries, or null if it is not one
+   */
+  static Date parseDate(String value) {
+    try {
+      return Date.from(Instant.parse(value));
+    } catch (DateTimeParseException e) {
+      return null;
+    }
+  }
+}
@@ -13,6 +13,7 @@ import java.io.Serializable;
 import java.text.ParseException;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -21,6 +22,7 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
 import java.util.UUID;
+import java.util.regex.Pattern;
 import java.util.stream.Collectors;
 
 import javax.xml.parsers.ParserConfigurationException;
@@ -155,6 +157,9 @@ public class SolrUtils {
 
   private static final String DEFAULT_QUERY_PARSER_OPERATOR = "AND";
 
+  // plain field names only, no functions nor document transformers
+  private static final Pattern FIELD_NAME_PATTERN = Pattern.compile("[\\w.]+");
+
   private static final Set<String> NON_REPEATABLE_FIELDS = new HashSet<>(Arrays.asList(RodaConstants.AIP_TITLE,
     RodaConstants.AIP_LEVEL, RodaConstants.AIP_DATE_INITIAL, RodaConstants.AIP_DATE_FINAL));
 
@@ -229,7 +234,7 @@ public class SolrUtils {
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    setQueryAndFilterQueries(query, filter);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
@@ -241,7 +246,7 @@ public class SolrUtils {
 
     try {
       QueryResponse response = index.query(getIndexName(classToRetrieve).get(0), query);
-      ret = queryResponseToIndexResult(response, classToRetrieve, facets, returnLite);
+      ret = queryResponseToIndexResult(response, classToRetrieve, facets, returnLite, false);
     } catch (SolrServerException | IOException e) {
       throw new GenericException("Could not query index", e);
     }
@@ -266,20 +271,62 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * The fields that are always returned when only some fields are requested:
+   * the ones that identify each object plus the ones that can not be left null
+   * in the results.
+   */
+  private static <T extends IsIndexed> String[] getClassProjectionFields(Class<T> classToRetrieve)
+    throws RequestNotValidException {
+    List<String> fields = new ArrayList<>(Arrays.asList(getClassLiteFields(classToRetrieve)));
+    if (classToRetrieve.equals(IndexedRepresentation.class)) {
+      fields.add(RodaConstants.REPRESENTATION_ORIGINAL);
+    } else if (classToRetrieve.equals(IndexedFile.class)) {
+      fields.add(RodaConstants.FILE_ISDIRECTORY);
+    } else if (!classToRetrieve.equals(IndexedAIP.class)) {
+      throw new RequestNotValidException("Returning only some fields is not supported for " + classToRetrieve);
+    }
+    return fields.toArray(new String[fields.size()]);
+  }
+
   public static <T extends IsIndexed> IndexResult<T> find(SolrClient index, Class<T> classToRetrieve, Filter filter,
     Sorter sorter, Sublist sublist, Facets facets, User user, boolean justActive)
     throws GenericException, RequestNotValidException {
+    return find(index, classToRetrieve, filter, sorter, sublist, facets, user, justActive, Collections.emptyList());
+  }
+
+  /**
+   * Same as {@link #find(SolrClient, Class, Filter, Sorter, Sublist, Facets, User, boolean)}
+   * but only the given stored fields (plus the ones that identify each object,
+   * see {@link IsIndexed#liteFields()}) are returned by the index. Fields that
+   * are not returned are left null in the results. An empty list of fields
+   * returns all fields. Only {@link IndexedAIP}, {@link IndexedRepresentation}
+   * and {@link IndexedFile} support returning some of the fields.
+   */
+  public static <T extends IsIndexed> IndexResult<T> find(SolrClient index, Class<T> classToRetrieve, Filter filter,
+    Sorter sorter, Sublist sublist, Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
     boolean returnLite = false;
+    boolean projected = false;
     IndexResult<T> ret;
     SolrQuery query = new SolrQuery();
     query.setParam("q.op", DEFAULT_QUERY_PARSER_OPERATOR);
-    query.setQuery(parseFilter(filter));
+    setQueryAndFilterQueries(query, filter);
     query.setSorts(parseSorter(sorter));
     query.setStart(sublist.getFirstElementIndex());
     query.setRows(sublist.getMaximumElementCount());
     if (filter != null && filter.isReturnLite()) {
       query.setFields(getClassLiteFields(classToRetrieve));
       returnLite = true;
+    } else if (fieldsToReturn != null && !fieldsToReturn.isEmpty()) {
+      query.setFields(getClassProjectionFields(classToRetrieve));
+      projected = true;
+      for (String field : fieldsToReturn) {
+        if (!FIELD_NAME_PATTERN.matcher(field).matches()) {
+          throw new RequestNotValidException("Invalid field name: " + field);
+        }
+        query.addField(field);
+      }
     }
     parseAndConfigureFacets(facets, query);
     if (hasPermissionFilters(classToRetrieve)) {
@@ -288,7 +335,7 @@ public class SolrUtils {
 
     try {
       QueryResponse response = index.query(getIndexName(classToRetrieve).get(0), query);
-      ret = queryResponseToIndexResult(response, classToRetrieve, facets, returnLite);
+      ret = queryResponseToIndexResult(response, classToRetrieve, facets, returnLite, projected);
     } catch (SolrServerException | IOException e) {
       throw new GenericException("Could not query index", e);
     } catch (SolrException e) {
@@ -347,6 +394,30 @@ public class SolrUtils {
     return ret;
   }
 
+  /**
+   * Converts a document that only has some of the fields (see
+   * {@link #find(SolrClient, Class, Filter, Sorter, Sublist, Facets, User, boolean, List)}).
+   * The object is built like in the lite path and only the fields returned by
+   * the index are set, the others are left null.
+   */
+  private static <T> T solrDocumentToProjection(Class<T> resultClass, SolrDocument doc) throws GenericException {
+    T ret;
+    if (resultClass.equals(IndexedAIP.class)) {
+      ret = resultClass.cast(solrDocumentToProjectedIndexedAIP(doc));
+    } else if (resultClass.equals(IndexedRepresentation.class)) {
+      ret = resultClass.cast(solrDocumentToProjectedRepresentation(doc));
+    } else if (resultClass.equals(IndexedFile.class)) {
+      ret = resultClass.cast(solrDocumentToProjectedIndexedFile(doc));
+    } else {
+      throw new GenericException("Cannot convert a partial document to " + resultClass.getName());
+    }
+    return ret;
+  }
+
+  private static List<String> objectToListStringOrNull(Object object) {
+    return object == null ? null : objectToListString(object);
+  }
+
   private static <T> SolrInputDocument toSolrDocument(Class<T> resultClass, T object)
     throws GenericException, NotSupportedException {
 
@@ -465,7 +536,7 @@ public class SolrUtils {
     return string.replaceAll("([+&|!(){}\\[\\-\\]\\^\\\\~?:\"/])", "\\\\$1");
   }
 
-  private static List<String> objectToListString(Object object) {
+  public static List<String> objectToListString(Object object) {
     List<String> ret;
     if (object == null) {
       ret = new ArrayList<String>();
@@ -627,7 +698,7 @@ public class SolrUtils {
   }
 
   private static <T extends Serializable> IndexResult<T> queryResponseToIndexResult(QueryResponse response,
-    Class<T> responseClass, Facets facets, boolean returnLite) throws GenericException {
+    Class<T> responseClass, Facets facets, boolean returnLite, boolean projected) throws GenericException {
     final SolrDocumentList docList = response.getResults();
     final List<FacetFieldResult> facetResults = processFacetFields(facets, response.getFacetFields());
     final long offset = docList.getStart();
@@ -636,7 +707,8 @@ public class SolrUtils {
     final List<T> docs = new ArrayList<T>();
 
     for (SolrDocument doc : docList) {
-      T result = solrDocumentTo(responseClass, doc, returnLite);
+      T result = projected ? solrDocumentToProjection(responseClass, doc)
+        : solrDocumentTo(responseClass, doc, returnLite);
       docs.add(result);
     }
 
@@ -751,6 +823,105 @@ public class SolrUtils {
     return ret.toString();
   }
 
+  /**
+   * The query (q) and filter queries (fq) that a {@link Filter} is planned into,
+   * see {@link SolrUtils#planFilter(Filter)}.
+   */
+  public static final class FilterQueryPlan {
+    private final String query;
+    private final List<String> filterQueries;
+
+    private FilterQueryPlan(String query, List<String> filterQueries) {
+      this.query = query;
+      this.filterQueries = filterQueries;
+    }
+
+    public String getQuery() {
+      return query;
+    }
+
+    public List<String> getFilterQueries() {
+      return filterQueries;
+    }
+  }
+
+  /**
+   * Splits a filter into the clauses that should score the results (basic
+   * searches, and groups containing them), which are joined in the query, and
+   * the structural clauses (exact matches, ranges, etc.), which become one filter
+   * query each. The parameters of a filter are all required, so the result is
+   * the same, but filter queries are not scored and each one is cached on its
+   * own in the Solr filter cache, to be reused by other queries sharing it (e.g.
+   * the same AIP or state). Clauses that are seldom repeated and expensive to
+   * cache (number ranges and date intervals, whose bounds usually come from user
+   * input) are not cached and have a cost so that they are evaluated after the
+   * cheaper ones.
+   */
+  public static FilterQueryPlan planFilter(Filter filter) throws RequestNotValidException {
+    StringBuilder scoring = new StringBuilder();
+    List<String> filterQueries = new ArrayList<>();
+
+    if (filter != null) {
+      for (FilterParameter parameter : filter.getParameters()) {
+        if (isScoringFilterParameter(parameter)) {
+          parseFilterParameter(scoring, parameter, true);
+        } else {
+          StringBuilder clause = new StringBuilder();
+          parseFilterParameter(clause, parameter, false);
+          if (clause.length() > 0) {
+            int cost = getFilterParameterCost(parameter);
+            filterQueries.add(cost > 0 ? "{!cache=false cost=" + cost + "}" + clause : clause.toString());
+          }
+        }
+      }
+    }
+
+    if (scoring.length() == 0) {
+      scoring.append("*:*");
+    }
+
+    LOGGER.trace("Planning filter {} into query {} and filter queries {}", filter, scoring, filterQueries);
+    return new FilterQueryPlan(scoring.toString(), filterQueries);
+  }
+
+  private static void setQueryAndFilterQueries(SolrQuery query, Filter filter) throws RequestNotValidException {
+    FilterQueryPlan plan = planFilter(filter);
+    query.setQuery(plan.getQuery());
+    for (String filterQuery : plan.getFilterQueries()) {
+      query.addFilterQuery(filterQuery);
+    }
+  }
+
+  private static boolean isScoringFilterParameter(FilterParameter parameter) {
+    if (parameter instanceof BasicSearchFilterParameter) {
+      return true;
+    } else if (parameter instanceof FiltersParameters) {
+      for (FilterParameter child : ((FiltersParameters) parameter).getValues()) {
+        if (isScoringFilterParameter(child)) {
+          return true;
+        }
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the cost of a non cached filter query, or 0 if it should be cached
+   */
+  private static int getFilterParameterCost(FilterParameter parameter) {
+    int cost = 0;
+    if (parameter instanceof LongRangeFilterParameter) {
+      cost = 50;
+    } else if (parameter instanceof DateIntervalFilterParameter) {
+      cost = 100;
+    } else if (parameter instanceof FiltersParameters) {
+      for (FilterParameter child : ((FiltersParameters) parameter).getValues()) {
+        cost = Math.max(cost, getFilterParameterCost(child));
+      }
+    }
+    return cost;
+  }
+
   private static void parseFilterParameter(StringBuilder ret, FilterParameter parameter,
     boolean prefixWithANDOperatorIfBuilderNotEmpty) throws RequestNotValidException {
     if (parameter instanceof SimpleFilterParameter) {
@@ -1205,6 +1376,39 @@ public class SolrUtils {
         .setIngestSIPIds(ingestSIPIds).setIngestJobId(ingestJobId);
   }
 
+  private static IndexedAIP solrDocumentToProjectedIndexedAIP(SolrDocument doc) {
+    IndexedAIP aip = solrDocumentToIndexedAIP(doc, true);
+    aip.setState(objectToEnum(doc.get(RodaConstants.STATE), AIPState.class, null));
+    aip.setParentID(objectToString(doc.get(RodaConstants.AIP_PARENT_ID), null));
+    aip.setIngestSIPIds(objectToListStringOrNull(doc.get(RodaConstants.INGEST_SIP_IDS)));
+    aip.setIngestJobId(objectToString(doc.get(RodaConstants.INGEST_JOB_ID), null));
+    aip.setAncestors(objectToListStringOrNull(doc.get(RodaConstants.AIP_ANCESTORS)));
+    aip.setDateInitial(objectToDate(doc.get(RodaConstants.AIP_DATE_INITIAL)));
+    aip.setDateFinal(objectToDate(doc.get(RodaConstants.AIP_DATE_FINAL)));
+    aip.setNumberOfSubmissionFiles(objectToLong(doc.get(RodaConstants.AIP_NUMBER_OF_SUBMISSION_FILES), null));
+    aip.setNumberOfDocumentationFiles(objectToLong(doc.get(RodaConstants.AIP_NUMBER_OF_DOCUMENTATION_FILES), null));
+    aip.setNumberOfSchemaFiles(objectToLong(doc.get(RodaConstants.AIP_NUMBER_OF_SCHEMA_FILES), null));
+    aip.setHasRepresentations(objectToBoolean(doc.get(RodaConstants.AIP_HAS_REPRESENTATIONS), null));
+    aip.setGhost(objectToBoolean(doc.get(RodaConstants.AIP_GHOST), null));
+
+    List<String> titles = objectToListString(doc.get(RodaConstants.AIP_TITLE));
+    List<String> descriptions = objectToListString(doc.get(RodaConstants.AIP_DESCRIPTION));
+    List<String> levels = objectToListString(doc.get(RodaConstants.AIP_LEVEL));
+    aip.setTitle(titles.isEmpty() ? null : titles.get(0));
+    aip.setDescription(descriptions.isEmpty() ? null : descriptions.get(0));
+    if (Boolean.TRUE.equals(aip.getGhost())) {
+      aip.setLevel(RodaConstants.AIP_GHOST);
+    } else {
+      aip.setLevel(levels.isEmpty() ? null : levels.get(0));
+    }
+
+    boolean hasPermissions = doc.getFieldNames().stream()
+      .anyMatch(field -> field.startsWith(RodaConstants.INDEX_PERMISSION_USERS_PREFIX)
+        || field.startsWith(RodaConstants.INDEX_PERMISSION_GROUPS_PREFIX));
+    aip.setPermissions(hasPermissions ? getPermissions(doc) : null);
+    return aip;
+  }
+
   public static SolrInputDocument aipToSolrInputDocument(AIP aip, List<String> ancestors, ModelService model,
     boolean safemode)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
@@ -1320,6 +1524,20 @@ public class SolrUtils {
       totalNumberOfFiles, numberOfDocumentationFiles, numberOfSchemaFiles, ancestors);
   }
 
+  private static IndexedRepresentation solrDocumentToProjectedRepresentation(SolrDocument doc) {
+    IndexedRepresentation rep = solrDocumentToRepresentation(doc, true);
+    rep.setUUID(objectToString(doc.get(RodaConstants.INDEX_UUID), null));
+    rep.setOriginal(objectToBoolean(doc.get(RodaConstants.REPRESENTATION_ORIGINAL), Boolean.FALSE));
+    rep.setType(objectToString(doc.get(RodaConstants.REPRESENTATION_TYPE), null));
+    rep.setSizeInBytes(objectToLong(doc.get(RodaConstants.REPRESENTATION_SIZE_IN_BYTES), null));
+    rep.setNumberOfDataFiles(objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_DATA_FILES), null));
+    rep.setNumberOfDocumentationFiles(
+      objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_DOCUMENTATION_FILES), null));
+    rep.setNumberOfSchemaFiles(objectToLong(doc.get(RodaConstants.REPRESENTATION_NUMBER_OF_SCHEMA_FILES), null));
+    rep.setAncestors(objectToListStringOrNull(doc.get(RodaConstants.REPRESENTATION_ANCESTORS)));
+    return rep;
+  }
+
   public static SolrInputDocument representationToSolrDocument(AIP aip, Representation rep, Long sizeInBytes,
     Long numberOfDataFiles, Long numberOfDocumentationFiles, Long numberOfSchemaFiles, List<String> ancestors) {
     SolrInputDocument doc = new SolrInputDocument();
@@ -1466,6 +1684,42 @@ public class SolrUtils {
       dateCreatedByApplication, hash, storagePath, ancestors, otherProperties);
   }
 
+  private static IndexedFile solrDocumentToProjectedIndexedFile(SolrDocument doc) {
+    IndexedFile file = solrDocumentToIndexedFile(doc, true);
+    file.setRepresentationUUID(objectToString(doc.get(RodaConstants.FILE_REPRESENTATION_UUID), null));
+    file.setParentUUID(objectToString(doc.get(RodaConstants.FILE_PARENT_UUID), null));
+    file.setAncestorsPath(objectToListStringOrNull(doc.get(RodaConstants.FILE_ANCESTORS_PATH)));
+    file.setOriginalName(objectToString(doc.get(RodaConstants.FILE_ORIGINALNAME), null));
+    file.setHash(objectToListStringOrNull(doc.get(RodaConstants.FILE_HASH)));
+    file.setSize(objectToLong(doc.get(RodaConstants.FILE_SIZE), null));
+    file.setDirectory(objectToBoolean(doc.get(RodaConstants.FILE_ISDIRECTORY), Boolean.FALSE));
+    file.setStoragePath(objectToString(doc.get(RodaConstants.FILE_STORAGEPATH), null));
+    file.setCreatingApplicationName(objectToString(doc.get(RodaConstants.FILE_CREATING_APPLICATION_NAME), null));
+    file.setCreatingApplicationVersion(objectToString(doc.get(RodaConstants.FILE_CREATING_APPLICATION_VERSION), null));
+    file.setDateCreatedByApplication(objectToString(doc.get(RodaConstants.FILE_DATE_CREATED_BY_APPLICATION), null));
+    file.setAncestors(objectToListStringOrNull(doc.get(RodaConstants.FILE_ANCESTORS)));
+
+    String formatDesignationName = objectToString(doc.get(RodaConstants.FILE_FILEFORMAT), null);
+    String formatDesignationVersion = objectToString(doc.get(RodaConstants.FILE_FORMAT_VERSION), null);
+    String mimetype = objectToString(doc.get(RodaConstants.FILE_FORMAT_MIMETYPE), null);
+    String pronom = objectToString(doc.get(RodaConstants.FILE_PRONOM), null);
+    String extension = objectToString(doc.get(RodaConstants.FILE_EXTENSION), null);
+    if (formatDesignationName != null || formatDesignationVersion != null || mimetype != null || pronom != null
+      || extension != null) {
+      file.setFileFormat(new FileFormat(formatDesignationName, formatDesignationVersion, mimetype, pronom, extension,
+        new HashMap<>()));
+    }
+
+    Map<String, List<String>> otherProperties = new HashMap<>();
+    for (String fieldName : doc.getFieldNames()) {
+      if (fieldName.endsWith("_txt")) {
+        otherProperties.put(fieldName, objectToListString(doc.get(fieldName)));
+      }
+    }
+    file.setOtherProperties(otherProperties.isEmpty() ? null : otherProperties);
+    return file;
+  }
+
   public static SolrInputDocument addOtherPropertiesToIndexedFile(String prefix, OtherMetadata otherMetadataBinary,
     ModelService model, SolrClient index)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException,
@@ -2423,7 +2677,7 @@ public class SolrUtils {
 
   }
 
-  private static SolrInputDocument stateUpdateToSolrDocument(String uuid, AIPState state) {
+  public static SolrInputDocument stateUpdateToSolrDocument(String uuid, AIPState state) {
     SolrInputDocument doc = new SolrInputDocument();
     doc.addField(RodaConstants.INDEX_UUID, uuid);
     doc.addField(RodaConstants.STATE, set(state.toString()));
@@ -2459,6 +2713,12 @@ public class SolrUtils {
     return document;
   }
 
+  public static SolrInputDocument permissionsUpdateToSolrDocument(String uuid, Permissions permissions) {
+    SolrInputDocument document = new SolrInputDocument();
+    document.addField(RodaConstants.INDEX_UUID, uuid);
+    return permissionsUpdateToSolrDocument(document, permissions);
+  }
+
   private static SolrInputDocument permissionsUpdateToSolrDocument(SolrInputDocument doc, Permissions permissions) {
     for (Entry<PermissionType, Set<String>> entry : permissions.getUsers().entrySet()) {
       String key = RodaConstants.INDEX_PERMISSION_USERS_PREFIX + entry.getKey();
@@ -2508,6 +2768,38 @@ public class SolrUtils {
     return doc;
   }
 
+  public static SolrInputDocument representationUpdateToSolrDocument(AIP aip, Representation representation,
+    List<String> ancestors) {
+    SolrInputDocument doc = aipInheritedFieldsUpdateToSolrDocument(IdUtils.getRepresentationId(representation),
+      RodaConstants.REPRESENTATION_ANCESTORS, aip, ancestors);
+    doc.addField(RodaConstants.REPRESENTATION_ORIGINAL, set(representation.isOriginal()));
+    doc.addField(RodaConstants.REPRESENTATION_TYPE, set(representation.getType()));
+    return doc;
+  }
+
+  /**
+   * Partial update of the information that representations and files inherit
+   * from their AIP (state, ingest information, ancestors and permissions).
+   */
+  public static SolrInputDocument aipInheritedFieldsUpdateToSolrDocument(String uuid, String ancestorsField, AIP aip,
+    List<String> ancestors) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.INDEX_UUID, uuid);
+    doc.addField(RodaConstants.STATE, set(aip.getState().toString()));
+    doc.addField(RodaConstants.INGEST_SIP_IDS, set(aip.getIngestSIPIds()));
+    doc.addField(RodaConstants.INGEST_JOB_ID, set(aip.getIngestJobId()));
+    doc.addField(ancestorsField, set(ancestors));
+    return permissionsUpdateToSolrDocument(doc, aip.getPermissions());
+  }
+
+  public static SolrInputDocument ancestorsUpdateToSolrDocument(String uuid, String ancestorsField,
+    List<String> ancestors) {
+    SolrInputDocument doc = new SolrInputDocument();
+    doc.addField(RodaConstants.INDEX_UUID, uuid);
+    doc.addField(ancestorsField, set(ancestors));
+    return doc;
+  }
+
   public static Map<String, Object> set(Object value) {
     Map<String, Object> fieldModifier = new HashMap<>(1);
     // 20160511 this workaround fixes solr wrong behaviour with partial update
@@ -0,0 +1,45 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.util.Collections;
+
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.v2.IsModelObject;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.StorageService;
+
+import com.fasterxml.jackson.databind.node.ObjectNode;
+
+/**
+ * Migration of a model class stored as one JSON file per object directly under
+ * a container. As each object is migrated on its own, {@link MigrationManager}
+ * applies all the pending migrations of a class to an object at once (see
+ * {@link ModelMigration}), and may also apply them to objects read while the
+ * migration runs online, so migrating an object twice must not change it.
+ */
+public interface JsonMigrationAction<T extends IsModelObject> extends MigrationAction<T> {
+
+  /**
+   * @return the container with the JSON files of the objects to migrate
+   */
+  public StoragePath getContainerPath() throws RODAException;
+
+  /**
+   * Migrates the JSON of one object, in place or into a new node
+   *
+   * @return the migrated JSON
+   */
+  public ObjectNode migrate(ObjectNode object);
+
+  @Override
+  public default void migrate(StorageService storage) throws RODAException {
+    new ModelMigration(getClass().getName(), getContainerPath(), Collections.singletonList(this), null, 1)
+      .run(storage);
+  }
+}
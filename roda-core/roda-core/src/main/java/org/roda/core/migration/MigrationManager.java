@@ -12,17 +12,23 @@ import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import org.apache.commons.lang3.StringUtils;
 import org.apache.solr.client.solrj.SolrClient;
 import org.apache.solr.client.solrj.SolrRequest;
 import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.client.solrj.embedded.EmbeddedSolrServer;
 import org.apache.solr.client.solrj.request.schema.SchemaRequest;
 import org.apache.solr.common.util.NamedList;
 import org.reflections.Reflections;
@@ -37,21 +43,51 @@ import org.roda.core.data.v2.ModelInfo;
 import org.roda.core.data.v2.common.Pair;
 import org.roda.core.data.v2.formats.Format;
 import org.roda.core.data.v2.risks.Risk;
+import org.roda.core.index.IndexService;
 import org.roda.core.migration.model.FormatToVersion2;
 import org.roda.core.migration.model.RiskToVersion2;
+import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class MigrationManager {
   private static final Logger LOGGER = LoggerFactory.getLogger(MigrationManager.class);
 
+  private static final String MIGRATION_CHECKPOINTS_FOLDER = "migrations";
+  private static final int DEFAULT_MIGRATION_THREADS = 4;
+  // index versions before doc values were added, which installations that
+  // predate the recording of index versions have when running embedded Solr
+  private static final Map<String, Integer> UNRECORDED_INDEX_VERSIONS = new HashMap<>();
+  static {
+    UNRECORDED_INDEX_VERSIONS.put(RodaConstants.INDEX_AIP, 2);
+    UNRECORDED_INDEX_VERSIONS.put(RodaConstants.INDEX_REPRESENTATION, 2);
+    UNRECORDED_INDEX_VERSIONS.put(RodaConstants.INDEX_FILE, 4);
+    UNRECORDED_INDEX_VERSIONS.put(RodaConstants.INDEX_PRESERVATION_EVENTS, 4);
+  }
+
   private Path modelInfoFile;
   // map<model class, workflow>
   private Map<String, MigrationWorkflow> modelMigrations = new HashMap<>();
+  // map<index, schema versions that can be migrated online>
+  private Map<String, Set<Integer>> onlineIndexMigrations = new HashMap<>();
+  // indexes being migrated online, which need no other migration
+  private Set<String> indexesBeingMigrated = ConcurrentHashMap.newKeySet();
+  // model classes being migrated online, which need no other migration
+  private Set<String> modelClassesBeingMigrated = ConcurrentHashMap.newKeySet();
+  // installed before index versions were recorded (checked before this
+  // manager records anything)
+  private boolean installedWithoutIndexVersions = false;
 
   public MigrationManager(Path dataFolder) {
     super();
     this.modelInfoFile = dataFolder.resolve("model.json");
+    try {
+      ModelInfo info = readModelInfo();
+      installedWithoutIndexVersions = info.getInstalledClassesVersions() != null
+        && !info.getInstalledClassesVersions().isEmpty() && info.getInstalledIndexVersions() == null;
+    } catch (GenericException e) {
+      LOGGER.warn("Could not read model info from {}", modelInfoFile, e);
+    }
   }
 
   // 20161031 hsilva: this method is not invoked in the constructor as it might
@@ -61,6 +97,33 @@ public class MigrationManager {
     addModelMigration(Format.class, 2, FormatToVersion2.class);
   }
 
+  /**
+   * Index schema versions that only change how the stored fields are indexed
+   * (e.g. doc values), so that the documents already in the index can be
+   * copied into an index with the new schema, instead of being reindexed from
+   * the storage. See {@link #startOnlineIndexMigrations(IndexService, SolrClient, Optional)}.
+   */
+  public void setupIndexMigrations() {
+    addOnlineIndexMigration(RodaConstants.INDEX_AIP, 3);
+    addOnlineIndexMigration(RodaConstants.INDEX_REPRESENTATION, 3);
+    addOnlineIndexMigration(RodaConstants.INDEX_FILE, 5);
+    addOnlineIndexMigration(RodaConstants.INDEX_PRESERVATION_EVENTS, 5);
+  }
+
+  private void addOnlineIndexMigration(final String indexName, final int toVersion) {
+    onlineIndexMigrations.computeIfAbsent(indexName, k -> new HashSet<>()).add(toVersion);
+  }
+
+  private boolean canMigrateIndexOnline(String indexName, int fromVersion, int toVersion) {
+    Set<Integer> versions = onlineIndexMigrations.getOrDefault(indexName, Collections.emptySet());
+    for (int version = fromVersion + 1; version <= toVersion; version++) {
+      if (!versions.contains(version)) {
+        return false;
+      }
+    }
+    return fromVersion < toVersion;
+  }
+
   private <T extends IsModelObject> void addModelMigration(final Class<T> clazz, final int toVersion,
     final Class<? extends MigrationAction<T>> migrationClass) throws GenericException {
     String className = clazz.getName();
@@ -103,18 +166,12 @@ public class MigrationManager {
   private boolean isModelMigrationNecessary() throws GenericException {
     boolean migrationIsNecessary = false;
     Map<String, Integer> modelClassesVersionsFromCode = getModelClassesVersionsFromCode(true, "Indexed");
-    Map<String, Integer> modelClassesVersionsInstalled = new HashMap<>();
-
-    if (Files.exists(modelInfoFile)) {
-      modelClassesVersionsInstalled = JsonUtils.getObjectFromJson(modelInfoFile, ModelInfo.class)
-        .getInstalledClassesVersions();
-    }
+    Map<String, Integer> modelClassesVersionsInstalled = readModelInfo().getInstalledClassesVersions();
 
-    if (modelClassesVersionsInstalled.isEmpty()) {
+    if (modelClassesVersionsInstalled == null || modelClassesVersionsInstalled.isEmpty()) {
       // no information, lets assume first RODA execution
       LOGGER.info("No model info. available. Writing initial model info. to file {}", modelInfoFile);
-      JsonUtils.writeObjectToFile(new ModelInfo().setInstalledClassesVersions(modelClassesVersionsFromCode),
-        modelInfoFile);
+      updateModelInfo(info -> info.setInstalledClassesVersions(modelClassesVersionsFromCode));
     } else {
       // information exists in file, lets see if any migration is needed
       for (Entry<String, Integer> classVersionFromCode : modelClassesVersionsFromCode.entrySet()) {
@@ -123,8 +180,10 @@ public class MigrationManager {
 
         LOGGER.debug("Checking if model class '{}' requires to do a migration...", classFromCode);
 
-        // previous information about a class already exists
-        if (modelClassesVersionsInstalled.containsKey(classFromCode)) {
+        if (modelClassesBeingMigrated.contains(classFromCode)) {
+          LOGGER.info("Model class '{}' is being migrated online to version {}", classFromCode, versionFromCode);
+        } else if (modelClassesVersionsInstalled.containsKey(classFromCode)) {
+          // previous information about a class already exists
           int versionInstalled = modelClassesVersionsInstalled.get(classFromCode);
           if (versionInstalled != versionFromCode) {
             LOGGER.warn(
@@ -169,8 +228,15 @@ public class MigrationManager {
     return ret;
   }
 
-  public void performModelMigrations() throws GenericException {
+  /**
+   * Performs the pending model migrations. Consecutive
+   * {@link JsonMigrationAction}s of a class are applied to each object at once,
+   * objects are migrated in parallel and, if interrupted, the migration resumes
+   * with the objects not yet migrated (see {@link ModelMigration}).
+   */
+  public synchronized void performModelMigrations() throws GenericException {
     ModelInfo modelInfo = JsonUtils.getObjectFromJson(modelInfoFile, ModelInfo.class);
+    StorageService storage = RodaCoreFactory.getStorageService();
 
     // perform migrations
     for (Entry<String, MigrationWorkflow> classMigrations : modelMigrations.entrySet()) {
@@ -185,50 +251,186 @@ public class MigrationManager {
       }
 
       LOGGER.info("Performing migration for class '{}'", className);
-      for (Pair<Integer, Class<? extends MigrationAction>> classMigration : migrationWorkflow.getMigrations()) {
-        Integer toVersion = classMigration.getFirst();
-        Class<? extends MigrationAction> migrationClass = classMigration.getSecond();
+      try {
+        List<JsonMigrationAction<?>> fusedMigrations = new ArrayList<>();
+        int fusedToVersion = installedVersion;
+        for (Pair<Integer, MigrationAction<?>> classMigration : getPendingMigrations(migrationWorkflow,
+          installedVersion)) {
+          Integer toVersion = classMigration.getFirst();
+          MigrationAction<?> migrationAction = classMigration.getSecond();
+
+          if (migrationAction instanceof JsonMigrationAction) {
+            fusedMigrations.add((JsonMigrationAction<?>) migrationAction);
+            fusedToVersion = toVersion;
+          } else {
+            performJsonMigrations(storage, className, fusedMigrations, fusedToVersion);
+            fusedMigrations.clear();
 
-        // see if there is no need to perform this particular migration
-        if (installedVersion >= toVersion) {
-          continue;
+            LOGGER.info("Migrating to version {} using class '{}'", toVersion, migrationAction.getClass().getName());
+            migrationAction.migrate(storage);
+            recordModelClassVersion(className, toVersion);
+            LOGGER.info("Migrated with success to version {}", toVersion);
+          }
         }
+        performJsonMigrations(storage, className, fusedMigrations, fusedToVersion);
+      } catch (RODAException e) {
+        LOGGER.error("Error executing migrations of class '{}'. Stopping migrations for this class.", className, e);
+      }
+      LOGGER.info("Done migrating class '{}'", className);
+    }
+  }
 
-        LOGGER.info("Migrating to version {} using class '{}'", toVersion, migrationClass.getName());
-        try {
-          // migrate
-          migrationClass.newInstance().migrate(RodaCoreFactory.getStorageService());
-          LOGGER.info("Migrated with success to version {}", toVersion);
-
-          // update class specific version after successful migration
-          modelInfo.getInstalledClassesVersions().put(className, toVersion);
-        } catch (InstantiationException | IllegalAccessException e) {
-          LOGGER.error("Error instantiating migration action class '{}' (which migrates to version {})",
-            migrationClass.getName(), toVersion, e);
-          break;
-        } catch (RODAException e) {
-          LOGGER.error("Error executing migration action '{}'. Stopping migrations for class '{}'.",
-            migrationClass.getName(), className);
-          break;
+  private void performJsonMigrations(StorageService storage, String className, List<JsonMigrationAction<?>> migrations,
+    int toVersion) throws RODAException {
+    if (migrations.isEmpty()) {
+      return;
+    }
+
+    LOGGER.info("Migrating to version {} using classes {} in a single pass", toVersion, getClassNames(migrations));
+    long failed = createModelMigration(className, migrations, toVersion).run(storage);
+    if (failed > 0) {
+      throw new GenericException("Could not migrate " + failed + " objects of class '" + className + "' to version "
+        + toVersion + ", they will be migrated when the migration is run again");
+    }
+    recordModelClassVersion(className, toVersion);
+    LOGGER.info("Migrated with success to version {}", toVersion);
+  }
+
+  /**
+   * Starts migrating, in the background, the model classes whose pending
+   * migrations are all {@link JsonMigrationAction}s. Until a class is migrated,
+   * its objects are migrated as they are read (see
+   * {@link ModelMigration#getObjectFromJson(java.io.InputStream, Class)}) and it
+   * needs no other migration.
+   */
+  public void startOnlineModelMigrations(final StorageService storage) {
+    Map<String, Integer> installedVersions;
+    try {
+      installedVersions = readModelInfo().getInstalledClassesVersions();
+    } catch (GenericException e) {
+      LOGGER.warn("Could not read installed model versions from {}", modelInfoFile, e);
+      return;
+    }
+    if (installedVersions == null || installedVersions.isEmpty()) {
+      return;
+    }
+
+    final Map<String, Pair<ModelMigration, Integer>> migrations = new LinkedHashMap<>();
+    for (Entry<String, MigrationWorkflow> classMigrations : modelMigrations.entrySet()) {
+      String className = classMigrations.getKey();
+      MigrationWorkflow migrationWorkflow = classMigrations.getValue();
+      int installedVersion = installedVersions.getOrDefault(className, Integer.MAX_VALUE);
+      if (installedVersion >= migrationWorkflow.getLastToVersion()) {
+        continue;
+      }
+
+      try {
+        List<Pair<Integer, MigrationAction<?>>> pendingMigrations = getPendingMigrations(migrationWorkflow,
+          installedVersion);
+        List<JsonMigrationAction<?>> jsonMigrations = new ArrayList<>();
+        for (Pair<Integer, MigrationAction<?>> classMigration : pendingMigrations) {
+          if (classMigration.getSecond() instanceof JsonMigrationAction) {
+            jsonMigrations.add((JsonMigrationAction<?>) classMigration.getSecond());
+          }
+        }
+
+        int toVersion = migrationWorkflow.getLastToVersion();
+        if (jsonMigrations.size() == pendingMigrations.size()) {
+          migrations.put(className, new Pair<>(createModelMigration(className, jsonMigrations, toVersion), toVersion));
+        } else {
+          LOGGER.info("Class '{}' cannot be migrated online to version {}", className, toVersion);
         }
+      } catch (RODAException e) {
+        LOGGER.error("Could not prepare the online migration of class '{}'", className, e);
       }
-      LOGGER.info("Done migrating class '{}'", className);
     }
 
-    // update model info. file
-    JsonUtils.writeObjectToFile(modelInfo, modelInfoFile);
+    if (!migrations.isEmpty()) {
+      for (Entry<String, Pair<ModelMigration, Integer>> migration : migrations.entrySet()) {
+        migration.getValue().getFirst().startOnline();
+        modelClassesBeingMigrated.add(migration.getKey());
+      }
+
+      Thread migrationThread = new Thread(() -> {
+        for (Entry<String, Pair<ModelMigration, Integer>> migration : migrations.entrySet()) {
+          String className = migration.getKey();
+          ModelMigration modelMigration = migration.getValue().getFirst();
+          try {
+            LOGGER.info("Migrating class '{}' online to version {}", className, migration.getValue().getSecond());
+            long failed = modelMigration.run(storage);
+            if (failed == 0) {
+              recordModelClassVersion(className, migration.getValue().getSecond());
+            } else {
+              LOGGER.error("Could not migrate {} objects of class '{}' online, they will be retried on the next start",
+                failed, className);
+            }
+          } catch (GenericException | RuntimeException e) {
+            LOGGER.error("Error migrating class '{}' online, it will be retried on the next start", className, e);
+          } finally {
+            modelMigration.stopOnline();
+            modelClassesBeingMigrated.remove(className);
+          }
+        }
+      }, "model-migration");
+      migrationThread.setDaemon(true);
+      migrationThread.start();
+    }
+  }
+
+  private List<Pair<Integer, MigrationAction<?>>> getPendingMigrations(MigrationWorkflow migrationWorkflow,
+    int installedVersion) throws GenericException {
+    List<Pair<Integer, MigrationAction<?>>> pending = new ArrayList<>();
+    for (Pair<Integer, Class<? extends MigrationAction>> classMigration : migrationWorkflow.getMigrations()) {
+      Integer toVersion = classMigration.getFirst();
+      Class<? extends MigrationAction> migrationClass = classMigration.getSecond();
+
+      // see if there is no need to perform this particular migration
+      if (installedVersion >= toVersion) {
+        continue;
+      }
+
+      try {
+        pending.add(new Pair<>(toVersion, (MigrationAction<?>) migrationClass.newInstance()));
+      } catch (InstantiationException | IllegalAccessException e) {
+        LOGGER.error("Error instantiating migration action class '{}' (which migrates to version {})",
+          migrationClass.getName(), toVersion, e);
+        throw new GenericException("Error instantiating migration action class '" + migrationClass.getName()
+          + "' (which migrates to version '" + toVersion + "')");
+      }
+    }
+    return pending;
+  }
+
+  private ModelMigration createModelMigration(String className, List<JsonMigrationAction<?>> migrations,
+    int toVersion) throws RODAException {
+    Path checkpointFile = modelInfoFile.resolveSibling(MIGRATION_CHECKPOINTS_FOLDER)
+      .resolve(className + "-" + toVersion + ".checkpoint");
+    int threads = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_MIGRATION_THREADS, "core", "migration", "model",
+      "threads");
+    return new ModelMigration(className, migrations.get(0).getContainerPath(), migrations, checkpointFile, threads);
+  }
+
+  private static List<String> getClassNames(List<? extends MigrationAction<?>> migrations) {
+    List<String> classNames = new ArrayList<>();
+    for (MigrationAction<?> migration : migrations) {
+      classNames.add(migration.getClass().getName());
+    }
+    return classNames;
+  }
+
+  private void recordModelClassVersion(String className, int version) throws GenericException {
+    updateModelInfo(info -> info.getInstalledClassesVersions().put(className, version));
   }
 
   private boolean isIndexMigrationNecessary(SolrClient solrClient, Optional<Path> tempIndexConfigsPath)
     throws GenericException {
     boolean migrationIsNecessary = false;
     if (tempIndexConfigsPath.isPresent()) {
-      Path indexConfigsFolder = tempIndexConfigsPath.get().resolve(RodaConstants.CORE_CONFIG_FOLDER)
-        .resolve(RodaConstants.CORE_INDEX_FOLDER);
+      Path indexConfigsFolder = getIndexConfigsFolder(tempIndexConfigsPath.get());
       List<String> solrCollections = getSolrCollections(indexConfigsFolder);
 
       Map<String, Integer> indexVersionsFromCode = getIndexVersionsFromCode(indexConfigsFolder, solrCollections);
-      Map<String, Integer> indexVersionsInstalled = getIndexVersionsFromSolr(solrClient, solrCollections);
+      Map<String, Integer> indexVersionsInstalled = getInstalledIndexVersions(solrClient, solrCollections);
 
       if (indexVersionsFromCode.isEmpty() || indexVersionsInstalled.isEmpty()) {
         LOGGER.error("Unable to determine if index migration/migrations is/are needed");
@@ -237,9 +439,12 @@ public class MigrationManager {
         for (Entry<String, Integer> indexFromCode : indexVersionsFromCode.entrySet()) {
           String collection = indexFromCode.getKey();
           Integer collectionVersionFromCode = indexFromCode.getValue();
-          if (indexVersionsInstalled.containsKey(collection)) {
+          if (indexesBeingMigrated.contains(collection)) {
+            LOGGER.info("Collection '{}' is being migrated online to version {}", collection,
+              collectionVersionFromCode);
+          } else if (indexVersionsInstalled.containsKey(collection)) {
             Integer collectionVersionInstalled = indexVersionsInstalled.get(collection);
-            if (collectionVersionFromCode != collectionVersionInstalled) {
+            if (collectionVersionFromCode.intValue() != collectionVersionInstalled.intValue()) {
               LOGGER.warn(
                 "A migration is needed! Collection '{}' version is set to {} in code schema.xml & installed version (Solr deployed) is set to {}",
                 collection, collectionVersionFromCode, collectionVersionInstalled);
@@ -252,6 +457,14 @@ public class MigrationManager {
             migrationIsNecessary = true;
           }
         }
+
+        if (!migrationIsNecessary) {
+          // so that later schema changes are noticed even with embedded Solr,
+          // which always runs the schema from the code
+          Map<String, Integer> upToDateVersions = new HashMap<>(indexVersionsFromCode);
+          upToDateVersions.keySet().removeAll(indexesBeingMigrated);
+          recordIndexVersions(upToDateVersions);
+        }
       }
     } else {
       LOGGER.error("Unable to determine Solr collections via folder with index configs");
@@ -261,6 +474,149 @@ public class MigrationManager {
     return migrationIsNecessary;
   }
 
+  /**
+   * Starts migrating, in the background, the indexes whose installed schema
+   * version can be migrated online to the version in the code (see
+   * {@link #setupIndexMigrations()}). Each index is rebuilt aside, in a shadow
+   * index with the new schema, by copying its documents while the live index
+   * keeps being used (and updated, with updates mirrored into the shadow), and
+   * then swapped with the live one.
+   */
+  public void startOnlineIndexMigrations(final IndexService index, final SolrClient solrClient,
+    final Optional<Path> tempIndexConfigsPath) {
+    if (!tempIndexConfigsPath.isPresent()) {
+      return;
+    }
+
+    final Path indexConfigsFolder = getIndexConfigsFolder(tempIndexConfigsPath.get());
+    List<String> solrCollections = getSolrCollections(indexConfigsFolder);
+    final Map<String, Integer> indexVersionsFromCode = getIndexVersionsFromCode(indexConfigsFolder, solrCollections);
+    Map<String, Integer> indexVersionsInstalled = getInstalledIndexVersions(solrClient, solrCollections);
+
+    final List<String> collections = new ArrayList<>();
+    for (Entry<String, Integer> indexFromCode : indexVersionsFromCode.entrySet()) {
+      Integer versionInstalled = indexVersionsInstalled.get(indexFromCode.getKey());
+      if (versionInstalled != null
+        && canMigrateIndexOnline(indexFromCode.getKey(), versionInstalled, indexFromCode.getValue())) {
+        collections.add(indexFromCode.getKey());
+      }
+    }
+
+    if (!collections.isEmpty()) {
+      indexesBeingMigrated.addAll(collections);
+      Thread migration = new Thread(() -> {
+        try {
+          migrateIndexes(index, collections, indexConfigsFolder, indexVersionsFromCode);
+        } catch (GenericException | RuntimeException e) {
+          LOGGER.error("Error migrating indexes {} online, it will be retried on the next start", collections, e);
+        } finally {
+          indexesBeingMigrated.removeAll(collections);
+        }
+      }, "index-migration");
+      migration.setDaemon(true);
+      migration.start();
+    }
+  }
+
+  /**
+   * Migrates the given indexes to the schema version in the code, copying their
+   * documents into a new index (as the online migrations do), whatever their
+   * installed version is. Only works if all their indexed fields are stored.
+   */
+  public void performIndexMigrations(final IndexService index, final List<String> collections,
+    final Optional<Path> tempIndexConfigsPath) throws GenericException {
+    if (!tempIndexConfigsPath.isPresent()) {
+      throw new GenericException("Unable to determine Solr collections via folder with index configs");
+    }
+
+    Path indexConfigsFolder = getIndexConfigsFolder(tempIndexConfigsPath.get());
+    migrateIndexes(index, collections, indexConfigsFolder, getIndexVersionsFromCode(indexConfigsFolder, collections));
+  }
+
+  private void migrateIndexes(IndexService index, List<String> collections, Path indexConfigsFolder,
+    Map<String, Integer> indexVersionsFromCode) throws GenericException {
+    LOGGER.info("Migrating indexes {}", collections);
+    long start = System.currentTimeMillis();
+    index.startShadowReindex(collections, indexConfigsFolder);
+    try {
+      for (String collection : collections) {
+        index.copyIntoShadow(collection);
+      }
+      index.finishShadowReindex(true);
+    } catch (GenericException e) {
+      index.abortShadowReindex();
+      throw e;
+    }
+
+    Map<String, Integer> migratedVersions = new HashMap<>();
+    for (String collection : collections) {
+      migratedVersions.put(collection, indexVersionsFromCode.get(collection));
+    }
+    recordIndexVersions(migratedVersions);
+    LOGGER.info("Migrated indexes {} in {} ms", migratedVersions, System.currentTimeMillis() - start);
+  }
+
+  private static Path getIndexConfigsFolder(Path tempIndexConfigsPath) {
+    return tempIndexConfigsPath.resolve(RodaConstants.CORE_CONFIG_FOLDER).resolve(RodaConstants.CORE_INDEX_FOLDER);
+  }
+
+  /**
+   * @return the index versions recorded after previous checks or migrations,
+   *         or the ones reported by Solr for the indexes never recorded. As
+   *         embedded Solr always reports the versions in the code, indexes
+   *         never recorded of an installation that predates the recording of
+   *         index versions are assumed to have the versions before doc values
+   *         were added (so that they are migrated instead of recorded as up to
+   *         date)
+   */
+  private Map<String, Integer> getInstalledIndexVersions(SolrClient solrClient, List<String> collections) {
+    Map<String, Integer> ret = getIndexVersionsFromSolr(solrClient, collections);
+    try {
+      Map<String, Integer> recorded = readModelInfo().getInstalledIndexVersions();
+      boolean assumeUnrecorded = installedWithoutIndexVersions && solrClient instanceof EmbeddedSolrServer;
+      Map<String, Integer> assumed = new HashMap<>();
+      for (String collection : collections) {
+        if (recorded != null && recorded.containsKey(collection)) {
+          ret.put(collection, recorded.get(collection));
+        } else if (assumeUnrecorded && UNRECORDED_INDEX_VERSIONS.containsKey(collection)) {
+          assumed.put(collection, UNRECORDED_INDEX_VERSIONS.get(collection));
+        }
+      }
+
+      if (!assumed.isEmpty()) {
+        LOGGER.info("No index versions recorded for an existing installation, assuming versions {}", assumed);
+        // recorded, so that they are still assumed if the migration fails
+        recordIndexVersions(assumed);
+        ret.putAll(assumed);
+      }
+    } catch (GenericException e) {
+      LOGGER.warn("Could not read installed index versions from {}", modelInfoFile, e);
+    }
+    return ret;
+  }
+
+  private void recordIndexVersions(Map<String, Integer> indexVersions) throws GenericException {
+    updateModelInfo(info -> {
+      Map<String, Integer> installed = info.getInstalledIndexVersions() != null ? info.getInstalledIndexVersions()
+        : new HashMap<>();
+      installed.putAll(indexVersions);
+      info.setInstalledIndexVersions(installed);
+    });
+  }
+
+  private synchronized ModelInfo readModelInfo() throws GenericException {
+    if (Files.exists(modelInfoFile)) {
+      return JsonUtils.getObjectFromJson(modelInfoFile, ModelInfo.class);
+    }
+    return new ModelInfo();
+  }
+
+  private synchronized void updateModelInfo(Consumer<ModelInfo> update) throws GenericException {
+    ModelInfo modelInfo = readModelInfo();
+    update.accept(modelInfo);
+    JsonUtils.writeObjectToFile(modelInfo, modelInfoFile);
+  }
+
   private List<String> getSolrCollections(Path indexConfigsFolder) {
     List<String> solrCollections = new ArrayList<>();
     try (DirectoryStream<Path> stream = Files.newDirectoryStream(indexConfigsFolder)) {
@@ -0,0 +1,293 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.migration;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.apache.commons.io.IOUtils;
+import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.data.exceptions.AuthorizationDeniedException;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.data.exceptions.NotFoundException;
+import org.roda.core.data.exceptions.RODAException;
+import org.roda.core.data.exceptions.RequestNotValidException;
+import org.roda.core.data.utils.JsonUtils;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.Binary;
+import org.roda.core.storage.Resource;
+import org.roda.core.storage.StorageService;
+import org.roda.core.storage.StringContentPayload;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Applies several {@link JsonMigrationAction}s of a model class to all its
+ * objects in a single pass: each object is read, migrated by all the actions,
+ * in order, and written once. Objects are migrated in parallel and each
+ * migrated object is recorded in a checkpoint file, so that an interrupted
+ * migration resumes with the objects still to migrate.
+ *
+ * While a migration runs online (see {@link #startOnline()}), the objects of
+ * its class read with {@link #getObjectFromJson(InputStream, Class)} are
+ * migrated as they are read.
+ */
+public class ModelMigration {
+  private static final Logger LOGGER = LoggerFactory.getLogger(ModelMigration.class);
+
+  private static final long PROGRESS_INTERVAL_MINUTES = 1;
+
+  // model class name -> migration running online
+  private static final Map<String, ModelMigration> onlineMigrations = new ConcurrentHashMap<>();
+
+  private final String className;
+  private final StoragePath containerPath;
+  private final List<JsonMigrationAction<?>> actions;
+  private final Path checkpointFile;
+  private final int threads;
+
+  private final Set<String> migrated = ConcurrentHashMap.newKeySet();
+  private final AtomicLong failed = new AtomicLong(0);
+
+  /**
+   * @param className
+   *          the model class being migrated
+   * @param containerPath
+   *          the container with the JSON files of its objects
+   * @param actions
+   *          the migrations to apply, in order
+   * @param checkpointFile
+   *          where migrated objects are recorded, or null to always migrate
+   *          all objects
+   * @param threads
+   *          number of objects migrated in parallel
+   */
+  public ModelMigration(String className, StoragePath containerPath, List<? extends JsonMigrationAction<?>> actions,
+    Path checkpointFile, int threads) {
+    this.className = className;
+    this.containerPath = containerPath;
+    this.actions = new ArrayList<>(actions);
+    this.checkpointFile = checkpointFile;
+    this.threads = threads > 0 ? threads : 1;
+  }
+
+  /**
+   * @return the JSON of an object migrated by all the actions
+   */
+  public ObjectNode migrate(ObjectNode object) {
+    ObjectNode ret = object;
+    for (JsonMigrationAction<?> action : actions) {
+      ret = action.migrate(ret);
+    }
+    return ret;
+  }
+
+  /**
+   * Migrates all the objects not yet recorded in the checkpoint file, which is
+   * removed once every object is migrated.
+   *
+   * @return the number of objects that could not be migrated (and will be
+   *         migrated again on the next run)
+   */
+  public long run(StorageService storage) throws GenericException {
+    loadCheckpoint();
+    int alreadyMigrated = migrated.size();
+    if (alreadyMigrated > 0) {
+      LOGGER.info("Resuming migration of class '{}', {} objects were already migrated", className, alreadyMigrated);
+    }
+
+    Writer checkpoint = openCheckpoint();
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("model-migration-%d").setDaemon(true).build());
+    // so that huge containers are not listed into memory ahead of the workers
+    Semaphore pending = new Semaphore(threads * 4);
+    CloseableIterable<Resource> resources = null;
+
+    try {
+      resources = storage.listResourcesUnderDirectory(containerPath, false);
+      for (Resource resource : resources) {
+        if (!resource.isDirectory() && resource instanceof Binary
+          && !migrated.contains(resource.getStoragePath().getName())) {
+          pending.acquire();
+          executor.execute(() -> {
+            try {
+              migrate(storage, (Binary) resource, checkpoint);
+            } finally {
+              pending.release();
+            }
+          });
+        }
+      }
+    } catch (NotFoundException e) {
+      LOGGER.warn("Could not find resource", e);
+    } catch (AuthorizationDeniedException | RequestNotValidException e) {
+      throw new GenericException("Could not list objects of class '" + className + "' to migrate", e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while migrating class '" + className + "'", e);
+    } finally {
+      IOUtils.closeQuietly(resources);
+      awaitTermination(executor, alreadyMigrated);
+      IOUtils.closeQuietly(checkpoint);
+    }
+
+    LOGGER.info("Migrated {} objects of class '{}' ({} failed)", migrated.size() - alreadyMigrated, className,
+      failed.get());
+    if (failed.get() == 0 && checkpointFile != null) {
+      try {
+        Files.deleteIfExists(checkpointFile);
+      } catch (IOException e) {
+        LOGGER.warn("Could not delete migration checkpoint {}", checkpointFile, e);
+      }
+    }
+    return failed.get();
+  }
+
+  private void migrate(StorageService storage, Binary binary, Writer checkpoint) {
+    StoragePath path = binary.getStoragePath();
+    try {
+      byte[] original = readContent(binary);
+      JsonNode json = JsonUtils.parseJson(new ByteArrayInputStream(original));
+      if (json instanceof ObjectNode) {
+        StringContentPayload payload = new StringContentPayload(JsonUtils.getJsonFromNode(migrate((ObjectNode) json)));
+        // objects updated meanwhile (online, through the model) were migrated
+        // when read and must not be overwritten with their older content
+        if (Arrays.equals(original, readContent(storage.getBinary(path)))) {
+          boolean asReference = false;
+          boolean createIfNotExists = false;
+          storage.updateBinaryContent(path, payload, asReference, createIfNotExists);
+        } else {
+          LOGGER.debug("Not migrating {} because it was updated meanwhile", path);
+        }
+      } else {
+        LOGGER.error("Could not migrate {} because the JSON is not an object node", path);
+      }
+      recordMigrated(path.getName(), checkpoint);
+    } catch (IOException | RODAException | RuntimeException e) {
+      LOGGER.error("Could not migrate {}", path, e);
+      failed.incrementAndGet();
+    }
+  }
+
+  private static byte[] readContent(Binary binary) throws IOException {
+    try (InputStream inputStream = binary.getContent().createInputStream()) {
+      return IOUtils.toByteArray(inputStream);
+    }
+  }
+
+  private void recordMigrated(String id, Writer checkpoint) {
+    migrated.add(id);
+    if (checkpoint != null) {
+      synchronized (checkpoint) {
+        try {
+          checkpoint.write(id);
+          checkpoint.write('\n');
+          checkpoint.flush();
+        } catch (IOException e) {
+          // it will be migrated again if the migration is interrupted
+          LOGGER.warn("Could not record {} in migration checkpoint {}", id, checkpointFile, e);
+        }
+      }
+    }
+  }
+
+  private void loadCheckpoint() throws GenericException {
+    if (checkpointFile != null && Files.exists(checkpointFile)) {
+      try (Stream<String> lines = Files.lines(checkpointFile, StandardCharsets.UTF_8)) {
+        lines.filter(line -> !line.isEmpty()).forEach(migrated::add);
+      } catch (IOException e) {
+        throw new GenericException("Could not read migration checkpoint " + checkpointFile, e);
+      }
+    }
+  }
+
+  private Writer openCheckpoint() throws GenericException {
+    if (checkpointFile == null) {
+      return null;
+    }
+
+    try {
+      Files.createDirectories(checkpointFile.getParent());
+      return Files.newBufferedWriter(checkpointFile, StandardCharsets.UTF_8, StandardOpenOption.CREATE,
+        StandardOpenOption.APPEND);
+    } catch (IOException e) {
+      throw new GenericException("Could not open migration checkpoint " + checkpointFile, e);
+    }
+  }
+
+  private void awaitTermination(ExecutorService executor, int alreadyMigrated) {
+    executor.shutdown();
+    try {
+      while (!executor.awaitTermination(PROGRESS_INTERVAL_MINUTES, TimeUnit.MINUTES)) {
+        LOGGER.info("Migrating class '{}', {} objects migrated so far ({} failed)", className,
+          migrated.size() - alreadyMigrated, failed.get());
+      }
+    } catch (InterruptedException e) {
+      executor.shutdownNow();
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  /**
+   * Makes the objects of the class of this migration be migrated when read
+   * with {@link #getObjectFromJson(InputStream, Class)}, until
+   * {@link #stopOnline()}.
+   */
+  public void startOnline() {
+    onlineMigrations.put(className, this);
+  }
+
+  public void stopOnline() {
+    onlineMigrations.remove(className, this);
+  }
+
+  /**
+   * Reads a model object from its JSON, migrating it first if its class is
+   * being migrated online. The stream is closed.
+   */
+  public static <T> T getObjectFromJson(InputStream json, Class<T> objectClass) throws GenericException {
+    ModelMigration migration = onlineMigrations.get(objectClass.getName());
+    if (migration == null) {
+      return JsonUtils.getObjectFromJson(json, objectClass);
+    }
+
+    try {
+      JsonNode node = JsonUtils.parseJson(json);
+      if (node instanceof ObjectNode) {
+        node = migration.migrate((ObjectNode) node);
+      }
+      return JsonUtils.getReader(objectClass).readValue(node);
+    } catch (IOException e) {
+      throw new GenericException("Error while parsing JSON", e);
+    } finally {
+      IOUtils.closeQuietly(json);
+    }
+  }
+}
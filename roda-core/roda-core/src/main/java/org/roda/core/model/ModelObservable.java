@@ -56,6 +56,12 @@ public abstract class ModelObservable {
     }
   }
 
+  public void notifyAipContentUpdated(AIP aip) {
+    for (ModelObserver observer : observers) {
+      observer.aipContentUpdated(aip);
+    }
+  }
+
   public void notifyAipMoved(AIP aip, String oldParentId, String newParentId) {
     for (ModelObserver observer : observers) {
       observer.aipMoved(aip, oldParentId, newParentId);
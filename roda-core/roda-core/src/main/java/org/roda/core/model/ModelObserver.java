@@ -34,6 +34,8 @@ public interface ModelObserver {
 
   public void aipUpdated(AIP aip);
 
+  public void aipContentUpdated(AIP aip);
+
   public void aipStateUpdated(AIP aip);
 
   public void aipMoved(AIP aip, String oldParentId, String newParentId);
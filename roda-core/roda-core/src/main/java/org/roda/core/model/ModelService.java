@@ -90,6 +90,7 @@ import org.roda.core.data.v2.user.RODAMember;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.data.v2.validation.ValidationReport;
+import org.roda.core.migration.ModelMigration;
 import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.model.utils.ResourceListUtils;
 import org.roda.core.model.utils.ResourceParseUtils;
@@ -367,7 +368,7 @@ public class ModelService extends ModelObservable {
   public AIP notifyAIPUpdated(String aipId)
     throws RequestNotValidException, GenericException, NotFoundException, AuthorizationDeniedException {
     AIP aip = ResourceParseUtils.getAIPMetadata(getStorage(), aipId);
-    notifyAipUpdated(aip);
+    notifyAipContentUpdated(aip);
     return aip;
   }
 
@@ -424,7 +425,7 @@ public class ModelService extends ModelObservable {
       aip = ResourceParseUtils.getAIPMetadata(getStorage(), directoryUpdated.getStoragePath());
       aip.setUpdatedBy(updatedBy);
       aip.setUpdatedOn(new Date());
-      notifyAipUpdated(aip);
+      notifyAipContentUpdated(aip);
     } else {
       throw new ValidationException(validationReport);
     }
@@ -433,11 +434,27 @@ public class ModelService extends ModelObservable {
   }
 
   public AIP updateAIP(AIP aip, String updatedBy)
+    throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
+    boolean contentUpdated = false;
+    return updateAIP(aip, updatedBy, contentUpdated);
+  }
+
+  /**
+   * @param contentUpdated
+   *          true if representations, files or preservation metadata of the
+   *          AIP were also changed (without notification), so that the whole
+   *          AIP is re-indexed instead of just the AIP metadata changes
+   */
+  public AIP updateAIP(AIP aip, String updatedBy, boolean contentUpdated)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
     aip.setUpdatedBy(updatedBy);
     aip.setUpdatedOn(new Date());
     updateAIPMetadata(aip);
-    notifyAipUpdated(aip);
+    if (contentUpdated) {
+      notifyAipContentUpdated(aip);
+    } else {
+      notifyAipUpdated(aip);
+    }
     return aip;
   }
 
@@ -1641,7 +1658,12 @@ public class ModelService extends ModelObservable {
       for (Path path : directoryStream) {
         if (!path.equals(currentLogFile)) {
           try {
-            StoragePath logPath = ModelUtils.getLogStoragePath(path.getFileName().toString());
+            String fileName = path.getFileName().toString();
+            StoragePath monthPath = ModelUtils.getLogMonthStoragePath(fileName);
+            if (monthPath != null && !storage.hasDirectory(monthPath)) {
+              createLogMonthDirectory(monthPath);
+            }
+            StoragePath logPath = ModelUtils.getLogStoragePath(fileName);
             storage.createBinary(logPath, new FSPathContentPayload(path), false);
             Files.delete(path);
           } catch (IOException | GenericException | AlreadyExistsException e) {
@@ -1656,6 +1678,14 @@ public class ModelService extends ModelObservable {
     }
   }
 
+  private void createLogMonthDirectory(StoragePath monthPath) throws GenericException, AuthorizationDeniedException {
+    try {
+      storage.createDirectory(monthPath);
+    } catch (AlreadyExistsException e) {
+      // do nothing
+    }
+  }
+
   /***************** Users/Groups related *****************/
   /********************************************************/
 
@@ -2017,7 +2047,7 @@ public class ModelService extends ModelObservable {
     InputStream inputStream = null;
     try {
       inputStream = binary.getContent().createInputStream();
-      ret = JsonUtils.getObjectFromJson(inputStream, Risk.class);
+      ret = ModelMigration.getObjectFromJson(inputStream, Risk.class);
     } catch (IOException e) {
       throw new GenericException("Error reading risk", e);
     } finally {
@@ -2158,7 +2188,7 @@ public class ModelService extends ModelObservable {
     InputStream inputStream = null;
     try {
       inputStream = binary.getContent().createInputStream();
-      ret = JsonUtils.getObjectFromJson(inputStream, Format.class);
+      ret = ModelMigration.getObjectFromJson(inputStream, Format.class);
     } catch (IOException e) {
       throw new GenericException("Error reading format", e);
     } finally {
@@ -2709,7 +2739,8 @@ public class ModelService extends ModelObservable {
   }
 
   private CloseableIterable<OptionalWithCause<LogEntry>> listLogEntries() {
-    boolean recursive = false;
+    // daily logs are kept in monthly folders
+    boolean recursive = true;
     CloseableIterable<OptionalWithCause<LogEntry>> inStorage = null;
     CloseableIterable<OptionalWithCause<LogEntry>> notStorage = null;
 
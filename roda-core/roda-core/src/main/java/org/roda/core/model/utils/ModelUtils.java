@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
+import java.util.regex.Pattern;
 
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
@@ -73,6 +74,8 @@ public final class ModelUtils {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(ModelUtils.class);
 
+  private static final Pattern LOG_FILE_PATTERN = Pattern.compile("\\d{4}-\\d{2}-\\d{2}\\.log");
+
   /**
    * Private empty constructor
    */
@@ -589,8 +592,31 @@ public final class ModelUtils {
     return DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG);
   }
 
+  /**
+   * Daily log files (named yyyy-MM-dd.log) are kept in a folder per month, as
+   * the monthly partitions of the action log index, other files directly in
+   * the container.
+   */
   public static StoragePath getLogStoragePath(String logFile) throws RequestNotValidException {
-    return DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG, logFile);
+    String month = getLogMonth(logFile);
+    if (month != null) {
+      return DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG, month, logFile);
+    } else {
+      return DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG, logFile);
+    }
+  }
+
+  /**
+   * @return the folder of the month of a daily log file, or null if it is not
+   *         one
+   */
+  public static StoragePath getLogMonthStoragePath(String logFile) throws RequestNotValidException {
+    String month = getLogMonth(logFile);
+    return month != null ? DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG, month) : null;
+  }
+
+  private static String getLogMonth(String logFile) {
+    return LOG_FILE_PATTERN.matcher(logFile).matches() ? logFile.substring(0, 7) : null;
   }
 
   public static StoragePath getJobContainerPath() throws RequestNotValidException {
@@ -8,9 +8,7 @@
 package org.roda.core.model.utils;
 
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.Serializable;
-import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -18,7 +16,6 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Function;
 
-import org.apache.commons.io.IOUtils;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.IdUtils;
 import org.roda.core.common.iterables.CloseableIterable;
@@ -51,6 +48,7 @@ import org.roda.core.data.v2.jobs.Report;
 import org.roda.core.data.v2.notifications.Notification;
 import org.roda.core.data.v2.risks.Risk;
 import org.roda.core.data.v2.risks.RiskIncidence;
+import org.roda.core.migration.ModelMigration;
 import org.roda.core.model.LiteRODAObjectFactory;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.DefaultBinary;
@@ -224,11 +222,7 @@ public class ResourceParseUtils {
     }
 
     Binary binary = (Binary) resource;
-    InputStream inputStream = binary.getContent().createInputStream();
-    String jsonString = IOUtils.toString(inputStream, RodaConstants.DEFAULT_ENCODING);
-    T ret = JsonUtils.getObjectFromJson(jsonString, objectClass);
-    IOUtils.closeQuietly(inputStream);
-    return ret;
+    return ModelMigration.getObjectFromJson(binary.getContent().createInputStream(), objectClass);
   }
 
   public static <T extends IsRODAObject> OptionalWithCause<T> convertResourceTo(StorageService storage,
@@ -346,17 +340,11 @@ public class ResourceParseUtils {
       RodaConstants.STORAGE_AIP_METADATA_FILENAME);
     Binary binary = storage.getBinary(metadataStoragePath);
 
-    String json;
     AIP aip;
-    InputStream inputStream = null;
     try {
-      inputStream = binary.getContent().createInputStream();
-      json = IOUtils.toString(inputStream, Charset.forName(RodaConstants.DEFAULT_ENCODING));
-      aip = JsonUtils.getObjectFromJson(json, AIP.class);
+      aip = JsonUtils.getObjectFromJson(binary.getContent().createInputStream(), AIP.class);
     } catch (IOException | GenericException e) {
       throw new GenericException("Could not parse AIP metadata of " + aipId + " at " + metadataStoragePath, e);
-    } finally {
-      IOUtils.closeQuietly(inputStream);
     }
 
     // Setting information that does not come in JSON
@@ -376,17 +364,11 @@ public class ResourceParseUtils {
       RodaConstants.STORAGE_DIP_METADATA_FILENAME);
     Binary binary = storage.getBinary(metadataStoragePath);
 
-    String json;
     DIP dip;
-    InputStream inputStream = null;
     try {
-      inputStream = binary.getContent().createInputStream();
-      json = IOUtils.toString(inputStream, Charset.forName(RodaConstants.DEFAULT_ENCODING));
-      dip = JsonUtils.getObjectFromJson(json, DIP.class);
+      dip = JsonUtils.getObjectFromJson(binary.getContent().createInputStream(), DIP.class);
     } catch (IOException | GenericException e) {
       throw new GenericException("Could not parse DIP metadata of " + dipId + " at " + metadataStoragePath, e);
-    } finally {
-      IOUtils.closeQuietly(inputStream);
     }
 
     // Setting information that does not come in JSON
@@ -57,6 +57,17 @@ public abstract class AbstractPlugin<T extends IsRODAObject> implements Plugin<T
     }
   }
 
+  /**
+   * Forgets the parameter values and the job plugin info. Plugins without
+   * other state worth keeping between jobs override it to return true.
+   */
+  @Override
+  public boolean reset() {
+    parameterValues = new HashMap<String, String>();
+    jobPluginInfo = null;
+    return false;
+  }
+
   @Override
   public String getVersion() {
     if (version == null) {
@@ -141,6 +141,18 @@ public interface Plugin<T extends IsRODAObject> {
    */
   public Plugin<T> cloneMe();
 
+  /**
+   * Method used by PluginManager to bring an instance that finished its work
+   * back to the state of a new one (from {@link #cloneMe()}), so that it can be
+   * reused instead of creating (and initializing) another instance
+   *
+   * @return true if the instance can be reused, false (the default) if it must
+   *         be discarded
+   */
+  public default boolean reset() {
+    return false;
+  }
+
   /**
    * Method that validates the parameters provided to the Plugin
    * 
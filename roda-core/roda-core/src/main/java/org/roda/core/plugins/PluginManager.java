@@ -27,6 +27,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.jar.Attributes;
 import java.util.jar.JarFile;
 import java.util.jar.Manifest;
@@ -78,7 +79,9 @@ public class PluginManager {
   private Map<String, Set<Class>> pluginObjectClasses = new HashMap<String, Set<Class>>();
   private Map<Class, List<PluginInfo>> pluginInfoPerObjectClass = new HashMap<Class, List<PluginInfo>>();
   private boolean internalPluginStarted = false;
-  private List<String> blacklistedPlugins;
+  // plugin id > instances ready to be reused
+  private Map<String, PluginPool> pluginPools = new ConcurrentHashMap<>();
+  private volatile PluginsConfiguration configuration = null;
 
   /**
    * The default Plugin Manager instance.
@@ -112,6 +115,7 @@ public class PluginManager {
     try {
       plugin.init();
       externalPluginChache.put(plugin.getClass().getName(), plugin);
+      clearPluginPool(plugin.getClass().getName());
       processAndCachePluginInformation(plugin);
       LOGGER.debug("Plugin added dynamically started {} (version {})", plugin.getName(), plugin.getVersion());
     } catch (Throwable e) {
@@ -199,25 +203,83 @@ public class PluginManager {
    *         not a {@link Plugin} or something went wrong during its init().
    */
   public Plugin<? extends IsRODAObject> getPlugin(String pluginID) {
-    Plugin<? extends IsRODAObject> plugin = null;
+    Plugin<? extends IsRODAObject> cachedPlugin = getCachedPlugin(pluginID);
+    return cachedPlugin != null ? cachedPlugin.cloneMe() : null;
+  }
+
+  public <T extends IsRODAObject> Plugin<T> getPlugin(String pluginID, Class<T> pluginClass) {
+    return (Plugin<T>) getPlugin(pluginID);
+  }
 
-    Plugin<? extends IsRODAObject> cachedInternalPlugin = internalPluginChache.get(pluginID);
-    if (cachedInternalPlugin != null) {
-      plugin = cachedInternalPlugin.cloneMe();
+  /**
+   * Returns an instance of the {@link Plugin} with the specified ID (classname)
+   * like {@link #getPlugin(String, Class)}, but reusing an instance given back
+   * with {@link #releasePlugin(Plugin)} when there is one.
+   * 
+   * @return a {@link Plugin} or <code>null</code> if the specified classname is
+   *         not a {@link Plugin}.
+   */
+  public <T extends IsRODAObject> Plugin<T> borrowPlugin(String pluginID, Class<T> pluginClass) {
+    PluginPool pool = getPluginPool(pluginID);
+    return pool != null ? (Plugin<T>) pool.borrow() : null;
+  }
+
+  /**
+   * Gives back a {@link Plugin} instance that will no longer be used by the
+   * caller, so that it can be reused by {@link #borrowPlugin(String, Class)}
+   * (if the plugin supports it, see {@link Plugin#reset()}).
+   */
+  public void releasePlugin(Plugin<?> plugin) {
+    if (plugin != null) {
+      PluginPool pool = pluginPools.get(plugin.getClass().getName());
+      if (pool != null) {
+        pool.release(plugin);
+      }
     }
+  }
 
-    boolean internalPluginTakesPrecedence = RodaCoreFactory.getRodaConfiguration()
-      .getBoolean("core.plugins.internal.take_precedence_over_external");
+  private Plugin<? extends IsRODAObject> getCachedPlugin(String pluginID) {
+    Plugin<? extends IsRODAObject> plugin = internalPluginChache.get(pluginID);
     Plugin<? extends IsRODAObject> cachedExternalPlugin = externalPluginChache.get(pluginID);
-    if ((plugin == null || !internalPluginTakesPrecedence) && cachedExternalPlugin != null) {
-      plugin = cachedExternalPlugin.cloneMe();
+    if ((plugin == null || !getConfiguration().internalPluginTakesPrecedence) && cachedExternalPlugin != null) {
+      plugin = cachedExternalPlugin;
     }
-
     return plugin;
   }
 
-  public <T extends IsRODAObject> Plugin<T> getPlugin(String pluginID, Class<T> pluginClass) {
-    return (Plugin<T>) getPlugin(pluginID);
+  private PluginPool getPluginPool(String pluginID) {
+    return pluginPools.computeIfAbsent(pluginID, id -> {
+      Plugin<? extends IsRODAObject> plugin = getCachedPlugin(id);
+      return plugin != null ? new PluginPool(id, plugin, getConfiguration().poolMaxIdle) : null;
+    });
+  }
+
+  private void clearPluginPool(String pluginID) {
+    PluginPool pool = pluginPools.remove(pluginID);
+    if (pool != null) {
+      pool.clear();
+    }
+  }
+
+  /**
+   * Makes the plugins configuration be read again and discards the instances
+   * kept for reuse, which may not respect it. To be called when the
+   * configuration files change.
+   */
+  public void configurationChanged() {
+    configuration = null;
+    for (String pluginID : new ArrayList<>(pluginPools.keySet())) {
+      clearPluginPool(pluginID);
+    }
+  }
+
+  private PluginsConfiguration getConfiguration() {
+    PluginsConfiguration ret = configuration;
+    if (ret == null) {
+      ret = new PluginsConfiguration();
+      configuration = ret;
+    }
+    return ret;
   }
 
   /**
@@ -282,9 +344,6 @@ public class PluginManager {
   }
 
   private void loadPlugins() {
-    // reload backlisted plugins
-    blacklistedPlugins = RodaCoreFactory.getRodaConfigurationAsList("core", "plugins", "blacklist");
-
     // load "external" RODA plugins, i.e., those available in the plugins folder
     if (Files.exists(RODA_PLUGINS_PATH) && Files.isDirectory(RODA_PLUGINS_PATH)) {
       loadExternalPlugins();
@@ -376,10 +435,11 @@ public class PluginManager {
       }
       for (Plugin<? extends IsRODAObject> plugin : plugins) {
         try {
-          if (plugin != null && !blacklistedPlugins.contains(plugin.getClass().getName())) {
+          if (plugin != null && !getConfiguration().blacklistedPlugins.contains(plugin.getClass().getName())) {
 
             plugin.init();
             externalPluginChache.put(plugin.getClass().getName(), plugin);
+            clearPluginPool(plugin.getClass().getName());
             processAndCachePluginInformation(plugin);
             LOGGER.info("Plugin started '{}' (version {})", plugin.getName(), plugin.getVersion());
 
@@ -415,7 +475,7 @@ public class PluginManager {
 
     for (Class<? extends AbstractPlugin> plugin : plugins) {
       String name = plugin.getName();
-      if (!Modifier.isAbstract(plugin.getModifiers()) && !blacklistedPlugins.contains(name)) {
+      if (!Modifier.isAbstract(plugin.getModifiers()) && !getConfiguration().blacklistedPlugins.contains(name)) {
         LOGGER.debug("Loading internal plugin '{}'", name);
         try {
           Plugin<? extends IsRODAObject> p = (Plugin<?>) ClassLoaderUtility.createObject(plugin.getName());
@@ -580,6 +640,27 @@ public class PluginManager {
     }
   }
 
+  /**
+   * Snapshot of the plugins configuration, so that it is not read on every
+   * plugin instantiation.
+   */
+  private static final class PluginsConfiguration {
+    private static final int DEFAULT_POOL_MAX_IDLE = 10;
+
+    private final boolean internalPluginTakesPrecedence;
+    private final Set<String> blacklistedPlugins;
+    private final int poolMaxIdle;
+
+    PluginsConfiguration() {
+      internalPluginTakesPrecedence = RodaCoreFactory.getRodaConfiguration()
+        .getBoolean("core.plugins.internal.take_precedence_over_external");
+      blacklistedPlugins = Collections
+        .unmodifiableSet(new HashSet<>(RodaCoreFactory.getRodaConfigurationAsList("core", "plugins", "blacklist")));
+      poolMaxIdle = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_POOL_MAX_IDLE, "core", "plugins", "pool",
+        "max_idle");
+    }
+  }
+
   protected class JarPlugins {
 
     protected List<Plugin<?>> plugins = new ArrayList<>();
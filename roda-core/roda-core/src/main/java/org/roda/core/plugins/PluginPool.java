@@ -0,0 +1,145 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.v2.IsRODAObject;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.RatioGauge;
+
+/**
+ * Idle instances of a plugin, so that plugins with a costly setup (in
+ * {@link Plugin#cloneMe()} or {@link Plugin#init()}) are not set up again for
+ * every block of objects they process.
+ *
+ * <p>
+ * An instance is taken with {@link #borrow()} (a new one is cloned from the
+ * loaded plugin when there is no idle instance) and given back with
+ * {@link #release(Plugin)}, which keeps it only if {@link Plugin#reset()} says
+ * it can be reused. Instances never given back are simply left to the garbage
+ * collector.
+ * </p>
+ *
+ * <p>
+ * Metrics (per plugin): hits and misses when borrowing, the hit ratio and the
+ * number of idle instances.
+ * </p>
+ */
+class PluginPool {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PluginPool.class);
+
+  private final String pluginID;
+  private final Plugin<? extends IsRODAObject> prototype;
+  private final int maxIdle;
+  private final Deque<Plugin<? extends IsRODAObject>> idle = new ConcurrentLinkedDeque<>();
+  private final AtomicInteger idleCount = new AtomicInteger(0);
+  private final Meter hits;
+  private final Meter misses;
+
+  /**
+   * @param prototype
+   *          the loaded plugin, from which new instances are cloned
+   * @param maxIdle
+   *          maximum number of idle instances kept
+   */
+  PluginPool(String pluginID, Plugin<? extends IsRODAObject> prototype, int maxIdle) {
+    this.pluginID = pluginID;
+    this.prototype = prototype;
+    this.maxIdle = maxIdle;
+
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      hits = metrics.meter(MetricRegistry.name(PluginPool.class, pluginID, "hits"));
+      misses = metrics.meter(MetricRegistry.name(PluginPool.class, pluginID, "misses"));
+      register(metrics, MetricRegistry.name(PluginPool.class, pluginID, "hitRatio"), new RatioGauge() {
+        @Override
+        protected Ratio getRatio() {
+          return Ratio.of(hits.getCount(), hits.getCount() + misses.getCount());
+        }
+      });
+      register(metrics, MetricRegistry.name(PluginPool.class, pluginID, "idle"), (Gauge<Integer>) idleCount::get);
+    } else {
+      hits = null;
+      misses = null;
+    }
+  }
+
+  Plugin<? extends IsRODAObject> getPrototype() {
+    return prototype;
+  }
+
+  Plugin<? extends IsRODAObject> borrow() {
+    Plugin<? extends IsRODAObject> plugin = idle.pollFirst();
+    if (plugin != null) {
+      idleCount.decrementAndGet();
+      mark(hits);
+      return plugin;
+    }
+
+    mark(misses);
+    return prototype.cloneMe();
+  }
+
+  /**
+   * @return true if the instance was kept to be borrowed again
+   */
+  boolean release(Plugin<?> plugin) {
+    // instances of a plugin reloaded meanwhile (from another jar) are not kept
+    if (plugin == null || plugin == prototype || plugin.getClass() != prototype.getClass()) {
+      return false;
+    }
+
+    boolean reusable;
+    try {
+      reusable = plugin.reset();
+    } catch (RuntimeException e) {
+      LOGGER.warn("Error resetting an instance of plugin '{}', discarding it", pluginID, e);
+      reusable = false;
+    }
+
+    if (reusable) {
+      if (idleCount.incrementAndGet() <= maxIdle) {
+        idle.offerFirst((Plugin<? extends IsRODAObject>) plugin);
+        return true;
+      }
+      idleCount.decrementAndGet();
+    }
+    return false;
+  }
+
+  /**
+   * Discards all idle instances.
+   */
+  void clear() {
+    Plugin<? extends IsRODAObject> plugin;
+    while ((plugin = idle.pollFirst()) != null) {
+      idleCount.decrementAndGet();
+      LOGGER.trace("Discarding idle instance {} of plugin '{}'", plugin, pluginID);
+    }
+  }
+
+  private static void mark(Meter meter) {
+    if (meter != null) {
+      meter.mark();
+    }
+  }
+
+  private static void register(MetricRegistry metrics, String name, Gauge<?> gauge) {
+    metrics.remove(name);
+    metrics.register(name, gauge);
+  }
+}
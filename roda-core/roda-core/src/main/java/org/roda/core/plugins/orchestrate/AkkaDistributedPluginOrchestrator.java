@@ -7,196 +7,83 @@
  */
 package org.roda.core.plugins.orchestrate;
 
-import java.util.List;
 import java.util.concurrent.TimeUnit;
 
-import org.roda.core.data.exceptions.JobAlreadyStartedException;
-import org.roda.core.data.exceptions.JobException;
-import org.roda.core.data.v2.IsRODAObject;
-import org.roda.core.data.v2.index.IsIndexed;
-import org.roda.core.data.v2.index.filter.Filter;
-import org.roda.core.data.v2.jobs.Job;
-import org.roda.core.index.IndexService;
-import org.roda.core.model.ModelService;
-import org.roda.core.plugins.Plugin;
-import org.roda.core.plugins.PluginOrchestrator;
-import org.roda.core.plugins.orchestrate.akka.Messages.JobPartialUpdate;
-import org.roda.core.plugins.orchestrate.akka.distributed.AkkaDistributedPlugin;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.common.RodaConstants;
+import org.roda.core.plugins.orchestrate.akka.distributed.AkkaDistributedWorkerActor;
 import org.roda.core.plugins.orchestrate.akka.distributed.Frontend;
 import org.roda.core.plugins.orchestrate.akka.distributed.Master;
-import org.roda.core.storage.StorageService;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkDispatcher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
 
-import akka.actor.ActorIdentity;
-import akka.actor.ActorPath;
-import akka.actor.ActorPaths;
 import akka.actor.ActorRef;
-import akka.actor.ActorSelection;
 import akka.actor.ActorSystem;
-import akka.actor.Identify;
 import akka.actor.PoisonPill;
 import akka.actor.Props;
 import akka.cluster.singleton.ClusterSingletonManager;
 import akka.cluster.singleton.ClusterSingletonManagerSettings;
-import akka.dispatch.OnFailure;
-import akka.dispatch.OnSuccess;
-import akka.pattern.Patterns;
-import akka.persistence.journal.leveldb.SharedLeveldbJournal;
-import akka.persistence.journal.leveldb.SharedLeveldbStore;
-import akka.util.Timeout;
-import scala.concurrent.Future;
 import scala.concurrent.duration.Duration;
 import scala.concurrent.duration.FiniteDuration;
 
+/**
+ * Plugin orchestrator of the master node when jobs are executed by distributed
+ * workers (see AkkaDistributedPluginWorker).
+ *
+ * Jobs are managed exactly as in {@link AkkaEmbeddedPluginOrchestrator} (job
+ * state, before/after all execution, reports, stopping), but the plugin blocks
+ * are put in the {@link Master} work queue, from which the workers pull them.
+ * Workers and master must share the storage and the index.
+ */
 /*
- * Based on 
+ * Based on
  * > http://www.typesafe.com/activator/template/akka-distributed-workers
- * > https://github.com/typesafehub/activator-akka-distributed-workers-java 
+ * > https://github.com/typesafehub/activator-akka-distributed-workers-java
  * */
-public class AkkaDistributedPluginOrchestrator extends AkkaDistributedPlugin implements PluginOrchestrator {
+public class AkkaDistributedPluginOrchestrator extends AkkaEmbeddedPluginOrchestrator {
   private static final Logger LOGGER = LoggerFactory.getLogger(AkkaDistributedPluginOrchestrator.class);
 
-  private final IndexService index;
-  private final ModelService model;
-  private final StorageService storage;
-  private final ActorSystem clusterSystem;
-  private final ActorRef frontend;
+  private static final String CLUSTER_SYSTEM_NAME = "ClusterSystem";
+  private static final String ROLE = "backend";
+  private static final int DEFAULT_WORK_TIMEOUT_IN_SECONDS = 3600;
 
   public AkkaDistributedPluginOrchestrator(String hostname, String port) {
-    super();
-    index = getIndex();
-    model = getModel();
-    storage = getStorage();
+    super(createClusterSystem(hostname, port), Props.create(AkkaDistributedWorkerActor.class));
+    ActorSystem clusterSystem = getClusterSystem();
 
-    String role = "backend";
-    String systemName = "ClusterSystem";
-    String systemPath = systemName + "@" + hostname + ":" + port;
-    Config conf = ConfigFactory.parseString("akka.cluster.roles=[" + role + "]")
-      .withFallback(ConfigFactory.parseString("akka.cluster.seed-nodes=[\"akka.tcp://" + systemPath + "\"]"))
-      .withFallback(ConfigFactory.parseString("akka.remote.netty.tcp.hostname=" + hostname))
-      .withFallback(ConfigFactory.parseString("akka.remote.netty.tcp.port=" + port))
-      .withFallback(ConfigFactory.load("config/orchestrator/application"));
+    // blocks taking longer than this are given to another worker
+    FiniteDuration workTimeout = Duration.create(RodaCoreFactory.getRodaConfigurationAsInt(
+      DEFAULT_WORK_TIMEOUT_IN_SECONDS, "core", "orchestrator", "distributed", "work_timeout"), TimeUnit.SECONDS);
+    clusterSystem.actorOf(ClusterSingletonManager.props(Master.props(workTimeout), PoisonPill.getInstance(),
+      ClusterSingletonManagerSettings.create(clusterSystem).withRole(ROLE)), "master");
 
-    clusterSystem = ActorSystem.create(systemName, conf);
-
-    startupSharedJournal(getClusterSystem(), true, ActorPaths.fromString("akka.tcp://" + systemPath + "/user/store"));
-
-    FiniteDuration workTimeout = Duration.create(10, "seconds");
-    getClusterSystem().actorOf(ClusterSingletonManager.props(Master.props(workTimeout), PoisonPill.getInstance(),
-      ClusterSingletonManagerSettings.create(getClusterSystem()).withRole(role)), "master");
-
-    frontend = clusterSystem.actorOf(Props.create(Frontend.class), "frontend");
+    ActorRef frontend = clusterSystem.actorOf(Props.create(Frontend.class), "frontend");
+    clusterSystem.actorOf(Props.create(PluginWorkDispatcher.class, frontend), PluginWorkDispatcher.NAME);
+    LOGGER.info("Started distributed orchestrator at {}:{}", hostname, port);
   }
 
-  private static void startupSharedJournal(final ActorSystem system, boolean startStore, final ActorPath path) {
-    // Start the shared journal on one node (don't crash this SPOF)
-    // This will not be needed with a distributed journal
-    if (startStore) {
-      system.actorOf(Props.create(SharedLeveldbStore.class), "store");
-    }
-    // register the shared journal
-
-    Timeout timeout = new Timeout(15, TimeUnit.SECONDS);
-
-    ActorSelection actorSelection = system.actorSelection(path);
-    Future<Object> f = Patterns.ask(actorSelection, new Identify(null), timeout);
+  private static ActorSystem createClusterSystem(String hostname, String port) {
+    String systemPath = CLUSTER_SYSTEM_NAME + "@" + hostname + ":" + port;
+    String snapshotsDir = RodaCoreFactory.getWorkingDirectory().resolve(RodaConstants.CORE_ORCHESTRATOR_FOLDER)
+      .resolve("snapshots").toString();
 
-    f.onSuccess(new OnSuccess<Object>() {
-
-      @Override
-      public void onSuccess(Object arg0) throws Throwable {
-        if (arg0 instanceof ActorIdentity && ((ActorIdentity) arg0).getRef() != null) {
-          SharedLeveldbJournal.setStore(((ActorIdentity) arg0).getRef(), system);
-        } else {
-          system.log().error("Lookup of shared journal at {} timed out", path);
-          System.exit(-1);
-        }
-
-      }
-    }, system.dispatcher());
+    Config conf = ConfigFactory.parseString("akka.cluster.roles=[" + ROLE + "]")
+      .withFallback(ConfigFactory.parseString("akka.cluster.seed-nodes=[\"akka.tcp://" + systemPath + "\"]"))
+      .withFallback(ConfigFactory.parseString("akka.remote.netty.tcp.hostname=" + hostname))
+      .withFallback(ConfigFactory.parseString("akka.remote.netty.tcp.port=" + port))
+      .withFallback(getAkkaConfiguration("cluster.conf")).withFallback(getAkkaConfiguration("application.conf"))
+      .withValue("akka.persistence.snapshot-store.local.dir", ConfigValueFactory.fromAnyRef(snapshotsDir));
 
-    f.onFailure(new OnFailure() {
-      public void onFailure(Throwable ex) throws Throwable {
-        system.log().error(ex, "Lookup of shared journal at {} timed out", path);
-      }
-    }, system.dispatcher());
+    return ActorSystem.create(CLUSTER_SYSTEM_NAME, conf);
   }
 
   public ActorSystem getClusterSystem() {
-    return clusterSystem;
-  }
-
-  @Override
-  public void setup() {
-    // TODO
-  }
-
-  @Override
-  public void shutdown() {
-    // TODO
-  }
-
-  @Override
-  public <T extends IsRODAObject, T1 extends IsIndexed> void runPluginFromIndex(Object context, Class<T1> classToActOn,
-    Filter filter, Plugin<T> plugin) {
-    // TODO
-  }
-
-  @Override
-  public <T extends IsRODAObject> void runPlugin(Object context, Plugin<T> plugin) {
-    // TODO
-  }
-
-  @Override
-  public void executeJob(Job job, boolean async) throws JobAlreadyStartedException {
-    // TODO
-  }
-
-  @Override
-  public void stopJob(Job job) {
-    // TODO
-  }
-
-  @Override
-  public void cleanUnfinishedJobs() {
-    // TODO
-  }
-
-  @Override
-  public void setJobContextInformation(String jobId, Object object) {
-    // TODO
-  }
-
-  @Override
-  public <T extends IsRODAObject> void updateJobInformation(Plugin<T> plugin, JobPluginInfo jobPluginInfo)
-    throws JobException {
-    // TODO
-  }
-
-  @Override
-  public <T extends IsRODAObject> void updateJob(Plugin<T> plugin, JobPartialUpdate partialUpdate) {
-    // TODO
-
-  }
-
-  @Override
-  public <T extends IsRODAObject> void runPluginOnAllObjects(Object context, Plugin<T> plugin, Class<T> objectClass) {
-    // TODO
-  }
-
-  @Override
-  public <T extends IsRODAObject> void runPluginOnObjects(Object context, Plugin<T> plugin, Class<T> objectClass,
-    List<String> uuids) {
-    // TODO
-  }
-
-  @Override
-  public void setJobInError(String jobId) {
-    // TODO
+    return getJobsSystem();
   }
 
 }
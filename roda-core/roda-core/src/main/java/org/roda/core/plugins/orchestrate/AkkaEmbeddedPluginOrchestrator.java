@@ -51,6 +51,7 @@ import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
 import org.roda.core.plugins.PluginOrchestrator;
 import org.roda.core.plugins.orchestrate.akka.AkkaJobsManager;
+import org.roda.core.plugins.orchestrate.akka.AkkaWorkerActor;
 import org.roda.core.plugins.orchestrate.akka.DeadLetterActor;
 import org.roda.core.plugins.orchestrate.akka.Messages;
 import org.roda.core.plugins.orchestrate.akka.Messages.JobPartialUpdate;
@@ -97,6 +98,18 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
   private List<String> inErrorJobs;
 
   public AkkaEmbeddedPluginOrchestrator() {
+    this(ActorSystem.create("JobsSystem", getAkkaConfiguration("application.conf")),
+      Props.create(AkkaWorkerActor.class));
+  }
+
+  /**
+   * @param jobsSystem
+   *          the actor system where jobs are managed
+   * @param workerProps
+   *          the props of the actors that execute the plugin blocks of each
+   *          job
+   */
+  protected AkkaEmbeddedPluginOrchestrator(ActorSystem jobsSystem, Props workerProps) {
     maxNumberOfJobsInParallel = JobsHelper.getMaxNumberOfJobsInParallel();
 
     index = RodaCoreFactory.getIndexService();
@@ -106,18 +119,18 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
     stoppingJobs = new ArrayList<>();
     inErrorJobs = new ArrayList<>();
 
-    Config akkaConfig = getAkkaConfiguration();
-    jobsSystem = ActorSystem.create("JobsSystem", akkaConfig);
+    this.jobsSystem = jobsSystem;
     // 20170105 hsilva: subscribe all dead letter so they are logged
     jobsSystem.eventStream().subscribe(jobsSystem.actorOf(Props.create(DeadLetterActor.class)), AllDeadLetters.class);
 
-    jobsManager = jobsSystem.actorOf(Props.create(AkkaJobsManager.class, maxNumberOfJobsInParallel), "jobsManager");
+    jobsManager = jobsSystem.actorOf(Props.create(AkkaJobsManager.class, maxNumberOfJobsInParallel, workerProps),
+      "jobsManager");
 
   }
 
-  private Config getAkkaConfiguration() {
+  protected static Config getAkkaConfiguration(String configurationFile) {
     InputStream originStream = RodaCoreFactory
-      .getConfigurationFileAsStream(RodaConstants.CORE_ORCHESTRATOR_FOLDER + "/application.conf");
+      .getConfigurationFileAsStream(RodaConstants.CORE_ORCHESTRATOR_FOLDER + "/" + configurationFile);
 
     Config akkaConfig = null;
 
@@ -133,6 +146,10 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
     return akkaConfig;
   }
 
+  protected ActorSystem getJobsSystem() {
+    return jobsSystem;
+  }
+
   @Override
   public void setup() {
     // do nothing
@@ -340,7 +357,9 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
   private <T extends IsRODAObject> Plugin<T> getNewPluginInstanceAndInitJobPluginInfo(Plugin<T> plugin,
     Class<T> pluginClass, int objectsCount, ActorRef jobActor)
     throws InvalidParameterException, PluginException, JobIsStoppingException, JobInErrorException {
-    Plugin<T> innerPlugin = RodaCoreFactory.getPluginManager().getPlugin(plugin.getClass().getName(), pluginClass);
+    // given back by the job state actor once the block is processed
+    Plugin<T> innerPlugin = RodaCoreFactory.getPluginManager().borrowPlugin(plugin.getClass().getName(),
+      pluginClass);
     innerPlugin.setParameterValues(plugin.getParameterValues());
 
     // keep track of each job/plugin relation
@@ -348,10 +367,12 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
     if (jobId != null && runningJobs.get(jobId) != null) {
       // see if job is stopping
       if (stoppingJobs.contains(jobId)) {
+        RodaCoreFactory.getPluginManager().releasePlugin(innerPlugin);
         throw new JobIsStoppingException();
       }
       // see if job is in error
       if (inErrorJobs.contains(jobId)) {
+        RodaCoreFactory.getPluginManager().releasePlugin(innerPlugin);
         throw new JobInErrorException();
       }
 
@@ -406,6 +427,22 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
 
   }
 
+  /**
+   * Executes a job asynchronously, telling the requester when it ends (e.g. a
+   * worker node waiting for a job it created to be executed by this node).
+   */
+  public void executeJob(Job job, ActorRef requester) throws JobAlreadyStartedException {
+    LOGGER.info("Adding job '{}' ({}) to be executed", job.getName(), job.getId());
+
+    if (runningJobs.containsKey(job.getId())) {
+      LOGGER.info("Job '{}' ({}) is already queued to be executed", job.getName(), job.getId());
+      throw new JobAlreadyStartedException();
+    } else {
+      jobsManager.tell(job, requester);
+      LOGGER.info("Success adding job '{}' ({}) to be executed", job.getName(), job.getId());
+    }
+  }
+
   @Override
   public void stopJob(Job job) {
     String jobId = job.getId();
@@ -436,6 +473,7 @@ public class AkkaEmbeddedPluginOrchestrator implements PluginOrchestrator {
         JobsHelper.doJobObjectsCleanup(job, model, index);
 
         // only after deleting all the objects, delete the job
+        JobsHelper.recoverJobStatsFromReports(jobToBeCleaned, index);
         JobsHelper.updateJobInTheStateStartedOrCreated(jobToBeCleaned);
         model.createOrUpdateJob(jobToBeCleaned);
       } catch (NotFoundException e) {
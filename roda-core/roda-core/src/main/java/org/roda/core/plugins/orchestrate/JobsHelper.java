@@ -17,6 +17,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import org.roda.core.RodaCoreFactory;
@@ -41,9 +42,11 @@ import org.roda.core.data.v2.ip.IndexedFile;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
 import org.roda.core.data.v2.ip.Representation;
 import org.roda.core.data.v2.ip.TransferredResource;
+import org.roda.core.data.v2.jobs.IndexedReport;
 import org.roda.core.data.v2.jobs.Job;
 import org.roda.core.data.v2.jobs.Job.JOB_STATE;
 import org.roda.core.data.v2.jobs.JobStats;
+import org.roda.core.data.v2.jobs.Report.PluginState;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
@@ -62,6 +65,10 @@ public final class JobsHelper {
   private static final int DEFAULT_BLOCK_SIZE = 100;
   private static final String SYNC_TIMEOUT_PROPERTY = "core.orchestrator.sync_timeout";
   private static final int DEFAULT_SYNC_TIMEOUT = 600;
+  private static final String JOB_INFO_FLUSH_INTERVAL_PROPERTY = "core.orchestrator.job_info.flush_interval";
+  private static final int DEFAULT_JOB_INFO_FLUSH_INTERVAL = 5;
+  private static final String JOB_INFO_FLUSH_DELTA_PROPERTY = "core.orchestrator.job_info.flush_delta";
+  private static final int DEFAULT_JOB_INFO_FLUSH_DELTA = 1000;
 
   private JobsHelper() {
 
@@ -99,6 +106,23 @@ public final class JobsHelper {
     RodaCoreFactory.getRodaConfiguration().setProperty(SYNC_TIMEOUT_PROPERTY, syncTimeout);
   }
 
+  /**
+   * @return the number of seconds job information may be kept in memory before
+   *         being saved
+   */
+  public static int getJobInfoFlushInterval() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(JOB_INFO_FLUSH_INTERVAL_PROPERTY,
+      DEFAULT_JOB_INFO_FLUSH_INTERVAL);
+  }
+
+  /**
+   * @return the number of processed objects after which job information is
+   *         saved, regardless of the flush interval
+   */
+  public static int getJobInfoFlushDelta() {
+    return RodaCoreFactory.getRodaConfiguration().getInt(JOB_INFO_FLUSH_DELTA_PROPERTY, DEFAULT_JOB_INFO_FLUSH_DELTA);
+  }
+
   public static <T extends IsRODAObject> void updateJobState(Plugin<T> plugin, ModelService model, JOB_STATE state,
     Optional<String> stateDetails) {
     try {
@@ -135,6 +159,27 @@ public final class JobsHelper {
     }
   }
 
+  /**
+   * Saves in the job stats the execution times of its blocks of source objects
+   * (given in nanoseconds).
+   */
+  public static <T extends IsRODAObject> void updateJobExecutionTimes(Plugin<T> plugin, ModelService model,
+    long blocksExecuted, long objectsExecuted, long totalExecutionTime, long maxBlockExecutionTime) {
+    try {
+      Job job = PluginHelper.getJob(plugin, model);
+      job.getJobStats().setBlocksExecuted(blocksExecuted)
+        .setBlockExecutionTimeMean(
+          blocksExecuted > 0 ? TimeUnit.NANOSECONDS.toMillis(totalExecutionTime / blocksExecuted) : 0)
+        .setBlockExecutionTimeMax(TimeUnit.NANOSECONDS.toMillis(maxBlockExecutionTime))
+        .setObjectExecutionTimeMean(
+          objectsExecuted > 0 ? TimeUnit.NANOSECONDS.toMillis(totalExecutionTime / objectsExecuted) : 0);
+
+      model.createOrUpdateJob(job);
+    } catch (NotFoundException | GenericException | RequestNotValidException | AuthorizationDeniedException e) {
+      LOGGER.error("Unable to get or update Job from model", e);
+    }
+  }
+
   public static <T extends IsRODAObject> void updateJobObjectsCount(Plugin<T> plugin, ModelService model,
     Long objectsCount) {
     try {
@@ -191,6 +236,35 @@ public final class JobsHelper {
     updateJobState(plugin, state, Optional.ofNullable(throwable.getClass().getName() + ": " + throwable.getMessage()));
   }
 
+  /**
+   * Job information is only saved from time to time (see
+   * {@link #getJobInfoFlushInterval()}), so the counters of a job that was
+   * running when RODA stopped abruptly may be behind its reports. The counters
+   * are brought up to date with the reports in the index.
+   */
+  public static void recoverJobStatsFromReports(Job job, IndexService index) {
+    try {
+      index.commit(IndexedReport.class);
+      Filter successFilter = new Filter(new SimpleFilterParameter(RodaConstants.JOB_REPORT_JOB_ID, job.getId()),
+        new OneOfManyFilterParameter(RodaConstants.JOB_REPORT_PLUGIN_STATE,
+          Arrays.asList(PluginState.SUCCESS.toString(), PluginState.PARTIAL_SUCCESS.toString())));
+      Filter failureFilter = new Filter(new SimpleFilterParameter(RodaConstants.JOB_REPORT_JOB_ID, job.getId()),
+        new SimpleFilterParameter(RodaConstants.JOB_REPORT_PLUGIN_STATE, PluginState.FAILURE.toString()));
+      long success = index.count(IndexedReport.class, successFilter);
+      long failure = index.count(IndexedReport.class, failureFilter);
+
+      JobStats jobStats = job.getJobStats();
+      if (success > jobStats.getSourceObjectsProcessedWithSuccess()) {
+        jobStats.setSourceObjectsProcessedWithSuccess((int) success);
+      }
+      if (failure > jobStats.getSourceObjectsProcessedWithFailure()) {
+        jobStats.setSourceObjectsProcessedWithFailure((int) failure);
+      }
+    } catch (GenericException | RequestNotValidException e) {
+      LOGGER.warn("Unable to recover counters of job {} from its reports", job.getId(), e);
+    }
+  }
+
   public static Job updateJobInTheStateStartedOrCreated(Job job) {
     job.setState(JOB_STATE.FAILED_TO_COMPLETE);
     JobStats jobStats = job.getJobStats();
@@ -8,7 +8,9 @@
 package org.roda.core.plugins.orchestrate.akka;
 
 import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
 
+import org.roda.core.common.metrics.MetricsUtils;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.NotFoundException;
@@ -30,11 +32,15 @@ import org.slf4j.LoggerFactory;
 
 import com.codahale.metrics.Histogram;
 import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
 
 import akka.actor.ActorRef;
+import akka.actor.Cancellable;
 import akka.actor.Props;
 import akka.actor.Terminated;
 import akka.routing.RoundRobinPool;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
 
 public class AkkaJobStateInfoActor extends AkkaBaseActor {
   private static final Logger LOGGER = LoggerFactory.getLogger(AkkaJobStateInfoActor.class);
@@ -48,12 +54,34 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
   boolean errorDuringBeforeAll = false;
   private String jobId;
 
+  // job information is kept here and only saved from time to time
+  private Plugin<?> unflushedJobInfoPlugin = null;
+  private JobPluginInfo unflushedJobInfo = null;
+  private int flushedProcessedObjects = 0;
+  private int jobInfoFlushDelta;
+  private Cancellable jobInfoFlushTask;
+
   // metrics
   // private Map<String, Histogram> stateMessagesMetrics;
   private Histogram stateMessagesMetricsHistogram;
+  // execution times (in nanoseconds) of the blocks of this job, saved in the
+  // job stats when it ends
+  private long blocksExecuted = 0;
+  private long objectsExecuted = 0;
+  private long totalExecutionTime = 0;
+  private long maxBlockExecutionTime = 0;
 
   public AkkaJobStateInfoActor(Plugin<?> plugin, ActorRef jobCreator, ActorRef jobsManager, String jobId,
     int numberOfJobsWorkers) {
+    this(plugin, jobCreator, jobsManager, jobId, numberOfJobsWorkers, Props.create(AkkaWorkerActor.class));
+  }
+
+  /**
+   * @param workerProps
+   *          the props of the actors that execute the plugin blocks
+   */
+  public AkkaJobStateInfoActor(Plugin<?> plugin, ActorRef jobCreator, ActorRef jobsManager, String jobId,
+    int numberOfJobsWorkers, Props workerProps) {
     super();
     jobInfo = new JobInfo();
     this.plugin = plugin;
@@ -62,13 +90,18 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     this.jobId = jobId;
 
     LOGGER.debug("Starting AkkaJobStateInfoActor router with {} actors", numberOfJobsWorkers);
-    Props workersProps = new RoundRobinPool(numberOfJobsWorkers).props(Props.create(AkkaWorkerActor.class));
+    Props workersProps = new RoundRobinPool(numberOfJobsWorkers).props(workerProps);
     workersRouter = getContext().actorOf(workersProps, "WorkersRouter");
     // 20160914 hsilva: watch child events, so when they stop we can react
     getContext().watch(workersRouter);
 
     JobsHelper.createJobWorkingDirectory(jobId);
 
+    jobInfoFlushDelta = JobsHelper.getJobInfoFlushDelta();
+    FiniteDuration jobInfoFlushInterval = Duration.create(JobsHelper.getJobInfoFlushInterval(), TimeUnit.SECONDS);
+    jobInfoFlushTask = getContext().system().scheduler().schedule(jobInfoFlushInterval, jobInfoFlushInterval,
+      getSelf(), new Messages.JobInfoFlushTick(), getContext().dispatcher(), getSelf());
+
     String className = AkkaJobStateInfoActor.class.getSimpleName();
     // stateMessagesMetrics = new HashMap<>();
     stateMessagesMetricsHistogram = getMetricRegistry()
@@ -84,6 +117,8 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
       handleJobSourceObjectsUpdated(msg);
     } else if (msg instanceof Messages.JobInfoUpdated) {
       handleJobInfoUpdated(msg);
+    } else if (msg instanceof Messages.JobInfoFlushTick) {
+      handleJobInfoFlushTick(msg);
     } else if (msg instanceof Messages.JobStop) {
       handleJobStop(msg);
     } else if (msg instanceof Terminated) {
@@ -110,6 +145,8 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     Messages.JobStateUpdated message = (Messages.JobStateUpdated) msg;
     markMessageProcessingAsStarted(message);
     Plugin<?> p = message.getPlugin() == null ? this.plugin : message.getPlugin();
+    // state transitions are saved with the latest job information
+    flushJobInfo();
     try {
       Job job = PluginHelper.getJob(p, getIndex());
       LOGGER.info("Setting job '{}' ({}) state to {}. Details: {}", job.getName(), job.getId(), message.getState(),
@@ -117,6 +154,10 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     } catch (NotFoundException | GenericException e) {
       LOGGER.warn("Unable to get Job from index to log its state change. Reason: {}", e.getMessage());
     }
+    if (Job.isFinalState(message.getState()) && blocksExecuted > 0) {
+      JobsHelper.updateJobExecutionTimes(p, getModel(), blocksExecuted, objectsExecuted, totalExecutionTime,
+        maxBlockExecutionTime);
+    }
     JobsHelper.updateJobState(p, getModel(), message.getState(), message.getStateDatails());
     if (Job.isFinalState(message.getState())) {
       // 20160817 hsilva: the following instruction is needed for the "sync"
@@ -161,10 +202,42 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
     jobInfo.put(message.getPlugin(), message.getJobPluginInfo());
     JobPluginInfo infoUpdated = message.getJobPluginInfo().processJobPluginInformation(message.getPlugin(), jobInfo);
     jobInfo.setObjectsCount(infoUpdated.getSourceObjectsCount());
-    JobsHelper.updateJobInformation(message.getPlugin(), getModel(), infoUpdated);
+    unflushedJobInfoPlugin = message.getPlugin();
+    unflushedJobInfo = infoUpdated;
+    if (getProcessedObjects(infoUpdated) - flushedProcessedObjects >= jobInfoFlushDelta) {
+      flushJobInfo();
+    }
+    markMessageProcessingAsEnded(message);
+  }
+
+  private void handleJobInfoFlushTick(Object msg) {
+    Messages.JobInfoFlushTick message = (Messages.JobInfoFlushTick) msg;
+    markMessageProcessingAsStarted(message);
+    flushJobInfo();
     markMessageProcessingAsEnded(message);
   }
 
+  private void flushJobInfo() {
+    if (unflushedJobInfo != null) {
+      JobsHelper.updateJobInformation(unflushedJobInfoPlugin, getModel(), unflushedJobInfo);
+      flushedProcessedObjects = getProcessedObjects(unflushedJobInfo);
+      unflushedJobInfoPlugin = null;
+      unflushedJobInfo = null;
+    }
+  }
+
+  private static int getProcessedObjects(JobPluginInfo info) {
+    return info.getSourceObjectsProcessedWithSuccess() + info.getSourceObjectsProcessedWithFailure();
+  }
+
+  @Override
+  public void postStop() throws Exception {
+    jobInfoFlushTask.cancel();
+    // e.g. when RODA is shutting down
+    flushJobInfo();
+    super.postStop();
+  }
+
   private void handleJobStop(Object msg) {
     Messages.JobStop message = (Messages.JobStop) msg;
     markMessageProcessingAsStarted(message);
@@ -217,7 +290,7 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
   private void handleBeforeAllExecuteIsReady(Object msg) throws PluginException {
     Messages.PluginBeforeAllExecuteIsReady message = (Messages.PluginBeforeAllExecuteIsReady) msg;
     markMessageProcessingAsStarted(message);
-    try {
+    try (Timer.Context timer = MetricsUtils.time(message.getPlugin().getClass(), "beforeAllExecute")) {
       message.getPlugin().beforeAllExecute(getIndex(), getModel(), getStorage());
       // do nothing because if all goes good, the next messages are of type
       // PluginExecuteIsReady
@@ -236,10 +309,24 @@ public class AkkaJobStateInfoActor extends AkkaBaseActor {
   private void handleExecuteIsDone(Object msg) {
     Messages.PluginExecuteIsDone message = (Messages.PluginExecuteIsDone) msg;
     markMessageProcessingAsStarted(message);
+    if (message.getExecutionTime() > 0) {
+      blocksExecuted++;
+      objectsExecuted += message.getObjectsCount();
+      totalExecutionTime += message.getExecutionTime();
+      maxBlockExecutionTime = Math.max(maxBlockExecutionTime, message.getExecutionTime());
+    }
     jobInfo.setDone(message.getPlugin());
     if (jobInfo.isDone() && jobInfo.isInitEnded()) {
       workersRouter.tell(new Messages.PluginAfterAllExecuteIsReady(plugin), getSelf());
     }
+    // the instance that processed the block can now be reused (but not the
+    // job plugin, still needed until the job ends)
+    if (message.getPlugin() != plugin) {
+      if (unflushedJobInfoPlugin == message.getPlugin()) {
+        unflushedJobInfoPlugin = plugin;
+      }
+      getPluginManager().releasePlugin(message.getPlugin());
+    }
     markMessageProcessingAsEnded(message);
   }
 
@@ -45,12 +45,22 @@ public class AkkaJobsManager extends AkkaBaseActor {
   private Histogram jobsTimeInTheQueueInMilis;
 
   public AkkaJobsManager(int maxNumberOfJobsInParallel) {
+    this(maxNumberOfJobsInParallel, Props.create(AkkaWorkerActor.class));
+  }
+
+  /**
+   * @param workerProps
+   *          the props of the actors that execute the plugin blocks of each
+   *          job
+   */
+  public AkkaJobsManager(int maxNumberOfJobsInParallel, Props workerProps) {
     super();
     this.maxNumberOfJobsInParallel = maxNumberOfJobsInParallel;
     this.jobsWaiting = new LinkedList<>();
     this.jobsWaitingCreators = new HashMap<>();
 
-    Props jobsProps = new RoundRobinPool(maxNumberOfJobsInParallel).props(Props.create(AkkaJobActor.class, getSelf()));
+    Props jobsProps = new RoundRobinPool(maxNumberOfJobsInParallel)
+      .props(Props.create(AkkaJobActor.class, getSelf(), workerProps));
     jobsRouter = getContext().actorOf(jobsProps, "JobsRouter");
 
     initMetrics(maxNumberOfJobsInParallel);
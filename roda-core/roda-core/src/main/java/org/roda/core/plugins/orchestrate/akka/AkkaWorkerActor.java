@@ -9,6 +9,7 @@ package org.roda.core.plugins.orchestrate.akka;
 
 import java.util.List;
 
+import org.roda.core.common.metrics.MetricsUtils;
 import org.roda.core.data.v2.IsRODAObject;
 import org.roda.core.data.v2.LiteOptionalWithCause;
 import org.roda.core.index.IndexService;
@@ -18,6 +19,9 @@ import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+
 public class AkkaWorkerActor extends AkkaBaseActor {
   private static final Logger LOGGER = LoggerFactory.getLogger(AkkaWorkerActor.class);
 
@@ -45,21 +49,32 @@ public class AkkaWorkerActor extends AkkaBaseActor {
     }
   }
 
-  private void handlePluginExecuteIsReady(Object msg) {
+  protected void handlePluginExecuteIsReady(Object msg) {
     Messages.PluginExecuteIsReady message = (Messages.PluginExecuteIsReady) msg;
     List<LiteOptionalWithCause> objectsToBeProcessed = message.getList();
     message.logProcessingStarted();
     Plugin<IsRODAObject> messagePlugin = message.getPlugin();
+    boolean withError = false;
+    long start = System.nanoTime();
     try {
       messagePlugin.execute(index, model, storage, objectsToBeProcessed);
-      getSender().tell(new Messages.PluginExecuteIsDone(messagePlugin, false), getSelf());
     } catch (Throwable e) {
       // 20170120 hsilva: it is required to catch Throwable as there are some
       // linking errors that only will happen during the execution (e.g.
       // java.lang.NoSuchMethodError)
       LOGGER.error("Error executing plugin.execute()", e);
-      getSender().tell(new Messages.PluginExecuteIsDone(messagePlugin, true), getSelf());
+      withError = true;
     }
+    long executionTime = System.nanoTime() - start;
+
+    String pluginName = messagePlugin.getClass().getName();
+    MetricsUtils.updateBlock(MetricsUtils.timer(MetricRegistry.name(pluginName, "execute", "block")),
+      MetricsUtils.timer(MetricRegistry.name(pluginName, "execute", "object_average")), objectsToBeProcessed.size(),
+      executionTime);
+
+    getSender().tell(
+      new Messages.PluginExecuteIsDone(messagePlugin, withError, objectsToBeProcessed.size(), executionTime),
+      getSelf());
     message.logProcessingEnded();
   }
 
@@ -67,7 +82,7 @@ public class AkkaWorkerActor extends AkkaBaseActor {
     Messages.PluginAfterAllExecuteIsReady message = (Messages.PluginAfterAllExecuteIsReady) msg;
     message.logProcessingStarted();
     Plugin<?> plugin = message.getPlugin();
-    try {
+    try (Timer.Context timer = MetricsUtils.time(plugin.getClass(), "afterAllExecute")) {
       plugin.afterAllExecute(index, model, storage);
       getSender().tell(new Messages.PluginAfterAllExecuteIsDone(plugin, false), getSelf());
     } catch (Throwable e) {
@@ -211,6 +211,19 @@ public class Messages {
     }
   }
 
+  public static class JobInfoFlushTick extends AbstractMessage {
+    private static final long serialVersionUID = 4183270357318604816L;
+
+    public JobInfoFlushTick() {
+      super();
+    }
+
+    @Override
+    public String toString() {
+      return "JobInfoFlushTick []";
+    }
+  }
+
   public static class JobStop extends AbstractMessage {
     private static final long serialVersionUID = -8806029242967727412L;
 
@@ -327,13 +340,38 @@ public class Messages {
   public static class PluginExecuteIsDone extends PluginMethodIsDone {
     private static final long serialVersionUID = -5136014936634139026L;
 
+    private int objectsCount;
+    private long executionTime;
+
     public PluginExecuteIsDone(Plugin<?> plugin, boolean withError) {
+      this(plugin, withError, 0, 0);
+    }
+
+    /**
+     * @param objectsCount
+     *          the number of objects in the executed block
+     * @param executionTime
+     *          the time it took to execute the block, in nanoseconds
+     */
+    public PluginExecuteIsDone(Plugin<?> plugin, boolean withError, int objectsCount, long executionTime) {
       super(plugin, withError);
+      this.objectsCount = objectsCount;
+      this.executionTime = executionTime;
+    }
+
+    public int getObjectsCount() {
+      return objectsCount;
+    }
+
+    /** Time in nanoseconds, or 0 if unknown */
+    public long getExecutionTime() {
+      return executionTime;
     }
 
     @Override
     public String toString() {
-      return "PluginExecuteIsDone [getPlugin()=" + getPlugin() + ", isWithError()=" + isWithError() + "]";
+      return "PluginExecuteIsDone [getPlugin()=" + getPlugin() + ", isWithError()=" + isWithError()
+        + ", objectsCount=" + objectsCount + ", executionTime=" + executionTime + "]";
     }
   }
 
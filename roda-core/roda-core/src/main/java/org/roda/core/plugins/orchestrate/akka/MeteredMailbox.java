@@ -0,0 +1,94 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate.akka;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+import org.roda.core.RodaCoreFactory;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.MetricRegistry;
+import com.typesafe.config.Config;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.dispatch.Envelope;
+import akka.dispatch.MailboxType;
+import akka.dispatch.MessageQueue;
+import akka.dispatch.ProducesMessageQueue;
+import akka.dispatch.UnboundedMessageQueueSemantics;
+import scala.Option;
+
+/**
+ * Unbounded mailbox that counts the messages waiting in it, in a counter named
+ * after the <code>metric-name</code> of the mailbox configuration (e.g.
+ * <code>AkkaWorkerActor.mailboxSize</code>). All actors using the same mailbox
+ * configuration share the counter, which is then the number of messages
+ * waiting to be processed by all of them.
+ */
+public class MeteredMailbox implements MailboxType, ProducesMessageQueue<MeteredMailbox.MeteredMessageQueue> {
+  private static final String METRIC_NAME_PATH = "metric-name";
+
+  private final String metricName;
+
+  public MeteredMailbox(ActorSystem.Settings settings, Config config) {
+    String name = config.hasPath(METRIC_NAME_PATH) ? config.getString(METRIC_NAME_PATH)
+      : MeteredMailbox.class.getSimpleName();
+    this.metricName = MetricRegistry.name(name, "mailboxSize");
+  }
+
+  @Override
+  public MessageQueue create(Option<ActorRef> owner, Option<ActorSystem> system) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    return new MeteredMessageQueue(metrics != null ? metrics.counter(metricName) : new Counter());
+  }
+
+  public static class MeteredMessageQueue implements MessageQueue, UnboundedMessageQueueSemantics {
+    private final Queue<Envelope> queue = new ConcurrentLinkedQueue<>();
+    private final Counter size;
+
+    public MeteredMessageQueue(Counter size) {
+      this.size = size;
+    }
+
+    @Override
+    public void enqueue(ActorRef receiver, Envelope handle) {
+      queue.offer(handle);
+      size.inc();
+    }
+
+    @Override
+    public Envelope dequeue() {
+      Envelope handle = queue.poll();
+      if (handle != null) {
+        size.dec();
+      }
+      return handle;
+    }
+
+    @Override
+    public int numberOfMessages() {
+      return queue.size();
+    }
+
+    @Override
+    public boolean hasMessages() {
+      return !queue.isEmpty();
+    }
+
+    @Override
+    public void cleanUp(ActorRef owner, MessageQueue deadLetters) {
+      Envelope handle;
+      while ((handle = dequeue()) != null) {
+        deadLetters.enqueue(owner, handle);
+      }
+    }
+  }
+
+}
@@ -7,6 +7,28 @@
  */
 package org.roda.core.plugins.orchestrate.akka.distributed;
 
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.data.v2.index.IsIndexed;
+import org.roda.core.data.v2.index.filter.Filter;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginOrchestrator;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+import org.roda.core.plugins.orchestrate.JobsHelper;
+import org.roda.core.plugins.orchestrate.akka.Messages.JobPartialUpdate;
+import org.roda.core.plugins.orchestrate.akka.Messages.JobSourceObjectsUpdated;
+import org.roda.core.plugins.orchestrate.akka.Messages.JobStateUpdated;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkInfoUpdated;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkSourceObjectsUpdated;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkStateUpdated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import com.typesafe.config.Config;
 import com.typesafe.config.ConfigFactory;
 
@@ -15,13 +37,27 @@ import akka.actor.ActorSystem;
 import akka.actor.Props;
 import akka.cluster.client.ClusterClient;
 import akka.cluster.client.ClusterClientSettings;
+import akka.pattern.Patterns;
+import akka.util.Timeout;
+import scala.concurrent.Await;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+
+/**
+ * Plugin orchestrator of a worker node. Workers pull plugin blocks from the
+ * master node work queue and execute them against the shared storage and
+ * index, reporting the job updates of the plugins back to the master node,
+ * which is the only one managing jobs.
+ */
+public class AkkaDistributedPluginWorker extends AkkaDistributedPlugin implements PluginOrchestrator {
+  private static final Logger LOGGER = LoggerFactory.getLogger(AkkaDistributedPluginWorker.class);
+
+  private static final String WORK_EXECUTOR_DISPATCHER = "work-executor-dispatcher";
 
-public class AkkaDistributedPluginWorker extends AkkaDistributedPlugin {
-  // XXX this uses a single threaded worker (as opposite to
-  // AkkaEmbeddedPluginOrchestrator which is multi-threaded)
   private ActorSystem workerSystem;
   private ActorRef clusterClient;
-  private ActorRef worker;
+  // plugin instance > work being executed by it
+  private final Map<Plugin<?>, RunningWork> runningWork = new ConcurrentHashMap<>();
 
   public AkkaDistributedPluginWorker(String clusterHostname, String clusterPort, String hostname, String port) {
     super();
@@ -39,7 +75,142 @@ public class AkkaDistributedPluginWorker extends AkkaDistributedPlugin {
 
     clusterClient = workerSystem.actorOf(ClusterClient.props(ClusterClientSettings.create(workerSystem)),
       "clusterClient");
-    worker = workerSystem.actorOf(Worker.props(clusterClient, Props.create(WorkExecutor.class)), "worker");
+
+    // each worker executes one block at a time
+    int numberOfWorkers = JobsHelper.getNumberOfJobsWorkers();
+    Props workExecutorProps = Props.create(WorkExecutor.class, this).withDispatcher(WORK_EXECUTOR_DISPATCHER);
+    for (int i = 0; i < numberOfWorkers; i++) {
+      workerSystem.actorOf(Worker.props(clusterClient, workExecutorProps), "worker" + i);
+    }
+    LOGGER.info("Started {} workers connected to {}", numberOfWorkers, clusterSystemPath);
+  }
+
+  void workStarted(Plugin<?> plugin, String workId, JobPluginInfo jobPluginInfo) {
+    runningWork.put(plugin, new RunningWork(workId, jobPluginInfo));
+  }
+
+  /**
+   * @return the last job information reported by the plugin
+   */
+  JobPluginInfo workEnded(Plugin<?> plugin) {
+    RunningWork work = runningWork.remove(plugin);
+    return work != null ? work.jobPluginInfo : null;
   }
 
+  private void sendToMaster(Object msg) {
+    clusterClient.tell(new ClusterClient.Send(PluginWorkDispatcher.PATH, msg), ActorRef.noSender());
+  }
+
+  @Override
+  public void setup() {
+    // do nothing
+  }
+
+  @Override
+  public void shutdown() {
+    LOGGER.info("Going to shutdown worker actor system");
+    workerSystem.terminate();
+  }
+
+  @Override
+  public <T extends IsRODAObject> void updateJobInformation(Plugin<T> plugin, JobPluginInfo jobPluginInfo)
+    throws JobException {
+    RunningWork work = runningWork.get(plugin);
+    if (work != null) {
+      work.jobPluginInfo = jobPluginInfo;
+      sendToMaster(new PluginWorkInfoUpdated(work.workId, jobPluginInfo));
+    } else {
+      throw new JobException("Plugin is not executing any work of this worker");
+    }
+  }
+
+  @Override
+  public <T extends IsRODAObject> void updateJob(Plugin<T> plugin, JobPartialUpdate partialUpdate) {
+    RunningWork work = runningWork.get(plugin);
+    if (work == null) {
+      LOGGER.error("Plugin is not executing any work of this worker when updating Job");
+    } else if (partialUpdate instanceof JobStateUpdated) {
+      JobStateUpdated stateUpdate = (JobStateUpdated) partialUpdate;
+      sendToMaster(new PluginWorkStateUpdated(work.workId, stateUpdate.getState(),
+        stateUpdate.getStateDatails().orElse(null)));
+    } else if (partialUpdate instanceof JobSourceObjectsUpdated) {
+      sendToMaster(
+        new PluginWorkSourceObjectsUpdated(work.workId, ((JobSourceObjectsUpdated) partialUpdate).getOldToNewIds()));
+    } else {
+      LOGGER.error("Cannot send job update {} to the master", partialUpdate);
+    }
+  }
+
+  @Override
+  public void executeJob(Job job, boolean async) {
+    if (async) {
+      sendToMaster(job);
+    } else {
+      // the master tells when the job ends
+      Timeout timeout = new Timeout(Duration.create(JobsHelper.getSyncTimeout(), "seconds"));
+      Future<Object> future = Patterns.ask(clusterClient, new ClusterClient.Send(PluginWorkDispatcher.PATH, job),
+        timeout);
+      try {
+        Await.result(future, timeout.duration());
+      } catch (Exception e) {
+        LOGGER.error("Error executing job synchronously", e);
+      }
+    }
+  }
+
+  @Override
+  public <T extends IsRODAObject, T1 extends IsIndexed> void runPluginFromIndex(Object context, Class<T1> classToActOn,
+    Filter filter, Plugin<T> plugin) {
+    logOnlyDoneByMaster("runPluginFromIndex");
+  }
+
+  @Override
+  public <T extends IsRODAObject> void runPluginOnObjects(Object context, Plugin<T> plugin, Class<T> objectClass,
+    List<String> uuids) {
+    logOnlyDoneByMaster("runPluginOnObjects");
+  }
+
+  @Override
+  public <T extends IsRODAObject> void runPluginOnAllObjects(Object context, Plugin<T> plugin, Class<T> objectClass) {
+    logOnlyDoneByMaster("runPluginOnAllObjects");
+  }
+
+  @Override
+  public <T extends IsRODAObject> void runPlugin(Object context, Plugin<T> plugin) {
+    logOnlyDoneByMaster("runPlugin");
+  }
+
+  @Override
+  public void stopJob(Job job) {
+    logOnlyDoneByMaster("stopJob");
+  }
+
+  @Override
+  public void cleanUnfinishedJobs() {
+    logOnlyDoneByMaster("cleanUnfinishedJobs");
+  }
+
+  @Override
+  public void setJobContextInformation(String jobId, Object object) {
+    logOnlyDoneByMaster("setJobContextInformation");
+  }
+
+  @Override
+  public void setJobInError(String jobId) {
+    logOnlyDoneByMaster("setJobInError");
+  }
+
+  private void logOnlyDoneByMaster(String method) {
+    LOGGER.warn("Ignoring call to {} as jobs are only managed by the master node", method);
+  }
+
+  private static final class RunningWork {
+    private final String workId;
+    private volatile JobPluginInfo jobPluginInfo;
+
+    private RunningWork(String workId, JobPluginInfo jobPluginInfo) {
+      this.workId = workId;
+      this.jobPluginInfo = jobPluginInfo;
+    }
+  }
 }
@@ -0,0 +1,32 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate.akka.distributed;
+
+import org.roda.core.plugins.orchestrate.akka.AkkaWorkerActor;
+
+import akka.actor.ActorSelection;
+
+/**
+ * Job worker of the master node when jobs are executed by distributed workers:
+ * plugin blocks are handed to the {@link PluginWorkDispatcher} while
+ * <code>afterAllExecute</code> is still done locally.
+ */
+public class AkkaDistributedWorkerActor extends AkkaWorkerActor {
+  private final ActorSelection dispatcher;
+
+  public AkkaDistributedWorkerActor() {
+    super();
+    this.dispatcher = getContext().actorSelection(PluginWorkDispatcher.PATH);
+  }
+
+  @Override
+  protected void handlePluginExecuteIsReady(Object msg) {
+    // keep the job state actor as sender, so that it gets the work result
+    dispatcher.forward(msg, getContext());
+  }
+}
@@ -333,8 +333,9 @@ public class Master extends UntypedPersistentActor {
       }
     } else if (cmd instanceof Work) {
       final String workId = ((Work) cmd).workId;
-      // idempotent
-      if (workState.isAccepted(workId)) {
+      // idempotent, the same work may be submitted again when the
+      // acknowledgement does not arrive in time
+      if (workState.isAccepted(workId) || workState.isDone(workId)) {
         getSender().tell(new Ack(workId), getSelf());
       } else {
         log.info("Accepted work: {}", workId);
@@ -0,0 +1,215 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate.akka.distributed;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+import org.roda.core.data.exceptions.JobAlreadyStartedException;
+import org.roda.core.data.exceptions.JobException;
+import org.roda.core.data.v2.jobs.Job;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.PluginOrchestrator;
+import org.roda.core.plugins.orchestrate.AkkaEmbeddedPluginOrchestrator;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+import org.roda.core.plugins.orchestrate.akka.AkkaBaseActor;
+import org.roda.core.plugins.orchestrate.akka.Messages;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWork;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkInfoUpdated;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkResult;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkSourceObjectsUpdated;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkStateUpdated;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import akka.actor.ActorRef;
+import akka.actor.ActorSystem;
+import akka.cluster.client.ClusterClientReceptionist;
+import akka.cluster.pubsub.DistributedPubSub;
+import akka.cluster.pubsub.DistributedPubSubMediator;
+import akka.dispatch.OnComplete;
+import akka.pattern.Patterns;
+import akka.util.Timeout;
+import scala.concurrent.Future;
+import scala.concurrent.duration.Duration;
+import scala.concurrent.duration.FiniteDuration;
+
+/**
+ * Master node side of the distributed execution of jobs. Plugin blocks of the
+ * running jobs are sent to the {@link Master} work queue, from which the
+ * workers pull them, and the work results (as well as the job updates the
+ * workers send while executing a block) are handed to the plugin instances and
+ * job state actors of the master node.
+ */
+public class PluginWorkDispatcher extends AkkaBaseActor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(PluginWorkDispatcher.class);
+
+  public static final String NAME = "pluginWorkDispatcher";
+  public static final String PATH = "/user/" + NAME;
+
+  private static final Timeout SUBMIT_TIMEOUT = new Timeout(10, TimeUnit.SECONDS);
+  private static final FiniteDuration SUBMIT_RETRY_INTERVAL = Duration.create(5, TimeUnit.SECONDS);
+
+  private final ActorRef frontend;
+  // workId > block waiting to be executed or being executed by a worker
+  private final Map<String, PendingWork> pendingWork;
+
+  public PluginWorkDispatcher(ActorRef frontend) {
+    super();
+    this.frontend = frontend;
+    this.pendingWork = new HashMap<>();
+
+    ActorRef mediator = DistributedPubSub.get(getContext().system()).mediator();
+    mediator.tell(new DistributedPubSubMediator.Subscribe(Master.RESULTS_TOPIC, getSelf()), getSelf());
+    // workers send their job updates through the cluster client
+    ClusterClientReceptionist.get(getContext().system()).registerService(getSelf());
+  }
+
+  @Override
+  public void onReceive(Object msg) throws Exception {
+    super.setup(msg);
+    if (msg instanceof Messages.PluginExecuteIsReady) {
+      handleExecuteIsReady(msg);
+    } else if (msg instanceof Master.Work) {
+      handleSubmitRetry(msg);
+    } else if (msg instanceof Master.WorkResult) {
+      handleWorkResult(msg);
+    } else if (msg instanceof PluginWorkInfoUpdated) {
+      handleWorkInfoUpdated(msg);
+    } else if (msg instanceof PluginWorkStateUpdated) {
+      handleWorkStateUpdated(msg);
+    } else if (msg instanceof PluginWorkSourceObjectsUpdated) {
+      handleWorkSourceObjectsUpdated(msg);
+    } else if (msg instanceof Job) {
+      handleJob(msg);
+    } else if (msg instanceof DistributedPubSubMediator.SubscribeAck) {
+      LOGGER.debug("Subscribed to work results");
+    } else {
+      LOGGER.error("Received a message that don't know how to process ({})...", msg.getClass().getName());
+      unhandled(msg);
+    }
+  }
+
+  private void handleExecuteIsReady(Object msg) {
+    Messages.PluginExecuteIsReady<?> message = (Messages.PluginExecuteIsReady<?>) msg;
+    message.logProcessingStarted();
+    Plugin<?> plugin = message.getPlugin();
+    String workId = UUID.randomUUID().toString();
+    PluginWork work = new PluginWork(workId, plugin.getClass().getName(), plugin.getParameterValues(),
+      plugin.getJobPluginInfo(JobPluginInfo.class), message.getList());
+
+    // the sender is the job state actor, as the message was forwarded
+    pendingWork.put(workId, new PendingWork(plugin, getSender()));
+    submit(new Master.Work(workId, work));
+    message.logProcessingEnded();
+  }
+
+  private void submit(Master.Work work) {
+    final ActorRef self = getSelf();
+    final ActorSystem system = getContext().system();
+    Future<Object> future = Patterns.ask(frontend, work, SUBMIT_TIMEOUT);
+    future.onComplete(new OnComplete<Object>() {
+      @Override
+      public void onComplete(Throwable failure, Object result) {
+        if (failure != null || !(result instanceof Frontend.Ok)) {
+          LOGGER.warn("Work {} was not accepted by the master, retrying in {}", work.workId, SUBMIT_RETRY_INTERVAL);
+          system.scheduler().scheduleOnce(SUBMIT_RETRY_INTERVAL, self, work, system.dispatcher(), self);
+        }
+      }
+    }, system.dispatcher());
+  }
+
+  private void handleSubmitRetry(Object msg) {
+    Master.Work work = (Master.Work) msg;
+    // the result may have arrived meanwhile (i.e. the master had accepted the
+    // work but its acknowledgement was lost), and the master ignores works
+    // already accepted anyway
+    if (pendingWork.containsKey(work.workId)) {
+      submit(work);
+    }
+  }
+
+  private void handleWorkResult(Object msg) {
+    Master.WorkResult workResult = (Master.WorkResult) msg;
+    PendingWork pending = pendingWork.remove(workResult.workId);
+    if (pending != null && workResult.result instanceof PluginWorkResult) {
+      PluginWorkResult result = (PluginWorkResult) workResult.result;
+      if (result.jobPluginInfo != null) {
+        updateJobInformation(pending.plugin, result.jobPluginInfo);
+      }
+      pending.jobStateInfoActor.tell(new Messages.PluginExecuteIsDone(pending.plugin, result.withError), getSelf());
+    }
+  }
+
+  private void handleWorkInfoUpdated(Object msg) {
+    PluginWorkInfoUpdated message = (PluginWorkInfoUpdated) msg;
+    // updates arriving after the work result are outdated
+    PendingWork pending = pendingWork.get(message.workId);
+    if (pending != null) {
+      updateJobInformation(pending.plugin, message.jobPluginInfo);
+    }
+  }
+
+  private void handleWorkStateUpdated(Object msg) {
+    PluginWorkStateUpdated message = (PluginWorkStateUpdated) msg;
+    PendingWork pending = pendingWork.get(message.workId);
+    if (pending != null) {
+      getPluginOrchestrator().updateJob(pending.plugin,
+        new Messages.JobStateUpdated(pending.plugin, message.state, Optional.ofNullable(message.stateDetails)));
+    } else {
+      LOGGER.warn("Got a job state update of unknown work {}", message.workId);
+    }
+  }
+
+  private void handleWorkSourceObjectsUpdated(Object msg) {
+    PluginWorkSourceObjectsUpdated message = (PluginWorkSourceObjectsUpdated) msg;
+    PendingWork pending = pendingWork.get(message.workId);
+    if (pending != null) {
+      getPluginOrchestrator().updateJob(pending.plugin, new Messages.JobSourceObjectsUpdated(message.oldToNewIds));
+    } else {
+      LOGGER.warn("Got a job source objects update of unknown work {}", message.workId);
+    }
+  }
+
+  private void handleJob(Object msg) {
+    Job job = (Job) msg;
+    PluginOrchestrator orchestrator = getPluginOrchestrator();
+    try {
+      if (orchestrator instanceof AkkaEmbeddedPluginOrchestrator) {
+        // the worker may be waiting for the job to end
+        ((AkkaEmbeddedPluginOrchestrator) orchestrator).executeJob(job, getSender());
+      } else {
+        orchestrator.executeJob(job, true);
+      }
+    } catch (JobAlreadyStartedException e) {
+      LOGGER.warn("Job '{}' ({}) requested by a worker is already running", job.getName(), job.getId());
+      getSender().tell("Failed to complete", getSelf());
+    }
+  }
+
+  private void updateJobInformation(Plugin<?> plugin, JobPluginInfo jobPluginInfo) {
+    try {
+      getPluginOrchestrator().updateJobInformation(plugin, jobPluginInfo);
+    } catch (JobException e) {
+      LOGGER.error("Unable to update job information", e);
+    }
+  }
+
+  private static final class PendingWork {
+    private final Plugin<?> plugin;
+    private final ActorRef jobStateInfoActor;
+
+    private PendingWork(Plugin<?> plugin, ActorRef jobStateInfoActor) {
+      this.plugin = plugin;
+      this.jobStateInfoActor = jobStateInfoActor;
+    }
+  }
+}
@@ -0,0 +1,122 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.orchestrate.akka.distributed;
+
+import java.io.Serializable;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.roda.core.data.v2.LiteOptionalWithCause;
+import org.roda.core.data.v2.jobs.Job.JOB_STATE;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+
+/**
+ * Messages exchanged between the master node and the workers about the plugin
+ * blocks of a job. Plugins are not serializable, so a block carries the plugin
+ * class name and parameters and the worker creates its own plugin instance.
+ */
+public abstract class PluginWorkProtocol {
+
+  // Messages from the Master to the Workers (as Master.Work jobs)
+
+  public static final class PluginWork implements Serializable {
+    private static final long serialVersionUID = -2356370346224795482L;
+    public final String workId;
+    public final String pluginClassName;
+    public final Map<String, String> parameterValues;
+    public final JobPluginInfo jobPluginInfo;
+    public final List<LiteOptionalWithCause> objects;
+
+    public PluginWork(String workId, String pluginClassName, Map<String, String> parameterValues,
+      JobPluginInfo jobPluginInfo, List<LiteOptionalWithCause> objects) {
+      this.workId = workId;
+      this.pluginClassName = pluginClassName;
+      this.parameterValues = new HashMap<>(parameterValues);
+      this.jobPluginInfo = jobPluginInfo;
+      this.objects = objects;
+    }
+
+    @Override
+    public String toString() {
+      return "PluginWork{" + "workId='" + workId + '\'' + ", plugin='" + pluginClassName + '\'' + ", objects="
+        + objects.size() + '}';
+    }
+  }
+
+  // Messages from the Workers to the Master
+
+  public static final class PluginWorkResult implements Serializable {
+    private static final long serialVersionUID = 7370916390744364424L;
+    public final String workId;
+    public final boolean withError;
+    public final JobPluginInfo jobPluginInfo;
+
+    public PluginWorkResult(String workId, boolean withError, JobPluginInfo jobPluginInfo) {
+      this.workId = workId;
+      this.withError = withError;
+      this.jobPluginInfo = jobPluginInfo;
+    }
+
+    @Override
+    public String toString() {
+      return "PluginWorkResult{" + "workId='" + workId + '\'' + ", withError=" + withError + '}';
+    }
+  }
+
+  public static final class PluginWorkInfoUpdated implements Serializable {
+    private static final long serialVersionUID = -1766452318017001578L;
+    public final String workId;
+    public final JobPluginInfo jobPluginInfo;
+
+    public PluginWorkInfoUpdated(String workId, JobPluginInfo jobPluginInfo) {
+      this.workId = workId;
+      this.jobPluginInfo = jobPluginInfo;
+    }
+
+    @Override
+    public String toString() {
+      return "PluginWorkInfoUpdated{" + "workId='" + workId + '\'' + ", jobPluginInfo=" + jobPluginInfo + '}';
+    }
+  }
+
+  public static final class PluginWorkStateUpdated implements Serializable {
+    private static final long serialVersionUID = 3358437046626330431L;
+    public final String workId;
+    public final JOB_STATE state;
+    public final String stateDetails;
+
+    public PluginWorkStateUpdated(String workId, JOB_STATE state, String stateDetails) {
+      this.workId = workId;
+      this.state = state;
+      this.stateDetails = stateDetails;
+    }
+
+    @Override
+    public String toString() {
+      return "PluginWorkStateUpdated{" + "workId='" + workId + '\'' + ", state=" + state + ", stateDetails='"
+        + stateDetails + '\'' + '}';
+    }
+  }
+
+  public static final class PluginWorkSourceObjectsUpdated implements Serializable {
+    private static final long serialVersionUID = -4627587130431520813L;
+    public final String workId;
+    public final Map<String, String> oldToNewIds;
+
+    public PluginWorkSourceObjectsUpdated(String workId, Map<String, String> oldToNewIds) {
+      this.workId = workId;
+      this.oldToNewIds = new HashMap<>(oldToNewIds);
+    }
+
+    @Override
+    public String toString() {
+      return "PluginWorkSourceObjectsUpdated{" + "workId='" + workId + '\'' + ", oldToNewIds=" + oldToNewIds + '}';
+    }
+  }
+}
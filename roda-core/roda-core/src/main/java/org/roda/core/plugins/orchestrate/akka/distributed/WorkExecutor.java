@@ -7,24 +7,70 @@
  */
 package org.roda.core.plugins.orchestrate.akka.distributed;
 
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.v2.IsRODAObject;
+import org.roda.core.plugins.Plugin;
+import org.roda.core.plugins.orchestrate.JobPluginInfo;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWork;
+import org.roda.core.plugins.orchestrate.akka.distributed.PluginWorkProtocol.PluginWorkResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
 import akka.actor.UntypedActor;
-import akka.event.Logging;
-import akka.event.LoggingAdapter;
 
+/**
+ * Executes the plugin blocks given to a {@link Worker}, with a plugin instance
+ * of its own.
+ */
 public class WorkExecutor extends UntypedActor {
+  private static final Logger LOGGER = LoggerFactory.getLogger(WorkExecutor.class);
 
-  private LoggingAdapter log = Logging.getLogger(getContext().system(), this);
+  private final AkkaDistributedPluginWorker pluginWorker;
+
+  public WorkExecutor(AkkaDistributedPluginWorker pluginWorker) {
+    this.pluginWorker = pluginWorker;
+  }
 
   @Override
   public void onReceive(Object message) {
-    if (message instanceof Integer) {
-      Integer n = (Integer) message;
-      int n2 = n.intValue() * n.intValue();
-      String result = n + " * " + n + " = " + n2;
-      log.info("Produced result {}", result);
+    if (message instanceof PluginWork) {
+      PluginWork work = (PluginWork) message;
+      PluginWorkResult result = execute(work);
       getSender().tell(new Worker.WorkComplete(result), getSelf());
-    }else if(message instanceof Object){
-      // TODO
+    } else {
+      LOGGER.error("Received a message that it doesn't know how to process ({})...", message.getClass().getName());
+      unhandled(message);
     }
   }
+
+  private PluginWorkResult execute(PluginWork work) {
+    JobPluginInfo jobPluginInfo = work.jobPluginInfo;
+    Plugin<IsRODAObject> plugin = (Plugin<IsRODAObject>) RodaCoreFactory.getPluginManager()
+      .getPlugin(work.pluginClassName);
+    if (plugin == null) {
+      LOGGER.error("Plugin {} of work {} is not available on this worker", work.pluginClassName, work.workId);
+      return new PluginWorkResult(work.workId, true, jobPluginInfo);
+    }
+
+    boolean withError = false;
+    pluginWorker.workStarted(plugin, work.workId, jobPluginInfo);
+    try {
+      plugin.setParameterValues(work.parameterValues);
+      if (jobPluginInfo != null) {
+        plugin.injectJobPluginInfo(jobPluginInfo);
+      }
+      plugin.execute(RodaCoreFactory.getIndexService(), RodaCoreFactory.getModelService(),
+        RodaCoreFactory.getStorageService(), work.objects);
+    } catch (Throwable e) {
+      // it is required to catch Throwable as there are some linking errors
+      // that only will happen during the execution (e.g.
+      // java.lang.NoSuchMethodError)
+      LOGGER.error("Error executing plugin.execute() of work {}", work.workId, e);
+      withError = true;
+    } finally {
+      jobPluginInfo = pluginWorker.workEnded(plugin);
+    }
+
+    return new PluginWorkResult(work.workId, withError, jobPluginInfo);
+  }
 }
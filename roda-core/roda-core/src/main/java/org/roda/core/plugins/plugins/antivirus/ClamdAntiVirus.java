@@ -0,0 +1,134 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.antivirus;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+
+import org.apache.commons.configuration.Configuration;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.util.CommandException;
+import org.roda.core.util.ToolDaemon;
+import org.roda.core.util.ToolProcessManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Clam anti-virus accessed directly through the clamd socket, which keeps the
+ * signature database loaded between scans instead of starting clamscan for
+ * each representation.
+ */
+public class ClamdAntiVirus implements AntiVirus {
+
+  private static final Logger LOGGER = LoggerFactory.getLogger(ClamdAntiVirus.class);
+
+  private static final String DAEMON_NAME = "clamd";
+  private static final String RESULT_OK = "OK";
+  private static final String RESULT_FOUND = "FOUND";
+  private static final String RESULT_ERROR = "ERROR";
+  private static final int DEFAULT_CONNECT_TIMEOUT_MILLIS = 5000;
+  private static final int DEFAULT_TIMEOUT_MILLIS = 600000;
+
+  private static ToolDaemon getDaemon() {
+    return ToolProcessManager.getDaemon(DAEMON_NAME, () -> {
+      Configuration config = RodaCoreFactory.getRodaConfiguration();
+      String host = config.getString("core.plugins.internal.virus_check.clamd.host", "127.0.0.1");
+      int port = config.getInt("core.plugins.internal.virus_check.clamd.port", 3310);
+      int maxConnections = config.getInt("core.plugins.internal.virus_check.clamd.maxConnections",
+        Runtime.getRuntime().availableProcessors());
+      // clamd is managed by the operating system, so no command is given
+      return new ToolDaemon(DAEMON_NAME, null, host, port, maxConnections, 0);
+    });
+  }
+
+  private static int getConnectTimeout() {
+    return RodaCoreFactory.getRodaConfiguration().getInt("core.plugins.internal.virus_check.clamd.connectTimeout",
+      DEFAULT_CONNECT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * @return milliseconds clamd may take to send more of its response
+   */
+  private static int getTimeout() {
+    return RodaCoreFactory.getRodaConfiguration().getInt("core.plugins.internal.virus_check.clamd.timeout",
+      DEFAULT_TIMEOUT_MILLIS);
+  }
+
+  /**
+   * Sends a single null terminated command to clamd and returns its full
+   * response.
+   */
+  private static String sendCommand(ToolDaemon daemon, String command) throws IOException {
+    try (Socket socket = new Socket()) {
+      socket.connect(new InetSocketAddress(daemon.getHost(), daemon.getPort()), getConnectTimeout());
+      socket.setSoTimeout(getTimeout());
+
+      OutputStream out = socket.getOutputStream();
+      out.write(("z" + command + "\0").getBytes(StandardCharsets.UTF_8));
+      out.flush();
+
+      InputStream in = socket.getInputStream();
+      ByteArrayOutputStream response = new ByteArrayOutputStream();
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        response.write(buffer, 0, read);
+      }
+      // z-prefixed commands use null characters as line terminators
+      return response.toString(StandardCharsets.UTF_8.name()).replace('\0', '\n').trim();
+    }
+  }
+
+  @Override
+  public VirusCheckResult checkForVirus(Path path) throws RuntimeException {
+    VirusCheckResult result = new VirusCheckResult();
+
+    try {
+      LOGGER.debug("Executing clamd virus scan in {}", path);
+      ToolDaemon daemon = getDaemon();
+      String response = daemon.call(() -> sendCommand(daemon, "MULTISCAN " + path.toAbsolutePath().toString()));
+
+      boolean clean = true;
+      for (String line : response.split("\n")) {
+        String trimmed = line.trim();
+        if (trimmed.endsWith(RESULT_FOUND)) {
+          clean = false;
+        } else if (trimmed.endsWith(RESULT_ERROR)) {
+          throw new RuntimeException("clamd could not scan " + path + ": " + trimmed);
+        } else if (!trimmed.isEmpty() && !trimmed.endsWith(RESULT_OK)) {
+          LOGGER.warn("Unexpected clamd response line: {}", trimmed);
+        }
+      }
+
+      result.setClean(clean);
+      result.setReport(response);
+    } catch (CommandException e) {
+      throw new RuntimeException("Error executing clamd virus scan", e);
+    }
+
+    return result;
+  }
+
+  @Override
+  public String getVersion() {
+    try {
+      ToolDaemon daemon = getDaemon();
+      return daemon.call(() -> sendCommand(daemon, "VERSION"));
+    } catch (CommandException e) {
+      LOGGER.debug("Error getting clamd version", e);
+      return "1.0";
+    }
+  }
+
+}
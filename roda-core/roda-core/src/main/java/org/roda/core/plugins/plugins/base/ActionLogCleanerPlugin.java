@@ -7,14 +7,12 @@
  */
 package org.roda.core.plugins.plugins.base;
 
-import java.io.IOException;
 import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.List;
 import java.util.Map;
 
-import org.apache.solr.client.solrj.SolrServerException;
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
@@ -88,8 +86,8 @@ public class ActionLogCleanerPlugin extends AbstractPlugin<Void> {
       Date until = cal.getTime();
       try {
         index.deleteActionLog(until);
-      } catch (SolrServerException | IOException e) {
-        LOGGER.error("Error deleting actionlog until {}", until);
+      } catch (GenericException e) {
+        LOGGER.error("Error deleting actionlog until {}", until, e);
       }
     } else {
       // do nothing
@@ -107,6 +105,11 @@ public class ActionLogCleanerPlugin extends AbstractPlugin<Void> {
 
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    if (index.isActionLogPartitioned()) {
+      // whole partitions were dropped, there is no space to reclaim
+      return null;
+    }
+
     LOGGER.debug("Optimizing indexes");
     try {
       index.optimizeIndex(RodaConstants.INDEX_ACTION_LOG);
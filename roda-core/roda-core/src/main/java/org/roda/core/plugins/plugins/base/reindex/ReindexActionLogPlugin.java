@@ -7,10 +7,7 @@
  */
 package org.roda.core.plugins.plugins.base.reindex;
 
-import java.io.BufferedReader;
 import java.io.IOException;
-import java.io.InputStream;
-import java.io.InputStreamReader;
 import java.nio.file.DirectoryStream;
 import java.nio.file.Files;
 import java.nio.file.Path;
@@ -21,6 +18,7 @@ import java.util.Arrays;
 import java.util.Calendar;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -32,6 +30,7 @@ import org.roda.core.data.common.RodaConstants.PreservationEventType;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
 import org.roda.core.data.exceptions.InvalidParameterException;
+import org.roda.core.data.exceptions.JobException;
 import org.roda.core.data.exceptions.NotFoundException;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.LiteOptionalWithCause;
@@ -51,9 +50,11 @@ import org.roda.core.plugins.RODAProcessingLogic;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.Binary;
+import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.Resource;
 import org.roda.core.storage.StorageService;
+import org.roda.core.storage.fs.FSPathContentPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -156,18 +157,35 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
     pluginReport.setPluginState(PluginState.SUCCESS);
 
     Date firstDayToIndex = calculateFirstDayToIndex(dontReindexOlderThanXDays);
-    jobPluginInfo = reindexActionLogsStillNotInStorage(index, firstDayToIndex, pluginReport, jobPluginInfo,
-      dontReindexOlderThanXDays);
-    jobPluginInfo = reindexActionLogsInStorage(index, model, firstDayToIndex, pluginReport, jobPluginInfo,
-      dontReindexOlderThanXDays);
+    Map<String, ContentPayload> logFiles = new LinkedHashMap<>();
+    addActionLogsStillNotInStorage(logFiles, firstDayToIndex, pluginReport, dontReindexOlderThanXDays);
+    addActionLogsInStorage(logFiles, model, firstDayToIndex, pluginReport, dontReindexOlderThanXDays);
+
+    try {
+      index.reindexActionLogs(logFiles, (logFile, indexedEntries, failedEntries) -> {
+        LOGGER.debug("Reindexed action log '{}'", logFile);
+        jobPluginInfo.incrementObjectsCount((int) (indexedEntries + failedEntries));
+        jobPluginInfo.incrementObjectsProcessedWithSuccess((int) indexedEntries);
+        jobPluginInfo.incrementObjectsProcessedWithFailure((int) failedEntries);
+        try {
+          PluginHelper.updateJobInformation(this, jobPluginInfo);
+        } catch (JobException e) {
+          LOGGER.debug("Could not update job information", e);
+        }
+      });
+    } catch (GenericException e) {
+      pluginReport.setPluginState(PluginState.FAILURE).setPluginDetails("Could not reindex action logs");
+      LOGGER.error("Error while trying to reindex action logs", e);
+    }
   }
 
-  private SimpleJobPluginInfo reindexActionLogsInStorage(IndexService index, ModelService model, Date firstDayToIndex,
-    Report pluginReport, SimpleJobPluginInfo jobPluginInfo, int dontReindexOlderThanXDays) {
+  private void addActionLogsInStorage(Map<String, ContentPayload> logFiles, ModelService model, Date firstDayToIndex,
+    Report pluginReport, int dontReindexOlderThanXDays) {
     CloseableIterable<Resource> actionLogs = null;
 
     try {
-      boolean recursive = false;
+      // daily logs are kept in monthly folders
+      boolean recursive = true;
       actionLogs = model.getStorage()
         .listResourcesUnderContainer(DefaultStoragePath.parse(RodaConstants.STORAGE_CONTAINER_ACTIONLOG), recursive);
 
@@ -175,14 +193,7 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
         if (resource instanceof Binary
           && isToIndex(resource.getStoragePath().getName(), firstDayToIndex, dontReindexOlderThanXDays)) {
           LOGGER.debug("Going to reindex '{}'", resource.getStoragePath());
-          Binary b = (Binary) resource;
-          try {
-            BufferedReader br = new BufferedReader(new InputStreamReader(b.getContent().createInputStream()));
-            jobPluginInfo = index.reindexActionLog(br, jobPluginInfo);
-          } catch (IOException | GenericException e) {
-            LOGGER.error("Error while trying to reindex action log '" + resource.getStoragePath() + "' from storage",
-              e);
-          }
+          logFiles.put(resource.getStoragePath().toString(), ((Binary) resource).getContent());
         }
       }
     } catch (NotFoundException | GenericException | AuthorizationDeniedException | RequestNotValidException e) {
@@ -191,36 +202,22 @@ public class ReindexActionLogPlugin extends AbstractPlugin<Void> {
     } finally {
       IOUtils.closeQuietly(actionLogs);
     }
-
-    return jobPluginInfo;
   }
 
-  private SimpleJobPluginInfo reindexActionLogsStillNotInStorage(IndexService index, Date firstDayToIndex,
-    Report pluginReport, SimpleJobPluginInfo jobPluginInfo, int dontReindexOlderThanXDays) {
+  private void addActionLogsStillNotInStorage(Map<String, ContentPayload> logFiles, Date firstDayToIndex,
+    Report pluginReport, int dontReindexOlderThanXDays) {
     Path logFilesDirectory = RodaCoreFactory.getLogPath();
     DirectoryStream.Filter<Path> logFilesFilter = getLogFilesFilter(firstDayToIndex, dontReindexOlderThanXDays);
 
-    try {
-      BufferedReader br = null;
-      InputStream logFileInputStream;
-      for (Path logFile : Files.newDirectoryStream(logFilesDirectory, logFilesFilter)) {
+    try (DirectoryStream<Path> logFilesStream = Files.newDirectoryStream(logFilesDirectory, logFilesFilter)) {
+      for (Path logFile : logFilesStream) {
         LOGGER.debug("Going to reindex '{}'", logFile);
-        try {
-          logFileInputStream = Files.newInputStream(logFile);
-          br = new BufferedReader(new InputStreamReader(logFileInputStream));
-          jobPluginInfo = index.reindexActionLog(br, jobPluginInfo);
-        } catch (IOException | GenericException e) {
-          LOGGER.error("Error reindexing action log", e);
-        } finally {
-          IOUtils.closeQuietly(br);
-        }
+        logFiles.put(logFile.toString(), new FSPathContentPayload(logFile));
       }
     } catch (IOException e) {
       pluginReport.setPluginState(PluginState.FAILURE).setPluginDetails("Could not reindex action logs not in storage");
       LOGGER.error("Error while listing action logs for reindexing", e);
     }
-
-    return jobPluginInfo;
   }
 
   private Date calculateFirstDayToIndex(int dontReindexOlderThanXDays) {
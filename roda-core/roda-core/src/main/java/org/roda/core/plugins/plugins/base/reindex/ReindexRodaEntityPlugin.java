@@ -12,6 +12,7 @@ import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import org.roda.core.common.ReturnWithExceptions;
@@ -48,6 +49,7 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
   private static final Logger LOGGER = LoggerFactory.getLogger(ReindexRodaEntityPlugin.class);
   private boolean clearIndexes = false;
   private boolean optimizeIndexes = true;
+  private boolean shadowIndexes = false;
 
   private static Map<String, PluginParameter> pluginParameters = new HashMap<>();
   static {
@@ -58,6 +60,13 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     pluginParameters.put(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES,
       new PluginParameter(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES, "Optimize indexes", PluginParameterType.BOOLEAN,
         "true", false, false, "Optimize indexes after reindexing them."));
+
+    pluginParameters.put(RodaConstants.PLUGIN_PARAMS_SHADOW_INDEXES,
+      new PluginParameter(RodaConstants.PLUGIN_PARAMS_SHADOW_INDEXES, "Reindex into shadow indexes",
+        PluginParameterType.BOOLEAN, "false", false, false,
+        "When clearing the indexes of all entities, build new indexes aside and swap them with the current ones "
+          + "at the end, so that the current indexes can still be searched while reindexing. A stopped reindex is "
+          + "resumed when run again."));
   }
 
   @Override
@@ -88,6 +97,7 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     ArrayList<PluginParameter> parameters = new ArrayList<PluginParameter>();
     parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_CLEAR_INDEXES));
     parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES));
+    parameters.add(pluginParameters.get(RodaConstants.PLUGIN_PARAMS_SHADOW_INDEXES));
     return parameters;
   }
 
@@ -101,6 +111,10 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES)) {
       optimizeIndexes = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_OPTIMIZE_INDEXES));
     }
+
+    if (parameters != null && parameters.containsKey(RodaConstants.PLUGIN_PARAMS_SHADOW_INDEXES)) {
+      shadowIndexes = Boolean.parseBoolean(parameters.get(RodaConstants.PLUGIN_PARAMS_SHADOW_INDEXES));
+    }
   }
 
   @Override
@@ -118,6 +132,7 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
   private void reindex(IndexService index, ModelService model, Report pluginReport, SimpleJobPluginInfo jobPluginInfo,
     Job job, List<T> list) {
     pluginReport.setPluginState(PluginState.SUCCESS);
+    boolean intoShadow = isShadowReindex(job);
 
     // clearing specific indexes from a id list
     try {
@@ -136,7 +151,13 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
         LOGGER.trace("Reindexing {} {}", object.getClass().getSimpleName(), object.getId());
       }
 
-      ReturnWithExceptions<Void> exceptions = index.reindex(object);
+      if (intoShadow && index.isReindexedIntoShadow(object.getId())) {
+        // already done by a previous run of a resumed shadow reindex
+        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        continue;
+      }
+
+      ReturnWithExceptions<Void> exceptions = intoShadow ? index.reindexIntoShadow(object) : index.reindex(object);
       List<Exception> exceptionList = exceptions.getExceptions();
       if (exceptionList.isEmpty()) {
         jobPluginInfo.incrementObjectsProcessedWithSuccess();
@@ -162,7 +183,10 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
       LOGGER.debug("Clearing indexes");
       try {
         Job job = PluginHelper.getJob(this, index);
-        if (job.getSourceObjects() instanceof SelectedItemsAll) {
+        if (isShadowReindex(job)) {
+          boolean resumed = index.startShadowReindex(getShadowIndexNames(job));
+          LOGGER.info("{} shadow reindex", resumed ? "Resuming" : "Starting");
+        } else if (job.getSourceObjects() instanceof SelectedItemsAll) {
           Class selectedClass = Class.forName(job.getSourceObjects().getSelectedClass());
           index.clearIndexes(SolrUtils.getIndexName(selectedClass));
         }
@@ -179,6 +203,30 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
 
   @Override
   public Report afterAllExecute(IndexService index, ModelService model, StorageService storage) throws PluginException {
+    try {
+      Job job = PluginHelper.getJob(this, index);
+      if (isShadowReindex(job)) {
+        Set<String> failures = index.getShadowReindexFailures();
+        if (!failures.isEmpty()) {
+          // swapping would remove the failed objects from the live indexes, so
+          // these are kept and the shadows are left for the reindex to be run
+          // again (which only retries what is missing)
+          String details = failures.size() + " objects could not be reindexed, so the current indexes were kept. "
+            + "Run the reindex again to retry them.";
+          Report report = PluginHelper.initPluginReport(this).setPluginState(PluginState.FAILURE)
+            .setPluginDetails(details);
+          PluginHelper.updatePartialJobReport(this, model, index, report, false, job);
+          throw new PluginException(details);
+        }
+
+        LOGGER.debug("Swapping shadow indexes");
+        index.finishShadowReindex(optimizeIndexes);
+        return new Report();
+      }
+    } catch (GenericException | NotFoundException e) {
+      throw new PluginException("Error swapping shadow indexes", e);
+    }
+
     LOGGER.debug("Optimizing indexes");
     if (optimizeIndexes) {
       try {
@@ -193,6 +241,18 @@ public abstract class ReindexRodaEntityPlugin<T extends IsRODAObject> extends Ab
     return new Report();
   }
 
+  private boolean isShadowReindex(Job job) {
+    return clearIndexes && shadowIndexes && job.getSourceObjects() instanceof SelectedItemsAll;
+  }
+
+  private List<String> getShadowIndexNames(Job job) throws GenericException, ClassNotFoundException {
+    Class selectedClass = Class.forName(job.getSourceObjects().getSelectedClass());
+    List<String> indexNames = new ArrayList<>(SolrUtils.getIndexName(selectedClass));
+    // preservation agents are not rebuilt from AIPs, so they stay in place
+    indexNames.remove(RodaConstants.INDEX_PRESERVATION_AGENTS);
+    return indexNames;
+  }
+
   public abstract void clearSpecificIndexes(IndexService index, List<String> ids)
     throws GenericException, RequestNotValidException;
 
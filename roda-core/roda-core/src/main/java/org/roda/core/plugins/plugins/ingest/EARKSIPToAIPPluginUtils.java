@@ -104,7 +104,9 @@ public class EARKSIPToAIPPluginUtils {
     if (searchScope.isPresent()) {
       aip.setParentId(searchScope.get());
     }
-    model.updateAIP(aip, username);
+    // representations were updated without notification
+    boolean contentUpdated = true;
+    model.updateAIP(aip, username, contentUpdated);
 
     return aip;
   }
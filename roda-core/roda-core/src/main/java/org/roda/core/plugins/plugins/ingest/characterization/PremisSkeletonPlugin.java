@@ -214,6 +214,12 @@ public class PremisSkeletonPlugin<T extends IsRODAObject> extends AbstractAIPCom
     return new PremisSkeletonPlugin<T>();
   }
 
+  @Override
+  public boolean reset() {
+    super.reset();
+    return true;
+  }
+
   @Override
   public PluginType getType() {
     return PluginType.AIP_TO_AIP;
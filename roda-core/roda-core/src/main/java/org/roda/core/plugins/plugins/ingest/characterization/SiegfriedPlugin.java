@@ -229,6 +229,12 @@ public class SiegfriedPlugin<T extends IsRODAObject> extends AbstractAIPComponen
     return siegfriedPlugin;
   }
 
+  @Override
+  public boolean reset() {
+    super.reset();
+    return true;
+  }
+
   @Override
   public PluginType getType() {
     return PluginType.AIP_TO_AIP;
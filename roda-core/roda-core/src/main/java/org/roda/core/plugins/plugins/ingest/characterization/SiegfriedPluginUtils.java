@@ -7,6 +7,8 @@
  */
 package org.roda.core.plugins.plugins.ingest.characterization;
 
+import java.net.MalformedURLException;
+import java.net.URL;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
@@ -17,7 +19,7 @@ import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
-import org.roda.core.common.PremisV3Utils;
+import org.roda.core.common.PremisUpdateSession;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -42,6 +44,8 @@ import org.roda.core.util.Base64;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
 import org.roda.core.util.HTTPUtility;
+import org.roda.core.util.ToolDaemon;
+import org.roda.core.util.ToolProcessManager;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -49,6 +53,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 
 public class SiegfriedPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(SiegfriedPluginUtils.class);
+  private static final String DAEMON_NAME = "siegfried";
 
   private static List<String> getBatchCommand(Path sourceDirectory) {
     List<String> command;
@@ -58,6 +63,32 @@ public class SiegfriedPluginUtils {
     return command;
   }
 
+  /**
+   * Siegfried daemon started and supervised by RODA itself with
+   * <code>sf -serve host:port</code>, listening on the configured server URL.
+   */
+  private static ToolDaemon getSiegfriedDaemon() throws CommandException {
+    String siegfriedServer = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "server");
+    final URL serverURL;
+    try {
+      serverURL = new URL(siegfriedServer);
+    } catch (MalformedURLException e) {
+      throw new CommandException("Invalid Siegfried server URL " + siegfriedServer, e);
+    }
+
+    return ToolProcessManager.getDaemon(DAEMON_NAME, () -> {
+      String siegfriedPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "binary");
+      int port = serverURL.getPort() != -1 ? serverURL.getPort() : serverURL.getDefaultPort();
+      String hostAndPort = serverURL.getHost() + ":" + port;
+      int maxRequests = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+        "tools", "siegfried", "daemon", "maxConcurrentRequests");
+      int startupTimeout = RodaCoreFactory.getRodaConfigurationAsInt(30000, "core", "tools", "siegfried", "daemon",
+        "startupTimeout");
+      return new ToolDaemon(DAEMON_NAME, Arrays.asList(siegfriedPath, "-serve", hostAndPort), serverURL.getHost(), port,
+        maxRequests, startupTimeout);
+    });
+  }
+
   private static String getSiegfriedServerEndpoint(Path sourceDirectory) {
     String siegfriedServer = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "siegfried", "server");
     return String.format("%s/identify/%s?base64=true&format=json", siegfriedServer,
@@ -71,6 +102,10 @@ public class SiegfriedPluginUtils {
         LOGGER.debug("Running Siegfried on server mode");
         String endpoint = getSiegfriedServerEndpoint(sourceDirectory);
         return HTTPUtility.doGet(endpoint);
+      } else if (siegfriedMode != null && siegfriedMode.equalsIgnoreCase("daemon")) {
+        LOGGER.debug("Running Siegfried on daemon mode");
+        String endpoint = getSiegfriedServerEndpoint(sourceDirectory);
+        return getSiegfriedDaemon().call(() -> HTTPUtility.doGet(endpoint));
       } else {
         LOGGER.debug("Running Siegfried on standalone mode");
         List<String> command = getBatchCommand(sourceDirectory);
@@ -136,6 +171,7 @@ public class SiegfriedPluginUtils {
 
     if (Files.exists(path)) {
       String siegfriedOutput = SiegfriedPluginUtils.runSiegfriedOnPath(path);
+      PremisUpdateSession premisSession = new PremisUpdateSession(model);
 
       final JsonNode jsonObject = JsonUtils.parseJson(siegfriedOutput);
       final JsonNode files = jsonObject.get("files");
@@ -187,10 +223,13 @@ public class SiegfriedPluginUtils {
             }
           }
 
-          PremisV3Utils.updateFormatPreservationMetadata(model, aipId, representationId, jsonFilePath, jsonFileId,
-            format, version, pronom, mime, true);
+          premisSession.updateFormat(aipId, representationId, jsonFilePath, jsonFileId, format, version, pronom,
+            mime);
         }
       }
+
+      // each PREMIS file is written once, after all matches were applied
+      premisSession.commit(true);
     }
 
     return sources;
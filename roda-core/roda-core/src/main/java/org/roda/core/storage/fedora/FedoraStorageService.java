@@ -14,15 +14,26 @@ import java.nio.file.Path;
 import java.nio.file.attribute.FileAttribute;
 import java.nio.file.attribute.PosixFilePermission;
 import java.nio.file.attribute.PosixFilePermissions;
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
 import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.Header;
+import org.apache.http.HttpHeaders;
+import org.apache.http.HttpStatus;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.util.EntityUtils;
 import org.fcrepo.client.BadRequestException;
 import org.fcrepo.client.FedoraContent;
 import org.fcrepo.client.FedoraDatastream;
@@ -57,10 +68,14 @@ import org.roda.core.storage.fedora.utils.FedoraConversionUtils;
 import org.roda.core.storage.fedora.utils.FedoraUtils;
 import org.roda.core.storage.fs.FileStorageService;
 import org.roda.core.storage.utils.StorageRecursiveListingUtils;
+import org.roda.core.storage.utils.StorageRecursiveListingUtils.TreeLister;
 import org.roda.core.util.Base64;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
 /**
  * Class that persists binary files and their containers in Fedora.
  *
@@ -77,10 +92,56 @@ public class FedoraStorageService implements StorageService {
 
   private static final Logger LOGGER = LoggerFactory.getLogger(FedoraStorageService.class);
 
+  private static int maxConnections = 20;
+  private static int timeout = 300;
+  private static int keepAlive = 30;
+  private static int cacheSize = 10000;
+  private static int cacheTtl = 30;
+  private static boolean useTransactions = true;
+
   private String fedoraURL;
   private String fedoraUsername;
   private String fedoraPassword;
   private FedoraRepository fedoraRepository;
+  private final CloseableHttpClient httpClient;
+  // fedora path -> entity class (or empty if the resource does not exist)
+  private final Cache<String, Optional<Class<? extends Entity>>> entityCache;
+
+  /**
+   * Work done by a Fedora storage bound to a transaction.
+   */
+  @FunctionalInterface
+  public interface TransactionWork {
+    void execute(FedoraStorageService transaction) throws GenericException, RequestNotValidException,
+      AuthorizationDeniedException, NotFoundException, AlreadyExistsException;
+  }
+
+  /**
+   * @param maxConnections
+   *          maximum number of simultaneous connections to Fedora
+   * @param timeout
+   *          seconds to wait for a connection or for data from Fedora
+   * @param keepAlive
+   *          seconds an idle connection to Fedora is kept open
+   * @param cacheSize
+   *          number of resources whose existence (and type) is cached, 0 to
+   *          disable the cache
+   * @param cacheTtl
+   *          seconds the existence of a resource is cached, which is as long as
+   *          changes made by other nodes may not be seen
+   * @param useTransactions
+   *          if copies from other storages into Fedora are done in a
+   *          transaction
+   */
+  public static synchronized void configure(int maxConnections, int timeout, int keepAlive, int cacheSize,
+    int cacheTtl, boolean useTransactions) {
+    FedoraStorageService.maxConnections = maxConnections > 0 ? maxConnections : 20;
+    FedoraStorageService.timeout = timeout > 0 ? timeout : 300;
+    FedoraStorageService.keepAlive = keepAlive > 0 ? keepAlive : 30;
+    FedoraStorageService.cacheSize = cacheSize;
+    FedoraStorageService.cacheTtl = cacheTtl;
+    FedoraStorageService.useTransactions = useTransactions;
+  }
 
   /**
    * Public constructor (for using without user credentials)
@@ -89,10 +150,7 @@ public class FedoraStorageService implements StorageService {
    *          Fedora base URL
    */
   public FedoraStorageService(String fedoraURL) {
-    this.fedoraURL = fedoraURL;
-    this.fedoraUsername = null;
-    this.fedoraPassword = null;
-    this.fedoraRepository = new FedoraRepositoryImpl(fedoraURL);
+    this(fedoraURL, null, null);
   }
 
   /**
@@ -109,7 +167,26 @@ public class FedoraStorageService implements StorageService {
     this.fedoraURL = fedoraURL;
     this.fedoraUsername = username;
     this.fedoraPassword = password;
-    this.fedoraRepository = new FedoraRepositoryImpl(fedoraURL, username, password);
+    synchronized (FedoraStorageService.class) {
+      this.httpClient = FedoraUtils.createHttpClient(username, password, maxConnections, timeout, keepAlive);
+      this.entityCache = cacheSize > 0 ? CacheBuilder.newBuilder().maximumSize(cacheSize)
+        .expireAfterWrite(cacheTtl, TimeUnit.SECONDS).build() : null;
+    }
+    this.fedoraRepository = new FedoraRepositoryImpl(fedoraURL, httpClient);
+  }
+
+  /**
+   * Storage bound to a transaction, sharing the connections of the storage
+   * that started it but not its cache (as nothing is visible outside the
+   * transaction until it is committed)
+   */
+  private FedoraStorageService(FedoraStorageService parent, String transactionURL) {
+    this.fedoraURL = transactionURL;
+    this.fedoraUsername = parent.fedoraUsername;
+    this.fedoraPassword = parent.fedoraPassword;
+    this.httpClient = parent.httpClient;
+    this.entityCache = null;
+    this.fedoraRepository = new FedoraRepositoryImpl(transactionURL, httpClient);
   }
 
   public String getFedoraURL() {
@@ -128,6 +205,14 @@ public class FedoraStorageService implements StorageService {
     return fedoraRepository;
   }
 
+  /**
+   * Closes the connections to Fedora, which are shared with the transactions
+   * started by this storage.
+   */
+  public void shutdown() {
+    IOUtils.closeQuietly(httpClient);
+  }
+
   @Override
   public CloseableIterable<Container> listContainers()
     throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException {
@@ -140,6 +225,7 @@ public class FedoraStorageService implements StorageService {
 
     try {
       fedoraRepository.createObject(FedoraUtils.storagePathToFedoraPath(storagePath));
+      invalidate(storagePath, false);
       return new DefaultContainer(storagePath);
     } catch (ForbiddenException e) {
       throw new AuthorizationDeniedException("Could not create container", e);
@@ -177,6 +263,7 @@ public class FedoraStorageService implements StorageService {
     throws AuthorizationDeniedException, NotFoundException, GenericException {
     try {
       fedoraRepository.getObject(FedoraUtils.storagePathToFedoraPath(storagePath)).forceDelete();
+      invalidate(storagePath, true);
     } catch (ForbiddenException e) {
       throw new AuthorizationDeniedException("Could not delete container", e);
     } catch (org.fcrepo.client.NotFoundException e) {
@@ -201,7 +288,7 @@ public class FedoraStorageService implements StorageService {
     throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException {
 
     if (recursive == true) {
-      return StorageRecursiveListingUtils.countAllUnderContainer(this, storagePath);
+      return countRecursively(storagePath);
     } else {
       try {
         Collection<FedoraResource> children = fedoraRepository
@@ -219,11 +306,53 @@ public class FedoraStorageService implements StorageService {
     }
   }
 
+  /**
+   * Counts using the containment of the Fedora objects, without converting the
+   * children to resources and listing the objects of each level in parallel.
+   */
+  private Long countRecursively(StoragePath storagePath)
+    throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException {
+    try {
+      FedoraObject root = fedoraRepository.getObject(FedoraUtils.storagePathToFedoraPath(storagePath));
+      return StorageRecursiveListingUtils.countTree(root, new TreeLister<FedoraResource>() {
+        @Override
+        public List<FedoraResource> listChildren(FedoraResource node)
+          throws AuthorizationDeniedException, RequestNotValidException, NotFoundException, GenericException {
+          try {
+            return new ArrayList<>(((FedoraObject) node).getChildren(null));
+          } catch (ForbiddenException e) {
+            throw new AuthorizationDeniedException("Could not count resources under " + node, e);
+          } catch (BadRequestException e) {
+            throw new RequestNotValidException("Could not count resources under " + node, e);
+          } catch (org.fcrepo.client.NotFoundException e) {
+            throw new NotFoundException("Could not count resources under " + node, e);
+          } catch (FedoraException e) {
+            throw new GenericException("Could not count resources under " + node, e);
+          }
+        }
+
+        @Override
+        public boolean hasChildren(FedoraResource node) {
+          return node instanceof FedoraObject;
+        }
+      });
+    } catch (ForbiddenException e) {
+      throw new AuthorizationDeniedException("Could not count resources under " + storagePath, e);
+    } catch (BadRequestException e) {
+      throw new RequestNotValidException("Could not count resources under " + storagePath, e);
+    } catch (org.fcrepo.client.NotFoundException e) {
+      throw new NotFoundException("Could not count resources under " + storagePath, e);
+    } catch (FedoraException e) {
+      throw new GenericException("Could not count resources under " + storagePath, e);
+    }
+  }
+
   @Override
   public Directory createDirectory(StoragePath storagePath)
     throws AuthorizationDeniedException, AlreadyExistsException, GenericException {
     try {
       fedoraRepository.createObject(FedoraUtils.storagePathToFedoraPath(storagePath));
+      invalidate(storagePath, false);
       return new DefaultDirectory(storagePath);
     } catch (ForbiddenException e) {
       throw new AuthorizationDeniedException("Could not create directory", e);
@@ -252,6 +381,7 @@ public class FedoraStorageService implements StorageService {
           LOGGER.warn("Got a colision when creating random directory", e);
         }
       } while (directory == null);
+      invalidate(storagePath, false);
       return new DefaultDirectory(storagePath);
     } catch (ForbiddenException e) {
       throw new AuthorizationDeniedException("Error creating random directory under " + parentStoragePath, e);
@@ -298,7 +428,7 @@ public class FedoraStorageService implements StorageService {
   public Long countResourcesUnderDirectory(StoragePath storagePath, boolean recursive)
     throws NotFoundException, GenericException, AuthorizationDeniedException, RequestNotValidException {
     if (recursive) {
-      return StorageRecursiveListingUtils.countAllUnderDirectory(this, storagePath);
+      return countRecursively(storagePath);
     } else {
       try {
         Collection<FedoraResource> children = fedoraRepository
@@ -330,6 +460,7 @@ public class FedoraStorageService implements StorageService {
         FedoraContent fedoraContentPayload = FedoraConversionUtils.contentPayloadToFedoraContent(payload);
         FedoraDatastream binary = fedoraRepository.createDatastream(path, fedoraContentPayload);
         IOUtils.closeQuietly(fedoraContentPayload.getContent());
+        invalidate(storagePath, false);
         return FedoraConversionUtils.fedoraDatastreamToBinary(binary);
       } catch (ForbiddenException e) {
         throw new AuthorizationDeniedException("Error creating binary", e);
@@ -369,6 +500,7 @@ public class FedoraStorageService implements StorageService {
           }
         } while (binary == null);
 
+        invalidate(storagePath, false);
         return FedoraConversionUtils.fedoraDatastreamToBinary(binary);
       } catch (ForbiddenException e) {
         throw new AuthorizationDeniedException(e.getMessage(), e);
@@ -466,6 +598,7 @@ public class FedoraStorageService implements StorageService {
             // FIXME add proper error handling
           }
         }
+        invalidate(storagePath, true);
       } else {
         throw new NotFoundException("The resource identified by the path \"" + storagePath + "\" was not found");
       }
@@ -489,9 +622,14 @@ public class FedoraStorageService implements StorageService {
     if (fromService instanceof FedoraStorageService
       && ((FedoraStorageService) fromService).getFedoraURL().equalsIgnoreCase(getFedoraURL())) {
       copyInsideFedora(fromStoragePath, toStoragePath, rootEntity);
+    } else if (isUsingTransactions()) {
+      // e.g. an AIP, with many resources, is created at once or not at all
+      inTransaction(transaction -> StorageServiceUtils.copyBetweenStorageServices(fromService, fromStoragePath,
+        transaction, toStoragePath, rootEntity));
     } else {
       StorageServiceUtils.copyBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity);
     }
+    invalidate(toStoragePath, true);
 
   }
 
@@ -531,9 +669,11 @@ public class FedoraStorageService implements StorageService {
     if (fromService instanceof FedoraStorageService
       && ((FedoraStorageService) fromService).getFedoraURL().equalsIgnoreCase(getFedoraURL())) {
       moveInsideFedora(fromStoragePath, toStoragePath, rootEntity);
+      invalidate(fromStoragePath, true);
     } else {
       StorageServiceUtils.moveBetweenStorageServices(fromService, fromStoragePath, this, toStoragePath, rootEntity);
     }
+    invalidate(toStoragePath, true);
   }
 
   private void moveInsideFedora(StoragePath fromStoragePath, StoragePath toStoragePath,
@@ -565,31 +705,131 @@ public class FedoraStorageService implements StorageService {
   @Override
   public Class<? extends Entity> getEntity(StoragePath storagePath)
     throws GenericException, RequestNotValidException, AuthorizationDeniedException, NotFoundException {
-    if (storagePath.isFromAContainer()) {
-      if (getContainer(storagePath) != null) {
-        return Container.class;
-      } else {
-        throw new GenericException("There is no Container in the storage represented by \"" + storagePath + "\"");
-      }
+    Class<? extends Entity> entity = lookupEntity(storagePath);
+    if (entity != null) {
+      return entity;
+    } else if (storagePath.isFromAContainer()) {
+      throw new NotFoundException("Could not get container " + storagePath);
     } else {
-      // it's a directory or binary. but first let's see if that entity
-      // exists in the storage
-      try {
-        FedoraObject object = fedoraRepository
-          .getObject(FedoraUtils.storagePathToFedoraPath(storagePath) + "/" + FEDORA_RESOURCE_METADATA);
+      throw new GenericException("There is no Directory or Binary in the storage represented by \"" + storagePath
+        + "\"");
+    }
+  }
 
-        if (object.getMixins().contains(FEDORA_CONTAINER)) {
-          return Directory.class;
+  /**
+   * @return the entity class of the resource, or null if it does not exist,
+   *         going to Fedora only if not cached
+   */
+  private Class<? extends Entity> lookupEntity(StoragePath storagePath)
+    throws GenericException, RequestNotValidException, AuthorizationDeniedException {
+    String fedoraPath = FedoraUtils.storagePathToFedoraPath(storagePath);
+    Optional<Class<? extends Entity>> entity = entityCache != null ? entityCache.getIfPresent(fedoraPath) : null;
+
+    if (entity == null) {
+      try {
+        if (storagePath.isFromAContainer()) {
+          fedoraRepository.getObject(fedoraPath);
+          entity = Optional.of(Container.class);
         } else {
-          // it exists, it's not a directory, so it can only be a
-          // binary
-          return Binary.class;
+          // it's a directory or binary
+          FedoraObject object = fedoraRepository.getObject(fedoraPath + "/" + FEDORA_RESOURCE_METADATA);
+          // if it exists and it's not a directory, it can only be a binary
+          entity = Optional.of(object.getMixins().contains(FEDORA_CONTAINER) ? Directory.class : Binary.class);
         }
+      } catch (org.fcrepo.client.NotFoundException e) {
+        entity = Optional.empty();
+      } catch (ForbiddenException e) {
+        throw new AuthorizationDeniedException("Could not get entity " + storagePath, e);
+      } catch (BadRequestException e) {
+        throw new RequestNotValidException("Could not get entity " + storagePath, e);
       } catch (FedoraException e) {
-        throw new GenericException(
-          "There is no Directory or Binary in the storage represented by \"" + storagePath + "\"", e);
+        throw new GenericException("Could not get entity " + storagePath, e);
+      }
+
+      if (entityCache != null) {
+        entityCache.put(fedoraPath, entity);
+      }
+    }
+
+    return entity.orElse(null);
+  }
+
+  /**
+   * Forgets the cached existence of a resource (and of its descendants, if it
+   * was deleted or replaced), and that its ancestors did not exist, as Fedora
+   * creates them along with the resource.
+   */
+  private void invalidate(StoragePath storagePath, boolean descendants) {
+    if (entityCache != null) {
+      String fedoraPath = FedoraUtils.storagePathToFedoraPath(storagePath);
+      entityCache.invalidate(fedoraPath);
+      if (descendants) {
+        entityCache.asMap().keySet().removeIf(path -> path.startsWith(fedoraPath + "/"));
       }
 
+      String ancestorPath = fedoraPath;
+      for (int i = ancestorPath.lastIndexOf('/'); i > 0; i = ancestorPath.lastIndexOf('/')) {
+        ancestorPath = ancestorPath.substring(0, i);
+        entityCache.asMap().remove(ancestorPath, Optional.empty());
+      }
+    }
+  }
+
+  private boolean isUsingTransactions() {
+    synchronized (FedoraStorageService.class) {
+      return useTransactions;
+    }
+  }
+
+  /**
+   * Executes some work with a storage bound to a new Fedora transaction, which
+   * is committed if the work finishes without errors and rolled back otherwise.
+   */
+  public void inTransaction(TransactionWork work) throws GenericException, RequestNotValidException,
+    AuthorizationDeniedException, NotFoundException, AlreadyExistsException {
+    String transactionURL = startTransaction();
+    boolean committed = false;
+    try {
+      work.execute(new FedoraStorageService(this, transactionURL));
+      endTransaction(transactionURL, "fcr:commit");
+      committed = true;
+    } finally {
+      if (!committed) {
+        try {
+          endTransaction(transactionURL, "fcr:rollback");
+        } catch (GenericException e) {
+          // Fedora discards it when it expires
+          LOGGER.warn("Could not roll back transaction {}", transactionURL, e);
+        }
+      }
+    }
+  }
+
+  private String startTransaction() throws GenericException {
+    HttpPost post = new HttpPost(StringUtils.removeEnd(fedoraURL, "/") + "/fcr:tx");
+    try (CloseableHttpResponse response = httpClient.execute(post)) {
+      EntityUtils.consumeQuietly(response.getEntity());
+      Header location = response.getFirstHeader(HttpHeaders.LOCATION);
+      if (response.getStatusLine().getStatusCode() != HttpStatus.SC_CREATED || location == null) {
+        throw new GenericException("Could not start Fedora transaction: " + response.getStatusLine());
+      }
+      return location.getValue();
+    } catch (IOException e) {
+      throw new GenericException("Could not start Fedora transaction", e);
+    }
+  }
+
+  private void endTransaction(String transactionURL, String action) throws GenericException {
+    HttpPost post = new HttpPost(StringUtils.removeEnd(transactionURL, "/") + "/fcr:tx/" + action);
+    try (CloseableHttpResponse response = httpClient.execute(post)) {
+      EntityUtils.consumeQuietly(response.getEntity());
+      int status = response.getStatusLine().getStatusCode();
+      if (status < 200 || status >= 300) {
+        throw new GenericException("Could not " + action + " Fedora transaction " + transactionURL + ": "
+          + response.getStatusLine());
+      }
+    } catch (IOException e) {
+      throw new GenericException("Could not " + action + " Fedora transaction " + transactionURL, e);
     }
   }
 
@@ -837,9 +1077,8 @@ public class FedoraStorageService implements StorageService {
   @Override
   public boolean hasDirectory(StoragePath storagePath) {
     try {
-      this.getDirectory(storagePath);
-      return true;
-    } catch (NotFoundException | RequestNotValidException | GenericException | AuthorizationDeniedException e) {
+      return Directory.class.equals(lookupEntity(storagePath));
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
       return false;
     }
   }
@@ -847,9 +1086,8 @@ public class FedoraStorageService implements StorageService {
   @Override
   public boolean hasBinary(StoragePath storagePath) {
     try {
-      this.getBinary(storagePath);
-      return true;
-    } catch (NotFoundException | RequestNotValidException | GenericException | AuthorizationDeniedException e) {
+      return Binary.class.equals(lookupEntity(storagePath));
+    } catch (RequestNotValidException | GenericException | AuthorizationDeniedException e) {
       return false;
     }
   }
@@ -17,8 +17,20 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
+import org.apache.commons.lang3.StringUtils;
+import org.apache.http.auth.AuthScope;
+import org.apache.http.auth.UsernamePasswordCredentials;
+import org.apache.http.client.CredentialsProvider;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.impl.client.BasicCredentialsProvider;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.DefaultConnectionKeepAliveStrategy;
+import org.apache.http.impl.client.HttpClientBuilder;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
 import org.roda.core.data.exceptions.RequestNotValidException;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.storage.DefaultStoragePath;
@@ -44,6 +56,47 @@ public final class FedoraUtils {
 
   }
 
+  /**
+   * Creates the HTTP client shared by all requests to a Fedora repository, with
+   * a pool of persistent (keep-alive) connections.
+   *
+   * @param maxConnections
+   *          maximum number of simultaneous connections to Fedora
+   * @param timeout
+   *          seconds to wait for a connection (from the pool or to Fedora) or
+   *          for data from an open connection
+   * @param keepAlive
+   *          seconds an idle connection is kept open, if Fedora does not say
+   *          otherwise
+   */
+  public static CloseableHttpClient createHttpClient(String username, String password, int maxConnections,
+    int timeout, int keepAlive) {
+    PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager();
+    connectionManager.setMaxTotal(maxConnections);
+    connectionManager.setDefaultMaxPerRoute(maxConnections);
+    // idle connections may have been closed by Fedora meanwhile
+    connectionManager.setValidateAfterInactivity(2000);
+
+    int timeoutMillis = (int) TimeUnit.SECONDS.toMillis(timeout);
+    RequestConfig requestConfig = RequestConfig.custom().setConnectTimeout(timeoutMillis)
+      .setConnectionRequestTimeout(timeoutMillis).setSocketTimeout(timeoutMillis).build();
+
+    final long keepAliveMillis = TimeUnit.SECONDS.toMillis(keepAlive);
+    HttpClientBuilder builder = HttpClients.custom().setConnectionManager(connectionManager)
+      .setDefaultRequestConfig(requestConfig).setKeepAliveStrategy((response, context) -> {
+        long duration = DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(response, context);
+        return duration > 0 ? duration : keepAliveMillis;
+      }).evictIdleConnections(keepAliveMillis, TimeUnit.MILLISECONDS);
+
+    if (StringUtils.isNotBlank(username) && StringUtils.isNotBlank(password)) {
+      CredentialsProvider credentialsProvider = new BasicCredentialsProvider();
+      credentialsProvider.setCredentials(AuthScope.ANY, new UsernamePasswordCredentials(username, password));
+      builder.setDefaultCredentialsProvider(credentialsProvider);
+    }
+
+    return builder.build();
+  }
+
   /**
    * Creates a {@code String} version of a {@code StoragePath} for Fedora
    */
@@ -11,6 +11,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.nio.MappedByteBuffer;
 import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
 import java.nio.file.CopyOption;
 import java.nio.file.DirectoryNotEmptyException;
 import java.nio.file.DirectoryStream;
@@ -18,6 +19,7 @@ import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.FileVisitOption;
 import java.nio.file.FileVisitResult;
 import java.nio.file.Files;
+import java.nio.file.LinkOption;
 import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.SimpleFileVisitor;
@@ -27,6 +29,7 @@ import java.security.MessageDigest;
 import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.Date;
+import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
@@ -159,7 +162,7 @@ public final class FSUtils {
       }
     } else {
       try {
-        Files.move(sourcePath, targetPath, copyOptions);
+        moveFile(sourcePath, targetPath, replaceExisting);
       } catch (NoSuchFileException e) {
         throw new NotFoundException("Could not find resource to move", e);
       } catch (IOException e) {
@@ -168,11 +171,38 @@ public final class FSUtils {
     }
   }
 
+  /**
+   * Renames the file if source and target are in the same filesystem, otherwise
+   * copies it with {@link FileCopier} (which may clone or link it) and deletes
+   * the source.
+   */
+  private static void moveFile(final Path sourcePath, final Path targetPath, final boolean replaceExisting)
+    throws IOException {
+    // an atomic rename replaces an existing target
+    if (!replaceExisting && Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+      throw new FileAlreadyExistsException(targetPath.toString());
+    }
+
+    try {
+      Files.move(sourcePath, targetPath, StandardCopyOption.ATOMIC_MOVE);
+      FileCopier.count("moves", "rename");
+    } catch (AtomicMoveNotSupportedException e) {
+      copyAndDelete(sourcePath, targetPath, replaceExisting);
+    }
+  }
+
+  /**
+   * Moves a file across filesystems.
+   */
+  static void copyAndDelete(final Path sourcePath, final Path targetPath, final boolean replaceExisting)
+    throws IOException {
+    FileCopier.copyFile(sourcePath, targetPath, replaceExisting);
+    Files.delete(sourcePath);
+    FileCopier.count("moves", "copy");
+  }
+
   private static void moveRecursively(final Path sourcePath, final Path targetPath, final boolean replaceExisting)
     throws GenericException {
-    final CopyOption[] copyOptions = replaceExisting ? new CopyOption[] {StandardCopyOption.REPLACE_EXISTING}
-      : new CopyOption[] {};
-
     try {
       Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
 
@@ -188,7 +218,7 @@ public final class FSUtils {
         public FileVisitResult visitFile(Path sourceFile, BasicFileAttributes attrs) throws IOException {
           Path targetFile = targetPath.resolve(sourcePath.relativize(sourceFile));
           LOGGER.trace("Moving file from {} to {}", sourceFile, targetFile);
-          Files.move(sourceFile, targetFile, copyOptions);
+          moveFile(sourceFile, targetFile, replaceExisting);
           return FileVisitResult.CONTINUE;
         }
 
@@ -236,32 +266,16 @@ public final class FSUtils {
 
     if (Files.isDirectory(sourcePath)) {
       try {
-        Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
-          @Override
-          public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
-            Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
-            return FileVisitResult.CONTINUE;
-          }
-
-          @Override
-          public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
-            Files.copy(file, targetPath.resolve(sourcePath.relativize(file)));
-            return FileVisitResult.CONTINUE;
-          }
-        });
+        FileCopier.copyTree(sourcePath, targetPath, replaceExisting);
       } catch (IOException e) {
         throw new GenericException("Error while copying one directory into another", e);
       }
     } else {
       try {
-
-        CopyOption[] copyOptions = replaceExisting ? new CopyOption[] {StandardCopyOption.REPLACE_EXISTING}
-          : new CopyOption[] {};
-        Files.copy(sourcePath, targetPath, copyOptions);
+        FileCopier.copyFile(sourcePath, targetPath, replaceExisting);
       } catch (IOException e) {
         throw new GenericException("Error while copying one file into another", e);
       }
-
     }
 
   }
@@ -472,22 +486,37 @@ public final class FSUtils {
     return count;
   }
 
-  public static Long recursivelyCountPath(Path directoryPath) throws NotFoundException, GenericException {
-    // starting at -1 because the walk counts the directory itself
-    Long count = -1L;
-    try (Stream<Path> walk = Files.walk(directoryPath)) {
-      final Iterator<Path> pathIterator = walk.iterator();
-      while (pathIterator.hasNext()) {
-        count++;
-        pathIterator.next();
-      }
+  /**
+   * Counts all files and directories under a directory, following links as
+   * {@link #recursivelyListPath(Path, Path)} does. Only the attributes read by
+   * the walk are used, nothing is converted into resources.
+   */
+  public static Long recursivelyCountPath(final Path directoryPath) throws NotFoundException, GenericException {
+    final long[] count = {0};
+    try {
+      Files.walkFileTree(directoryPath, EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE,
+        new SimpleFileVisitor<Path>() {
+          @Override
+          public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+            if (!dir.equals(directoryPath)) {
+              count[0]++;
+            }
+            return FileVisitResult.CONTINUE;
+          }
+
+          @Override
+          public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+            count[0]++;
+            return FileVisitResult.CONTINUE;
+          }
+        });
     } catch (NoSuchFileException e) {
       throw new NotFoundException("Could not list contents of entity because it doesn't exist: " + directoryPath);
     } catch (IOException e) {
       throw new GenericException("Could not list contents of entity at: " + directoryPath, e);
     }
 
-    return count;
+    return count[0];
   }
 
   public static CloseableIterable<Resource> recursivelyListPath(final Path basePath, final Path path)
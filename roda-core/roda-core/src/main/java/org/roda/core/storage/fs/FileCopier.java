@@ -0,0 +1,390 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileStore;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.util.CommandException;
+import org.roda.core.util.CommandUtility;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Copies files and directory trees with the cheapest strategy the filesystem
+ * supports, trying the configured strategies in order:
+ * <ul>
+ * <li>{@link Strategy#REFLINK}: copy-on-write clones (e.g. XFS or Btrfs), done
+ * with <code>cp --reflink=always</code> as Java has no API for them. A new tree
+ * is cloned by a single process, but single files (or the files of a tree
+ * being merged into an existing one) cost a process each, which for many small
+ * files may take longer than copying them.</li>
+ * <li>{@link Strategy#HARDLINK}: hard links to the source files. Only safe
+ * because the storage never changes a file in place (updates write a new file
+ * and replace the old one), which is why it is not enabled by default.</li>
+ * <li>{@link Strategy#COPY}: byte copy, with the files of a tree (or the
+ * chunks of a large file) copied in parallel.</li>
+ * </ul>
+ * The strategy used by each copy is counted in the metrics.
+ */
+public final class FileCopier {
+  private static final Logger LOGGER = LoggerFactory.getLogger(FileCopier.class);
+
+  public enum Strategy {
+    REFLINK, HARDLINK, COPY
+  }
+
+  private static final List<Strategy> DEFAULT_STRATEGIES = Arrays.asList(Strategy.REFLINK, Strategy.COPY);
+  private static final int DEFAULT_THREADS = 4;
+  private static final long DEFAULT_CHUNK_SIZE = 64L * 1024 * 1024;
+  private static final boolean REFLINK_CAPABLE_OS = System.getProperty("os.name", "").toLowerCase(Locale.ENGLISH)
+    .contains("linux");
+  // errors of cp meaning that the filesystem cannot clone files (EOPNOTSUPP,
+  // EXDEV, ENOTTY), as opposed to errors caused by the files themselves
+  private static final List<String> REFLINK_UNSUPPORTED_ERRORS = Arrays.asList("Operation not supported",
+    "Invalid cross-device link", "Inappropriate ioctl for device");
+
+  private static List<Strategy> strategies = DEFAULT_STRATEGIES;
+  private static int threads = DEFAULT_THREADS;
+  private static long chunkSize = DEFAULT_CHUNK_SIZE;
+  private static ExecutorService executor = null;
+  private static final Map<FileStore, Boolean> reflinkSupport = new ConcurrentHashMap<>();
+
+  /** Private empty constructor */
+  private FileCopier() {
+
+  }
+
+  /**
+   * @param strategies
+   *          the strategies to try, in order (copy is always the last resort)
+   * @param threads
+   *          number of threads used to copy files in parallel
+   * @param chunkSize
+   *          files larger than twice this size are copied in chunks of this
+   *          size in parallel
+   */
+  public static synchronized void configure(List<Strategy> strategies, int threads, long chunkSize) {
+    FileCopier.strategies = strategies.isEmpty() ? DEFAULT_STRATEGIES : new ArrayList<>(strategies);
+    FileCopier.threads = threads > 0 ? threads : DEFAULT_THREADS;
+    FileCopier.chunkSize = chunkSize > 0 ? chunkSize : DEFAULT_CHUNK_SIZE;
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  /**
+   * Copies a file. If the target exists and should be replaced, it is deleted
+   * first (so that a hard linked or cloned target is never changed in place).
+   *
+   * @return the strategy used
+   */
+  public static Strategy copyFile(Path sourcePath, Path targetPath, boolean replaceExisting) throws IOException {
+    return copyFile(sourcePath, targetPath, replaceExisting, true, getStrategies());
+  }
+
+  /**
+   * Like {@link #copyFile(Path, Path, boolean)}, but hard links the file if
+   * possible, whatever the configured strategies. Meant for derived copies
+   * that are never changed in place (e.g. DIPs built from an AIP).
+   *
+   * @return the strategy used
+   */
+  public static Strategy linkFile(Path sourcePath, Path targetPath, boolean replaceExisting) throws IOException {
+    return copyFile(sourcePath, targetPath, replaceExisting, true, getLinkStrategies());
+  }
+
+  /**
+   * Copies a directory tree into a target directory, creating it if needed.
+   * Existing target files are replaced only if so requested, otherwise the
+   * copy fails on the first existing file.
+   */
+  public static void copyTree(final Path sourcePath, final Path targetPath, final boolean replaceExisting)
+    throws IOException {
+    copyTree(sourcePath, targetPath, replaceExisting, getStrategies());
+  }
+
+  /**
+   * Like {@link #copyTree(Path, Path, boolean)}, but hard links the files if
+   * possible, whatever the configured strategies (see
+   * {@link #linkFile(Path, Path, boolean)}).
+   */
+  public static void linkTree(final Path sourcePath, final Path targetPath, final boolean replaceExisting)
+    throws IOException {
+    copyTree(sourcePath, targetPath, replaceExisting, getLinkStrategies());
+  }
+
+  private static void copyTree(final Path sourcePath, final Path targetPath, final boolean replaceExisting,
+    final List<Strategy> order) throws IOException {
+
+    if (order.get(0) == Strategy.REFLINK && !Files.exists(targetPath)
+      && supportsReflink(sourcePath, targetPath.getParent())) {
+      try {
+        // -T so that an existing target is never taken as the parent folder
+        CommandUtility.execute("cp", "-R", "-T", "--reflink=always", sourcePath.toString(), targetPath.toString());
+        recordReflinkSupport(targetPath.getParent(), true);
+        count(Strategy.REFLINK, "trees");
+        return;
+      } catch (CommandException e) {
+        LOGGER.debug("Could not reflink {} to {}, copying file by file", sourcePath, targetPath, e);
+        if (isReflinkUnsupported(e)) {
+          recordReflinkSupport(targetPath.getParent(), false);
+        }
+        FSUtils.deletePathQuietly(targetPath);
+      }
+    }
+
+    final List<Future<Strategy>> copies = new ArrayList<>();
+    try {
+      Files.walkFileTree(sourcePath, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult preVisitDirectory(final Path dir, final BasicFileAttributes attrs) throws IOException {
+          Files.createDirectories(targetPath.resolve(sourcePath.relativize(dir)));
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFile(final Path file, final BasicFileAttributes attrs) throws IOException {
+          final Path targetFile = targetPath.resolve(sourcePath.relativize(file));
+          // files are already copied in parallel, so no chunks (which would
+          // also wait for the same pool)
+          copies.add(getExecutor().submit(() -> copyFile(file, targetFile, replaceExisting, false, order)));
+          return FileVisitResult.CONTINUE;
+        }
+      });
+      waitFor(copies);
+    } finally {
+      for (Future<Strategy> copy : copies) {
+        copy.cancel(false);
+      }
+    }
+  }
+
+  static void count(Strategy strategy, String what) {
+    count(what, strategy.name().toLowerCase(Locale.ENGLISH));
+  }
+
+  static void count(String... names) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      metrics.counter(MetricRegistry.name(FileCopier.class, names)).inc();
+    }
+  }
+
+  private static Strategy copyFile(Path sourcePath, Path targetPath, boolean replaceExisting, boolean allowChunks,
+    List<Strategy> order) throws IOException {
+    if (replaceExisting) {
+      Files.deleteIfExists(targetPath);
+    } else if (Files.exists(targetPath, LinkOption.NOFOLLOW_LINKS)) {
+      throw new FileAlreadyExistsException(targetPath.toString());
+    }
+
+    Strategy used = null;
+    for (Strategy strategy : order) {
+      if (strategy == Strategy.REFLINK) {
+        if (supportsReflink(sourcePath, targetPath.getParent()) && reflink(sourcePath, targetPath)) {
+          used = strategy;
+          break;
+        }
+      } else if (strategy == Strategy.HARDLINK) {
+        if (hardlink(sourcePath, targetPath)) {
+          used = strategy;
+          break;
+        }
+      } else {
+        break;
+      }
+    }
+
+    if (used == null) {
+      long size = Files.size(sourcePath);
+      long currentChunkSize = getChunkSize();
+      if (allowChunks && size >= 2 * currentChunkSize) {
+        copyInChunks(sourcePath, targetPath, size, currentChunkSize);
+      } else {
+        Files.copy(sourcePath, targetPath);
+      }
+      used = Strategy.COPY;
+    }
+
+    count(used, "files");
+    return used;
+  }
+
+  private static boolean reflink(Path sourcePath, Path targetPath) {
+    try {
+      CommandUtility.execute("cp", "--reflink=always", sourcePath.toString(), targetPath.toString());
+      recordReflinkSupport(targetPath.getParent(), true);
+      return true;
+    } catch (CommandException e) {
+      LOGGER.debug("Could not reflink {} to {}", sourcePath, targetPath, e);
+      if (isReflinkUnsupported(e)) {
+        recordReflinkSupport(targetPath.getParent(), false);
+      }
+      try {
+        Files.deleteIfExists(targetPath);
+      } catch (IOException e1) {
+        LOGGER.warn("Could not delete partial copy {}", targetPath, e1);
+      }
+      return false;
+    }
+  }
+
+  private static boolean hardlink(Path sourcePath, Path targetPath) {
+    try {
+      Files.createLink(targetPath, sourcePath);
+      return true;
+    } catch (IOException | UnsupportedOperationException e) {
+      // e.g. different filesystems
+      LOGGER.debug("Could not hard link {} to {}", sourcePath, targetPath, e);
+      return false;
+    }
+  }
+
+  /**
+   * Reflinks only work inside the same filesystem (the same device, even if
+   * mounted in different places) and if the filesystem supports them, which is
+   * learned from the first attempt on each filesystem.
+   */
+  private static boolean supportsReflink(Path sourcePath, Path targetDir) {
+    if (!REFLINK_CAPABLE_OS || targetDir == null || !Files.isDirectory(targetDir)) {
+      return false;
+    }
+
+    try {
+      Object sourceDevice = Files.getAttribute(sourcePath, "unix:dev");
+      Object targetDevice = Files.getAttribute(targetDir, "unix:dev");
+      return sourceDevice.equals(targetDevice)
+        && reflinkSupport.getOrDefault(Files.getFileStore(targetDir), Boolean.TRUE);
+    } catch (IOException | UnsupportedOperationException | IllegalArgumentException e) {
+      LOGGER.debug("Could not find out if reflinks are supported on {}", targetDir, e);
+      return false;
+    }
+  }
+
+  private static boolean isReflinkUnsupported(CommandException e) {
+    String output = e.getOutput();
+    return output != null && REFLINK_UNSUPPORTED_ERRORS.stream().anyMatch(output::contains);
+  }
+
+  private static void recordReflinkSupport(Path targetDir, boolean supported) {
+    try {
+      FileStore store = Files.getFileStore(targetDir);
+      if (reflinkSupport.putIfAbsent(store, supported) == null) {
+        LOGGER.info("Reflinks are {}supported by {}", supported ? "" : "not ", store);
+      }
+    } catch (IOException e) {
+      LOGGER.debug("Could not get file store of {}", targetDir, e);
+    }
+  }
+
+  private static void copyInChunks(Path sourcePath, Path targetPath, long size, long chunkSize) throws IOException {
+    Files.createFile(targetPath);
+    List<Future<Void>> chunks = new ArrayList<>();
+    try {
+      for (long position = 0; position < size; position += chunkSize) {
+        final long start = position;
+        final long length = Math.min(chunkSize, size - position);
+        chunks.add(getExecutor().submit(() -> {
+          copyChunk(sourcePath, targetPath, start, length);
+          return null;
+        }));
+      }
+      waitFor(chunks);
+    } catch (IOException e) {
+      Files.deleteIfExists(targetPath);
+      throw e;
+    } finally {
+      for (Future<Void> chunk : chunks) {
+        chunk.cancel(false);
+      }
+    }
+  }
+
+  private static void copyChunk(Path sourcePath, Path targetPath, long start, long length) throws IOException {
+    try (FileChannel in = FileChannel.open(sourcePath, StandardOpenOption.READ);
+      FileChannel out = FileChannel.open(targetPath, StandardOpenOption.WRITE)) {
+      long copied = 0;
+      while (copied < length) {
+        long transferred = in.transferTo(start + copied, length - copied, out.position(start + copied));
+        if (transferred <= 0) {
+          throw new IOException("Could not copy " + sourcePath + " from position " + (start + copied));
+        }
+        copied += transferred;
+      }
+    }
+  }
+
+  private static <T> void waitFor(List<Future<T>> futures) throws IOException {
+    try {
+      for (Future<T> future : futures) {
+        future.get();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while copying", e);
+    } catch (ExecutionException e) {
+      if (e.getCause() instanceof IOException) {
+        throw (IOException) e.getCause();
+      } else {
+        throw new IOException("Error while copying", e.getCause());
+      }
+    }
+  }
+
+  private static synchronized List<Strategy> getStrategies() {
+    return strategies;
+  }
+
+  private static synchronized List<Strategy> getLinkStrategies() {
+    List<Strategy> order = new ArrayList<>();
+    order.add(Strategy.HARDLINK);
+    for (Strategy strategy : strategies) {
+      if (strategy != Strategy.HARDLINK) {
+        order.add(strategy);
+      }
+    }
+    return order;
+  }
+
+  private static synchronized long getChunkSize() {
+    return chunkSize;
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("file-copier-%d").setDaemon(true).build());
+    }
+    return executor;
+  }
+}
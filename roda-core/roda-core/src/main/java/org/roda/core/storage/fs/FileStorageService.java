@@ -18,9 +18,13 @@ import java.util.Date;
 import java.util.Iterator;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
+import org.roda.core.common.metrics.MetricsUtils;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AlreadyExistsException;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
@@ -47,6 +51,8 @@ import org.roda.core.storage.StorageServiceUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.codahale.metrics.Timer;
+
 /**
  * Class that persists binary files and their containers in the File System.
  * 
@@ -56,6 +62,11 @@ import org.slf4j.LoggerFactory;
  * them to a 'trash' folder with the same folder structure
  * </p>
  *
+ * <p>
+ * The most used operations are timed in the metrics (e.g.
+ * <code>org.roda.core.storage.fs.FileStorageService.getBinary</code>).
+ * </p>
+ *
  * @author Luis Faria <lfaria@keep.pt>
  * @author Hélder Silva <hsilva@keep.pt>
  */
@@ -73,8 +84,31 @@ public class FileStorageService implements StorageService {
   private final Path historyDataPath;
   private final Path historyMetadataPath;
   private final Path trashPath;
+  private final ReadWriteLock trashLock = new ReentrantReadWriteLock();
+  private final TrashReaper trashReaper;
 
+  /**
+   * Storage whose trash is purged in the background by a {@link TrashReaper}.
+   */
   public FileStorageService(Path basePath, String trashDirName) throws GenericException {
+    this(basePath, trashDirName, true);
+  }
+
+  /**
+   * Storage whose previous trash is deleted right away.
+   */
+  public FileStorageService(Path basePath) throws GenericException {
+    this(basePath, null, false);
+  }
+
+  /**
+   * @param purgeTrashInBackground
+   *          if true, the trash is purged in the background (after startup and
+   *          periodically), otherwise the previous trash is deleted on creation
+   *          and the trash is never purged afterwards
+   */
+  public FileStorageService(Path basePath, String trashDirName, boolean purgeTrashInBackground)
+    throws GenericException {
     this.basePath = basePath;
     rodaDataPath = this.basePath.getParent();
     historyPath = rodaDataPath.resolve(basePath.getFileName() + HISTORY_SUFFIX);
@@ -86,13 +120,24 @@ public class FileStorageService implements StorageService {
     initialize(historyPath);
     initialize(historyDataPath.resolve(RodaConstants.STORAGE_CONTAINER_AIP));
     initialize(historyMetadataPath.resolve(RodaConstants.STORAGE_CONTAINER_AIP));
-    FSUtils.deletePathQuietly(trashPath);
+
+    if (purgeTrashInBackground) {
+      trashReaper = new TrashReaper(trashPath, trashLock);
+      try {
+        trashReaper.start();
+      } catch (IOException e) {
+        throw new GenericException("Could not start purging trash " + trashPath, e);
+      }
+    } else {
+      trashReaper = null;
+      FSUtils.deletePathQuietly(trashPath);
+    }
     initialize(trashPath);
 
   }
 
-  public FileStorageService(Path basePath) throws GenericException {
-    this(basePath, null);
+  public TrashReaper getTrashReaper() {
+    return trashReaper;
   }
 
   private void initialize(Path path) throws GenericException {
@@ -175,6 +220,9 @@ public class FileStorageService implements StorageService {
   }
 
   private void trash(Path fromPath) throws GenericException, NotFoundException {
+    // the trash must not be sealed for purging while moving into it
+    Lock lock = trashLock.readLock();
+    lock.lock();
     try {
       Path toPath = trashPath.resolve(rodaDataPath.relativize(fromPath));
       LOGGER.debug("Moving to trash: {} to {}", fromPath, toPath);
@@ -189,6 +237,8 @@ public class FileStorageService implements StorageService {
         LOGGER.error("Error moving to trash: {} to {}", fromPath, uniqueToPath, e1);
         throw new GenericException("Unexpected exception while moving to trash", e1);
       }
+    } finally {
+      lock.unlock();
     }
   }
 
@@ -264,6 +314,13 @@ public class FileStorageService implements StorageService {
 
   @Override
   public Directory getDirectory(StoragePath storagePath)
+    throws RequestNotValidException, NotFoundException, GenericException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "getDirectory")) {
+      return doGetDirectory(storagePath);
+    }
+  }
+
+  private Directory doGetDirectory(StoragePath storagePath)
     throws RequestNotValidException, NotFoundException, GenericException {
     if (storagePath.isFromAContainer()) {
       throw new RequestNotValidException("Invalid storage path for a directory: " + storagePath);
@@ -302,6 +359,13 @@ public class FileStorageService implements StorageService {
 
   @Override
   public Binary createBinary(StoragePath storagePath, ContentPayload payload, boolean asReference)
+    throws GenericException, AlreadyExistsException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "createBinary")) {
+      return doCreateBinary(storagePath, payload, asReference);
+    }
+  }
+
+  private Binary doCreateBinary(StoragePath storagePath, ContentPayload payload, boolean asReference)
     throws GenericException, AlreadyExistsException {
     if (asReference) {
       throw new GenericException("Method not yet implemented");
@@ -368,6 +432,13 @@ public class FileStorageService implements StorageService {
 
   @Override
   public Binary updateBinaryContent(StoragePath storagePath, ContentPayload payload, boolean asReference,
+    boolean createIfNotExists) throws GenericException, NotFoundException, RequestNotValidException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "updateBinaryContent")) {
+      return doUpdateBinaryContent(storagePath, payload, asReference, createIfNotExists);
+    }
+  }
+
+  private Binary doUpdateBinaryContent(StoragePath storagePath, ContentPayload payload, boolean asReference,
     boolean createIfNotExists) throws GenericException, NotFoundException, RequestNotValidException {
     if (asReference) {
       throw new GenericException("Method not yet implemented");
@@ -400,6 +471,13 @@ public class FileStorageService implements StorageService {
 
   @Override
   public Binary getBinary(StoragePath storagePath)
+    throws RequestNotValidException, NotFoundException, GenericException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "getBinary")) {
+      return doGetBinary(storagePath);
+    }
+  }
+
+  private Binary doGetBinary(StoragePath storagePath)
     throws RequestNotValidException, NotFoundException, GenericException {
     Path binaryPath = FSUtils.getEntityPath(basePath, storagePath);
     Resource resource = FSUtils.convertPathToResource(basePath, binaryPath);
@@ -412,6 +490,12 @@ public class FileStorageService implements StorageService {
 
   @Override
   public void deleteResource(StoragePath storagePath) throws NotFoundException, GenericException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "deleteResource")) {
+      doDeleteResource(storagePath);
+    }
+  }
+
+  private void doDeleteResource(StoragePath storagePath) throws NotFoundException, GenericException {
     Path resourcePath = FSUtils.getEntityPath(basePath, storagePath);
     trash(resourcePath);
 
@@ -425,6 +509,14 @@ public class FileStorageService implements StorageService {
 
   @Override
   public void copy(StorageService fromService, StoragePath fromStoragePath, StoragePath toStoragePath)
+    throws AlreadyExistsException, GenericException, RequestNotValidException, NotFoundException,
+    AuthorizationDeniedException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "copy")) {
+      doCopy(fromService, fromStoragePath, toStoragePath);
+    }
+  }
+
+  private void doCopy(StorageService fromService, StoragePath fromStoragePath, StoragePath toStoragePath)
     throws AlreadyExistsException, GenericException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException {
     if (fromService instanceof FileStorageService) {
@@ -440,6 +532,14 @@ public class FileStorageService implements StorageService {
 
   @Override
   public void move(StorageService fromService, StoragePath fromStoragePath, StoragePath toStoragePath)
+    throws AlreadyExistsException, GenericException, RequestNotValidException, NotFoundException,
+    AuthorizationDeniedException {
+    try (Timer.Context timer = MetricsUtils.time(FileStorageService.class, "move")) {
+      doMove(fromService, fromStoragePath, toStoragePath);
+    }
+  }
+
+  private void doMove(StorageService fromService, StoragePath fromStoragePath, StoragePath toStoragePath)
     throws AlreadyExistsException, GenericException, RequestNotValidException, NotFoundException,
     AuthorizationDeniedException {
     if (fromService instanceof FileStorageService) {
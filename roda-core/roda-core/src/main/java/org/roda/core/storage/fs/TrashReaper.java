@@ -0,0 +1,330 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.storage.fs;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+
+import org.roda.core.RodaCoreFactory;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.google.common.util.concurrent.RateLimiter;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Purges the trash of a {@link FileStorageService} in the background.
+ *
+ * <p>
+ * Periodically (and once after startup) the trash folder is atomically renamed
+ * into a purge batch under a sibling <code>-purge</code> folder, and a new empty
+ * trash is created. Batches are deleted oldest first, by a few threads sharing
+ * a files per second budget so that purging does not starve the storage of I/O.
+ * As batches are plain folders, purging resumes where it stopped after a
+ * restart.
+ * </p>
+ *
+ * <p>
+ * Metrics: backlog of batches and of files found but not yet deleted, and the
+ * rate of purged files.
+ * </p>
+ */
+public class TrashReaper {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TrashReaper.class);
+
+  public static final String PURGE_SUFFIX = "-purge";
+
+  private static final long DEFAULT_STARTUP_DELAY_SECONDS = 60;
+  private static final long DEFAULT_INTERVAL_SECONDS = 3600;
+  private static final int DEFAULT_THREADS = 2;
+  private static final int DEFAULT_FILES_PER_SECOND = 500;
+
+  private static long startupDelay = DEFAULT_STARTUP_DELAY_SECONDS;
+  private static long interval = DEFAULT_INTERVAL_SECONDS;
+  private static int threads = DEFAULT_THREADS;
+  private static int filesPerSecond = DEFAULT_FILES_PER_SECOND;
+
+  private final Path trashPath;
+  private final Path purgePath;
+  private final ReadWriteLock trashLock;
+  private final int purgeThreads;
+  private final RateLimiter rateLimiter;
+  private final AtomicInteger backlogBatches = new AtomicInteger(0);
+  private final AtomicLong backlogFiles = new AtomicLong(0);
+  private ScheduledExecutorService scheduler = null;
+
+  /**
+   * @param startupDelay
+   *          seconds after startup before the first purge
+   * @param interval
+   *          seconds between purges of what was trashed meanwhile
+   * @param threads
+   *          number of threads deleting files
+   * @param filesPerSecond
+   *          maximum number of files deleted per second (0 for no limit)
+   */
+  public static synchronized void configure(long startupDelay, long interval, int threads, int filesPerSecond) {
+    TrashReaper.startupDelay = startupDelay >= 0 ? startupDelay : DEFAULT_STARTUP_DELAY_SECONDS;
+    TrashReaper.interval = interval > 0 ? interval : DEFAULT_INTERVAL_SECONDS;
+    TrashReaper.threads = threads > 0 ? threads : DEFAULT_THREADS;
+    TrashReaper.filesPerSecond = filesPerSecond >= 0 ? filesPerSecond : DEFAULT_FILES_PER_SECOND;
+  }
+
+  /**
+   * @param trashLock
+   *          lock whose read lock is held while moving into the trash, so the
+   *          trash is never renamed in the middle of a move
+   */
+  public TrashReaper(Path trashPath, ReadWriteLock trashLock) {
+    this.trashPath = trashPath;
+    this.purgePath = trashPath.resolveSibling(trashPath.getFileName() + PURGE_SUFFIX);
+    this.trashLock = trashLock;
+    synchronized (TrashReaper.class) {
+      this.purgeThreads = threads;
+      this.rateLimiter = filesPerSecond > 0 ? RateLimiter.create(filesPerSecond) : null;
+    }
+  }
+
+  /**
+   * Seals the current trash, so that it is purged after the startup delay, and
+   * schedules the periodic purges.
+   */
+  public synchronized void start() throws IOException {
+    if (scheduler != null) {
+      return;
+    }
+
+    Files.createDirectories(purgePath);
+    sealTrash();
+    backlogBatches.set(listBatches().size());
+    registerMetrics();
+
+    long delay;
+    long period;
+    synchronized (TrashReaper.class) {
+      delay = startupDelay;
+      period = interval;
+    }
+
+    scheduler = Executors.newSingleThreadScheduledExecutor(
+      new ThreadFactoryBuilder().setNameFormat("trash-reaper-%d").setDaemon(true).build());
+    scheduler.scheduleWithFixedDelay(this::reap, delay, period, TimeUnit.SECONDS);
+    LOGGER.info("Trash reaper of {} will start in {}s, with {} batches to purge", trashPath, delay,
+      backlogBatches.get());
+  }
+
+  public synchronized void stop() {
+    if (scheduler != null) {
+      scheduler.shutdownNow();
+      scheduler = null;
+    }
+  }
+
+  public int getBacklogBatches() {
+    return backlogBatches.get();
+  }
+
+  public long getBacklogFiles() {
+    return backlogFiles.get();
+  }
+
+  /**
+   * Seals the current trash and purges all batches, waiting for them to be
+   * deleted.
+   */
+  public void reap() {
+    try {
+      sealTrash();
+      for (Path batch : listBatches()) {
+        if (Thread.currentThread().isInterrupted()) {
+          break;
+        }
+        purge(batch);
+      }
+    } catch (IOException e) {
+      LOGGER.error("Error purging trash of {}", trashPath, e);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.info("Stopped purging trash of {}", trashPath);
+    } catch (RuntimeException e) {
+      // an exception would cancel the next executions
+      LOGGER.error("Unexpected error purging trash of {}", trashPath, e);
+    }
+  }
+
+  private void sealTrash() throws IOException {
+    Lock lock = trashLock.writeLock();
+    lock.lock();
+    try {
+      if (!Files.isDirectory(trashPath) || isEmpty(trashPath)) {
+        Files.createDirectories(trashPath);
+        return;
+      }
+
+      long batchNumber = System.currentTimeMillis();
+      Path batch = purgePath.resolve(String.format("%020d", batchNumber));
+      while (Files.exists(batch)) {
+        batchNumber++;
+        batch = purgePath.resolve(String.format("%020d", batchNumber));
+      }
+      Files.move(trashPath, batch, StandardCopyOption.ATOMIC_MOVE);
+
+      Files.createDirectories(trashPath);
+      backlogBatches.incrementAndGet();
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private List<Path> listBatches() throws IOException {
+    List<Path> batches = new ArrayList<>();
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(purgePath)) {
+      for (Path batch : stream) {
+        batches.add(batch);
+      }
+    }
+    // names are zero padded timestamps, so oldest first
+    Collections.sort(batches);
+    return batches;
+  }
+
+  private static boolean isEmpty(Path directory) throws IOException {
+    try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory)) {
+      return !stream.iterator().hasNext();
+    }
+  }
+
+  /**
+   * Deletes the files of a batch in parallel, fed by a walk of the batch, and
+   * then its (now empty) folders.
+   */
+  private void purge(final Path batch) throws IOException, InterruptedException {
+    LOGGER.debug("Purging trash batch {}", batch);
+    final BlockingQueue<Path> files = new ArrayBlockingQueue<>(1000);
+    final AtomicBoolean walked = new AtomicBoolean(false);
+    final AtomicLong purged = new AtomicLong(0);
+    List<Thread> deleters = new ArrayList<>();
+    for (int i = 0; i < purgeThreads; i++) {
+      Thread deleter = new Thread(() -> deleteFiles(files, walked, purged), "trash-reaper-deleter-" + i);
+      deleter.setDaemon(true);
+      deleter.start();
+      deleters.add(deleter);
+    }
+
+    try {
+      Files.walkFileTree(batch, new SimpleFileVisitor<Path>() {
+        @Override
+        public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+          try {
+            backlogFiles.incrementAndGet();
+            files.put(file);
+          } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return FileVisitResult.TERMINATE;
+          }
+          return FileVisitResult.CONTINUE;
+        }
+
+        @Override
+        public FileVisitResult visitFileFailed(Path file, IOException e) {
+          LOGGER.warn("Could not visit {} while purging trash", file, e);
+          return FileVisitResult.CONTINUE;
+        }
+      });
+    } finally {
+      walked.set(true);
+      if (Thread.currentThread().isInterrupted()) {
+        deleters.forEach(Thread::interrupt);
+        backlogFiles.set(0);
+      } else {
+        for (Thread deleter : deleters) {
+          deleter.join();
+        }
+      }
+    }
+
+    if (Thread.currentThread().isInterrupted()) {
+      throw new InterruptedException();
+    }
+
+    // the remaining folders (and any file that could not be deleted)
+    FSUtils.deletePathQuietly(batch);
+    if (!Files.exists(batch)) {
+      backlogBatches.decrementAndGet();
+    }
+    LOGGER.info("Purged {} files of trash batch {}", purged.get(), batch);
+  }
+
+  private void deleteFiles(BlockingQueue<Path> files, AtomicBoolean walked, AtomicLong purged) {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    try {
+      while (true) {
+        Path file = files.poll(100, TimeUnit.MILLISECONDS);
+        if (file == null) {
+          if (walked.get() && files.isEmpty()) {
+            break;
+          }
+          continue;
+        }
+
+        if (rateLimiter != null) {
+          rateLimiter.acquire();
+        }
+        try {
+          Files.delete(file);
+          purged.incrementAndGet();
+          if (metrics != null) {
+            metrics.meter(MetricRegistry.name(TrashReaper.class, "purged")).mark();
+          }
+        } catch (NoSuchFileException e) {
+          // already deleted
+        } catch (IOException e) {
+          LOGGER.warn("Could not delete {} while purging trash", file, e);
+        }
+        backlogFiles.decrementAndGet();
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private void registerMetrics() {
+    MetricRegistry metrics = RodaCoreFactory.getMetrics();
+    if (metrics != null) {
+      String batchesName = MetricRegistry.name(TrashReaper.class, "backlog", "batches");
+      String filesName = MetricRegistry.name(TrashReaper.class, "backlog", "files");
+      metrics.remove(batchesName);
+      metrics.remove(filesName);
+      metrics.register(batchesName, (Gauge<Integer>) backlogBatches::get);
+      metrics.register(filesName, (Gauge<Long>) backlogFiles::get);
+    }
+  }
+
+}
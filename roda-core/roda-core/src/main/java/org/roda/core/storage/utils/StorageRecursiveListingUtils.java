@@ -8,10 +8,20 @@
 package org.roda.core.storage.utils;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.Iterator;
-import java.util.Stack;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import org.apache.commons.io.IOUtils;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -23,70 +33,109 @@ import org.roda.core.storage.StorageService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Emulates recursive listing and counting for storages that can only list one
+ * level at a time (e.g. Fedora, where each level is a round-trip).
+ *
+ * Listings are depth-first, as a native recursive listing, but the directories
+ * ahead of the current position are listed in parallel so that their contents
+ * are already known when the iteration gets to them. The number of directories
+ * read ahead is bounded on each level.
+ */
 public class StorageRecursiveListingUtils {
 
+  private static final Logger LOGGER = LoggerFactory.getLogger(StorageRecursiveListingUtils.class);
+
+  private static final int DEFAULT_THREADS = 8;
+  private static final int DEFAULT_READ_AHEAD = 16;
+
+  private static int threads = DEFAULT_THREADS;
+  private static int readAhead = DEFAULT_READ_AHEAD;
+  private static ExecutorService executor = null;
+
+  /**
+   * Lists the children of a node of a tree, for counting it.
+   */
+  public interface TreeLister<T> {
+    List<T> listChildren(T node)
+      throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException;
+
+    boolean hasChildren(T node);
+  }
+
   private StorageRecursiveListingUtils() {
   }
 
-  private static final Logger LOGGER = LoggerFactory.getLogger(StorageRecursiveListingUtils.class);
+  /**
+   * @param threads
+   *          number of directories listed in parallel
+   * @param readAhead
+   *          number of resources read ahead on each level of a listing (and
+   *          maximum number of directories being listed for each count)
+   */
+  public static synchronized void configure(int threads, int readAhead) {
+    StorageRecursiveListingUtils.threads = threads > 0 ? threads : DEFAULT_THREADS;
+    StorageRecursiveListingUtils.readAhead = readAhead > 0 ? readAhead : DEFAULT_READ_AHEAD;
+    if (executor != null) {
+      executor.shutdown();
+      executor = null;
+    }
+  }
+
+  private static synchronized ExecutorService getExecutor() {
+    if (executor == null) {
+      executor = Executors.newFixedThreadPool(threads,
+        new ThreadFactoryBuilder().setNameFormat("storage-listing-%d").setDaemon(true).build());
+    }
+    return executor;
+  }
+
+  private static synchronized int getReadAhead() {
+    return readAhead;
+  }
 
   private static CloseableIterable<Resource> recursiveListing(final StorageService storage,
     final CloseableIterable<Resource> iterable) {
-    final Iterator<Resource> directlyUnder = iterable.iterator();
+    final int levelReadAhead = getReadAhead();
+    final ExecutorService listingExecutor = getExecutor();
+    final Map<StoragePath, Future<List<Resource>>> listings = new HashMap<>();
 
-    CloseableIterable<Resource> ret = new CloseableIterable<Resource>() {
+    return new CloseableIterable<Resource>() {
 
       @Override
       public Iterator<Resource> iterator() {
-        return new Iterator<Resource>() {
+        final Deque<Level> levels = new ArrayDeque<>();
+        levels.push(new Level(iterable.iterator()));
 
-          Stack<CloseableIterable<Resource>> itStack = new Stack<CloseableIterable<Resource>>();
+        return new Iterator<Resource>() {
 
           @Override
           public boolean hasNext() {
-            boolean hasNext;
-
-            if (itStack.isEmpty()) {
-              hasNext = directlyUnder.hasNext();
-            } else {
-              hasNext = false;
-              // find a non-empty iterator or empty stack
-              do {
-                if (!itStack.peek().iterator().hasNext()) {
-                  try {
-                    itStack.pop().close();
-                  } catch (IOException e) {
-                    LOGGER.warn("Error closing file iterable, possible file leak", e);
-                  }
-                } else {
-                  hasNext = true;
-                }
-              } while (!hasNext && !itStack.isEmpty());
-
-              if (itStack.isEmpty()) {
-                hasNext = directlyUnder.hasNext();
-              }
+            while (!levels.isEmpty() && !levels.peek().hasNext()) {
+              levels.pop();
             }
-            return hasNext;
+            return !levels.isEmpty();
           }
 
           @Override
           public Resource next() {
-            Resource resource = null;
-            if (itStack.isEmpty()) {
-              resource = directlyUnder.next();
-            } else {
-              resource = itStack.peek().iterator().next();
+            if (!hasNext()) {
+              throw new NoSuchElementException();
             }
 
-            try {
-              if (resource != null && resource.isDirectory()) {
-                CloseableIterable<Resource> subIterable = storage.listResourcesUnderDirectory(resource.getStoragePath(),
-                  false);
-                itStack.push(subIterable);
+            Resource resource = levels.peek().next();
+            if (resource != null && resource.isDirectory()) {
+              Future<List<Resource>> listing = listings.remove(resource.getStoragePath());
+              try {
+                levels.push(new Level(listing.get().iterator()));
+              } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while listing all files", e);
+              } catch (ExecutionException e) {
+                LOGGER.warn("Error while listing all files", e.getCause());
               }
-            } catch (RequestNotValidException | GenericException | NotFoundException | AuthorizationDeniedException e) {
-              LOGGER.warn("Error while listing all files", e);
             }
 
             return resource;
@@ -96,16 +145,63 @@ public class StorageRecursiveListingUtils {
 
       @Override
       public void close() throws IOException {
+        for (Future<List<Resource>> listing : listings.values()) {
+          listing.cancel(true);
+        }
+        listings.clear();
         iterable.close();
       }
+
+      /**
+       * A level of the listing, which starts listing the directories read ahead
+       */
+      final class Level {
+        private final Iterator<Resource> resources;
+        // may contain nulls, which the storage listings return on errors
+        private final LinkedList<Resource> ahead = new LinkedList<>();
+
+        Level(Iterator<Resource> resources) {
+          this.resources = resources;
+        }
+
+        private void readAhead() {
+          while (ahead.size() < levelReadAhead && resources.hasNext()) {
+            Resource resource = resources.next();
+            if (resource != null && resource.isDirectory()) {
+              final StoragePath storagePath = resource.getStoragePath();
+              listings.put(storagePath, listingExecutor.submit(() -> listDirectory(storage, storagePath)));
+            }
+            ahead.add(resource);
+          }
+        }
+
+        boolean hasNext() {
+          readAhead();
+          return !ahead.isEmpty();
+        }
+
+        Resource next() {
+          readAhead();
+          return ahead.removeFirst();
+        }
+      }
     };
+  }
 
-    return ret;
+  private static List<Resource> listDirectory(StorageService storage, StoragePath storagePath)
+    throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException, IOException {
+    List<Resource> resources = new ArrayList<>();
+    try (CloseableIterable<Resource> iterable = storage.listResourcesUnderDirectory(storagePath, false)) {
+      for (Resource resource : iterable) {
+        resources.add(resource);
+      }
+    }
+    return resources;
   }
 
   /**
    * Emulates recursive listing using non-recursive listing
-   * 
+   *
    * @param storage
    * @param storagePath
    * @return
@@ -124,7 +220,7 @@ public class StorageRecursiveListingUtils {
 
   /**
    * Emulates recursive listing using non-recursive listing
-   * 
+   *
    * @param storage
    * @param storagePath
    * @return
@@ -139,28 +235,114 @@ public class StorageRecursiveListingUtils {
     return recursiveListing(storage, iterable);
   }
 
-  public static Long countAllUnderDirectory(StorageService storage, StoragePath storagePath)
+  public static Long countAllUnderDirectory(final StorageService storage, StoragePath storagePath)
     throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
-    Long ret = 0L;
-    CloseableIterable<Resource> iterable = listAllUnderDirectory(storage, storagePath);
-    Iterator<Resource> it = iterable.iterator();
-    while (it.hasNext()) {
-      ret++;
-    }
-    IOUtils.closeQuietly(iterable);
-    return ret;
+    return countTree(storagePath, new StorageTreeLister(storage) {
+      @Override
+      public List<StoragePath> listChildren(StoragePath node)
+        throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
+        return list(storage.listResourcesUnderDirectory(node, false));
+      }
+    });
   }
 
-  public static Long countAllUnderContainer(StorageService storage, StoragePath storagePath)
+  public static Long countAllUnderContainer(final StorageService storage, final StoragePath storagePath)
     throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
-    Long ret = 0L;
-    CloseableIterable<Resource> iterable = listAllUnderContainer(storage, storagePath);
-    Iterator<Resource> it = iterable.iterator();
-    while (it.hasNext()) {
-      ret++;
+    return countTree(storagePath, new StorageTreeLister(storage) {
+      @Override
+      public List<StoragePath> listChildren(StoragePath node)
+        throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
+        return list(node == storagePath ? storage.listResourcesUnderContainer(node, false)
+          : storage.listResourcesUnderDirectory(node, false));
+      }
+    });
+  }
+
+  /**
+   * Counts all the descendants of a node, listing up to the read ahead number of
+   * nodes in parallel. Errors listing the root are thrown, errors listing its
+   * descendants are logged and the descendants ignored.
+   */
+  public static <T> Long countTree(T root, TreeLister<T> lister)
+    throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException {
+    final int maxListings = getReadAhead();
+    final ExecutorService listingExecutor = getExecutor();
+    final Deque<T> toList = new ArrayDeque<>();
+    final Deque<Future<List<T>>> listings = new ArrayDeque<>();
+
+    long count = 0;
+    List<T> children = lister.listChildren(root);
+    try {
+      while (children != null) {
+        count += children.size();
+        for (T child : children) {
+          if (lister.hasChildren(child)) {
+            toList.push(child);
+          }
+        }
+
+        while (!toList.isEmpty() && listings.size() < maxListings) {
+          final T node = toList.pop();
+          listings.add(listingExecutor.submit(() -> lister.listChildren(node)));
+        }
+
+        children = listings.isEmpty() ? null : waitForListing(listings.poll());
+      }
+    } finally {
+      for (Future<List<T>> listing : listings) {
+        listing.cancel(true);
+      }
+    }
+
+    return count;
+  }
+
+  private static <T> List<T> waitForListing(Future<List<T>> listing) throws GenericException {
+    try {
+      return listing.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while counting resources", e);
+    } catch (ExecutionException e) {
+      LOGGER.warn("Error while counting all resources", e.getCause());
+      return new ArrayList<>();
+    }
+  }
+
+  private abstract static class StorageTreeLister implements TreeLister<StoragePath> {
+    private final StorageService storage;
+    private final Map<StoragePath, Boolean> directories = new HashMap<>();
+
+    StorageTreeLister(StorageService storage) {
+      this.storage = storage;
+    }
+
+    protected List<StoragePath> list(CloseableIterable<Resource> iterable) throws GenericException {
+      List<StoragePath> children = new ArrayList<>();
+      try (CloseableIterable<Resource> resources = iterable) {
+        for (Resource resource : resources) {
+          if (resource != null) {
+            children.add(resource.getStoragePath());
+            synchronized (directories) {
+              directories.put(resource.getStoragePath(), resource.isDirectory());
+            }
+          } else {
+            // the storage could not convert it, but it still is there
+            children.add(null);
+          }
+        }
+      } catch (IOException e) {
+        throw new GenericException("Error while closing listing of " + storage, e);
+      }
+      return children;
+    }
+
+    @Override
+    public boolean hasChildren(StoragePath node) {
+      synchronized (directories) {
+        return node != null && Boolean.TRUE.equals(directories.remove(node));
+      }
     }
-    IOUtils.closeQuietly(iterable);
-    return ret;
   }
 
 }
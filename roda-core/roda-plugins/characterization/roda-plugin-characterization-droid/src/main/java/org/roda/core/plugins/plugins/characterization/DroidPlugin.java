@@ -15,7 +15,7 @@ import java.util.List;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
-import org.roda.core.common.PremisV3Utils;
+import org.roda.core.common.PremisUpdateSession;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.common.iterables.CloseableIterables;
 import org.roda.core.data.common.RodaConstants;
@@ -132,6 +132,7 @@ public class DroidPlugin extends AbstractPlugin<AIP> {
 
         if (!CloseableIterables.isEmpty(allFiles)) {
           String droidOutput = DroidPluginUtils.runDROIDOnPath(directAccess.getPath());
+          PremisUpdateSession premisSession = new PremisUpdateSession(model, false);
 
           for (String outputLine : droidOutput.split("\n")) {
             int splitterPosition = outputLine.lastIndexOf(",");
@@ -146,10 +147,12 @@ public class DroidPlugin extends AbstractPlugin<AIP> {
             model.createOrUpdateOtherMetadata(aip.getId(), representation.getId(), fileDirectoryPath, fileId, ".xml",
               RodaConstants.OTHER_METADATA_TYPE_DROID, payload, inotify);
 
-            PremisV3Utils.updateFormatPreservationMetadata(model, aip.getId(), representation.getId(),
-              fileDirectoryPath, fileId, null, null, pronom, null, false);
-            model.notifyRepresentationUpdated(representation);
+            premisSession.updateFormat(aip.getId(), representation.getId(), fileDirectoryPath, fileId, null, null,
+              pronom, null);
           }
+
+          premisSession.commit(false);
+          model.notifyRepresentationUpdated(representation);
         }
 
       } catch (RODAException e) {
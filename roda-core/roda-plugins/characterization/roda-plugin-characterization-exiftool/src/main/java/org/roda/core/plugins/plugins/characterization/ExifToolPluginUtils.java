@@ -12,14 +12,21 @@ import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 import org.roda.core.RodaCoreFactory;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
+import org.roda.core.util.ToolProcessManager;
+import org.roda.core.util.ToolProcessPool;
 
 public class ExifToolPluginUtils {
 
-  private static List<String> getBatchCommand(Path sourceDirectory, Path exifToolOutputDirectory) {
+  private static final String POOL_NAME = "exiftool";
+  private static final String STAY_OPEN_READY = "{ready}";
+  private static final int DEFAULT_SERVER_TIMEOUT_SECONDS = 600;
+
+  private static String getExecutable() {
     Path rodaHome = RodaCoreFactory.getRodaHomePath();
     Path exifToolHome = rodaHome
       .resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "exiftool", "home"));
@@ -27,23 +34,52 @@ public class ExifToolPluginUtils {
     File EXIFTOOL_DIRECTORY = exifToolHome.toFile();
 
     String osName = System.getProperty("os.name");
-    List<String> command;
     if (osName.startsWith("Windows")) {
-      command = new ArrayList<String>(Arrays.asList(
-        EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool.exe", "-X", "-w",
-        exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml", sourceDirectory.toFile().getAbsolutePath()));
+      return EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool.exe";
     } else {
-      command = new ArrayList<String>(Arrays.asList(EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool",
-        "-X", "-w", exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml",
-        sourceDirectory.toFile().getAbsolutePath()));
+      return EXIFTOOL_DIRECTORY.getAbsolutePath() + File.separator + "exiftool";
     }
+  }
+
+  private static List<String> getArguments(Path sourceDirectory, Path exifToolOutputDirectory) {
+    return new ArrayList<String>(Arrays.asList("-X", "-w",
+      exifToolOutputDirectory.toFile().getAbsolutePath() + "/%f.%e.xml", sourceDirectory.toFile().getAbsolutePath()));
+  }
+
+  private static List<String> getBatchCommand(Path sourceDirectory, Path exifToolOutputDirectory) {
+    List<String> command = new ArrayList<String>();
+    command.add(getExecutable());
+    command.addAll(getArguments(sourceDirectory, exifToolOutputDirectory));
     return command;
   }
 
+  private static ToolProcessPool getPool() {
+    return ToolProcessManager.getPool(POOL_NAME, () -> {
+      int workers = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+        "tools", "exiftool", "server", "workers");
+      int timeout = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_SERVER_TIMEOUT_SECONDS, "core", "tools",
+        "exiftool", "server", "timeout");
+      return new ToolProcessPool(POOL_NAME, Arrays.asList(getExecutable(), "-stay_open", "True", "-@", "-"),
+        STAY_OPEN_READY, Arrays.asList("-stay_open", "False"), workers, TimeUnit.SECONDS.toMillis(timeout));
+    });
+  }
+
+  private static boolean isServerMode() {
+    String mode = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "exiftool", "mode");
+    return mode != null && mode.equalsIgnoreCase("server");
+  }
+
   public static String runExifToolOnPath(Path sourceDirectory, Path exifToolOutputDirectory) throws CommandException {
-    List<String> command = getBatchCommand(sourceDirectory, exifToolOutputDirectory);
-    String exifToolOutput = CommandUtility.execute(command);
-    return exifToolOutput;
+    if (isServerMode()) {
+      // exiftool -stay_open reads one argument per line and runs on -execute
+      List<String> request = getArguments(sourceDirectory, exifToolOutputDirectory);
+      request.add("-execute");
+      return getPool().execute(request);
+    } else {
+      List<String> command = getBatchCommand(sourceDirectory, exifToolOutputDirectory);
+      String exifToolOutput = CommandUtility.execute(command);
+      return exifToolOutput;
+    }
   }
 
 }
@@ -17,9 +17,15 @@ import org.roda.core.RodaCoreFactory;
 import org.roda.core.data.exceptions.RODAException;
 import org.roda.core.util.CommandException;
 import org.roda.core.util.CommandUtility;
+import org.roda.core.util.ToolDaemon;
+import org.roda.core.util.ToolProcessManager;
 
 public class FITSPluginUtils {
 
+  private static final String NAILGUN_DAEMON_NAME = "fits-nailgun";
+  private static final String NAILGUN_FITS_CLASS = "edu.harvard.hul.ois.fits.Fits";
+  private static final int DEFAULT_NAILGUN_PORT = 2113;
+
   // public static Path inspect(File f) throws FitsException {
   // try {
   // List<String> command = getCommand();
@@ -94,11 +100,50 @@ public class FITSPluginUtils {
     return command;
   }
 
+  /**
+   * FITS nailgun server (fits-ngserver.sh) kept running by RODA, so the FITS
+   * JVM and its tools are loaded only once.
+   */
+  private static ToolDaemon getNailgunDaemon() {
+    return ToolProcessManager.getDaemon(NAILGUN_DAEMON_NAME, () -> {
+      Path rodaHome = RodaCoreFactory.getRodaHomePath();
+      Path fitsHome = rodaHome.resolve(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "fits", "home"));
+      String host = RodaCoreFactory.getRodaConfiguration().getString("core.tools.fits.nailgun.host", "127.0.0.1");
+      int port = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_NAILGUN_PORT, "core", "tools", "fits", "nailgun",
+        "port");
+      int maxRequests = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core",
+        "tools", "fits", "nailgun", "maxConcurrentRequests");
+      int startupTimeout = RodaCoreFactory.getRodaConfigurationAsInt(60000, "core", "tools", "fits", "nailgun",
+        "startupTimeout");
+      List<String> command = Arrays.asList(fitsHome.toFile().getAbsolutePath() + File.separator + "fits-ngserver.sh",
+        host + ":" + port);
+      return new ToolDaemon(NAILGUN_DAEMON_NAME, command, host, port, maxRequests, startupTimeout);
+    });
+  }
+
+  private static List<String> getNailgunCommand(ToolDaemon daemon, Path sourceDirectory, Path outputDirectory) {
+    String client = RodaCoreFactory.getRodaConfiguration().getString("core.tools.fits.nailgun.client", "ng");
+    return new ArrayList<String>(Arrays.asList(client, "--nailgun-server", daemon.getHost(), "--nailgun-port",
+      Integer.toString(daemon.getPort()), NAILGUN_FITS_CLASS, "-o", outputDirectory.toFile().getAbsolutePath(), "-i",
+      sourceDirectory.toFile().getAbsolutePath()));
+  }
+
+  private static boolean isNailgunMode() {
+    String mode = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "fits", "mode");
+    return mode != null && mode.equalsIgnoreCase("nailgun");
+  }
+
   public static String runFITSOnPath(Path sourceDirectory, Path outputDirectory) throws RODAException {
     try {
-      List<String> command = getBatchCommand(sourceDirectory, outputDirectory);
-      String fitsOutput = CommandUtility.execute(command);
-      return fitsOutput;
+      if (isNailgunMode()) {
+        ToolDaemon daemon = getNailgunDaemon();
+        List<String> command = getNailgunCommand(daemon, sourceDirectory, outputDirectory);
+        return daemon.call(() -> CommandUtility.execute(command));
+      } else {
+        List<String> command = getBatchCommand(sourceDirectory, outputDirectory);
+        String fitsOutput = CommandUtility.execute(command);
+        return fitsOutput;
+      }
     } catch (CommandException e) {
       throw new RODAException("Error while executing FITS command");
     }
@@ -7,7 +7,6 @@
  */
 package org.roda.core.plugins.plugins.characterization;
 
-import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -45,10 +44,9 @@ import org.roda.core.plugins.PluginException;
 import org.roda.core.plugins.RODAObjectProcessingLogic;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
-import org.roda.core.storage.Binary;
 import org.roda.core.storage.ContentPayload;
 import org.roda.core.storage.StorageService;
-import org.roda.core.storage.fs.FSPathContentPayload;
+import org.roda.core.storage.StringContentPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -118,13 +116,11 @@ public class JHOVEPlugin extends AbstractPlugin<AIP> {
             if (!file.isDirectory()) {
               LOGGER.debug("Processing file: {}", file);
               StoragePath storagePath = ModelUtils.getFileStoragePath(file);
-              Binary binary = storage.getBinary(storagePath);
 
-              Path jhoveResults = JHOVEPluginUtils.runJhove(binary, getParameterValues());
-              ContentPayload payload = new FSPathContentPayload(jhoveResults);
+              String jhoveResults = JHOVEPluginUtils.runJhove(storage, storagePath);
+              ContentPayload payload = new StringContentPayload(jhoveResults);
               model.createOrUpdateOtherMetadata(aip.getId(), representation.getId(), file.getPath(), file.getId(),
                 ".xml", RodaConstants.OTHER_METADATA_TYPE_JHOVE, payload, inotify);
-              jhoveResults.toFile().delete();
 
               sources.add(PluginHelper.getLinkingIdentifier(aip.getId(), representation.getId(), file.getPath(),
                 file.getId(), RodaConstants.PRESERVATION_LINKING_OBJECT_SOURCE));
@@ -7,17 +7,24 @@
  */
 package org.roda.core.plugins.plugins.characterization;
 
-import java.io.File;
+import java.io.ByteArrayOutputStream;
 import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Calendar;
-import java.util.Map;
 
 import org.apache.commons.io.IOUtils;
 import org.roda.core.RodaCoreFactory;
-import org.roda.core.storage.Binary;
+import org.roda.core.data.v2.ip.StoragePath;
+import org.roda.core.storage.DirectResourceAccess;
+import org.roda.core.storage.StorageService;
 import org.roda.core.util.FileUtility;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -30,55 +37,96 @@ import edu.harvard.hul.ois.jhove.OutputHandler;
 public class JHOVEPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(JHOVEPluginUtils.class);
 
-  public static Path inspect(File targetFile) throws Exception {
-
-    if (targetFile == null || !targetFile.isFile() || !targetFile.exists()) {
-      LOGGER.warn("target file '{}' cannot be found.", targetFile);
-      throw new FileNotFoundException("target file '" + targetFile + "' cannot be found.");
+  private static final String OUTPUT_HANDLER = "XML";
+
+  private static Path configFile = null;
+
+  /**
+   * JhoveBase is not thread safe and initialising its modules is expensive, so
+   * each worker thread keeps its own initialised instance
+   */
+  private static final ThreadLocal<JhoveBase> JHOVE = new ThreadLocal<JhoveBase>() {
+    @Override
+    protected JhoveBase initialValue() {
+      try {
+        JhoveBase jhoveBase = new JhoveBase();
+        jhoveBase.init(getConfigFile().toString(), null);
+        LOGGER.debug("Initialised JHOVE for thread {}", Thread.currentThread().getName());
+        return jhoveBase;
+      } catch (Exception e) {
+        throw new IllegalStateException("Could not initialise JHOVE", e);
+      }
     }
+  };
 
-    Calendar calendar = Calendar.getInstance();
+  private static final App APP;
 
-    App app = new App(JHOVEPluginUtils.class.getSimpleName(), "1.0",
+  static {
+    Calendar calendar = Calendar.getInstance();
+    APP = new App(JHOVEPluginUtils.class.getSimpleName(), "1.0",
       new int[] {calendar.get(Calendar.YEAR), calendar.get(Calendar.MONTH), calendar.get(Calendar.DAY_OF_MONTH)},
       "Format Identification Utility", "");
-    JhoveBase jhoveBase = new JhoveBase();
-
-    // FIXME why do we have to create a copy of jhove config file? can this be
-    // optimized?
-    File configFile = File.createTempFile("jhove", "conf");
-    FileOutputStream fos = new FileOutputStream(configFile);
-    String jhoveConfigPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "jhove", "config");
-    IOUtils.copy(FileUtility.getConfigurationFile(RodaCoreFactory.getConfigPath(), jhoveConfigPath), fos);
-    fos.close();
+  }
 
-    jhoveBase.init(configFile.getAbsolutePath(), null);
+  /**
+   * JHOVE needs its configuration on the file system, which may not be the case
+   * for the RODA configuration (e.g. when loaded from the classpath), so it is
+   * copied once to a temporary file.
+   */
+  private static synchronized Path getConfigFile() throws IOException {
+    if (configFile == null || !Files.exists(configFile)) {
+      Path tempConfig = Files.createTempFile("jhove", "conf");
+      tempConfig.toFile().deleteOnExit();
+      String jhoveConfigPath = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "jhove", "config");
+      InputStream configStream = FileUtility.getConfigurationFile(RodaCoreFactory.getConfigPath(), jhoveConfigPath);
+      try {
+        Files.copy(configStream, tempConfig, StandardCopyOption.REPLACE_EXISTING);
+      } finally {
+        IOUtils.closeQuietly(configStream);
+      }
+      configFile = tempConfig;
+    }
+    return configFile;
+  }
 
-    File outputFile = File.createTempFile("jhove", "output");
-    LOGGER.debug("JHOVE output file {}", outputFile);
+  /**
+   * Validates the target file with JHOVE, writing the XML output to the given
+   * stream. The stream is not closed.
+   */
+  public static void inspect(Path targetFile, OutputStream output) throws Exception {
+    if (targetFile == null || !Files.isRegularFile(targetFile)) {
+      LOGGER.warn("target file '{}' cannot be found.", targetFile);
+      throw new FileNotFoundException("target file '" + targetFile + "' cannot be found.");
+    }
 
+    JhoveBase jhoveBase = JHOVE.get();
     Module module = jhoveBase.getModule(null);
-    OutputHandler aboutHandler = jhoveBase.getHandler(null);
-    OutputHandler xmlHandler = jhoveBase.getHandler("XML");
-
-    LOGGER.debug("Calling JHOVE dispatch(...) on file {}", targetFile);
-
-    jhoveBase.dispatch(app, module, aboutHandler, xmlHandler, outputFile.getAbsolutePath(),
-      new String[] {targetFile.getAbsolutePath()});
-
-    configFile.delete();
-    return outputFile.toPath();
+    OutputHandler handler = jhoveBase.getHandler(OUTPUT_HANDLER);
+
+    LOGGER.debug("Calling JHOVE on file {}", targetFile);
+
+    // same steps as JhoveBase.dispatch(...), but writing to a stream instead of
+    // a file
+    PrintWriter writer = new PrintWriter(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+    handler.reset();
+    handler.setWriter(writer);
+    handler.setBase(jhoveBase);
+    handler.setApp(APP);
+    handler.showHeader();
+    jhoveBase.process(APP, module, handler, targetFile.toAbsolutePath().toString());
+    handler.showFooter();
+    writer.flush();
   }
 
-  public static Path runJhove(Binary binary, Map<String, String> parameterValues) throws Exception {
-    // FIXME temp file that doesn't get deleted afterwards
-    java.io.File f = File.createTempFile("temp", ".temp");
-    FileOutputStream fos = new FileOutputStream(f);
-    InputStream inputStream = binary.getContent().createInputStream();
-    IOUtils.copy(inputStream, fos);
-    IOUtils.closeQuietly(inputStream);
-    fos.close();
-    return inspect(f);
+  public static String runJhove(StorageService storage, StoragePath storagePath) throws Exception {
+    DirectResourceAccess directAccess = storage.getDirectAccess(storagePath);
+    try {
+      ByteArrayOutputStream output = new ByteArrayOutputStream();
+      inspect(directAccess.getPath(), output);
+      return new String(output.toByteArray(), StandardCharsets.UTF_8);
+    } finally {
+      IOUtils.closeQuietly(directAccess);
+    }
   }
 
 }
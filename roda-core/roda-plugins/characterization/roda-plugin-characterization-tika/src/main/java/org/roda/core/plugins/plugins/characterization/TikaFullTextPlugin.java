@@ -13,6 +13,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import org.roda.core.common.PremisUpdateSession;
 import org.roda.core.common.iterables.CloseableIterable;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.common.RodaConstants.PreservationEventType;
@@ -74,7 +75,7 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
 
   @Override
   public void shutdown() {
-    // do nothing
+    TikaService.shutdown();
   }
 
   public static String getStaticName() {
@@ -140,19 +141,21 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
 
             CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(aip.getId(),
               representation.getId(), true);
+            PremisUpdateSession premisSession = new PremisUpdateSession(model);
 
             for (OptionalWithCause<File> oFile : allFiles) {
               if (oFile.isPresent()) {
                 File file = oFile.get();
 
                 LinkingIdentifier tikaResult = TikaFullTextPluginUtils.runTikaFullTextOnFile(index, model, storage,
-                  file, doFeatureExtraction, doFulltextExtraction);
+                  file, doFeatureExtraction, doFulltextExtraction, premisSession);
                 sources.add(tikaResult);
               } else {
                 LOGGER.error("Cannot process File", oFile.getCause());
               }
             }
 
+            premisSession.commit(true);
             model.notifyRepresentationUpdated(representation);
           }
 
@@ -211,19 +214,21 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
         try {
           CloseableIterable<OptionalWithCause<File>> allFiles = model.listFilesUnder(representation.getAipId(),
             representation.getId(), true);
+          PremisUpdateSession premisSession = new PremisUpdateSession(model);
 
           for (OptionalWithCause<File> oFile : allFiles) {
             if (oFile.isPresent()) {
               File file = oFile.get();
 
               LinkingIdentifier tikaResult = TikaFullTextPluginUtils.runTikaFullTextOnFile(index, model, storage, file,
-                doFeatureExtraction, doFulltextExtraction);
+                doFeatureExtraction, doFulltextExtraction, premisSession);
               sources.add(tikaResult);
             } else {
               LOGGER.error("Cannot process File", oFile.getCause());
             }
           }
 
+          premisSession.commit(true);
           model.notifyRepresentationUpdated(representation);
           jobPluginInfo.incrementObjectsProcessedWithSuccess();
           reportItem.setPluginState(PluginState.SUCCESS);
@@ -270,6 +275,7 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
     SimpleJobPluginInfo jobPluginInfo, List<File> list, Job job) throws PluginException {
 
     List<RepresentationLink> representationsToUpdate = new ArrayList<RepresentationLink>();
+    PremisUpdateSession premisSession = new PremisUpdateSession(model);
 
     for (File file : list) {
       LOGGER.debug("Processing file {} of representation {} of AIP {}", file.getId(), file.getRepresentationId(),
@@ -281,7 +287,7 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
 
       try {
         LinkingIdentifier tikaResult = TikaFullTextPluginUtils.runTikaFullTextOnFile(index, model, storage, file,
-          doFeatureExtraction, doFulltextExtraction);
+          doFeatureExtraction, doFulltextExtraction, premisSession);
         sources.add(tikaResult);
 
         RepresentationLink link = new RepresentationLink(file.getAipId(), file.getRepresentationId());
@@ -322,6 +328,8 @@ public class TikaFullTextPlugin<T extends IsRODAObject> extends AbstractAIPCompo
       }
     }
 
+    premisSession.commit(true);
+
     for (RepresentationLink link : representationsToUpdate) {
       try {
         Representation representation = model.retrieveRepresentation(link.getAipId(), link.getRepresentationId());
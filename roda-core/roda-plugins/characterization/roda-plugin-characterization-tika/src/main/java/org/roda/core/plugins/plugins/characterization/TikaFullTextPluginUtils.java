@@ -9,20 +9,20 @@ package org.roda.core.plugins.plugins.characterization;
 
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
-import org.apache.commons.io.IOUtils;
-import org.apache.commons.io.input.ReaderInputStream;
 import org.apache.commons.lang3.StringUtils;
-import org.apache.tika.Tika;
 import org.apache.tika.metadata.Metadata;
 import org.jdom2.Element;
 import org.jdom2.IllegalDataException;
 import org.jdom2.output.Format;
 import org.jdom2.output.XMLOutputter;
+import org.roda.core.RodaCoreFactory;
 import org.roda.core.common.MetadataFileUtils;
-import org.roda.core.common.PremisV3Utils;
-import org.roda.core.common.ProvidesInputStream;
+import org.roda.core.common.PremisUpdateSession;
 import org.roda.core.data.common.RodaConstants;
 import org.roda.core.data.exceptions.AuthorizationDeniedException;
 import org.roda.core.data.exceptions.GenericException;
@@ -38,20 +38,33 @@ import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.Binary;
 import org.roda.core.storage.ContentPayload;
-import org.roda.core.storage.InputStreamContentPayload;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StringContentPayload;
+import org.roda.core.storage.fs.FSPathContentPayload;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 public class TikaFullTextPluginUtils {
   private static final Logger LOGGER = LoggerFactory.getLogger(TikaFullTextPluginUtils.class);
 
-  private static final Tika tika = new Tika();
-
   public static LinkingIdentifier runTikaFullTextOnFile(IndexService index, ModelService model, StorageService storage,
     File file, boolean doFeatureExtraction, boolean doFulltextExtraction) throws NotFoundException, GenericException,
     RequestNotValidException, AuthorizationDeniedException, ValidationException, IOException {
+    PremisUpdateSession premisSession = new PremisUpdateSession(model);
+    LinkingIdentifier result = runTikaFullTextOnFile(index, model, storage, file, doFeatureExtraction,
+      doFulltextExtraction, premisSession);
+    premisSession.commit(true);
+    return result;
+  }
+
+  /**
+   * Runs Tika on a file, registering PREMIS changes on the given session. The
+   * caller is responsible for committing the session.
+   */
+  public static LinkingIdentifier runTikaFullTextOnFile(IndexService index, ModelService model, StorageService storage,
+    File file, boolean doFeatureExtraction, boolean doFulltextExtraction, PremisUpdateSession premisSession)
+    throws NotFoundException, GenericException, RequestNotValidException, AuthorizationDeniedException,
+    ValidationException, IOException {
 
     boolean notify = true; // need to index tika properties...
 
@@ -60,27 +73,31 @@ public class TikaFullTextPluginUtils {
       Binary binary = model.getStorage().getBinary(storagePath);
 
       Metadata metadata = new Metadata();
-      InputStream inputStream = null;
+      // the text is written to a temporary file as it is extracted and only
+      // then to storage, so that a failed parse never leaves partial text there
+      Path fulltextFile = null;
       try {
-        inputStream = binary.getContent().createInputStream();
-        final Reader reader = tika.parse(inputStream, metadata);
+        if (doFulltextExtraction) {
+          fulltextFile = Files.createTempFile(RodaCoreFactory.getWorkingDirectory(), "tika-fulltext", ".txt");
+        }
 
-        ContentPayload payload = new InputStreamContentPayload(new ProvidesInputStream() {
-          @Override
-          public InputStream createInputStream() throws IOException {
-            return new ReaderInputStream(reader, RodaConstants.DEFAULT_ENCODING);
+        try (InputStream inputStream = binary.getContent().createInputStream();
+          Writer fulltext = fulltextFile != null ? Files.newBufferedWriter(fulltextFile, StandardCharsets.UTF_8)
+            : null) {
+          if (TikaService.getInstance().parse(inputStream, metadata, fulltext)) {
+            LOGGER.warn("Full text of file {} of AIP {} was truncated", file.getId(), file.getAipId());
           }
-        });
+        }
 
         if (doFulltextExtraction) {
           model.createOrUpdateOtherMetadata(file.getAipId(), file.getRepresentationId(), file.getPath(), file.getId(),
-            RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT, RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA, payload, notify);
+            RodaConstants.TIKA_FILE_SUFFIX_FULLTEXT, RodaConstants.OTHER_METADATA_TYPE_APACHE_TIKA,
+            new FSPathContentPayload(fulltextFile), notify);
         }
-
-      } catch (Exception e) {
-        throw e;
       } finally {
-        IOUtils.closeQuietly(inputStream);
+        if (fulltextFile != null) {
+          Files.deleteIfExists(fulltextFile);
+        }
       }
 
       try {
@@ -98,15 +115,12 @@ public class TikaFullTextPluginUtils {
 
           if (StringUtils.isNotBlank(creatingApplicationName) || StringUtils.isNotBlank(creatingApplicationVersion)
             || StringUtils.isNotBlank(dateCreatedByApplication)) {
-            PremisV3Utils.updateCreatingApplicationPreservationMetadata(model, file.getAipId(),
-              file.getRepresentationId(), file.getPath(), file.getId(), creatingApplicationName,
-              creatingApplicationVersion, dateCreatedByApplication, notify);
+            premisSession.updateCreatingApplication(file.getAipId(), file.getRepresentationId(), file.getPath(),
+              file.getId(), creatingApplicationName, creatingApplicationVersion, dateCreatedByApplication);
           }
         }
       } catch (Exception e) {
         throw e;
-      } finally {
-        IOUtils.closeQuietly(inputStream);
       }
     }
 
@@ -0,0 +1,275 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tika.exception.TikaException;
+import org.apache.tika.fork.ForkParser;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.parser.Parser;
+import org.apache.tika.sax.BodyContentHandler;
+import org.apache.tika.sax.WriteOutContentHandler;
+import org.roda.core.RodaCoreFactory;
+import org.roda.core.data.exceptions.GenericException;
+import org.roda.core.util.ToolProcessManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.xml.sax.ContentHandler;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+
+/**
+ * Parses files with Apache Tika on a bounded pool of parsers, shared by all
+ * plugin instances, so that no more files are parsed at once than there are
+ * parsers, each file is parsed within a time limit and no more than a maximum
+ * number of characters of text is extracted from it.
+ *
+ * <p>
+ * Parsers run in RODA's JVM or, in fork mode, each in a JVM of its own (see
+ * {@link ForkParser}), so that a parser crashing or running out of memory does
+ * not bring RODA down. A parse that times out is interrupted and its input
+ * closed, which stops most parsers; in fork mode the JVM of its parser is also
+ * killed. Either way its parser is replaced, so that parses that never end do
+ * not leave the pool without parsers, and a file that waits longer than the
+ * time limit for a free parser fails as well.
+ * </p>
+ */
+public class TikaService {
+  private static final Logger LOGGER = LoggerFactory.getLogger(TikaService.class);
+
+  private static final int DEFAULT_TIMEOUT_SECONDS = 300;
+  private static final int DEFAULT_FULLTEXT_MAX_CHARS = 10000000;
+  private static final String MODE_FORK = "fork";
+  private static final String TOOL_NAME = "tika";
+
+  private static TikaService instance = null;
+
+  private final ExecutorService executor;
+  private final BlockingQueue<Parser> parsers;
+  // the auto detect parser is thread-safe, so in-process parsers share one
+  private final Parser inProcessParser;
+  private final List<String> forkJavaCommand;
+  private final long timeout;
+  private final int fulltextMaxChars;
+
+  /**
+   * @param size
+   *          number of parsers, i.e. files parsed at once
+   * @param timeout
+   *          seconds to wait for a free parser and, then, to parse a file
+   * @param fulltextMaxChars
+   *          characters of text extracted from a file, or a negative number
+   *          for no limit
+   * @param forkJavaCommand
+   *          command that starts the JVM of each parser, or null to parse in
+   *          RODA's JVM
+   */
+  public TikaService(int size, long timeout, int fulltextMaxChars, List<String> forkJavaCommand) {
+    int poolSize = size > 0 ? size : 1;
+    this.timeout = timeout;
+    this.fulltextMaxChars = fulltextMaxChars;
+    this.forkJavaCommand = forkJavaCommand;
+    // not a fixed pool, as abandoned parses may keep their threads forever
+    // (the parsers queue bounds the files parsed at once)
+    this.executor = Executors
+      .newCachedThreadPool(new ThreadFactoryBuilder().setNameFormat("tika-parser-%d").setDaemon(true).build());
+    this.parsers = new ArrayBlockingQueue<>(poolSize);
+    this.inProcessParser = forkJavaCommand != null ? null : new AutoDetectParser();
+
+    // fork parsers get a JVM each
+    for (int i = 0; i < poolSize; i++) {
+      parsers.add(newParser());
+    }
+  }
+
+  public static synchronized TikaService getInstance() {
+    if (instance == null) {
+      int size = RodaCoreFactory.getRodaConfigurationAsInt(Runtime.getRuntime().availableProcessors(), "core", "tools",
+        "tika", "parsers");
+      int timeout = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_TIMEOUT_SECONDS, "core", "tools", "tika",
+        "timeout");
+      int fulltextMaxChars = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_FULLTEXT_MAX_CHARS, "core", "tools",
+        "tika", "fulltext", "maxChars");
+
+      List<String> forkJavaCommand = null;
+      if (MODE_FORK.equalsIgnoreCase(RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "tika", "mode"))) {
+        String javaCommand = RodaCoreFactory.getRodaConfigurationAsString("core", "tools", "tika", "fork", "java");
+        forkJavaCommand = Arrays.asList(StringUtils.defaultIfBlank(javaCommand, "java -Xmx512m").trim().split("\\s+"));
+      }
+
+      instance = new TikaService(size, timeout, fulltextMaxChars, forkJavaCommand);
+      LOGGER.info("Started Tika service with {} {} parsers", size, forkJavaCommand != null ? "forked" : "in-process");
+    }
+    return instance;
+  }
+
+  public static synchronized void shutdown() {
+    if (instance != null) {
+      instance.close();
+      instance = null;
+    }
+  }
+
+  /**
+   * Parses a file, filling its metadata and writing its text.
+   *
+   * @param fulltext
+   *          where the text is written, or null to extract metadata only
+   *
+   * @return true if the text was longer than the maximum and was truncated
+   */
+  public boolean parse(InputStream input, Metadata metadata, Writer fulltext) throws GenericException {
+    WriteOutContentHandler writeOutHandler = fulltext != null
+      ? new WriteOutContentHandler(fulltext, fulltextMaxChars) : null;
+    ContentHandler handler = writeOutHandler != null ? new BodyContentHandler(writeOutHandler) : new DefaultHandler();
+
+    ParseTask task = new ParseTask(input, handler, metadata);
+    Future<Void> future = executor.submit(task);
+    try {
+      // the parse itself is timed apart from the wait for a free parser
+      if (!task.started.await(timeout, TimeUnit.SECONDS)) {
+        task.abandon();
+        future.cancel(true);
+        throw new GenericException("No Tika parser was free within " + timeout + " seconds");
+      }
+      future.get(timeout, TimeUnit.SECONDS);
+      return false;
+    } catch (TimeoutException e) {
+      task.abandon();
+      future.cancel(true);
+      IOUtils.closeQuietly(input);
+      throw new GenericException("Tika did not finish parsing within " + timeout + " seconds");
+    } catch (InterruptedException e) {
+      task.abandon();
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while waiting for Tika", e);
+    } catch (CancellationException e) {
+      throw new GenericException("Tika parsing was cancelled", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (writeOutHandler != null && writeOutHandler.isWriteLimitReached(cause)) {
+        LOGGER.debug("Text extracted by Tika truncated to {} characters", fulltextMaxChars);
+        return true;
+      }
+      throw new GenericException("Error parsing with Tika: " + cause.getMessage(), cause);
+    } finally {
+      // only the parse itself is timed, not the wait for a free parser
+      if (task.started.getCount() == 0) {
+        ToolProcessManager.recordInvocation(TOOL_NAME, System.nanoTime() - task.startTime);
+      }
+    }
+  }
+
+  public void close() {
+    executor.shutdownNow();
+    for (Parser parser : parsers) {
+      if (parser instanceof ForkParser) {
+        ((ForkParser) parser).close();
+      }
+    }
+  }
+
+  private Parser newParser() {
+    return forkJavaCommand != null ? newForkParser() : inProcessParser;
+  }
+
+  private ForkParser newForkParser() {
+    ForkParser forkParser = new ForkParser(TikaService.class.getClassLoader(), new AutoDetectParser());
+    forkParser.setPoolSize(1);
+    forkParser.setJavaCommand(forkJavaCommand);
+    return forkParser;
+  }
+
+  private final class ParseTask implements Callable<Void> {
+    private final InputStream input;
+    private final ContentHandler handler;
+    private final Metadata metadata;
+    private final CountDownLatch started = new CountDownLatch(1);
+    private Parser parser = null;
+    private boolean abandoned = false;
+    private long startTime;
+
+    ParseTask(InputStream input, ContentHandler handler, Metadata metadata) {
+      this.input = input;
+      this.handler = handler;
+      this.metadata = metadata;
+    }
+
+    @Override
+    public Void call() throws IOException, SAXException, TikaException, InterruptedException {
+      Parser taken = parsers.take();
+      synchronized (this) {
+        if (abandoned) {
+          // gave up waiting for a free parser
+          parsers.add(taken);
+          return null;
+        }
+        parser = taken;
+      }
+      // published to the caller by the latch
+      startTime = System.nanoTime();
+      started.countDown();
+
+      try {
+        ParseContext context = new ParseContext();
+        if (!(taken instanceof ForkParser)) {
+          // so that embedded documents are parsed too
+          context.set(Parser.class, taken);
+        }
+        taken.parse(input, handler, metadata, context);
+      } finally {
+        release();
+      }
+      return null;
+    }
+
+    private synchronized void release() {
+      // the parser of an abandoned parse was already replaced
+      if (parser != null && !abandoned) {
+        parsers.add(parser);
+      }
+      parser = null;
+    }
+
+    synchronized void abandon() {
+      abandoned = true;
+      if (parser != null) {
+        if (parser instanceof ForkParser) {
+          ((ForkParser) parser).close();
+        } else {
+          LOGGER.warn("Abandoning a Tika parse, which may keep its thread busy until it ends");
+        }
+        parsers.add(newParser());
+        parser = null;
+      }
+    }
+  }
+}
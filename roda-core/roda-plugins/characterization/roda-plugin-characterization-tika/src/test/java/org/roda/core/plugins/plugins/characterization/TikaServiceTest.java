@@ -0,0 +1,94 @@
+/**
+ * The contents of this file are subject to the license and copyright
+ * detailed in the LICENSE file at the root of the source
+ * tree and available online at
+ *
+ * https://github.com/keeps/roda
+ */
+package org.roda.core.plugins.plugins.characterization;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+
+import org.apache.commons.lang3.StringUtils;
+import org.apache.tika.metadata.Metadata;
+import org.roda.core.data.exceptions.GenericException;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+@Test(groups = {"all", "travis"})
+public class TikaServiceTest {
+
+  private static InputStream text(String text) {
+    return new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void testFulltextIsTruncated() throws GenericException {
+    TikaService tika = new TikaService(1, 60, 10, null);
+    try {
+      StringWriter fulltext = new StringWriter();
+      Assert.assertTrue(tika.parse(text(StringUtils.repeat("word ", 100)), new Metadata(), fulltext));
+      Assert.assertEquals(fulltext.toString().length(), 10);
+
+      StringWriter shortFulltext = new StringWriter();
+      Assert.assertFalse(tika.parse(text("word"), new Metadata(), shortFulltext));
+      Assert.assertTrue(shortFulltext.toString().contains("word"));
+    } finally {
+      tika.close();
+    }
+  }
+
+  @Test
+  public void testParseThatNeverEndsTimesOutAndFreesItsParser() throws GenericException {
+    TikaService tika = new TikaService(1, 1, -1, null);
+    HangingInputStream hanging = new HangingInputStream();
+    try {
+      try {
+        tika.parse(hanging, new Metadata(), new StringWriter());
+        Assert.fail("The parse should have timed out");
+      } catch (GenericException e) {
+        // expected
+      }
+
+      // the only parser is still stuck on the first file, but was replaced
+      StringWriter fulltext = new StringWriter();
+      tika.parse(text("word"), new Metadata(), fulltext);
+      Assert.assertTrue(fulltext.toString().contains("word"));
+    } finally {
+      hanging.release();
+      tika.close();
+    }
+  }
+
+  /**
+   * Input that blocks on read, ignoring interrupts and being closed, until
+   * released.
+   */
+  private static final class HangingInputStream extends InputStream {
+    private final CountDownLatch released = new CountDownLatch(1);
+
+    @Override
+    public int read() {
+      boolean interrupted = false;
+      while (released.getCount() > 0) {
+        try {
+          released.await();
+        } catch (InterruptedException e) {
+          interrupted = true;
+        }
+      }
+      if (interrupted) {
+        Thread.currentThread().interrupt();
+      }
+      return -1;
+    }
+
+    void release() {
+      released.countDown();
+    }
+  }
+}
@@ -7,6 +7,8 @@
  */
 package org.roda.core.plugins.misc;
 
+import java.io.IOException;
+import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -15,6 +17,10 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.lang3.StringUtils;
 import org.roda.core.RodaCoreFactory;
@@ -48,14 +54,14 @@ import org.roda.core.model.utils.ModelUtils;
 import org.roda.core.plugins.AbstractPlugin;
 import org.roda.core.plugins.Plugin;
 import org.roda.core.plugins.PluginException;
-import org.roda.core.plugins.RODAObjectProcessingLogic;
+import org.roda.core.plugins.RODAObjectsProcessingLogic;
 import org.roda.core.plugins.orchestrate.JobPluginInfo;
 import org.roda.core.plugins.orchestrate.SimpleJobPluginInfo;
 import org.roda.core.plugins.plugins.PluginHelper;
 import org.roda.core.storage.DefaultStoragePath;
 import org.roda.core.storage.StorageService;
 import org.roda.core.storage.StringContentPayload;
-import org.roda.core.storage.fs.FSUtils;
+import org.roda.core.storage.fs.FileCopier;
 import org.roda.core.storage.fs.FileStorageService;
 import org.roda_project.commons_ip.model.ParseException;
 import org.roda_project.commons_ip.model.impl.eark.EARKAIP;
@@ -65,6 +71,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.fasterxml.jackson.databind.JsonNode;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 
 /**
  * Plugin that generates E-ARK DIP manifest files (METS.xml) from the exiting
@@ -73,6 +80,7 @@ import com.fasterxml.jackson.databind.JsonNode;
 public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   private static final Logger LOGGER = LoggerFactory.getLogger(CreateMetsDIPPlugin.class);
   private static final String VERSION = "1.0";
+  private static final int DEFAULT_THREADS = 4;
 
   private boolean includeSelectedDescriptiveMetadata = false;
   private String selectedDescriptiveMetadata = "";
@@ -280,15 +288,52 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   @Override
   public Report execute(final IndexService index, final ModelService model, final StorageService storage,
     final List<LiteOptionalWithCause> liteList) throws PluginException {
-    return PluginHelper.processObjects(this, new RODAObjectProcessingLogic<AIP>() {
+    return PluginHelper.processObjects(this, new RODAObjectsProcessingLogic<AIP>() {
       @Override
       public void process(IndexService index, ModelService model, StorageService storage, Report report, Job cachedJob,
-        SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, AIP object) {
-        executeOnAip(object, index, model, storage, jobPluginInfo, report, cachedJob);
+        SimpleJobPluginInfo jobPluginInfo, Plugin<AIP> plugin, List<AIP> objects) {
+        executeOnAips(objects, index, model, storage, jobPluginInfo, report, cachedJob);
       }
     }, index, model, storage, liteList);
   }
 
+  /**
+   * Execute on several {@link AIP}s, creating their DIPs in parallel.
+   */
+  private void executeOnAips(final List<AIP> aips, final IndexService index, final ModelService model,
+    final StorageService storage, final JobPluginInfo jobPluginInfo, final Report report, final Job job) {
+    int threads = Math.min(aips.size(),
+      RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_THREADS, "core", "plugins", "internal", "create_mets_dip",
+        "threads"));
+    if (threads <= 1) {
+      for (AIP aip : aips) {
+        executeOnAip(aip, index, model, storage, jobPluginInfo, report, job);
+      }
+      return;
+    }
+
+    ExecutorService executor = Executors.newFixedThreadPool(threads,
+      new ThreadFactoryBuilder().setNameFormat("create-mets-dip-%d").setDaemon(true).build());
+    try {
+      List<Future<?>> futures = new ArrayList<>();
+      for (AIP aip : aips) {
+        futures.add(executor.submit(() -> executeOnAip(aip, index, model, storage, jobPluginInfo, report, job)));
+      }
+      for (Future<?> future : futures) {
+        try {
+          future.get();
+        } catch (ExecutionException e) {
+          LOGGER.error("Unexpected exception creating DIP", e.getCause());
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      LOGGER.warn("Interrupted while creating DIPs");
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
   /**
    * Execute on a single {@link AIP}.
    * 
@@ -338,7 +383,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
         copyAndFilterAIP(storage, aip, aipPath, aipOnDIPPath);
 
         // create mets files
-        Path fsPath = FSUtils.getEntityPath(RodaCoreFactory.getStoragePath(), aipOnDIPPath);
+        Path fsPath = ((FileStorageService) storage).resolve(aipOnDIPPath);
         EARKAIP earkAIPonDIP = new EARKAIP(RodaFolderAIP.parse(fsPath));
         earkAIPonDIP.setType(IPType.DIP);
         earkAIPonDIP.build(fsPath.getParent(), true);
@@ -346,29 +391,37 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
         // delete aip.json
         storage.deleteResource(DefaultStoragePath.parse(aipOnDIPPath, RodaConstants.STORAGE_AIP_METADATA_FILENAME));
 
-        jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        synchronized (jobPluginInfo) {
+          jobPluginInfo.incrementObjectsProcessedWithSuccess();
+        }
         reportItem.setPluginState(PluginState.SUCCESS);
 
       } catch (RODAException | ParseException | IPException | InterruptedException e) {
         String message = String.format("Error creating manifest files for AIP %s. Cause: %s.", aip.getId(),
           e.getMessage());
         LOGGER.debug(message, e);
-        jobPluginInfo.incrementObjectsProcessedWithFailure();
+        synchronized (jobPluginInfo) {
+          jobPluginInfo.incrementObjectsProcessedWithFailure();
+        }
         reportItem.setPluginState(PluginState.FAILURE).setPluginDetails(message);
       }
     } else {
-      jobPluginInfo.incrementObjectsProcessedWithFailure();
+      synchronized (jobPluginInfo) {
+        jobPluginInfo.incrementObjectsProcessedWithFailure();
+      }
       reportItem.setPluginState(PluginState.FAILURE).setPluginDetails("Storage service type used is not supported");
     }
 
-    report.addReport(reportItem);
+    synchronized (report) {
+      report.addReport(reportItem);
+    }
     PluginHelper.updatePartialJobReport(this, model, index, reportItem, true, job);
   }
 
   private void copyAndFilterAIP(StorageService storage, AIP aip, StoragePath aipPath, StoragePath aipOnDIPPath)
     throws RequestNotValidException, AlreadyExistsException, GenericException, NotFoundException,
     AuthorizationDeniedException {
-    LOGGER.info("Copying AIP to a new DIP");
+    LOGGER.info("Linking AIP {} into a new DIP", aip.getId());
 
     copyAIPBaseFiles(storage, aipPath, aipOnDIPPath);
 
@@ -381,25 +434,22 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   }
 
   private void copyAIPBaseFiles(StorageService storage, StoragePath aipPath, StoragePath aipOnDIPPath)
-    throws RequestNotValidException, AlreadyExistsException, GenericException, NotFoundException,
-    AuthorizationDeniedException {
+    throws RequestNotValidException, GenericException {
 
     StoragePath schemasPath = DefaultStoragePath.parse(aipPath, RodaConstants.STORAGE_DIRECTORY_SCHEMAS);
     if (includeSchemas && storage.hasDirectory(schemasPath)) {
-      storage.copy(storage, schemasPath,
-        DefaultStoragePath.parse(aipOnDIPPath, RodaConstants.STORAGE_DIRECTORY_SCHEMAS));
+      link(storage, schemasPath, DefaultStoragePath.parse(aipOnDIPPath, RodaConstants.STORAGE_DIRECTORY_SCHEMAS));
     }
 
     StoragePath documentationPath = DefaultStoragePath.parse(aipPath, RodaConstants.STORAGE_DIRECTORY_DOCUMENTATION);
     if (includeDocumentation && storage.hasDirectory(documentationPath)) {
-      storage.copy(storage, documentationPath,
+      link(storage, documentationPath,
         DefaultStoragePath.parse(aipOnDIPPath, RodaConstants.STORAGE_DIRECTORY_DOCUMENTATION));
     }
   }
 
   private List<String> copyRepresentationsAndItsMetadata(StorageService storage, AIP aip, StoragePath aipPath,
-    StoragePath aipOnDIPPath) throws RequestNotValidException, AlreadyExistsException, GenericException,
-    NotFoundException, AuthorizationDeniedException {
+    StoragePath aipOnDIPPath) throws RequestNotValidException, GenericException {
     List<String> representationTypes = Arrays.asList(selectedRepresentations.toLowerCase().split(",\\s*"));
     List<String> representationIds = new ArrayList<String>();
 
@@ -421,21 +471,21 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
           StoragePath representationDataPath = DefaultStoragePath.parse(representationPath,
             RodaConstants.STORAGE_DIRECTORY_DATA);
           if (storage.hasDirectory(representationDataPath)) {
-            storage.copy(storage, representationDataPath,
+            link(storage, representationDataPath,
               DefaultStoragePath.parse(representationDIPPath, RodaConstants.STORAGE_DIRECTORY_DATA));
           }
 
           StoragePath representationSchemasPath = DefaultStoragePath.parse(representationPath,
             RodaConstants.STORAGE_DIRECTORY_SCHEMAS);
           if (includeSchemas && storage.hasDirectory(representationSchemasPath)) {
-            storage.copy(storage, representationSchemasPath,
+            link(storage, representationSchemasPath,
               DefaultStoragePath.parse(representationDIPPath, RodaConstants.STORAGE_DIRECTORY_SCHEMAS));
           }
 
           StoragePath representationDocPath = DefaultStoragePath.parse(representationPath,
             RodaConstants.STORAGE_DIRECTORY_DOCUMENTATION);
           if (includeDocumentation && storage.hasDirectory(representationDocPath)) {
-            storage.copy(storage, representationDocPath,
+            link(storage, representationDocPath,
               DefaultStoragePath.parse(representationDIPPath, RodaConstants.STORAGE_DIRECTORY_DOCUMENTATION));
           }
 
@@ -453,8 +503,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   }
 
   private List<String> copyAIPDescriptiveMetadata(StorageService storage, AIP aip, StoragePath aipPath,
-    StoragePath aipOnDIPPath) throws RequestNotValidException, AlreadyExistsException, GenericException,
-    NotFoundException, AuthorizationDeniedException {
+    StoragePath aipOnDIPPath) throws RequestNotValidException, GenericException {
     List<String> descriptiveMetadataIds = new ArrayList<String>();
 
     for (DescriptiveMetadata dm : aip.getDescriptiveMetadata()) {
@@ -468,8 +517,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   }
 
   private String copyDescriptiveMetadata(StorageService storage, DescriptiveMetadata dm, StoragePath sourcePath,
-    StoragePath targetPath) throws RequestNotValidException, AlreadyExistsException, GenericException,
-    NotFoundException, AuthorizationDeniedException {
+    StoragePath targetPath) throws RequestNotValidException, GenericException {
     List<String> metadataTypes = Arrays.asList(selectedDescriptiveMetadata.toLowerCase().split(",\\s*"));
     String versionType = dm.getType() + RodaConstants.METADATA_VERSION_SEPARATOR + dm.getVersion();
     String dmId = dm.getId();
@@ -483,7 +531,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
         StoragePath newMetadataPath = DefaultStoragePath.parse(targetPath, RodaConstants.STORAGE_DIRECTORY_METADATA,
           RodaConstants.STORAGE_DIRECTORY_DESCRIPTIVE, dmId);
 
-        storage.copy(storage, oldMetadataPath, newMetadataPath);
+        link(storage, oldMetadataPath, newMetadataPath);
         return dmId;
       }
     }
@@ -492,8 +540,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
   }
 
   private void copyPreservationMetadata(StorageService storage, StoragePath sourcePath, StoragePath targetPath)
-    throws RequestNotValidException, AlreadyExistsException, GenericException, NotFoundException,
-    AuthorizationDeniedException {
+    throws RequestNotValidException, GenericException {
     if (includeAllPreservationMetadata) {
       StoragePath oldMetadataPath = DefaultStoragePath.parse(sourcePath, RodaConstants.STORAGE_DIRECTORY_METADATA,
         RodaConstants.STORAGE_DIRECTORY_PRESERVATION);
@@ -502,7 +549,7 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
         StoragePath newMetadataPath = DefaultStoragePath.parse(targetPath, RodaConstants.STORAGE_DIRECTORY_METADATA,
           RodaConstants.STORAGE_DIRECTORY_PRESERVATION);
 
-        storage.copy(storage, oldMetadataPath, newMetadataPath);
+        link(storage, oldMetadataPath, newMetadataPath);
       }
     }
   }
@@ -520,10 +567,9 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
             StoragePath newMetadataPath = DefaultStoragePath.parse(targetPath, RodaConstants.STORAGE_DIRECTORY_METADATA,
               RodaConstants.STORAGE_DIRECTORY_OTHER, type);
 
-            storage.copy(storage, oldMetadataPath, newMetadataPath);
+            link(storage, oldMetadataPath, newMetadataPath);
           }
-        } catch (RequestNotValidException | AlreadyExistsException | GenericException | NotFoundException
-          | AuthorizationDeniedException e) {
+        } catch (RequestNotValidException | GenericException e) {
           LOGGER.error("Error copying other metadata type '{}' when creating EARK-DIP", type, e);
         }
       }
@@ -536,12 +582,40 @@ public class CreateMetsDIPPlugin extends AbstractPlugin<AIP> {
           StoragePath newMetadataPath = DefaultStoragePath.parse(targetPath, RodaConstants.STORAGE_DIRECTORY_METADATA,
             RodaConstants.STORAGE_DIRECTORY_OTHER);
 
-          storage.copy(storage, oldMetadataPath, newMetadataPath);
+          link(storage, oldMetadataPath, newMetadataPath);
         }
-      } catch (RequestNotValidException | AlreadyExistsException | GenericException | NotFoundException
-        | AuthorizationDeniedException e) {
-        LOGGER.error("Error copying other metadata '{}' when creating EARK-DIP", e);
+      } catch (RequestNotValidException | GenericException e) {
+        LOGGER.error("Error copying other metadata when creating EARK-DIP", e);
+      }
+    }
+  }
+
+  /**
+   * Hard links (or, if not possible, copies) a file or folder of the AIP into
+   * the DIP. The DIP files are never changed in place, so they can share the
+   * AIP files instead of doubling the disk usage and the I/O.
+   */
+  private void link(StorageService storage, StoragePath sourcePath, StoragePath targetPath) throws GenericException {
+    if (!(storage instanceof FileStorageService)) {
+      try {
+        storage.copy(storage, sourcePath, targetPath);
+      } catch (AlreadyExistsException | RequestNotValidException | NotFoundException | AuthorizationDeniedException e) {
+        throw new GenericException("Error copying " + sourcePath + " into the DIP", e);
+      }
+      return;
+    }
+
+    Path source = ((FileStorageService) storage).resolve(sourcePath);
+    Path target = ((FileStorageService) storage).resolve(targetPath);
+    try {
+      Files.createDirectories(target.getParent());
+      if (Files.isDirectory(source)) {
+        FileCopier.linkTree(source, target, false);
+      } else {
+        FileCopier.linkFile(source, target, false);
       }
+    } catch (IOException e) {
+      throw new GenericException("Error linking " + source + " into the DIP", e);
     }
   }
 
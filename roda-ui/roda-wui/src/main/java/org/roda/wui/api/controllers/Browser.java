@@ -14,6 +14,7 @@ import java.nio.file.Path;
 import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -266,13 +267,21 @@ public class Browser extends RodaWuiController {
   public static <T extends IsIndexed> IndexResult<T> find(final Class<T> classToReturn, final Filter filter,
     final Sorter sorter, final Sublist sublist, final Facets facets, final User user, final boolean justActive)
     throws GenericException, AuthorizationDeniedException, RequestNotValidException {
+    return find(classToReturn, filter, sorter, sublist, facets, user, justActive, Collections.emptyList());
+  }
+
+  public static <T extends IsIndexed> IndexResult<T> find(final Class<T> classToReturn, final Filter filter,
+    final Sorter sorter, final Sublist sublist, final Facets facets, final User user, final boolean justActive,
+    final List<String> fieldsToReturn)
+    throws GenericException, AuthorizationDeniedException, RequestNotValidException {
     final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
 
     // check user permissions
     controllerAssistant.checkRoles(user, classToReturn);
 
     // delegate
-    final IndexResult<T> ret = BrowserHelper.find(classToReturn, filter, sorter, sublist, facets, user, justActive);
+    final IndexResult<T> ret = BrowserHelper.find(classToReturn, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
 
     // register action
 
@@ -321,6 +330,18 @@ public class Browser extends RodaWuiController {
     return count;
   }
 
+  public static <T extends IsIndexed> Long waitForIndexChange(final User user, final Class<T> classToReturn,
+    final String scope, final Long knownVersion) throws AuthorizationDeniedException, GenericException {
+    final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
+
+    // check user permissions
+    controllerAssistant.checkRoles(user, classToReturn);
+
+    // delegate
+    // not registered as an action, as each log entry is itself a change
+    return BrowserHelper.waitForIndexChange(classToReturn, scope, knownVersion);
+  }
+
   public static <T extends IsIndexed> T retrieve(final User user, final Class<T> classToReturn, final String id)
     throws AuthorizationDeniedException, GenericException, NotFoundException {
     final ControllerAssistant controllerAssistant = new ControllerAssistant() {};
@@ -26,6 +26,7 @@ import java.util.MissingResourceException;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.Semaphore;
 import java.util.stream.Collectors;
 
 import javax.ws.rs.core.MultivaluedMap;
@@ -125,6 +126,7 @@ import org.roda.core.data.v2.risks.RiskIncidence.INCIDENCE_STATUS;
 import org.roda.core.data.v2.user.User;
 import org.roda.core.data.v2.validation.ValidationException;
 import org.roda.core.data.v2.validation.ValidationReport;
+import org.roda.core.index.IndexChangeTracker;
 import org.roda.core.index.IndexService;
 import org.roda.core.index.utils.IterableIndexResult;
 import org.roda.core.model.ModelService;
@@ -170,6 +172,11 @@ import org.xml.sax.SAXException;
 public class BrowserHelper {
   private static final String HTML_EXT = ".html";
   private static final Logger LOGGER = LoggerFactory.getLogger(BrowserHelper.class);
+  private static final int DEFAULT_INDEX_CHANGE_WAIT_TIMEOUT_MILLIS = 5000;
+  private static final int DEFAULT_INDEX_CHANGE_VISIBILITY_DELAY_MILLIS = 2000;
+  private static final int DEFAULT_INDEX_CHANGE_MAX_WAITING = 50;
+
+  private static Semaphore indexChangeWaiting = null;
 
   protected static BrowseAIPBundle retrieveBrowseAipBundle(IndexedAIP aip, Locale locale)
     throws GenericException, NotFoundException, RequestNotValidException, AuthorizationDeniedException {
@@ -526,11 +533,54 @@ public class BrowserHelper {
     return RodaCoreFactory.getIndexService().find(returnClass, filter, sorter, sublist, facets, user, justActive);
   }
 
+  protected static <T extends IsIndexed> IndexResult<T> find(Class<T> returnClass, Filter filter, Sorter sorter,
+    Sublist sublist, Facets facets, User user, boolean justActive, List<String> fieldsToReturn)
+    throws GenericException, RequestNotValidException {
+    return RodaCoreFactory.getIndexService().find(returnClass, filter, sorter, sublist, facets, user, justActive,
+      fieldsToReturn);
+  }
+
   protected static <T extends IsIndexed> IterableIndexResult<T> findAll(final Class<T> returnClass, final Filter filter,
     final Sorter sorter, final Sublist sublist, final User user, final boolean justActive) {
     return RodaCoreFactory.getIndexService().findAll(returnClass, filter, sorter, sublist, user, justActive, true);
   }
 
+  protected static <T extends IsIndexed> Long waitForIndexChange(Class<T> returnClass, String scope, Long knownVersion)
+    throws GenericException {
+    IndexChangeTracker tracker = RodaCoreFactory.getIndexService().getChangeTracker();
+    if (knownVersion == null) {
+      return tracker.getVersion(returnClass, scope);
+    }
+
+    // each wait holds a request thread
+    Semaphore waiting = getIndexChangeWaiting();
+    if (!waiting.tryAcquire()) {
+      LOGGER.debug("Too many lists waiting for index changes, not waiting");
+      return knownVersion;
+    }
+
+    int timeout = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_INDEX_CHANGE_WAIT_TIMEOUT_MILLIS, "ui", "lists",
+      "change_wait", "timeout");
+    int visibilityDelay = RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_INDEX_CHANGE_VISIBILITY_DELAY_MILLIS, "ui",
+      "lists", "change_wait", "visibility_delay");
+    try {
+      return tracker.waitForChange(returnClass, scope, knownVersion, timeout, visibilityDelay);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return knownVersion;
+    } finally {
+      waiting.release();
+    }
+  }
+
+  private static synchronized Semaphore getIndexChangeWaiting() {
+    if (indexChangeWaiting == null) {
+      indexChangeWaiting = new Semaphore(RodaCoreFactory.getRodaConfigurationAsInt(DEFAULT_INDEX_CHANGE_MAX_WAITING,
+        "ui", "lists", "change_wait", "max_waiting"));
+    }
+    return indexChangeWaiting;
+  }
+
   protected static <T extends IsIndexed> Long count(Class<T> returnClass, Filter filter, boolean justActive, User user)
     throws GenericException, RequestNotValidException {
     return RodaCoreFactory.getIndexService().count(returnClass, filter, user, justActive);
@@ -78,6 +78,7 @@ public class FilesResource {
   public Response listFiles(
     @ApiParam(value = "Index of the first element to return", defaultValue = "0") @QueryParam(RodaConstants.API_QUERY_KEY_START) String start,
     @ApiParam(value = "Maximum number of elements to return", defaultValue = RodaConstants.DEFAULT_PAGINATION_STRING_VALUE) @QueryParam(RodaConstants.API_QUERY_KEY_LIMIT) String limit,
+    @ApiParam(value = "Comma separated list of index fields to return. If set, the indexed objects are returned with only these fields instead of the full objects") @QueryParam(RodaConstants.API_QUERY_KEY_FIELDS) String fields,
     @ApiParam(value = "Choose format in which to get the file", allowableValues = RodaConstants.API_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat)
     throws RODAException {
     String mediaType = ApiUtils.getMediaType(acceptFormat, request);
@@ -88,9 +89,14 @@ public class FilesResource {
     // delegate action to controller
     boolean justActive = false;
     Pair<Integer, Integer> pagingParams = ApiUtils.processPagingParams(start, limit);
+    List<String> fieldsToReturn = ApiUtils.processFieldsParam(fields);
     IndexResult<IndexedFile> result = Browser.find(IndexedFile.class, Filter.NULL, Sorter.NONE,
-      new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive);
-    return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedFile.class, result), mediaType).build();
+      new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive, fieldsToReturn);
+    if (fieldsToReturn.isEmpty()) {
+      return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedFile.class, result), mediaType).build();
+    } else {
+      return Response.ok(ApiUtils.indexedResultToIndexedObjectList(IndexedFile.class, result), mediaType).build();
+    }
   }
 
   @GET
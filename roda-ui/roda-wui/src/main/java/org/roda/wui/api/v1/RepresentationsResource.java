@@ -9,6 +9,7 @@ package org.roda.wui.api.v1;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.List;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.ws.rs.Consumes;
@@ -81,6 +82,7 @@ public class RepresentationsResource {
   public Response listRepresentations(
     @ApiParam(value = "Index of the first element to return", defaultValue = "0") @QueryParam(RodaConstants.API_QUERY_KEY_START) String start,
     @ApiParam(value = "Maximum number of elements to return", defaultValue = RodaConstants.DEFAULT_PAGINATION_STRING_VALUE) @QueryParam(RodaConstants.API_QUERY_KEY_LIMIT) String limit,
+    @ApiParam(value = "Comma separated list of index fields to return. If set, the indexed objects are returned with only these fields instead of the full objects") @QueryParam(RodaConstants.API_QUERY_KEY_FIELDS) String fields,
     @ApiParam(value = "Choose format in which to get the representation", allowableValues = RodaConstants.API_LIST_MEDIA_TYPES, defaultValue = RodaConstants.API_QUERY_VALUE_ACCEPT_FORMAT_JSON) @QueryParam(RodaConstants.API_QUERY_KEY_ACCEPT_FORMAT) String acceptFormat)
     throws RODAException {
     String mediaType = ApiUtils.getMediaType(acceptFormat, request);
@@ -91,9 +93,16 @@ public class RepresentationsResource {
     // delegate action to controller
     boolean justActive = false;
     Pair<Integer, Integer> pagingParams = ApiUtils.processPagingParams(start, limit);
+    List<String> fieldsToReturn = ApiUtils.processFieldsParam(fields);
     IndexResult<IndexedRepresentation> result = Browser.find(IndexedRepresentation.class, Filter.NULL, Sorter.NONE,
-      new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive);
-    return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedRepresentation.class, result), mediaType).build();
+      new Sublist(pagingParams.getFirst(), pagingParams.getSecond()), null, user, justActive, fieldsToReturn);
+    if (fieldsToReturn.isEmpty()) {
+      return Response.ok(ApiUtils.indexedResultToRODAObjectList(IndexedRepresentation.class, result), mediaType)
+        .build();
+    } else {
+      return Response.ok(ApiUtils.indexedResultToIndexedObjectList(IndexedRepresentation.class, result), mediaType)
+        .build();
+    }
   }
 
   @GET
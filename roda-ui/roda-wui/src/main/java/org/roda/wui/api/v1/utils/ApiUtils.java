@@ -11,8 +11,11 @@ import java.io.IOException;
 import java.io.OutputStream;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
 import java.util.stream.Collectors;
 
 import javax.servlet.http.HttpServletRequest;
@@ -48,9 +51,12 @@ import org.roda.core.data.v2.ip.AIPs;
 import org.roda.core.data.v2.ip.DIP;
 import org.roda.core.data.v2.ip.DIPFile;
 import org.roda.core.data.v2.ip.IndexedAIP;
+import org.roda.core.data.v2.ip.IndexedAIPs;
 import org.roda.core.data.v2.ip.IndexedDIP;
 import org.roda.core.data.v2.ip.IndexedFile;
+import org.roda.core.data.v2.ip.IndexedFiles;
 import org.roda.core.data.v2.ip.IndexedRepresentation;
+import org.roda.core.data.v2.ip.IndexedRepresentations;
 import org.roda.core.data.v2.ip.Representations;
 import org.roda.core.data.v2.ip.StoragePath;
 import org.roda.core.data.v2.ip.TransferredResource;
@@ -156,6 +162,25 @@ public class ApiUtils {
     return new Pair<Integer, Integer>(startInteger, limitInteger);
   }
 
+  /**
+   * Parses the comma separated list of index fields to return
+   *
+   * @param fields
+   *          the fields query parameter (can be null)
+   * @return the list of fields, empty if all fields should be returned
+   */
+  public static List<String> processFieldsParam(String fields) {
+    List<String> ret = new ArrayList<>();
+    if (StringUtils.isNotBlank(fields)) {
+      for (String field : fields.split(",")) {
+        if (StringUtils.isNotBlank(field)) {
+          ret.add(field.trim());
+        }
+      }
+    }
+    return ret;
+  }
+
   public static Response okResponse(StreamResponse streamResponse, CacheControl cacheControl, Date lastModifiedDate) {
     return okResponse(streamResponse, cacheControl, lastModifiedDate, false);
   }
@@ -247,28 +272,20 @@ public class ApiUtils {
     RODAObjectList<?> ret;
 
     if (objectClass.equals(IndexedAIP.class)) {
-      AIPs aips = new AIPs();
-      for (T object : result.getResults()) {
-        IndexedAIP aip = (IndexedAIP) object;
-        aips.addObject(RodaCoreFactory.getModelService().retrieveAIP(aip.getId()));
-      }
-      ret = aips;
+      ret = new AIPs(retrieveModelObjects(result.getResults(),
+        object -> RodaCoreFactory.getModelService().retrieveAIP(((IndexedAIP) object).getId())));
     } else if (objectClass.equals(IndexedRepresentation.class)) {
-      Representations representations = new Representations();
-      for (T object : result.getResults()) {
+      ret = new Representations(retrieveModelObjects(result.getResults(), object -> {
         IndexedRepresentation representation = (IndexedRepresentation) object;
-        representations.addObject(
-          RodaCoreFactory.getModelService().retrieveRepresentation(representation.getAipId(), representation.getId()));
-      }
-      ret = representations;
+        return RodaCoreFactory.getModelService().retrieveRepresentation(representation.getAipId(),
+          representation.getId());
+      }));
     } else if (objectClass.equals(IndexedFile.class)) {
-      org.roda.core.data.v2.ip.Files files = new org.roda.core.data.v2.ip.Files();
-      for (T object : result.getResults()) {
+      ret = new org.roda.core.data.v2.ip.Files(retrieveModelObjects(result.getResults(), object -> {
         IndexedFile file = (IndexedFile) object;
-        files.addObject(RodaCoreFactory.getModelService().retrieveFile(file.getAipId(), file.getRepresentationId(),
-          file.getPath(), file.getId()));
-      }
-      ret = files;
+        return RodaCoreFactory.getModelService().retrieveFile(file.getAipId(), file.getRepresentationId(),
+          file.getPath(), file.getId());
+      }));
     } else if (objectClass.equals(IndexedRisk.class)) {
       List<Risk> risks = result.getResults().stream().map(risk -> (Risk) risk).collect(Collectors.toList());
       ret = new org.roda.core.data.v2.risks.Risks(risks);
@@ -299,6 +316,84 @@ public class ApiUtils {
     return (RODAObjectList<R>) ret;
   }
 
+  /**
+   * Wraps the indexed objects, as returned by the index, in a list that can be
+   * serialized by the API. Unlike
+   * {@link #indexedResultToRODAObjectList(Class, IndexResult)}, nothing is
+   * retrieved from the storage.
+   */
+  @SuppressWarnings("unchecked")
+  public static <T extends IsIndexed> RODAObjectList<T> indexedResultToIndexedObjectList(Class<T> objectClass,
+    IndexResult<T> result) throws GenericException {
+    RODAObjectList<?> ret;
+
+    if (objectClass.equals(IndexedAIP.class)) {
+      ret = new IndexedAIPs((List<IndexedAIP>) result.getResults());
+    } else if (objectClass.equals(IndexedRepresentation.class)) {
+      ret = new IndexedRepresentations((List<IndexedRepresentation>) result.getResults());
+    } else if (objectClass.equals(IndexedFile.class)) {
+      ret = new IndexedFiles((List<IndexedFile>) result.getResults());
+    } else {
+      throw new GenericException("Unsupported object class: " + objectClass);
+    }
+
+    return (RODAObjectList<T>) ret;
+  }
+
+  @FunctionalInterface
+  private interface ModelObjectRetriever<T, R> {
+    R retrieve(T object)
+      throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException;
+  }
+
+  /**
+   * Retrieves the model objects of a page of indexed objects concurrently
+   * (bounded by a pool shared by all requests), keeping the index order.
+   */
+  private static <T, R> List<R> retrieveModelObjects(List<T> objects, ModelObjectRetriever<T, R> retriever)
+    throws RequestNotValidException, NotFoundException, GenericException, AuthorizationDeniedException {
+    List<R> ret = new ArrayList<>();
+    if (objects.size() <= 1) {
+      for (T object : objects) {
+        ret.add(retriever.retrieve(object));
+      }
+      return ret;
+    }
+
+    List<Future<R>> futures = new ArrayList<>();
+    for (T object : objects) {
+      futures.add(RodaCoreFactory.getModelRetrievalExecutor().submit(() -> retriever.retrieve(object)));
+    }
+
+    try {
+      for (Future<R> future : futures) {
+        ret.add(future.get());
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new GenericException("Interrupted while retrieving objects", e);
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof RequestNotValidException) {
+        throw (RequestNotValidException) cause;
+      } else if (cause instanceof NotFoundException) {
+        throw (NotFoundException) cause;
+      } else if (cause instanceof AuthorizationDeniedException) {
+        throw (AuthorizationDeniedException) cause;
+      } else if (cause instanceof GenericException) {
+        throw (GenericException) cause;
+      } else {
+        throw new GenericException("Error retrieving objects", cause);
+      }
+    } finally {
+      for (Future<R> future : futures) {
+        future.cancel(true);
+      }
+    }
+
+    return ret;
+  }
+
   public static StreamResponse download(Resource resource) {
     return download(resource, null);
   }
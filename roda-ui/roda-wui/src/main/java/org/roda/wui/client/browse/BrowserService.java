@@ -205,6 +205,21 @@ public interface BrowserService extends RemoteService {
   <T extends IsIndexed> Long count(String classNameToReturn, Filter filter, boolean justActive)
     throws AuthorizationDeniedException, GenericException, RequestNotValidException;
 
+  /**
+   * Waits (for a limited time) until the index of the given class changes.
+   *
+   * @param scope
+   *          the job identifier, to only wait for changes of that job (for jobs
+   *          and job reports), or null
+   * @param knownVersion
+   *          the version returned by the previous call, or null to get the
+   *          current version without waiting
+   * @return the current version of the index, different from the known
+   *         version if the index changed
+   */
+  <T extends IsIndexed> Long waitForIndexChange(String classNameToReturn, String scope, Long knownVersion)
+    throws AuthorizationDeniedException, GenericException;
+
   <T extends IsIndexed> T retrieve(String classNameToReturn, String id)
     throws AuthorizationDeniedException, GenericException, NotFoundException;
 
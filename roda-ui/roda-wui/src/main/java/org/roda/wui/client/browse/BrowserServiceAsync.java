@@ -141,6 +141,8 @@ public interface BrowserServiceAsync {
 
   void count(String classNameToReturn, Filter filter, boolean justActive, AsyncCallback<Long> callback);
 
+  void waitForIndexChange(String classNameToReturn, String scope, Long knownVersion, AsyncCallback<Long> callback);
+
   <T extends IsIndexed> void retrieve(String classNameToReturn, String id, AsyncCallback<T> callback);
 
   <T extends IsIndexed> void retrieve(String classNameToReturn, SelectedItems<T> selectedItems,
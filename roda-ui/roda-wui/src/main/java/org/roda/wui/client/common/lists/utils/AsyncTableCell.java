@@ -123,6 +123,9 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
 
   private Timer autoUpdateTimer = null;
   private int autoUpdateTimerMillis = 0;
+  private String autoUpdateChangeScope = null;
+  private Long autoUpdateVersion = null;
+  private int autoUpdateGeneration = 0;
 
   private IndexResult<T> result;
 
@@ -428,42 +431,95 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
     dataProvider.update();
   }
 
+  /**
+   * Keeps the list up to date, refreshing it when its index changes (but not
+   * more often than the given period).
+   */
   public void autoUpdate(int periodMillis) {
+    autoUpdate(periodMillis, null);
+  }
+
+  /**
+   * @param changeScope
+   *          the job identifier, for lists of jobs or job reports that only
+   *          need to be refreshed when that job changes
+   */
+  public void autoUpdate(int periodMillis, String changeScope) {
     if (autoUpdateTimer != null) {
       autoUpdateTimer.cancel();
     }
 
+    autoUpdateChangeScope = changeScope;
     autoUpdateTimer = new Timer() {
 
       @Override
       public void run() {
-        dataProvider.update(new AsyncCallback<Void>() {
-
-          @Override
-          public void onFailure(Throwable caught) {
-            // disable auto-update
-            autoUpdateTimer.cancel();
-          }
-
-          @Override
-          public void onSuccess(Void result) {
-            // do nothing
-          }
-        });
+        waitForChange(++autoUpdateGeneration);
       }
     };
 
     autoUpdateTimerMillis = periodMillis;
+    autoUpdateVersion = null;
     if (this.isAttached()) {
-      autoUpdateTimer.scheduleRepeating(periodMillis);
+      // the version is taken right away, as the list is loaded
+      autoUpdateTimer.run();
     }
 
   }
 
+  private void waitForChange(final int generation) {
+    BrowserService.Util.getInstance().waitForIndexChange(getClassToReturn().getName(), autoUpdateChangeScope,
+      autoUpdateVersion, new AsyncCallback<Long>() {
+
+        @Override
+        public void onFailure(Throwable caught) {
+          // disable auto-update
+          autoUpdateTimer.cancel();
+        }
+
+        @Override
+        public void onSuccess(Long version) {
+          if (generation != autoUpdateGeneration) {
+            // auto-update was stopped or restarted meanwhile
+            return;
+          }
+
+          // the first version only starts the waits
+          boolean changed = autoUpdateVersion != null && !autoUpdateVersion.equals(version);
+          autoUpdateVersion = version;
+          if (changed) {
+            dataProvider.update(new AsyncCallback<Void>() {
+
+              @Override
+              public void onFailure(Throwable caught) {
+                // disable auto-update
+                autoUpdateTimer.cancel();
+              }
+
+              @Override
+              public void onSuccess(Void result) {
+                scheduleAutoUpdate(generation);
+              }
+            });
+          } else {
+            // the server may have answered without waiting, when busy
+            scheduleAutoUpdate(generation);
+          }
+        }
+      });
+  }
+
+  private void scheduleAutoUpdate(int generation) {
+    if (generation == autoUpdateGeneration && this.isAttached()) {
+      autoUpdateTimer.schedule(autoUpdateTimerMillis);
+    }
+  }
+
   @Override
   protected void onDetach() {
     if (autoUpdateTimer != null) {
       autoUpdateTimer.cancel();
+      autoUpdateGeneration++;
     }
     super.onDetach();
   }
@@ -471,7 +527,8 @@ public abstract class AsyncTableCell<T extends IsIndexed, O> extends FlowPanel
   @Override
   protected void onLoad() {
     if (autoUpdateTimer != null && autoUpdateTimerMillis > 0 && !autoUpdateTimer.isRunning()) {
-      autoUpdateTimer.scheduleRepeating(autoUpdateTimerMillis);
+      // the version from before detaching tells whether the list is outdated
+      autoUpdateTimer.run();
     }
     super.onLoad();
   }
@@ -296,7 +296,7 @@ public class ShowJob extends Composite {
       });
 
       if (isJobRunning()) {
-        ingestJobReports.autoUpdate(PERIOD_MILLIS);
+        ingestJobReports.autoUpdate(PERIOD_MILLIS, job.getId());
       }
 
       ingestJobReports.getSelectionModel().addSelectionChangeHandler(new Handler() {
@@ -324,7 +324,7 @@ public class ShowJob extends Composite {
       });
 
       if (isJobRunning()) {
-        simpleJobReports.autoUpdate(PERIOD_MILLIS);
+        simpleJobReports.autoUpdate(PERIOD_MILLIS, job.getId());
       }
 
       simpleJobReports.getSelectionModel().addSelectionChangeHandler(new Handler() {
@@ -225,6 +225,14 @@ public class BrowserServiceImpl extends RemoteServiceServlet implements BrowserS
     return Browser.count(user, classToReturn, filter, justActive);
   }
 
+  @Override
+  public <T extends IsIndexed> Long waitForIndexChange(String classNameToReturn, String scope, Long knownVersion)
+    throws AuthorizationDeniedException, GenericException {
+    User user = UserUtility.getUser(getThreadLocalRequest());
+    Class<T> classToReturn = SelectedItemsUtils.parseClass(classNameToReturn);
+    return Browser.waitForIndexChange(user, classToReturn, scope, knownVersion);
+  }
+
   @Override
   public <T extends IsIndexed> T retrieve(String classNameToReturn, String id)
     throws AuthorizationDeniedException, GenericException, NotFoundException {